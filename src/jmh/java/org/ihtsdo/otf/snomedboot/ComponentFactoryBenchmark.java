@@ -0,0 +1,92 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
+import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.implementation.columnar.ColumnarComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.implementation.columnar.ColumnarComponentStore;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time for a factory to take the callbacks the light loading profile makes for a synthetic release,
+ * without any file reading.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ComponentFactoryBenchmark {
+
+	@Param({"100000"})
+	public int concepts;
+
+	@Param({"standard", "columnar"})
+	public String factory;
+
+	private String[] conceptIds;
+	private String[][] parentIds;
+	private String[] fsns;
+
+	@Setup
+	public void setup() {
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(concepts);
+		conceptIds = new String[concepts];
+		parentIds = new String[concepts][];
+		fsns = new String[concepts];
+		for (int i = 0; i < concepts; i++) {
+			conceptIds[i] = generator.conceptId(i);
+			fsns[i] = "Synthetic concept " + i + " (disorder)";
+		}
+		for (int i = 0; i < concepts; i++) {
+			final int[] parents = generator.parents(i);
+			parentIds[i] = new String[parents.length];
+			for (int p = 0; p < parents.length; p++) {
+				parentIds[i][p] = conceptIds[parents[p]];
+			}
+		}
+	}
+
+	@Benchmark
+	public Object lightProfileCallbacks() {
+		final Object store;
+		final ComponentFactory componentFactory;
+		if (factory.equals("columnar")) {
+			final ColumnarComponentStore columnarStore = new ColumnarComponentStore(concepts);
+			componentFactory = new ColumnarComponentFactory(columnarStore);
+			store = columnarStore;
+		} else {
+			final ComponentStore componentStore = new ComponentStore();
+			componentFactory = new ComponentFactoryImpl(componentStore);
+			store = componentStore;
+		}
+		componentFactory.loadingComponentsStarting();
+		for (int i = 0; i < concepts; i++) {
+			componentFactory.newConceptState(conceptIds[i], SyntheticReleaseGenerator.RELEASE_VERSION, "1", ConceptConstants.CORE_MODULE, "900000000000074008");
+		}
+		for (int i = 0; i < concepts; i++) {
+			final String conceptId = conceptIds[i];
+			for (String parentId : parentIds[i]) {
+				componentFactory.addInferredConceptParent(conceptId, parentId);
+				componentFactory.addInferredConceptChild(conceptId, parentId);
+			}
+			componentFactory.addInferredConceptAttribute(conceptId, "363698007", conceptIds[(i * 7) % concepts]);
+			componentFactory.addConceptFSN(conceptId, fsns[i]);
+		}
+		componentFactory.loadingComponentsCompleted();
+		return store;
+	}
+}
@@ -0,0 +1,83 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Ancestor and descendant queries against a synthetic release loaded with the light profile, with and without the hierarchy cache.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class HierarchyBenchmark {
+
+	private static final int QUERIES = 4096;
+
+	@Param({"100000"})
+	public int concepts;
+
+	@Param({"false", "true"})
+	public boolean hierarchyCache;
+
+	private Concept[] ancestorQueries;
+	private Concept[] descendantQueries;
+	private int query;
+
+	@Setup
+	public void setup() throws Exception {
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(concepts);
+		final Path tempDir = Files.createTempDirectory("hierarchy-benchmark");
+		final ComponentStore componentStore = new ComponentStore();
+		try {
+			new ReleaseImporter().loadSnapshotReleaseFiles(generator.generate(tempDir).toString(), LoadingProfile.light, new ComponentFactoryImpl(componentStore));
+		} finally {
+			FileSystemUtils.deleteRecursively(tempDir.toFile());
+		}
+		componentStore.setHierarchyCacheEnabled(hierarchyCache);
+
+		final Random random = new Random(1);
+		ancestorQueries = new Concept[QUERIES];
+		descendantQueries = new Concept[QUERIES];
+		for (int q = 0; q < QUERIES; q++) {
+			ancestorQueries[q] = componentStore.getConcepts().get(Long.parseLong(generator.conceptId(random.nextInt(concepts))));
+			// Concepts near the top of the hierarchy, which have many descendants
+			descendantQueries[q] = componentStore.getConcepts().get(Long.parseLong(generator.conceptId(random.nextInt(Math.min(concepts, 1000)))));
+		}
+	}
+
+	@Benchmark
+	public Set<Long> inferredAncestorIds() {
+		return ancestorQueries[nextQuery()].getInferredAncestorIds();
+	}
+
+	@Benchmark
+	public Set<Long> inferredDescendantIds() {
+		return descendantQueries[nextQuery()].getInferredDescendantIds();
+	}
+
+	private int nextQuery() {
+		return query++ & (QUERIES - 1);
+	}
+}
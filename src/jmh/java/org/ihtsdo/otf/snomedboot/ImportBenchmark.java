@@ -0,0 +1,78 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to import a synthetic Snapshot release into a ComponentStore with each loading profile and way of reading files.
+ * Chunked reading only splits files of at least twice the minimum chunk size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ImportBenchmark {
+
+	@Param({"100000"})
+	public int concepts;
+
+	@Param({"light", "complete"})
+	public String loadingProfile;
+
+	@Param({"sequential", "chunked", "pipelined"})
+	public String reading;
+
+	private Path tempDir;
+	private String releasePath;
+
+	@Setup
+	public void setup() throws Exception {
+		tempDir = Files.createTempDirectory("import-benchmark");
+		releasePath = new SyntheticReleaseGenerator(concepts).generate(tempDir).toString();
+	}
+
+	@TearDown
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Benchmark
+	public ComponentStore loadSnapshot() throws Exception {
+		final ComponentStore componentStore = new ComponentStore();
+		final ReleaseImporter releaseImporter = new ReleaseImporter();
+		releaseImporter.setChunkedReading(reading.equals("chunked"));
+		releaseImporter.setPipelinedReading(reading.equals("pipelined"));
+		releaseImporter.loadSnapshotReleaseFiles(releasePath, getLoadingProfile(), new ComponentFactoryImpl(componentStore));
+		return componentStore;
+	}
+
+	private LoadingProfile getLoadingProfile() {
+		switch (loadingProfile) {
+			case "light":
+				return LoadingProfile.light;
+			case "complete":
+				return LoadingProfile.complete;
+			default:
+				throw new IllegalArgumentException("Unknown loading profile " + loadingProfile);
+		}
+	}
+}
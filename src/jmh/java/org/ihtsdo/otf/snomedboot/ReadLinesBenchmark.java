@@ -0,0 +1,89 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.rf2.RelationshipFieldIndexes;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to read and tokenize the synthetic relationship file, consuming the columns the light loading profile reads,
+ * with RF2LineReader and with String.split for comparison.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ReadLinesBenchmark {
+
+	private static final byte[] ACTIVE = {'1'};
+
+	@Param({"100000"})
+	public int concepts;
+
+	private Path tempDir;
+	private Path relationshipFile;
+
+	@Setup
+	public void setup() throws Exception {
+		tempDir = Files.createTempDirectory("read-lines-benchmark");
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(concepts);
+		final Path releaseDir = generator.generate(tempDir);
+		relationshipFile = releaseDir.resolve("Snapshot/Terminology/sct2_Relationship_Snapshot_INT_" + generator.getReleaseVersion() + ".txt");
+	}
+
+	@TearDown
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Benchmark
+	public long rf2LineReader() throws IOException {
+		long checksum = 0;
+		try (RF2LineReader reader = new RF2LineReader(Files.newInputStream(relationshipFile))) {
+			reader.next();
+			final RF2Row row = reader.getRow();
+			while (reader.next()) {
+				if (row.fieldEquals(RelationshipFieldIndexes.active, ACTIVE)) {
+					checksum += row.getString(RelationshipFieldIndexes.sourceId).length() + row.getString(RelationshipFieldIndexes.typeId).length()
+							+ row.getString(RelationshipFieldIndexes.destinationId).length();
+				}
+			}
+		}
+		return checksum;
+	}
+
+	@Benchmark
+	public long stringSplit() throws IOException {
+		long checksum = 0;
+		try (BufferedReader reader = Files.newBufferedReader(relationshipFile, ReleaseImporter.UTF_8)) {
+			reader.readLine();
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] values = line.split("\\t");
+				if ("1".equals(values[RelationshipFieldIndexes.active])) {
+					checksum += values[RelationshipFieldIndexes.sourceId].length() + values[RelationshipFieldIndexes.typeId].length()
+							+ values[RelationshipFieldIndexes.destinationId].length();
+				}
+			}
+		}
+		return checksum;
+	}
+}
@@ -0,0 +1,95 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ConceptImpl;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares "is A a descendant of B" answered by walking the inferred hierarchy with the precomputed transitive closure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SubsumptionBenchmark {
+
+	private static final int QUERIES = 4096;
+
+	@Param({"100000"})
+	public int concepts;
+
+	private ComponentStore componentStore;
+	private long[] conceptIds;
+	private long[] ancestorIds;
+	private int query;
+
+	@Setup
+	public void setup() {
+		componentStore = new ComponentStore();
+		final ComponentFactory factory = new ComponentFactoryImpl(componentStore);
+		final Random random = new Random(1);
+		for (int i = 0; i < concepts; i++) {
+			factory.newConceptState(conceptId(i), "20170131", "1", "900000000000207008", "900000000000074008");
+		}
+		for (int i = 1; i < concepts; i++) {
+			// A hierarchy about nine levels deep where three in ten concepts have a second parent near the first
+			final int parent = (i - 1) / 4;
+			addParent(factory, i, parent);
+			if (parent > 4 && random.nextInt(10) < 3) {
+				addParent(factory, i, parent - 1 - random.nextInt(4));
+			}
+		}
+		componentStore.buildTransitiveClosure();
+
+		// Half of the queries are true
+		conceptIds = new long[QUERIES];
+		ancestorIds = new long[QUERIES];
+		for (int q = 0; q < QUERIES; q++) {
+			final ConceptImpl concept = componentStore.getConcepts().get(Long.parseLong(conceptId(random.nextInt(concepts))));
+			conceptIds[q] = concept.getId();
+			final Long[] ancestors = concept.getInferredAncestorIds().toArray(new Long[0]);
+			ancestorIds[q] = q % 2 == 0 && ancestors.length > 0 ? ancestors[random.nextInt(ancestors.length)] : Long.parseLong(conceptId(random.nextInt(concepts)));
+		}
+	}
+
+	@Benchmark
+	public boolean hierarchyWalk() {
+		final int q = nextQuery();
+		return componentStore.getConcepts().get(conceptIds[q]).getInferredAncestorIds().contains(ancestorIds[q]);
+	}
+
+	@Benchmark
+	public boolean transitiveClosure() {
+		final int q = nextQuery();
+		return componentStore.isInferredDescendantOf(conceptIds[q], ancestorIds[q]);
+	}
+
+	private void addParent(ComponentFactory factory, int concept, int parent) {
+		factory.addInferredConceptParent(conceptId(concept), conceptId(parent));
+		factory.addInferredConceptChild(conceptId(concept), conceptId(parent));
+	}
+
+	private int nextQuery() {
+		return query++ & (QUERIES - 1);
+	}
+
+	private static String conceptId(int i) {
+		return Long.toString(100000000L + i * 1000L + 5);
+	}
+}
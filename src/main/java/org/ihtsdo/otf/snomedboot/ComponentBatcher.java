@@ -0,0 +1,401 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.rf2.RefsetFieldIndexes;
+import org.ihtsdo.otf.snomedboot.factory.BatchComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.ComponentBatch;
+import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.DeltaComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.ihtsdo.otf.snomedboot.factory.IsAComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.PrimitiveComponentFactory;
+
+/**
+ * Collects the component and member states of the rows read by one task into batches for a BatchComponentFactory,
+ * passing every other callback straight on. Each batch is created when first needed and reused once passed on.
+ * Used by one thread, {@link #flush()} passes on what is left once the task has read its rows.
+ * A batch the factory fails on is reported by the line of its first row, as set by {@link #setLineNumber(long)}.
+ * Batches hold Strings, primitive component and member states are formatted as they would appear in the file.
+ * The other primitive callbacks may only be made if the factory is a PrimitiveComponentFactory, and the is-a edge
+ * events if it is an IsAComponentFactory, and removeRelationship and removeDescription if it is a DeltaComponentFactory.
+ */
+final class ComponentBatcher implements PrimitiveComponentFactory, IsAComponentFactory, DeltaComponentFactory {
+
+	private static final int OTHER_VALUES_START = RefsetFieldIndexes.referencedComponentId + 1;
+
+	private final ComponentFactory componentFactory;
+	// The component factory again if it takes primitive callbacks, otherwise null
+	private final PrimitiveComponentFactory primitiveComponentFactory;
+	// The component factory again if it takes is-a edge events, otherwise null
+	private final IsAComponentFactory isAComponentFactory;
+	// The factory again if it applies a release to loaded components, otherwise null
+	private final DeltaComponentFactory deltaComponentFactory;
+	private final BatchComponentFactory batchComponentFactory;
+	private final int batchSize;
+	private ComponentBatch concepts;
+	private ComponentBatch descriptions;
+	private ComponentBatch relationships;
+	private ComponentBatch members;
+	private long lineNumber;
+	// The line of the first row held by each batch
+	private long conceptsLineNumber;
+	private long descriptionsLineNumber;
+	private long relationshipsLineNumber;
+	private long membersLineNumber;
+
+	/**
+	 * @param componentFactory Receives every callback other than the component and member states,
+	 * either the batch factory itself or a factory which passes callbacks on to it.
+	 */
+	ComponentBatcher(ComponentFactory componentFactory, BatchComponentFactory batchComponentFactory, int batchSize) {
+		this.componentFactory = componentFactory;
+		primitiveComponentFactory = componentFactory instanceof PrimitiveComponentFactory ? (PrimitiveComponentFactory) componentFactory : null;
+		isAComponentFactory = componentFactory instanceof IsAComponentFactory ? (IsAComponentFactory) componentFactory : null;
+		deltaComponentFactory = componentFactory instanceof DeltaComponentFactory ? (DeltaComponentFactory) componentFactory : null;
+		this.batchComponentFactory = batchComponentFactory;
+		this.batchSize = batchSize;
+	}
+
+	/**
+	 * @param lineNumber The line of the row whose callbacks follow.
+	 */
+	void setLineNumber(long lineNumber) {
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * Passes on every batch holding rows.
+	 * @throws BatchFailedException if the factory fails on a batch.
+	 */
+	void flush() {
+		if (concepts != null && !concepts.isEmpty()) {
+			passConcepts();
+		}
+		if (descriptions != null && !descriptions.isEmpty()) {
+			passDescriptions();
+		}
+		if (relationships != null && !relationships.isEmpty()) {
+			passRelationships();
+		}
+		if (members != null && !members.isEmpty()) {
+			passMembers();
+		}
+	}
+
+	private void passConcepts() {
+		try {
+			batchComponentFactory.newConceptStates(concepts);
+		} catch (RuntimeException e) {
+			throw new BatchFailedException(conceptsLineNumber, e);
+		}
+		concepts.clear();
+	}
+
+	private void passDescriptions() {
+		try {
+			batchComponentFactory.newDescriptionStates(descriptions);
+		} catch (RuntimeException e) {
+			throw new BatchFailedException(descriptionsLineNumber, e);
+		}
+		descriptions.clear();
+	}
+
+	private void passRelationships() {
+		try {
+			batchComponentFactory.newRelationshipStates(relationships);
+		} catch (RuntimeException e) {
+			throw new BatchFailedException(relationshipsLineNumber, e);
+		}
+		relationships.clear();
+	}
+
+	private void passMembers() {
+		try {
+			batchComponentFactory.newReferenceSetMemberStates(members);
+		} catch (RuntimeException e) {
+			throw new BatchFailedException(membersLineNumber, e);
+		}
+		members.clear();
+	}
+
+	@Override
+	public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+		if (concepts == null) {
+			concepts = new ComponentBatch(ComponentBatch.CONCEPT_FIELD_NAMES, batchSize);
+		}
+		if (concepts.isEmpty()) {
+			conceptsLineNumber = lineNumber;
+		}
+		concepts.add(conceptId, effectiveTime, active, moduleId, definitionStatusId);
+		if (concepts.isFull()) {
+			passConcepts();
+		}
+	}
+
+	@Override
+	public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode,
+			String typeId, String term, String caseSignificanceId) {
+		if (descriptions == null) {
+			descriptions = new ComponentBatch(ComponentBatch.DESCRIPTION_FIELD_NAMES, batchSize);
+		}
+		if (descriptions.isEmpty()) {
+			descriptionsLineNumber = lineNumber;
+		}
+		descriptions.add(id, effectiveTime, active, moduleId, conceptId, languageCode, typeId, term, caseSignificanceId);
+		if (descriptions.isFull()) {
+			passDescriptions();
+		}
+	}
+
+	@Override
+	public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId, String destinationId,
+			String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+		if (relationships == null) {
+			relationships = new ComponentBatch(ComponentBatch.RELATIONSHIP_FIELD_NAMES, batchSize);
+		}
+		if (relationships.isEmpty()) {
+			relationshipsLineNumber = lineNumber;
+		}
+		relationships.add(id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId, characteristicTypeId, modifierId);
+		if (relationships.isFull()) {
+			passRelationships();
+		}
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId, String refsetId,
+			String referencedComponentId, String... otherValues) {
+		// A batch holds the members of one file, each file has its own field names
+		if (members != null && members.getFieldNames() != fieldNames) {
+			flush();
+			members = null;
+		}
+		if (members == null) {
+			members = new ComponentBatch(fieldNames, batchSize);
+		}
+		final String[] values = new String[OTHER_VALUES_START + otherValues.length];
+		values[RefsetFieldIndexes.id] = id;
+		values[RefsetFieldIndexes.effectiveTime] = effectiveTime;
+		values[RefsetFieldIndexes.active] = active;
+		values[RefsetFieldIndexes.moduleId] = moduleId;
+		values[RefsetFieldIndexes.refsetId] = refsetId;
+		values[RefsetFieldIndexes.referencedComponentId] = referencedComponentId;
+		System.arraycopy(otherValues, 0, values, OTHER_VALUES_START, otherValues.length);
+		if (members.isEmpty()) {
+			membersLineNumber = lineNumber;
+		}
+		members.add(values);
+		if (members.isFull()) {
+			passMembers();
+		}
+	}
+
+	@Override
+	public void loadingComponentsStarting() {
+		componentFactory.loadingComponentsStarting();
+	}
+
+	@Override
+	public void loadingComponentsCompleted() {
+		componentFactory.loadingComponentsCompleted();
+	}
+
+	@Override
+	public void addConceptFSN(String conceptId, String term) {
+		componentFactory.addConceptFSN(conceptId, term);
+	}
+
+	@Override
+	public void addInferredConceptParent(String sourceId, String parentId) {
+		componentFactory.addInferredConceptParent(sourceId, parentId);
+	}
+
+	@Override
+	public void addStatedConceptParent(String sourceId, String parentId) {
+		componentFactory.addStatedConceptParent(sourceId, parentId);
+	}
+
+	@Override
+	public void removeInferredConceptParent(String sourceId, String destinationId) {
+		componentFactory.removeInferredConceptParent(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptParent(String sourceId, String destinationId) {
+		componentFactory.removeStatedConceptParent(sourceId, destinationId);
+	}
+
+	@Override
+	public void addInferredConceptAttribute(String sourceId, String typeId, String valueId) {
+		componentFactory.addInferredConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addStatedConceptAttribute(String sourceId, String typeId, String valueId) {
+		componentFactory.addStatedConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(String refsetId, String conceptId) {
+		componentFactory.addConceptReferencedInRefsetId(refsetId, conceptId);
+	}
+
+	@Override
+	public void addInferredConceptChild(String sourceId, String destinationId) {
+		componentFactory.addInferredConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void addStatedConceptChild(String sourceId, String destinationId) {
+		componentFactory.addStatedConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeInferredConceptChild(String sourceId, String destinationId) {
+		componentFactory.removeInferredConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptChild(String sourceId, String destinationId) {
+		componentFactory.removeStatedConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void newConceptState(long conceptId, int effectiveTime, boolean active, long moduleId, long definitionStatusId) {
+		newConceptState(Long.toString(conceptId), FactoryUtils.formatEffectiveTime(effectiveTime), FactoryUtils.formatActive(active),
+				Long.toString(moduleId), Long.toString(definitionStatusId));
+	}
+
+	@Override
+	public void newDescriptionState(long id, int effectiveTime, boolean active, long moduleId, long conceptId, String languageCode,
+			long typeId, String term, long caseSignificanceId) {
+		newDescriptionState(Long.toString(id), FactoryUtils.formatEffectiveTime(effectiveTime), FactoryUtils.formatActive(active),
+				Long.toString(moduleId), Long.toString(conceptId), languageCode, Long.toString(typeId), term, Long.toString(caseSignificanceId));
+	}
+
+	@Override
+	public void newRelationshipState(long id, int effectiveTime, boolean active, long moduleId, long sourceId, long destinationId,
+			int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+		newRelationshipState(Long.toString(id), FactoryUtils.formatEffectiveTime(effectiveTime), FactoryUtils.formatActive(active),
+				Long.toString(moduleId), Long.toString(sourceId), Long.toString(destinationId), Integer.toString(relationshipGroup),
+				Long.toString(typeId), Long.toString(characteristicTypeId), Long.toString(modifierId));
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, int effectiveTime, boolean active, long moduleId, long refsetId,
+			long referencedComponentId, String... otherValues) {
+		newReferenceSetMemberState(fieldNames, id, FactoryUtils.formatEffectiveTime(effectiveTime), FactoryUtils.formatActive(active),
+				Long.toString(moduleId), Long.toString(refsetId), Long.toString(referencedComponentId), otherValues);
+	}
+
+	@Override
+	public void addConceptFSN(long conceptId, String term) {
+		primitiveComponentFactory.addConceptFSN(conceptId, term);
+	}
+
+	@Override
+	public void addInferredConceptParent(long sourceId, long parentId) {
+		primitiveComponentFactory.addInferredConceptParent(sourceId, parentId);
+	}
+
+	@Override
+	public void addStatedConceptParent(long sourceId, long parentId) {
+		primitiveComponentFactory.addStatedConceptParent(sourceId, parentId);
+	}
+
+	@Override
+	public void removeInferredConceptParent(long sourceId, long destinationId) {
+		primitiveComponentFactory.removeInferredConceptParent(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptParent(long sourceId, long destinationId) {
+		primitiveComponentFactory.removeStatedConceptParent(sourceId, destinationId);
+	}
+
+	@Override
+	public void addInferredConceptAttribute(long sourceId, long typeId, long valueId) {
+		primitiveComponentFactory.addInferredConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addStatedConceptAttribute(long sourceId, long typeId, long valueId) {
+		primitiveComponentFactory.addStatedConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(long refsetId, long conceptId) {
+		primitiveComponentFactory.addConceptReferencedInRefsetId(refsetId, conceptId);
+	}
+
+	@Override
+	public void addInferredConceptChild(long sourceId, long destinationId) {
+		primitiveComponentFactory.addInferredConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void addStatedConceptChild(long sourceId, long destinationId) {
+		primitiveComponentFactory.addStatedConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeInferredConceptChild(long sourceId, long destinationId) {
+		primitiveComponentFactory.removeInferredConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptChild(long sourceId, long destinationId) {
+		primitiveComponentFactory.removeStatedConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void addInferredIsA(long sourceId, long destinationId) {
+		isAComponentFactory.addInferredIsA(sourceId, destinationId);
+	}
+
+	@Override
+	public void addStatedIsA(long sourceId, long destinationId) {
+		isAComponentFactory.addStatedIsA(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeInferredIsA(long sourceId, long destinationId) {
+		isAComponentFactory.removeInferredIsA(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedIsA(long sourceId, long destinationId) {
+		isAComponentFactory.removeStatedIsA(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeRelationship(long id, long sourceId, long destinationId, long typeId, boolean inferred) {
+		deltaComponentFactory.removeRelationship(id, sourceId, destinationId, typeId, inferred);
+	}
+
+	@Override
+	public void removeDescription(long id, long conceptId, boolean fsn, String term) {
+		deltaComponentFactory.removeDescription(id, conceptId, fsn, term);
+	}
+
+	/**
+	 * The batch factory failed on a batch, the failing row may be any of the batch.
+	 */
+	static final class BatchFailedException extends RuntimeException {
+
+		private static final long serialVersionUID = 1L;
+
+		private final long lineNumber;
+
+		BatchFailedException(long lineNumber, RuntimeException cause) {
+			super(cause);
+			this.lineNumber = lineNumber;
+		}
+
+		/**
+		 * @return The line of the first row of the batch.
+		 */
+		long getLineNumber() {
+			return lineNumber;
+		}
+	}
+}
@@ -1,15 +1,19 @@
 package org.ihtsdo.otf.snomedboot;
 
 import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
-import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
 import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ConceptImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.HierarchyCache;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.TransitiveClosure;
 
 public class ComponentStore {
 
-	private Long2ObjectMap<ConceptImpl> concepts;
+	private ConcurrentLong2ObjectMap<ConceptImpl> concepts;
+	private volatile TransitiveClosure inferredTransitiveClosure;
+	private volatile TransitiveClosure statedTransitiveClosure;
+	private volatile HierarchyCache hierarchyCache;
 
 	public ComponentStore() {
-		concepts = new Long2ObjectOpenHashMap<>();
+		concepts = new ConcurrentLong2ObjectMap<>();
 	}
 
 	public Long2ObjectMap<ConceptImpl> getConcepts() {
@@ -17,7 +21,81 @@ public class ComponentStore {
 	}
 
 	public ConceptImpl addConcept(ConceptImpl concept) {
+		concept.setHierarchyCache(hierarchyCache);
 		concepts.put(concept.getId(), concept);
+		if (hierarchyCache != null) {
+			hierarchyCache.invalidate();
+		}
 		return concept;
 	}
+
+	/**
+	 * @return The concept with the given id, a placeholder added atomically if there is none yet.
+	 */
+	public ConceptImpl getOrAddConcept(long id) {
+		ConceptImpl concept = concepts.get(id);
+		if (concept == null) {
+			final ConceptImpl placeholder = new ConceptImpl(id);
+			placeholder.setHierarchyCache(hierarchyCache);
+			concept = concepts.putIfAbsent(id, placeholder);
+		}
+		return concept;
+	}
+
+	/**
+	 * When enabled ancestor and descendant sets are remembered, as unmodifiable sets, until the hierarchy next changes.
+	 */
+	public synchronized void setHierarchyCacheEnabled(boolean enabled) {
+		if (enabled == (hierarchyCache != null)) {
+			return;
+		}
+		hierarchyCache = enabled ? new HierarchyCache() : null;
+		for (ConceptImpl concept : concepts.values()) {
+			concept.setHierarchyCache(hierarchyCache);
+		}
+	}
+
+	public boolean isHierarchyCacheEnabled() {
+		return hierarchyCache != null;
+	}
+
+	/**
+	 * Builds the transitive closures used by the subsumption methods, again after any change to the hierarchy.
+	 * @throws IllegalStateException if an ancestor loop or an is-a to an inactive parent is found.
+	 */
+	public void buildTransitiveClosure() throws IllegalStateException {
+		inferredTransitiveClosure = TransitiveClosure.build(concepts.values(), true);
+		statedTransitiveClosure = TransitiveClosure.build(concepts.values(), false);
+	}
+
+	/**
+	 * @return true if ancestorId is an inferred ancestor of conceptId.
+	 * @throws IllegalStateException if buildTransitiveClosure has not been called.
+	 */
+	public boolean isInferredDescendantOf(long conceptId, long ancestorId) throws IllegalStateException {
+		return getTransitiveClosure(inferredTransitiveClosure).isDescendantOf(conceptId, ancestorId);
+	}
+
+	/**
+	 * @return true if ancestorId is a stated ancestor of conceptId.
+	 * @throws IllegalStateException if buildTransitiveClosure has not been called.
+	 */
+	public boolean isStatedDescendantOf(long conceptId, long ancestorId) throws IllegalStateException {
+		return getTransitiveClosure(statedTransitiveClosure).isDescendantOf(conceptId, ancestorId);
+	}
+
+	public TransitiveClosure getInferredTransitiveClosure() throws IllegalStateException {
+		return getTransitiveClosure(inferredTransitiveClosure);
+	}
+
+	public TransitiveClosure getStatedTransitiveClosure() throws IllegalStateException {
+		return getTransitiveClosure(statedTransitiveClosure);
+	}
+
+	private TransitiveClosure getTransitiveClosure(TransitiveClosure transitiveClosure) {
+		if (transitiveClosure == null) {
+			throw new IllegalStateException("Transitive closure has not been built, call buildTransitiveClosure() first.");
+		}
+		return transitiveClosure;
+	}
 }
@@ -0,0 +1,152 @@
+package org.ihtsdo.otf.snomedboot;
+
+import it.unimi.dsi.fastutil.longs.AbstractLong2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.AbstractObjectIterator;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+
+/**
+ * A Long2ObjectMap split into lock striped segments so that several loading threads can add and look up
+ * entries at the same time without a global lock.
+ * Iteration is not synchronised and should only be used once loading has finished.
+ */
+class ConcurrentLong2ObjectMap<V> extends AbstractLong2ObjectMap<V> {
+
+	private static final long serialVersionUID = 1L;
+
+	private final Long2ObjectOpenHashMap<V>[] segments;
+	private final int shift;
+
+	ConcurrentLong2ObjectMap() {
+		this(64);
+	}
+
+	@SuppressWarnings("unchecked")
+	ConcurrentLong2ObjectMap(int concurrencyLevel) {
+		int bits = 0;
+		while ((1 << bits) < concurrencyLevel) {
+			bits++;
+		}
+		shift = 64 - bits;
+		segments = new Long2ObjectOpenHashMap[1 << bits];
+		for (int i = 0; i < segments.length; i++) {
+			segments[i] = new Long2ObjectOpenHashMap<>();
+		}
+	}
+
+	private Long2ObjectOpenHashMap<V> segment(long key) {
+		// SCTIDs end in a partition identifier and check digit so the low bits are mixed before choosing a segment
+		return segments.length == 1 ? segments[0] : segments[(int) ((key * 0x9E3779B97F4A7C15L) >>> shift)];
+	}
+
+	@Override
+	public V get(long key) {
+		final Long2ObjectOpenHashMap<V> segment = segment(key);
+		synchronized (segment) {
+			return segment.get(key);
+		}
+	}
+
+	@Override
+	public V get(Object key) {
+		return key == null ? null : get(((Long) key).longValue());
+	}
+
+	@Override
+	public boolean containsKey(long key) {
+		final Long2ObjectOpenHashMap<V> segment = segment(key);
+		synchronized (segment) {
+			return segment.containsKey(key);
+		}
+	}
+
+	@Override
+	public V put(long key, V value) {
+		final Long2ObjectOpenHashMap<V> segment = segment(key);
+		synchronized (segment) {
+			return segment.put(key, value);
+		}
+	}
+
+	/**
+	 * Adds the value unless the key is already present.
+	 * @return The value now held for the key.
+	 */
+	public V putIfAbsent(long key, V value) {
+		final Long2ObjectOpenHashMap<V> segment = segment(key);
+		synchronized (segment) {
+			final V existing = segment.get(key);
+			if (existing != null) {
+				return existing;
+			}
+			segment.put(key, value);
+			return value;
+		}
+	}
+
+	@Override
+	public V remove(long key) {
+		final Long2ObjectOpenHashMap<V> segment = segment(key);
+		synchronized (segment) {
+			return segment.remove(key);
+		}
+	}
+
+	@Override
+	public int size() {
+		int size = 0;
+		for (Long2ObjectOpenHashMap<V> segment : segments) {
+			synchronized (segment) {
+				size += segment.size();
+			}
+		}
+		return size;
+	}
+
+	@Override
+	public void clear() {
+		for (Long2ObjectOpenHashMap<V> segment : segments) {
+			synchronized (segment) {
+				segment.clear();
+			}
+		}
+	}
+
+	@Override
+	public ObjectSet<Long2ObjectMap.Entry<V>> long2ObjectEntrySet() {
+		return new AbstractObjectSet<Long2ObjectMap.Entry<V>>() {
+			@Override
+			public ObjectIterator<Long2ObjectMap.Entry<V>> iterator() {
+				return new AbstractObjectIterator<Long2ObjectMap.Entry<V>>() {
+					private int segmentIndex;
+					private ObjectIterator<Long2ObjectMap.Entry<V>> segmentIterator = segments[0].long2ObjectEntrySet().iterator();
+
+					@Override
+					public boolean hasNext() {
+						while (!segmentIterator.hasNext()) {
+							if (++segmentIndex == segments.length) {
+								return false;
+							}
+							segmentIterator = segments[segmentIndex].long2ObjectEntrySet().iterator();
+						}
+						return true;
+					}
+
+					@Override
+					public Long2ObjectMap.Entry<V> next() {
+						hasNext();
+						return segmentIterator.next();
+					}
+				};
+			}
+
+			@Override
+			public int size() {
+				return ConcurrentLong2ObjectMap.this.size();
+			}
+		};
+	}
+}
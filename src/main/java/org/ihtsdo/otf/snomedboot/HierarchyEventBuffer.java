@@ -0,0 +1,367 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.DeltaComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.IsAComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.PrimitiveComponentFactory;
+
+import java.util.Arrays;
+
+/**
+ * Passes every callback straight to a component factory except the parent and child callbacks, which are recorded
+ * and later replayed. Used while a file is read in chunks on several threads, so that the hierarchy callbacks still
+ * reach the factory in file order. Adding and then removing the same parent gives a different result than the
+ * reverse, other callbacks do not depend on order.
+ * The is-a edge events are recorded in the same way.
+ * The primitive callbacks may only be made if the factory is a PrimitiveComponentFactory, and the edge events if it
+ * is an IsAComponentFactory. Relationships are removed straight away if the factory is a DeltaComponentFactory.
+ */
+final class HierarchyEventBuffer implements PrimitiveComponentFactory, IsAComponentFactory, DeltaComponentFactory {
+
+	private static final byte ADD_INFERRED_PARENT = 0;
+	private static final byte ADD_STATED_PARENT = 1;
+	private static final byte REMOVE_INFERRED_PARENT = 2;
+	private static final byte REMOVE_STATED_PARENT = 3;
+	private static final byte ADD_INFERRED_CHILD = 4;
+	private static final byte ADD_STATED_CHILD = 5;
+	private static final byte REMOVE_INFERRED_CHILD = 6;
+	private static final byte REMOVE_STATED_CHILD = 7;
+	private static final byte ADD_INFERRED_IS_A = 8;
+	private static final byte ADD_STATED_IS_A = 9;
+	private static final byte REMOVE_INFERRED_IS_A = 10;
+	private static final byte REMOVE_STATED_IS_A = 11;
+
+	private final ComponentFactory componentFactory;
+	// The factory again if it takes primitive callbacks, otherwise null
+	private final PrimitiveComponentFactory primitiveComponentFactory;
+	// The factory again if it takes is-a edge events, otherwise null
+	private final IsAComponentFactory isAComponentFactory;
+	// The factory again if it applies a release to loaded components, otherwise null
+	private final DeltaComponentFactory deltaComponentFactory;
+	private byte[] events = new byte[64];
+	private long[] sourceIds = new long[64];
+	private long[] destinationIds = new long[64];
+	private int size;
+
+	HierarchyEventBuffer(ComponentFactory componentFactory) {
+		this.componentFactory = componentFactory;
+		primitiveComponentFactory = componentFactory instanceof PrimitiveComponentFactory ? (PrimitiveComponentFactory) componentFactory : null;
+		isAComponentFactory = componentFactory instanceof IsAComponentFactory ? (IsAComponentFactory) componentFactory : null;
+		deltaComponentFactory = componentFactory instanceof DeltaComponentFactory ? (DeltaComponentFactory) componentFactory : null;
+	}
+
+	/**
+	 * Makes the recorded callbacks on the component factory in the order they were recorded.
+	 */
+	void replay() {
+		for (int i = 0; i < size; i++) {
+			if (events[i] >= ADD_INFERRED_IS_A) {
+				replayIsA(events[i], sourceIds[i], destinationIds[i]);
+			} else if (primitiveComponentFactory != null) {
+				replayPrimitive(events[i], sourceIds[i], destinationIds[i]);
+			} else {
+				replayStrings(events[i], Long.toString(sourceIds[i]), Long.toString(destinationIds[i]));
+			}
+		}
+		size = 0;
+	}
+
+	private void replayStrings(byte event, String sourceId, String destinationId) {
+		switch (event) {
+			case ADD_INFERRED_PARENT:
+				componentFactory.addInferredConceptParent(sourceId, destinationId);
+				break;
+			case ADD_STATED_PARENT:
+				componentFactory.addStatedConceptParent(sourceId, destinationId);
+				break;
+			case REMOVE_INFERRED_PARENT:
+				componentFactory.removeInferredConceptParent(sourceId, destinationId);
+				break;
+			case REMOVE_STATED_PARENT:
+				componentFactory.removeStatedConceptParent(sourceId, destinationId);
+				break;
+			case ADD_INFERRED_CHILD:
+				componentFactory.addInferredConceptChild(sourceId, destinationId);
+				break;
+			case ADD_STATED_CHILD:
+				componentFactory.addStatedConceptChild(sourceId, destinationId);
+				break;
+			case REMOVE_INFERRED_CHILD:
+				componentFactory.removeInferredConceptChild(sourceId, destinationId);
+				break;
+			case REMOVE_STATED_CHILD:
+				componentFactory.removeStatedConceptChild(sourceId, destinationId);
+				break;
+		}
+	}
+
+	private void replayPrimitive(byte event, long sourceId, long destinationId) {
+		switch (event) {
+			case ADD_INFERRED_PARENT:
+				primitiveComponentFactory.addInferredConceptParent(sourceId, destinationId);
+				break;
+			case ADD_STATED_PARENT:
+				primitiveComponentFactory.addStatedConceptParent(sourceId, destinationId);
+				break;
+			case REMOVE_INFERRED_PARENT:
+				primitiveComponentFactory.removeInferredConceptParent(sourceId, destinationId);
+				break;
+			case REMOVE_STATED_PARENT:
+				primitiveComponentFactory.removeStatedConceptParent(sourceId, destinationId);
+				break;
+			case ADD_INFERRED_CHILD:
+				primitiveComponentFactory.addInferredConceptChild(sourceId, destinationId);
+				break;
+			case ADD_STATED_CHILD:
+				primitiveComponentFactory.addStatedConceptChild(sourceId, destinationId);
+				break;
+			case REMOVE_INFERRED_CHILD:
+				primitiveComponentFactory.removeInferredConceptChild(sourceId, destinationId);
+				break;
+			case REMOVE_STATED_CHILD:
+				primitiveComponentFactory.removeStatedConceptChild(sourceId, destinationId);
+				break;
+		}
+	}
+
+	private void replayIsA(byte event, long sourceId, long destinationId) {
+		switch (event) {
+			case ADD_INFERRED_IS_A:
+				isAComponentFactory.addInferredIsA(sourceId, destinationId);
+				break;
+			case ADD_STATED_IS_A:
+				isAComponentFactory.addStatedIsA(sourceId, destinationId);
+				break;
+			case REMOVE_INFERRED_IS_A:
+				isAComponentFactory.removeInferredIsA(sourceId, destinationId);
+				break;
+			case REMOVE_STATED_IS_A:
+				isAComponentFactory.removeStatedIsA(sourceId, destinationId);
+				break;
+		}
+	}
+
+	private void record(byte event, String sourceId, String destinationId) {
+		record(event, Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	private void record(byte event, long sourceId, long destinationId) {
+		if (size == events.length) {
+			events = Arrays.copyOf(events, size * 2);
+			sourceIds = Arrays.copyOf(sourceIds, size * 2);
+			destinationIds = Arrays.copyOf(destinationIds, size * 2);
+		}
+		events[size] = event;
+		sourceIds[size] = sourceId;
+		destinationIds[size] = destinationId;
+		size++;
+	}
+
+	@Override
+	public void addInferredConceptParent(String sourceId, String parentId) {
+		record(ADD_INFERRED_PARENT, sourceId, parentId);
+	}
+
+	@Override
+	public void addStatedConceptParent(String sourceId, String parentId) {
+		record(ADD_STATED_PARENT, sourceId, parentId);
+	}
+
+	@Override
+	public void removeInferredConceptParent(String sourceId, String destinationId) {
+		record(REMOVE_INFERRED_PARENT, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptParent(String sourceId, String destinationId) {
+		record(REMOVE_STATED_PARENT, sourceId, destinationId);
+	}
+
+	@Override
+	public void addInferredConceptChild(String sourceId, String destinationId) {
+		record(ADD_INFERRED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void addStatedConceptChild(String sourceId, String destinationId) {
+		record(ADD_STATED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeInferredConceptChild(String sourceId, String destinationId) {
+		record(REMOVE_INFERRED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptChild(String sourceId, String destinationId) {
+		record(REMOVE_STATED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void loadingComponentsStarting() {
+		componentFactory.loadingComponentsStarting();
+	}
+
+	@Override
+	public void loadingComponentsCompleted() {
+		componentFactory.loadingComponentsCompleted();
+	}
+
+	@Override
+	public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+		componentFactory.newConceptState(conceptId, effectiveTime, active, moduleId, definitionStatusId);
+	}
+
+	@Override
+	public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode,
+			String typeId, String term, String caseSignificanceId) {
+		componentFactory.newDescriptionState(id, effectiveTime, active, moduleId, conceptId, languageCode, typeId, term, caseSignificanceId);
+	}
+
+	@Override
+	public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId, String destinationId,
+			String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+		componentFactory.newRelationshipState(id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId,
+				characteristicTypeId, modifierId);
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId, String refsetId,
+			String referencedComponentId, String... otherValues) {
+		componentFactory.newReferenceSetMemberState(fieldNames, id, effectiveTime, active, moduleId, refsetId, referencedComponentId, otherValues);
+	}
+
+	@Override
+	public void addConceptFSN(String conceptId, String term) {
+		componentFactory.addConceptFSN(conceptId, term);
+	}
+
+	@Override
+	public void addInferredConceptAttribute(String sourceId, String typeId, String valueId) {
+		componentFactory.addInferredConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addStatedConceptAttribute(String sourceId, String typeId, String valueId) {
+		componentFactory.addStatedConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(String refsetId, String conceptId) {
+		componentFactory.addConceptReferencedInRefsetId(refsetId, conceptId);
+	}
+
+	@Override
+	public void addInferredConceptParent(long sourceId, long parentId) {
+		record(ADD_INFERRED_PARENT, sourceId, parentId);
+	}
+
+	@Override
+	public void addStatedConceptParent(long sourceId, long parentId) {
+		record(ADD_STATED_PARENT, sourceId, parentId);
+	}
+
+	@Override
+	public void removeInferredConceptParent(long sourceId, long destinationId) {
+		record(REMOVE_INFERRED_PARENT, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptParent(long sourceId, long destinationId) {
+		record(REMOVE_STATED_PARENT, sourceId, destinationId);
+	}
+
+	@Override
+	public void addInferredConceptChild(long sourceId, long destinationId) {
+		record(ADD_INFERRED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void addStatedConceptChild(long sourceId, long destinationId) {
+		record(ADD_STATED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeInferredConceptChild(long sourceId, long destinationId) {
+		record(REMOVE_INFERRED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptChild(long sourceId, long destinationId) {
+		record(REMOVE_STATED_CHILD, sourceId, destinationId);
+	}
+
+	@Override
+	public void addInferredIsA(long sourceId, long destinationId) {
+		record(ADD_INFERRED_IS_A, sourceId, destinationId);
+	}
+
+	@Override
+	public void addStatedIsA(long sourceId, long destinationId) {
+		record(ADD_STATED_IS_A, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeInferredIsA(long sourceId, long destinationId) {
+		record(REMOVE_INFERRED_IS_A, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedIsA(long sourceId, long destinationId) {
+		record(REMOVE_STATED_IS_A, sourceId, destinationId);
+	}
+
+	@Override
+	public void removeRelationship(long id, long sourceId, long destinationId, long typeId, boolean inferred) {
+		deltaComponentFactory.removeRelationship(id, sourceId, destinationId, typeId, inferred);
+	}
+
+	@Override
+	public void removeDescription(long id, long conceptId, boolean fsn, String term) {
+		deltaComponentFactory.removeDescription(id, conceptId, fsn, term);
+	}
+
+	@Override
+	public void newConceptState(long conceptId, int effectiveTime, boolean active, long moduleId, long definitionStatusId) {
+		primitiveComponentFactory.newConceptState(conceptId, effectiveTime, active, moduleId, definitionStatusId);
+	}
+
+	@Override
+	public void newDescriptionState(long id, int effectiveTime, boolean active, long moduleId, long conceptId, String languageCode,
+			long typeId, String term, long caseSignificanceId) {
+		primitiveComponentFactory.newDescriptionState(id, effectiveTime, active, moduleId, conceptId, languageCode, typeId, term, caseSignificanceId);
+	}
+
+	@Override
+	public void newRelationshipState(long id, int effectiveTime, boolean active, long moduleId, long sourceId, long destinationId,
+			int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+		primitiveComponentFactory.newRelationshipState(id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId,
+				characteristicTypeId, modifierId);
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, int effectiveTime, boolean active, long moduleId, long refsetId,
+			long referencedComponentId, String... otherValues) {
+		primitiveComponentFactory.newReferenceSetMemberState(fieldNames, id, effectiveTime, active, moduleId, refsetId, referencedComponentId, otherValues);
+	}
+
+	@Override
+	public void addConceptFSN(long conceptId, String term) {
+		primitiveComponentFactory.addConceptFSN(conceptId, term);
+	}
+
+	@Override
+	public void addInferredConceptAttribute(long sourceId, long typeId, long valueId) {
+		primitiveComponentFactory.addInferredConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addStatedConceptAttribute(long sourceId, long typeId, long valueId) {
+		primitiveComponentFactory.addStatedConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(long refsetId, long conceptId) {
+		primitiveComponentFactory.addConceptReferencedInRefsetId(refsetId, conceptId);
+	}
+}
@@ -0,0 +1,178 @@
+package org.ihtsdo.otf.snomedboot;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * An RF2 file split into newline aligned chunks which are memory mapped and read independently,
+ * so that several threads can parse one large file.
+ * Each line belongs to exactly one chunk, the header line belongs to none.
+ */
+final class MappedRF2File implements Closeable {
+
+	// A single mapping is limited to Integer.MAX_VALUE bytes
+	private static final long MAX_CHUNK_SIZE = 1024 * 1024 * 1024;
+	private static final int SEARCH_BUFFER_SIZE = 64 * 1024;
+
+	private final Path path;
+	private final FileChannel channel;
+	private final String[] fieldNames;
+	private final long[] chunkStarts;
+
+	/**
+	 * @return true if the file can be memory mapped, which is only possible on the default file system.
+	 */
+	static boolean isMappable(Path path) {
+		return path.getFileSystem() == FileSystems.getDefault();
+	}
+
+	/**
+	 * @param minChunkSize The smallest chunk worth reading on its own thread, in bytes.
+	 * @param maxChunks The number of chunks to aim for. Files over a gigabyte per chunk are split further.
+	 */
+	MappedRF2File(Path path, long minChunkSize, int maxChunks) throws IOException {
+		this.path = path;
+		channel = FileChannel.open(path, StandardOpenOption.READ);
+		try {
+			final long size = channel.size();
+			final long headerEnd = nextLineStart(0, size);
+			try (RF2LineReader reader = new RF2LineReader(new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, 0, headerEnd)))) {
+				if (!reader.next()) {
+					throw new IOException("RF2 file " + path.getFileName() + " has no header line.");
+				}
+				fieldNames = reader.getRow().toStringArray();
+			}
+
+			final long contentSize = size - headerEnd;
+			int chunks = (int) Math.max(1, Math.min(maxChunks, contentSize / Math.max(minChunkSize, 1)));
+			chunks = (int) Math.max(chunks, (contentSize + MAX_CHUNK_SIZE - 1) / MAX_CHUNK_SIZE);
+			chunkStarts = new long[chunks + 1];
+			chunkStarts[0] = headerEnd;
+			for (int i = 1; i < chunks; i++) {
+				final long nominalStart = headerEnd + contentSize * i / chunks;
+				// A chunk starts at the first line which starts at or after its nominal start
+				chunkStarts[i] = Math.max(chunkStarts[i - 1], nextLineStart(nominalStart - 1, size));
+			}
+			chunkStarts[chunks] = size;
+		} catch (IOException | RuntimeException e) {
+			channel.close();
+			throw e;
+		}
+	}
+
+	String[] getFieldNames() {
+		return fieldNames;
+	}
+
+	int getChunkCount() {
+		return chunkStarts.length - 1;
+	}
+
+	long getChunkSize(int chunk) {
+		return chunkStarts[chunk + 1] - chunkStarts[chunk];
+	}
+
+	/**
+	 * @return A reader over the lines of one chunk. Line numbers of its rows count from the start of the chunk.
+	 */
+	RF2LineReader openChunk(int chunk) throws IOException {
+		final long start = chunkStarts[chunk];
+		final long length = chunkStarts[chunk + 1] - start;
+		if (length > MAX_CHUNK_SIZE) {
+			throw new IOException("Line of " + path.getFileName() + " starting at byte " + start + " is longer than " + MAX_CHUNK_SIZE + " bytes.");
+		}
+		return new RF2LineReader(new ByteBufferInputStream(channel.map(FileChannel.MapMode.READ_ONLY, start, length)));
+	}
+
+	long getChunkStart(int chunk) {
+		return chunkStarts[chunk];
+	}
+
+	/**
+	 * @return The number of line feeds in the file before the given position.
+	 */
+	static long countLines(Path path, long end) throws IOException {
+		long lines = 0;
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			final ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+			long position = 0;
+			while (position < end) {
+				buffer.clear();
+				buffer.limit((int) Math.min(buffer.capacity(), end - position));
+				final int read = channel.read(buffer, position);
+				if (read <= 0) {
+					break;
+				}
+				for (int i = 0; i < read; i++) {
+					if (buffer.get(i) == '\n') {
+						lines++;
+					}
+				}
+				position += read;
+			}
+		}
+		return lines;
+	}
+
+	/**
+	 * @return The position after the first line feed at or after the given position, or the file size if there is none.
+	 */
+	private long nextLineStart(long position, long size) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(SEARCH_BUFFER_SIZE);
+		while (position < size) {
+			buffer.clear();
+			final int read = channel.read(buffer, position);
+			if (read <= 0) {
+				break;
+			}
+			for (int i = 0; i < read; i++) {
+				if (buffer.get(i) == '\n') {
+					return position + i + 1;
+				}
+			}
+			position += read;
+		}
+		return size;
+	}
+
+	/**
+	 * The mapped regions stay valid until they are garbage collected.
+	 */
+	@Override
+	public void close() throws IOException {
+		channel.close();
+	}
+
+	private static final class ByteBufferInputStream extends InputStream {
+
+		private final ByteBuffer buffer;
+
+		private ByteBufferInputStream(ByteBuffer buffer) {
+			this.buffer = buffer;
+		}
+
+		@Override
+		public int read() {
+			return buffer.hasRemaining() ? buffer.get() & 0xFF : -1;
+		}
+
+		@Override
+		public int read(byte[] bytes, int offset, int length) {
+			if (length == 0) {
+				return 0;
+			}
+			if (!buffer.hasRemaining()) {
+				return -1;
+			}
+			final int read = Math.min(length, buffer.remaining());
+			buffer.get(bytes, offset, read);
+			return read;
+		}
+	}
+}
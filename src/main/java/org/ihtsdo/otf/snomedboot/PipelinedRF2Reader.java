@@ -0,0 +1,183 @@
+package org.ihtsdo.otf.snomedboot;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Reads and tokenizes the rows of another reader on a separate parser thread, handing them over in batches,
+ * so that reading and tokenizing overlap with whatever the caller does with each row.
+ * A fixed number of batches are recycled between the two threads. When all of them are waiting to be taken the
+ * parser thread blocks, which keeps a slow caller from being buried in parsed rows.
+ */
+final class PipelinedRF2Reader implements RF2RowReader {
+
+	private static final int INITIAL_BATCH_BYTES = 64 * 1024;
+
+	private final RF2LineReader reader;
+	private final BlockingQueue<RowBatch> emptyBatches;
+	private final BlockingQueue<RowBatch> fullBatches;
+	private final Future<?> parser;
+	private final RF2Row row = new RF2Row();
+	private RowBatch batch;
+	private int batchRow;
+	private long lineNumber;
+
+	/**
+	 * @param reader Read by the parser thread from now on, and closed once it has been read.
+	 * @param batchSize The number of rows in each batch.
+	 * @param batches The number of batches, at least two so that one can be filled while another is read.
+	 */
+	PipelinedRF2Reader(final RF2LineReader reader, ExecutorService parserExecutor, final int batchSize, int batches) {
+		if (batchSize < 1 || batches < 2) {
+			throw new IllegalArgumentException("Batch size must be at least 1 and batches at least 2.");
+		}
+		this.reader = reader;
+		emptyBatches = new ArrayBlockingQueue<>(batches);
+		fullBatches = new ArrayBlockingQueue<>(batches);
+		for (int i = 0; i < batches; i++) {
+			emptyBatches.add(new RowBatch(batchSize));
+		}
+		parser = parserExecutor.submit(new Callable<Void>() {
+			@Override
+			public Void call() throws InterruptedException, IOException {
+				parse();
+				return null;
+			}
+		});
+	}
+
+	private void parse() throws InterruptedException, IOException {
+		try {
+			RowBatch batch = emptyBatches.take();
+			try {
+				while (reader.next()) {
+					if (!batch.add(reader.getRow())) {
+						fullBatches.put(batch);
+						batch = emptyBatches.take();
+						batch.add(reader.getRow());
+					}
+				}
+			} catch (IOException | RuntimeException e) {
+				batch.failure = e;
+				batch.failureLineNumber = reader.getLineNumber();
+			}
+			batch.last = true;
+			fullBatches.put(batch);
+		} finally {
+			reader.close();
+		}
+	}
+
+	@Override
+	public boolean next() throws IOException {
+		while (batch == null || batchRow == batch.rows) {
+			if (batch != null) {
+				// Rows read before a failure are returned first
+				if (batch.failure != null) {
+					lineNumber = batch.failureLineNumber;
+					throw batch.failure instanceof IOException ? (IOException) batch.failure
+							: new IOException("Failed to read line " + lineNumber + ".", batch.failure);
+				}
+				if (batch.last) {
+					return false;
+				}
+				batch.clear();
+				emptyBatches.add(batch);
+			}
+			try {
+				batch = fullBatches.take();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new InterruptedIOException("Interrupted while waiting for parsed rows.");
+			}
+			batchRow = 0;
+		}
+		batch.point(row, batchRow++);
+		lineNumber = row.getLineNumber();
+		return true;
+	}
+
+	@Override
+	public RF2Row getRow() {
+		return row;
+	}
+
+	@Override
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	/**
+	 * Stops the parser thread if it has not finished.
+	 */
+	@Override
+	public void close() {
+		parser.cancel(true);
+	}
+
+	/**
+	 * Rows held as a copy of their line bytes plus the offsets of their fields.
+	 */
+	private static final class RowBatch {
+
+		private final int maxRows;
+		private byte[] bytes = new byte[INITIAL_BATCH_BYTES];
+		private int byteCount;
+		private int[] fieldStarts = new int[1024];
+		private int fieldStartCount;
+		private final int[] rowFieldStarts;
+		private final int[] fieldCounts;
+		private final long[] lineNumbers;
+		private int rows;
+		private boolean last;
+		private Exception failure;
+		private long failureLineNumber;
+
+		private RowBatch(int maxRows) {
+			this.maxRows = maxRows;
+			rowFieldStarts = new int[maxRows];
+			fieldCounts = new int[maxRows];
+			lineNumbers = new long[maxRows];
+		}
+
+		/**
+		 * @return false if the batch is full.
+		 */
+		private boolean add(RF2Row row) {
+			if (rows == maxRows) {
+				return false;
+			}
+			final int lineLength = row.getLineLength();
+			if (byteCount + lineLength > bytes.length) {
+				bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, byteCount + lineLength));
+			}
+			final int fieldCount = row.getFieldCount();
+			if (fieldStartCount + fieldCount + 1 > fieldStarts.length) {
+				fieldStarts = Arrays.copyOf(fieldStarts, Math.max(fieldStarts.length * 2, fieldStartCount + fieldCount + 1));
+			}
+			byteCount += row.copyTo(bytes, byteCount, fieldStarts, fieldStartCount);
+			rowFieldStarts[rows] = fieldStartCount;
+			fieldCounts[rows] = fieldCount;
+			lineNumbers[rows] = row.getLineNumber();
+			fieldStartCount += fieldCount + 1;
+			rows++;
+			return true;
+		}
+
+		private void point(RF2Row row, int batchRow) {
+			row.tokenized(bytes, fieldStarts, rowFieldStarts[batchRow], fieldCounts[batchRow], lineNumbers[batchRow]);
+		}
+
+		private void clear() {
+			byteCount = 0;
+			fieldStartCount = 0;
+			rows = 0;
+		}
+	}
+}
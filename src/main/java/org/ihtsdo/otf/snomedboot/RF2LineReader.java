@@ -0,0 +1,124 @@
+package org.ihtsdo.otf.snomedboot;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+/**
+ * Reads RF2 lines from a stream into a reusable byte buffer without allocating per line.
+ * The current line is exposed as an {@link RF2Row} which is only valid until the next call to {@link #next()}.
+ */
+class RF2LineReader implements RF2RowReader {
+
+	private static final int DEFAULT_BUFFER_SIZE = 64 * 1024;
+
+	private final InputStream inputStream;
+	private final RF2Row row;
+	private byte[] buffer;
+	private int position;
+	private int limit;
+	private boolean endOfStream;
+	private long lineNumber;
+	private RF2RowFilter rowFilter;
+
+	RF2LineReader(InputStream inputStream) {
+		this(inputStream, DEFAULT_BUFFER_SIZE);
+	}
+
+	RF2LineReader(InputStream inputStream, int bufferSize) {
+		this.inputStream = inputStream;
+		this.buffer = new byte[bufferSize];
+		this.row = new RF2Row();
+	}
+
+	/**
+	 * @param rowFilter Lines the filter does not accept are skipped from now on, without being tokenized.
+	 * Line numbers still count skipped lines.
+	 */
+	void setRowFilter(RF2RowFilter rowFilter) {
+		this.rowFilter = rowFilter != null && !rowFilter.isEmpty() ? rowFilter : null;
+	}
+
+	/**
+	 * Advances to the next non-empty line accepted by the row filter.
+	 * @return false if the end of the stream has been reached.
+	 */
+	@Override
+	public boolean next() throws IOException {
+		while (true) {
+			// Counted before the line is read, so a failure to read it is reported against it
+			lineNumber++;
+			int lineEnd = indexOfNewline(position, limit);
+			while (lineEnd == -1 && !endOfStream) {
+				final int searchFrom = limit - position;
+				fill();
+				lineEnd = indexOfNewline(position + searchFrom, limit);
+			}
+			if (lineEnd == -1) {
+				if (position == limit) {
+					lineNumber--;
+					return false;
+				}
+				// Last line has no line terminator
+				lineEnd = limit;
+			}
+
+			final int lineStart = position;
+			position = lineEnd < limit ? lineEnd + 1 : limit;
+
+			int contentEnd = lineEnd;
+			if (contentEnd > lineStart && buffer[contentEnd - 1] == '\r') {
+				contentEnd--;
+			}
+			if (contentEnd > lineStart && (rowFilter == null || rowFilter.accept(buffer, lineStart, contentEnd))) {
+				row.tokenize(buffer, lineStart, contentEnd, lineNumber);
+				return true;
+			}
+		}
+	}
+
+	@Override
+	public RF2Row getRow() {
+		return row;
+	}
+
+	@Override
+	public long getLineNumber() {
+		return lineNumber;
+	}
+
+	private int indexOfNewline(int from, int to) {
+		final byte[] bytes = buffer;
+		for (int i = from; i < to; i++) {
+			if (bytes[i] == '\n') {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Moves any unread bytes to the start of the buffer, growing it if a single line fills it, then reads more data.
+	 */
+	private void fill() throws IOException {
+		final int remaining = limit - position;
+		if (position > 0) {
+			System.arraycopy(buffer, position, buffer, 0, remaining);
+		} else if (remaining == buffer.length) {
+			buffer = Arrays.copyOf(buffer, buffer.length * 2);
+		}
+		position = 0;
+		limit = remaining;
+		final int read = inputStream.read(buffer, limit, buffer.length - limit);
+		if (read == -1) {
+			endOfStream = true;
+		} else {
+			limit += read;
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		inputStream.close();
+	}
+}
@@ -0,0 +1,207 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * A flyweight view of one tab separated RF2 row held in a shared byte buffer.
+ * Field values are only decoded into Strings when a caller asks for them.
+ */
+final class RF2Row {
+
+	private static final byte TAB = '\t';
+	// Longer numbers may not fit a long
+	private static final int MAX_POOLED_DIGITS = 18;
+
+	private byte[] bytes;
+	// Start offset of each field plus one trailing entry, so field i spans fieldStarts[i] to fieldStarts[i + 1] - 1
+	private int[] fieldStarts = new int[16];
+	private int fieldCount;
+	private long lineNumber;
+
+	/**
+	 * Points this row at the line bytes[start, end) and records the field offsets.
+	 */
+	void tokenize(byte[] bytes, int start, int end, long lineNumber) {
+		this.bytes = bytes;
+		this.lineNumber = lineNumber;
+		int count = 0;
+		fieldStarts[count++] = start;
+		for (int i = start; i < end; i++) {
+			if (bytes[i] == TAB) {
+				if (count == fieldStarts.length - 1) {
+					fieldStarts = Arrays.copyOf(fieldStarts, fieldStarts.length * 2);
+				}
+				fieldStarts[count++] = i + 1;
+			}
+		}
+		fieldStarts[count] = end + 1;
+		fieldCount = count;
+	}
+
+	/**
+	 * Points this row at a line tokenized earlier, whose field offsets are held in fieldStarts from the given offset.
+	 */
+	void tokenized(byte[] bytes, int[] fieldStarts, int offset, int fieldCount, long lineNumber) {
+		this.bytes = bytes;
+		this.lineNumber = lineNumber;
+		if (this.fieldStarts.length < fieldCount + 1) {
+			this.fieldStarts = new int[fieldCount + 1];
+		}
+		System.arraycopy(fieldStarts, offset, this.fieldStarts, 0, fieldCount + 1);
+		this.fieldCount = fieldCount;
+	}
+
+	/**
+	 * Copies the bytes of the line into the given array and the field offsets, relative to the copied line, into the
+	 * given offsets array.
+	 * @return The number of bytes copied.
+	 */
+	int copyTo(byte[] lineBytes, int lineOffset, int[] fieldOffsets, int fieldOffset) {
+		final int start = fieldStarts[0];
+		final int length = fieldStarts[fieldCount] - 1 - start;
+		System.arraycopy(bytes, start, lineBytes, lineOffset, length);
+		for (int i = 0; i <= fieldCount; i++) {
+			fieldOffsets[fieldOffset + i] = fieldStarts[i] - start + lineOffset;
+		}
+		return length;
+	}
+
+	/**
+	 * @return The number of bytes in the line, without the line terminator.
+	 */
+	int getLineLength() {
+		return fieldStarts[fieldCount] - 1 - fieldStarts[0];
+	}
+
+	int getFieldCount() {
+		return fieldCount;
+	}
+
+	long getLineNumber() {
+		return lineNumber;
+	}
+
+	int getLength(int field) {
+		checkField(field);
+		return fieldStarts[field + 1] - 1 - fieldStarts[field];
+	}
+
+	String getString(int field) {
+		checkField(field);
+		final int start = fieldStarts[field];
+		return new String(bytes, start, fieldStarts[field + 1] - 1 - start, ReleaseImporter.UTF_8);
+	}
+
+	/**
+	 * @return The value of the field from the pool if it is a decimal number the pool can hold, otherwise a new String.
+	 */
+	String getString(int field, IdentifierPool identifierPool) {
+		checkField(field);
+		final int start = fieldStarts[field];
+		final int end = fieldStarts[field + 1] - 1;
+		if (end <= start || end - start > MAX_POOLED_DIGITS || end - start > 1 && bytes[start] == '0') {
+			return getString(field);
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			final int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9) {
+				return getString(field);
+			}
+			value = value * 10 + digit;
+		}
+		return identifierPool.toString(value);
+	}
+
+	/**
+	 * @return The values of all fields from the given field to the end of the row.
+	 */
+	String[] getStrings(int fromField) {
+		final String[] values = new String[Math.max(fieldCount - fromField, 0)];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = getString(fromField + i);
+		}
+		return values;
+	}
+
+	String[] toStringArray() {
+		return getStrings(0);
+	}
+
+	boolean fieldEquals(int field, byte[] value) {
+		checkField(field);
+		final int start = fieldStarts[field];
+		if (fieldStarts[field + 1] - 1 - start != value.length) {
+			return false;
+		}
+		for (int i = 0; i < value.length; i++) {
+			if (bytes[start + i] != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @throws NumberFormatException if the field is not a decimal number which fits a long.
+	 */
+	long getLong(int field) {
+		checkField(field);
+		final int start = fieldStarts[field];
+		final int end = fieldStarts[field + 1] - 1;
+		if (start == end) {
+			throw new NumberFormatException("Empty value in field " + field + " of line " + lineNumber);
+		}
+		long value = 0;
+		for (int i = start; i < end; i++) {
+			final int digit = bytes[i] - '0';
+			if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+				throw numberFormatException(field);
+			}
+			value = value * 10 + digit;
+		}
+		return value;
+	}
+
+	/**
+	 * @throws NumberFormatException if the field is not a decimal number which fits an int.
+	 */
+	int getInt(int field) {
+		final long value = getLong(field);
+		if (value > Integer.MAX_VALUE) {
+			throw numberFormatException(field);
+		}
+		return (int) value;
+	}
+
+	private NumberFormatException numberFormatException(int field) {
+		return new NumberFormatException("For input string: \"" + getString(field) + "\" in field " + field + " of line " + lineNumber);
+	}
+
+	/**
+	 * Offsets beyond the field count are left over from an earlier, longer line.
+	 */
+	private void checkField(int field) {
+		if (field < 0 || field >= fieldCount) {
+			throw new IndexOutOfBoundsException("Field " + field + " requested from line " + lineNumber + " which has " + fieldCount + " fields");
+		}
+	}
+
+	/**
+	 * Writes the bytes of the whole row, followed by a line feed.
+	 */
+	void writeLine(OutputStream outputStream) throws IOException {
+		final int start = fieldStarts[0];
+		outputStream.write(bytes, start, fieldStarts[fieldCount] - 1 - start);
+		outputStream.write('\n');
+	}
+
+	@Override
+	public String toString() {
+		return Arrays.toString(toStringArray());
+	}
+}
@@ -0,0 +1,92 @@
+package org.ihtsdo.otf.snomedboot;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+
+/**
+ * Decides from the raw bytes of a line whether a row is wanted before the line is tokenized. Only the fields
+ * with a condition are located, the scan stops at the last of them, so unwanted rows cost little more than
+ * finding the end of the line.
+ * A line with fewer fields than the conditions need is accepted. Each condition is on a field the importer reads, and
+ * RF2Row throws for a field the line does not have, so the import then fails with the file and number of the line.
+ */
+final class RF2RowFilter {
+
+	private static final byte TAB = '\t';
+
+	private int[] fields = new int[0];
+	private byte[][][] acceptedValues = new byte[0][][];
+
+	/**
+	 * Accepts only rows whose field has one of the given values. Conditions must be added in field order.
+	 */
+	RF2RowFilter withField(int field, Collection<byte[]> values) {
+		final int conditions = fields.length;
+		if (conditions > 0 && fields[conditions - 1] >= field) {
+			throw new IllegalArgumentException("Conditions must be added in field order.");
+		}
+		fields = Arrays.copyOf(fields, conditions + 1);
+		fields[conditions] = field;
+		acceptedValues = Arrays.copyOf(acceptedValues, conditions + 1);
+		acceptedValues[conditions] = values.toArray(new byte[values.size()][]);
+		return this;
+	}
+
+	RF2RowFilter withField(int field, byte[] value) {
+		return withField(field, Collections.singleton(value));
+	}
+
+	boolean isEmpty() {
+		return fields.length == 0;
+	}
+
+	/**
+	 * @return true if the line bytes[start, end) is wanted.
+	 */
+	boolean accept(byte[] bytes, int start, int end) {
+		if (fields.length == 0) {
+			return true;
+		}
+		int condition = 0;
+		int conditionField = fields[0];
+		int field = 0;
+		int fieldStart = start;
+		for (int i = start; i <= end; i++) {
+			if (i == end || bytes[i] == TAB) {
+				if (field == conditionField) {
+					if (!matches(acceptedValues[condition], bytes, fieldStart, i)) {
+						return false;
+					}
+					if (++condition == fields.length) {
+						return true;
+					}
+					conditionField = fields[condition];
+				}
+				field++;
+				fieldStart = i + 1;
+			}
+		}
+		return true;
+	}
+
+	private static boolean matches(byte[][] values, byte[] bytes, int start, int end) {
+		final int length = end - start;
+		for (byte[] value : values) {
+			if (value.length == length && equals(value, bytes, start)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean equals(byte[] value, byte[] bytes, int start) {
+		// Compared from the end, identifiers from one namespace share their leading digits
+		for (int i = value.length - 1; i >= 0; i--) {
+			if (bytes[start + i] != value[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+}
@@ -0,0 +1,25 @@
+package org.ihtsdo.otf.snomedboot;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A source of RF2 rows. The current row is only valid until the next call to {@link #next()}.
+ */
+interface RF2RowReader extends Closeable {
+
+	/**
+	 * Advances to the next non-empty line.
+	 * @return false if there are no more lines.
+	 */
+	boolean next() throws IOException;
+
+	RF2Row getRow();
+
+	/**
+	 * @return The number of the line last read, the header being line 1, or of the line being read when next failed.
+	 * Skipped lines are counted.
+	 */
+	long getLineNumber();
+
+}
@@ -0,0 +1,220 @@
+package org.ihtsdo.otf.snomedboot;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URI;
+import java.nio.charset.Charset;
+import java.nio.file.FileSystemNotFoundException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which refsetIds each reference set file contains, so that a file without any wanted reference set
+ * can be skipped rather than read. A file is scanned the first time it is seen and again whenever its size or
+ * last modified time changes. The scan reads each line only as far as its refsetId and does not tokenize it.
+ * <p>
+ * The importer only consults the index when it is kept in a file, to carry it from one process to the next. Building
+ * the index costs a pass over every reference set file, which only pays off when later imports find the same files
+ * unchanged.
+ */
+final class RefsetIdIndex {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final int SCAN_BUFFER_SIZE = 64 * 1024;
+	private static final int REFSET_ID_FIELD = 4;
+	// Only this much of a value is kept, identifiers are far shorter
+	private static final int MAX_REFSET_ID_LENGTH = 64;
+
+	private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+	private Path indexFile;
+	private boolean loaded;
+	private volatile boolean changed;
+
+	/**
+	 * @param indexFile The file the index is loaded from and saved to, null to keep the index in memory only.
+	 */
+	synchronized void setIndexFile(Path indexFile) {
+		this.indexFile = indexFile;
+		loaded = false;
+	}
+
+	synchronized Path getIndexFile() {
+		return indexFile;
+	}
+
+	/**
+	 * @return The refsetIds of the rows of the file, scanning the file if it has changed since it was last seen.
+	 */
+	Set<String> getRefsetIds(Path rf2File) throws IOException {
+		load();
+		final BasicFileAttributes attributes = Files.readAttributes(rf2File, BasicFileAttributes.class);
+		final String location = rf2File.toUri().toString();
+		Entry entry = entries.get(location);
+		if (entry == null || entry.size != attributes.size() || entry.lastModified != attributes.lastModifiedTime().toMillis()) {
+			entry = new Entry(attributes.size(), attributes.lastModifiedTime().toMillis(), scan(rf2File));
+			entries.put(location, entry);
+			changed = true;
+		}
+		return entry.refsetIds;
+	}
+
+	/**
+	 * Writes the index to the index file if any file has been scanned since it was loaded.
+	 * Entries of files which no longer exist are dropped.
+	 */
+	synchronized void save() throws IOException {
+		if (indexFile == null || !changed) {
+			return;
+		}
+		final Path directory = indexFile.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path tempFile = Files.createTempFile(directory, indexFile.getFileName().toString(), ".tmp");
+		try {
+			try (BufferedWriter writer = Files.newBufferedWriter(tempFile, UTF_8)) {
+				for (Map.Entry<String, Entry> mapEntry : entries.entrySet()) {
+					final String location = mapEntry.getKey();
+					if (exists(location)) {
+						final Entry entry = mapEntry.getValue();
+						writer.write(location + "\t" + entry.size + "\t" + entry.lastModified + "\t" + join(entry.refsetIds));
+						writer.newLine();
+					}
+				}
+			}
+			// Replaced in one step so that a concurrent reader never sees part of the index
+			Files.move(tempFile, indexFile, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		changed = false;
+	}
+
+	private synchronized void load() throws IOException {
+		if (loaded) {
+			return;
+		}
+		loaded = true;
+		if (indexFile == null || !Files.isRegularFile(indexFile)) {
+			return;
+		}
+		try (BufferedReader reader = Files.newBufferedReader(indexFile, UTF_8)) {
+			String line;
+			while ((line = reader.readLine()) != null) {
+				final String[] values = line.split("\t", -1);
+				if (values.length == 4 && !entries.containsKey(values[0])) {
+					try {
+						final Set<String> refsetIds = values[3].isEmpty() ? Collections.<String>emptySet()
+								: Collections.unmodifiableSet(new HashSet<>(Arrays.asList(values[3].split(","))));
+						entries.put(values[0], new Entry(Long.parseLong(values[1]), Long.parseLong(values[2]), refsetIds));
+					} catch (NumberFormatException e) {
+						// A damaged entry is dropped, the file is scanned again
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The values of the refsetId field of every line but the header.
+	 */
+	static Set<String> scan(Path rf2File) throws IOException {
+		final Set<String> refsetIds = new HashSet<>();
+		final byte[] buffer = new byte[SCAN_BUFFER_SIZE];
+		final byte[] refsetId = new byte[MAX_REFSET_ID_LENGTH];
+		int refsetIdLength = 0;
+		byte[] lastRefsetId = new byte[0];
+		boolean header = true;
+		int field = 0;
+		try (InputStream inputStream = Files.newInputStream(rf2File)) {
+			int read;
+			while ((read = inputStream.read(buffer)) != -1) {
+				for (int i = 0; i < read; i++) {
+					final byte b = buffer[i];
+					if (b == '\t' || b == '\n' || b == '\r') {
+						if (field == REFSET_ID_FIELD && !header && refsetIdLength > 0) {
+							// Rows of one reference set are usually together, so most lines repeat the last value
+							if (!equals(lastRefsetId, refsetId, refsetIdLength)) {
+								lastRefsetId = Arrays.copyOf(refsetId, refsetIdLength);
+								refsetIds.add(new String(lastRefsetId, UTF_8));
+							}
+						}
+						if (b == '\t') {
+							field++;
+						} else if (b == '\n') {
+							header = false;
+							field = 0;
+						}
+						refsetIdLength = 0;
+					} else if (field == REFSET_ID_FIELD && refsetIdLength < MAX_REFSET_ID_LENGTH) {
+						refsetId[refsetIdLength++] = b;
+					}
+				}
+			}
+		}
+		if (field == REFSET_ID_FIELD && !header && refsetIdLength > 0) {
+			// Last line has no line terminator and ends with the refsetId
+			refsetIds.add(new String(refsetId, 0, refsetIdLength, UTF_8));
+		}
+		return Collections.unmodifiableSet(refsetIds);
+	}
+
+	private static boolean equals(byte[] value, byte[] bytes, int length) {
+		if (value.length != length) {
+			return false;
+		}
+		for (int i = length - 1; i >= 0; i--) {
+			if (value[i] != bytes[i]) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private static boolean exists(String location) {
+		// Entries within a zip are kept while the zip exists
+		String fileLocation = location;
+		if (location.startsWith("jar:")) {
+			final int entrySeparator = location.indexOf("!/");
+			fileLocation = location.substring("jar:".length(), entrySeparator != -1 ? entrySeparator : location.length());
+		}
+		try {
+			return Files.exists(Paths.get(URI.create(fileLocation)));
+		} catch (IllegalArgumentException | FileSystemNotFoundException e) {
+			return false;
+		}
+	}
+
+	private static String join(Set<String> values) {
+		final StringBuilder joined = new StringBuilder();
+		for (String value : values) {
+			if (joined.length() > 0) {
+				joined.append(',');
+			}
+			joined.append(value);
+		}
+		return joined.toString();
+	}
+
+	private static final class Entry {
+
+		private final long size;
+		private final long lastModified;
+		private final Set<String> refsetIds;
+
+		private Entry(long size, long lastModified, Set<String> refsetIds) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.refsetIds = refsetIds;
+		}
+	}
+}
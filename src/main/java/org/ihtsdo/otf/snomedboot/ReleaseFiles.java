@@ -68,6 +68,66 @@ class ReleaseFiles {
 		this.refsetPaths = refsetPaths;
 	}
 
+	/**
+	 * Sets the file in its role by its name.
+	 * @return false if the name is not that of a release file of the given type.
+	 */
+	public boolean addFile(Path file, String fileType) {
+		final String fileName = file.getFileName().toString();
+		if (!fileName.endsWith(".txt")) {
+			return false;
+		}
+		if (fileName.startsWith("sct2_Concept_" + fileType) || fileName.startsWith("xsct2_Concept_" + fileType)) {
+			setConceptPath(file);
+		} else if (fileName.startsWith("sct2_Description_" + fileType) || fileName.startsWith("xsct2_Description_" + fileType)) {
+			setDescriptionPath(file);
+		} else if (fileName.startsWith("sct2_TextDefinition_" + fileType) || fileName.startsWith("xsct2_TextDefinition_" + fileType)) {
+			setTextDefinitionPath(file);
+		} else if (fileName.startsWith("sct2_Relationship_" + fileType) || fileName.startsWith("xsct2_Relationship_" + fileType)) {
+			setRelationshipPath(file);
+		} else if (fileName.startsWith("sct2_StatedRelationship_" + fileType) || fileName.startsWith("xsct2_StatedRelationship_" + fileType)) {
+			setStatedRelationshipPath(file);
+		} else if (fileName.startsWith("der2_") && fileName.contains(fileType) || fileName.startsWith("xder2_") && fileName.contains(fileType)) {
+			refsetPaths.add(file);
+		} else {
+			return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return All files of the release, core component files first.
+	 */
+	public List<Path> getAllPaths() {
+		final List<Path> paths = new ArrayList<>();
+		for (Path path : new Path[] {conceptPath, descriptionPath, textDefinitionPath, relationshipPath, statedRelationshipPath}) {
+			if (path != null) {
+				paths.add(path);
+			}
+		}
+		paths.addAll(refsetPaths);
+		return paths;
+	}
+
+	/**
+	 * Sets the given path on the target in the same role that the source path has in this set of files.
+	 */
+	public void copyPath(Path sourcePath, Path path, ReleaseFiles target) {
+		if (sourcePath.equals(conceptPath)) {
+			target.setConceptPath(path);
+		} else if (sourcePath.equals(descriptionPath)) {
+			target.setDescriptionPath(path);
+		} else if (sourcePath.equals(textDefinitionPath)) {
+			target.setTextDefinitionPath(path);
+		} else if (sourcePath.equals(relationshipPath)) {
+			target.setRelationshipPath(path);
+		} else if (sourcePath.equals(statedRelationshipPath)) {
+			target.setStatedRelationshipPath(path);
+		} else if (refsetPaths.contains(sourcePath)) {
+			target.getRefsetPaths().add(path);
+		}
+	}
+
 	public void assertFullSet(LoadingProfile loadingProfile) throws FileNotFoundException {
 		if (!loadingProfile.isJustRefsets()) {
 			if (conceptPath == null) {
@@ -4,6 +4,9 @@ public class ReleaseImportException extends Exception {
 
 	private static final long serialVersionUID = 1L;
 
+	private String fileName;
+	private long lineNumber;
+
 	public ReleaseImportException(String message) {
 		super(message);
 	}
@@ -11,4 +14,25 @@ public class ReleaseImportException extends Exception {
 	public ReleaseImportException(String message, Throwable cause) {
 		super(message, cause);
 	}
+
+	public ReleaseImportException(String message, Throwable cause, String fileName, long lineNumber) {
+		super(message, cause);
+		this.fileName = fileName;
+		this.lineNumber = lineNumber;
+	}
+
+	/**
+	 * @return The name of the RF2 file being read when the import failed, or null if not known.
+	 */
+	public String getFileName() {
+		return fileName;
+	}
+
+	/**
+	 * @return The number of the line being read when the import failed, the header being line 1, or 0 if not known.
+	 * When a BatchComponentFactory fails on a batch, the number of the first line of the batch.
+	 */
+	public long getLineNumber() {
+		return lineNumber;
+	}
 }
@@ -2,10 +2,15 @@ package org.ihtsdo.otf.snomedboot;
 
 import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
 import org.ihtsdo.otf.snomedboot.domain.rf2.*;
+import org.ihtsdo.otf.snomedboot.factory.BatchComponentFactory;
 import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.DeltaComponentFactory;
 import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
 import org.ihtsdo.otf.snomedboot.factory.HistoryAwareComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+import org.ihtsdo.otf.snomedboot.factory.IsAComponentFactory;
 import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.PrimitiveComponentFactory;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.util.FileSystemUtils;
@@ -17,75 +22,180 @@ import java.nio.file.*;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.text.NumberFormat;
 import java.util.*;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.regex.Matcher;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
 import java.util.regex.Pattern;
 import java.util.zip.ZipEntry;
+import java.util.zip.ZipError;
 import java.util.zip.ZipInputStream;
 
 public class ReleaseImporter {
 
 	public static final Charset UTF_8 = Charset.forName("UTF-8");
 
-	public void loadFullReleaseFiles(String releaseDirPath, LoadingProfile loadingProfile, HistoryAwareComponentFactory componentFactory) throws ReleaseImportException {
-		new ImportRun(componentFactory).doLoadReleaseFiles(releaseDirPath, loadingProfile, ImportType.FULL);
+	private static final byte[] ACTIVE = FactoryUtils.ACTIVE.getBytes(UTF_8);
+	private static final byte[] FSN = ConceptConstants.FSN.getBytes(UTF_8);
+	private static final byte[] INFERRED_RELATIONSHIP = ConceptConstants.INFERRED_RELATIONSHIP.getBytes(UTF_8);
+	private static final byte[] IS_A = ConceptConstants.isA.getBytes(UTF_8);
+	private static final long DEFAULT_MIN_CHUNK_SIZE = 16 * 1024 * 1024;
+	private static final int DEFAULT_PIPELINE_BATCH_SIZE = 1024;
+	private static final int DEFAULT_PIPELINE_BATCHES = 4;
+	private static final int DEFAULT_COMPONENT_BATCH_SIZE = 10000;
+	// Read loops check for cancellation after this many lines
+	private static final int CANCELLATION_CHECK_INTERVAL = 4096;
+
+	private ExecutorService executorService;
+	private int parallelism = Runtime.getRuntime().availableProcessors();
+	private boolean chunkedReading;
+	private long minChunkSize = DEFAULT_MIN_CHUNK_SIZE;
+	private boolean pipelinedReading;
+	private int pipelineBatchSize = DEFAULT_PIPELINE_BATCH_SIZE;
+	private int pipelineBatches = DEFAULT_PIPELINE_BATCHES;
+	private int componentBatchSize = DEFAULT_COMPONENT_BATCH_SIZE;
+	private final RefsetIdIndex refsetIdIndex = new RefsetIdIndex();
+
+	public void loadFullReleaseFiles(String releasePath, LoadingProfile loadingProfile, HistoryAwareComponentFactory componentFactory) throws ReleaseImportException {
+		newImportRun(componentFactory).doLoadReleaseFiles(releasePath, loadingProfile, ImportType.FULL);
 	}
 
-	public void loadSnapshotReleaseFiles(String releaseDirPath, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
-		new ImportRun(componentFactory).doLoadReleaseFiles(releaseDirPath, loadingProfile, ImportType.SNAPSHOT);
+	public void loadSnapshotReleaseFiles(String releasePath, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
+		newImportRun(componentFactory).doLoadReleaseFiles(releasePath, loadingProfile, ImportType.SNAPSHOT);
 	}
 
-	public void loadDeltaReleaseFiles(String releaseDirPath, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
-		new ImportRun(componentFactory).doLoadReleaseFiles(releaseDirPath, loadingProfile, ImportType.DELTA);
+	public void loadDeltaReleaseFiles(String releasePath, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
+		newImportRun(componentFactory).doLoadReleaseFiles(releasePath, loadingProfile, ImportType.DELTA);
 	}
 
-	public void loadFullReleaseFiles(InputStream releaseZip, LoadingProfile loadingProfile, HistoryAwareComponentFactory componentFactory) throws ReleaseImportException {
-		File releaseDir = unzipRelease(releaseZip, ImportType.FULL);
-		loadFullReleaseFiles(releaseDir.getAbsolutePath(), loadingProfile, componentFactory);
-		FileSystemUtils.deleteRecursively(releaseDir);
+	/**
+	 * @param executorService Used by every import and not shut down, or null for each import to create its own pool.
+	 */
+	public void setExecutorService(ExecutorService executorService) {
+		this.executorService = executorService;
 	}
 
-	public void loadSnapshotReleaseFiles(InputStream releaseZip, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
-		File releaseDir = unzipRelease(releaseZip, ImportType.SNAPSHOT);
-		loadSnapshotReleaseFiles(releaseDir.getAbsolutePath(), loadingProfile, componentFactory);
-		FileSystemUtils.deleteRecursively(releaseDir);
+	public ExecutorService getExecutorService() {
+		return executorService;
 	}
 
-	public void loadDeltaReleaseFiles(InputStream releaseZip, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
-		File releaseDir = unzipRelease(releaseZip, ImportType.DELTA);
-		loadDeltaReleaseFiles(releaseDir.getAbsolutePath(), loadingProfile, componentFactory);
-		FileSystemUtils.deleteRecursively(releaseDir);
+	/**
+	 * @param parallelism The number of threads each import uses, the number of available processors by default.
+	 */
+	public void setParallelism(int parallelism) {
+		if (parallelism < 1) {
+			throw new IllegalArgumentException("Parallelism must be at least 1.");
+		}
+		this.parallelism = parallelism;
 	}
 
-	private File unzipRelease(InputStream releaseZip, ImportType filenameFilter) throws ReleaseImportException {
-		try {
-			File tempDir = Files.createTempDirectory(null).toFile();
-			try (InputStream snomedReleaseZipStream = releaseZip) {
-				File zipFile = new File(tempDir, "release.zip");
-				try (FileOutputStream out = new FileOutputStream(zipFile)) {
-					StreamUtils.copy(snomedReleaseZipStream, out);
-				}
-
-				ZipInputStream zipInputStream = new ZipInputStream(new FileInputStream(zipFile));
-				ZipEntry zipEntry;
-				while ((zipEntry = zipInputStream.getNextEntry()) != null) {
-					String zipEntryName = zipEntry.getName();
-					if (zipEntryName.contains(filenameFilter.getFilenamePart())) {
-						// Create file without directory nesting
-						File file = new File(tempDir, new File(zipEntryName).getName());
-						file.createNewFile();
-						try (FileOutputStream entryOutputStream = new FileOutputStream(file)) {
-							StreamUtils.copy(zipInputStream, entryOutputStream);
-						}
-					}
-				}
-			}
-			return tempDir;
-		} catch (IOException e) {
-			throw new ReleaseImportException("Filed to unzip snomed release file.", e);
+	public int getParallelism() {
+		return parallelism;
+	}
+
+	/**
+	 * When enabled large RF2 files are split into chunks which are read in parallel. Callbacks for the rows of a file
+	 * then come in no particular order, except the parent and child callbacks which stay in file order.
+	 */
+	public void setChunkedReading(boolean chunkedReading) {
+		this.chunkedReading = chunkedReading;
+	}
+
+	public boolean isChunkedReading() {
+		return chunkedReading;
+	}
+
+	void setMinChunkSize(long minChunkSize) {
+		this.minChunkSize = minChunkSize;
+	}
+
+	/**
+	 * When enabled each file is parsed on a thread of its own while the callbacks for its rows are made, in file order.
+	 */
+	public void setPipelinedReading(boolean pipelinedReading) {
+		this.pipelinedReading = pipelinedReading;
+	}
+
+	public boolean isPipelinedReading() {
+		return pipelinedReading;
+	}
+
+	/**
+	 * @param batchSize The number of rows handed over at once in pipelined reading, 1024 by default.
+	 * @param batches The number of batches each file may have parsed ahead of the factory, at least 2, 4 by default.
+	 */
+	public void setPipelineBatches(int batchSize, int batches) {
+		if (batchSize < 1 || batches < 2) {
+			throw new IllegalArgumentException("Batch size must be at least 1 and batches at least 2.");
+		}
+		this.pipelineBatchSize = batchSize;
+		this.pipelineBatches = batches;
+	}
+
+	public int getPipelineBatchSize() {
+		return pipelineBatchSize;
+	}
+
+	public int getPipelineBatches() {
+		return pipelineBatches;
+	}
+
+	/**
+	 * @param componentBatchSize The most rows passed to a {@link BatchComponentFactory} in one call, 10000 by default.
+	 */
+	public void setComponentBatchSize(int componentBatchSize) {
+		if (componentBatchSize < 1) {
+			throw new IllegalArgumentException("Component batch size must be at least 1.");
 		}
+		this.componentBatchSize = componentBatchSize;
+	}
+
+	public int getComponentBatchSize() {
+		return componentBatchSize;
+	}
+
+	/**
+	 * @param refsetIdIndexFile Where the refsetIds found in each reference set file are kept, so that later imports skip
+	 * files without a wanted reference set. Null, the default, reads every reference set file.
+	 */
+	public void setRefsetIdIndexFile(Path refsetIdIndexFile) {
+		refsetIdIndex.setIndexFile(refsetIdIndexFile);
+	}
+
+	public Path getRefsetIdIndexFile() {
+		return refsetIdIndex.getIndexFile();
+	}
+
+	private ImportRun newImportRun(ComponentFactory componentFactory) {
+		return new ImportRun(componentFactory, this);
+	}
+
+	/**
+	 * Reads the zip entries in archive order on one thread, splitting each by release version into temporary files.
+	 */
+	public void loadFullReleaseFiles(InputStream releaseZip, LoadingProfile loadingProfile, HistoryAwareComponentFactory componentFactory) throws ReleaseImportException {
+		newImportRun(componentFactory).doLoadReleaseFiles(releaseZip, loadingProfile, ImportType.FULL);
+	}
+
+	/**
+	 * Reads the zip entries in archive order on one thread. Entries which come before their turn, such as reference set
+	 * files which wait for every core component file, are copied to temporary files until then.
+	 */
+	public void loadSnapshotReleaseFiles(InputStream releaseZip, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
+		newImportRun(componentFactory).doLoadReleaseFiles(releaseZip, loadingProfile, ImportType.SNAPSHOT);
+	}
+
+	/**
+	 * Reads the zip entries as {@link #loadSnapshotReleaseFiles(InputStream, LoadingProfile, ComponentFactory)} does.
+	 */
+	public void loadDeltaReleaseFiles(InputStream releaseZip, LoadingProfile loadingProfile, ComponentFactory componentFactory) throws ReleaseImportException {
+		newImportRun(componentFactory).doLoadReleaseFiles(releaseZip, loadingProfile, ImportType.DELTA);
 	}
 
 	private enum ImportType {
@@ -106,21 +216,115 @@ public class ReleaseImporter {
 	private static final class ImportRun {
 
 		private final ComponentFactory componentFactory;
+		// The factory again if it takes component states in batches, otherwise null
+		private final BatchComponentFactory batchComponentFactory;
+		// Whether the factory takes primitive callbacks, which are then parsed straight from the bytes of each row
+		private final boolean primitiveCallbacks;
+		// Whether the factory takes an edge event for each is-a relationship in place of the parent and child callbacks
+		private final boolean isAEvents;
+		// Whether the factory applies the release to loaded components, which then receives inactivations whatever the profile
+		private final boolean deltaCallbacks;
+		// Set when inactive relationships are read only for a DeltaComponentFactory to remove them
+		private boolean removeInactiveRelationships;
+		private final int componentBatchSize;
+		private final int parallelism;
+		private final boolean chunkedReading;
+		private final long minChunkSize;
+		private final int pipelineBatchSize;
+		private final int pipelineBatches;
+		private final RefsetIdIndex refsetIdIndex;
+		// Metadata values, such as moduleId and typeId, are passed to String callbacks as one String per distinct value
+		private final IdentifierPool identifierPool = new IdentifierPool();
+		// The lines of each file split from a Full file by release version, in the Full file
+		private final Map<Path, SplitLineNumbers> splitLineNumbers = new ConcurrentHashMap<>();
 
 		private final ExecutorService executorService;
+		private final boolean ownExecutorService;
+		// Runs the parser threads of pipelined reading, null if not pipelined
+		private final ExecutorService parserExecutorService;
+		// Set when a task fails so that the other tasks stop, even on an executor which does not interrupt cancelled tasks
+		private volatile boolean cancelled;
 
 		private final Logger logger = LoggerFactory.getLogger(getClass());
-		public static final Pattern DATE_EXTRACT_PATTERN = Pattern.compile("[^\\t]*\\t([^\\t]*)\t");
+		private static final Pattern RELEASE_VERSION_PATTERN = Pattern.compile("[0-9]+");
 
-		public ImportRun(ComponentFactory componentFactory) {
-			executorService = Executors.newCachedThreadPool();
+		public ImportRun(ComponentFactory componentFactory, ReleaseImporter settings) {
 			this.componentFactory = componentFactory;
+			batchComponentFactory = componentFactory instanceof BatchComponentFactory ? (BatchComponentFactory) componentFactory : null;
+			componentBatchSize = settings.componentBatchSize;
+			primitiveCallbacks = componentFactory instanceof PrimitiveComponentFactory;
+			isAEvents = componentFactory instanceof IsAComponentFactory;
+			deltaCallbacks = componentFactory instanceof DeltaComponentFactory;
+			parallelism = settings.parallelism;
+			chunkedReading = settings.chunkedReading;
+			minChunkSize = settings.minChunkSize;
+			pipelineBatchSize = settings.pipelineBatchSize;
+			pipelineBatches = settings.pipelineBatches;
+			refsetIdIndex = settings.refsetIdIndex;
+			ownExecutorService = settings.executorService == null;
+			// Tasks are submitted largest first, an async mode pool runs them in that order
+			executorService = ownExecutorService
+					? new ForkJoinPool(parallelism, ForkJoinPool.defaultForkJoinWorkerThreadFactory, null, true) : settings.executorService;
+			// A parser thread blocks while its batches wait for the factory, so parser threads are never drawn from a bounded pool
+			parserExecutorService = settings.pipelinedReading ? Executors.newCachedThreadPool() : null;
 		}
 
-		private void doLoadReleaseFiles(String releaseDirPath, LoadingProfile loadingProfile, ImportType importType) throws ReleaseImportException {
+		private void doLoadReleaseFiles(String releasePath, LoadingProfile loadingProfile, ImportType importType) throws ReleaseImportException {
+			try {
+				loadingProfile = forDeltaCallbacks(loadingProfile);
+				final Path path = Paths.get(releasePath);
+				if (Files.isRegularFile(path)) {
+					// Zip entries are read in place through a zip file system which allows them to be read in parallel
+					try (FileSystem zipFileSystem = FileSystems.newFileSystem(path, (ClassLoader) null)) {
+						doLoadReleaseFiles(zipFileSystem.getPath("/"), loadingProfile, importType);
+					} catch (IOException | ProviderNotFoundException | ZipError e) {
+						// No provider is found for a file which is not a zip, older zip providers throw ZipError instead
+						throw new ReleaseImportException("Failed to open snomed release zip file.", e);
+					}
+				} else {
+					doLoadReleaseFiles(path, loadingProfile, importType);
+				}
+			} finally {
+				shutdown();
+			}
+		}
+
+		private void doLoadReleaseFiles(InputStream releaseZip, LoadingProfile loadingProfile, ImportType importType) throws ReleaseImportException {
+			try (ZipInputStream zipInputStream = new ZipInputStream(releaseZip)) {
+				loadingProfile = forDeltaCallbacks(loadingProfile);
+				loadZipEntries(zipInputStream, loadingProfile, importType);
+			} catch (IOException e) {
+				throw new ReleaseImportException("Failed to close snomed release zip stream.", e);
+			} finally {
+				shutdown();
+			}
+		}
+
+		private LoadingProfile forDeltaCallbacks(LoadingProfile loadingProfile) throws ReleaseImportException {
+			if (!deltaCallbacks) {
+				return loadingProfile;
+			}
+			if (!loadingProfile.isFullRelationshipObjects() || (loadingProfile.isStatedAttributeMapOnConcept() && !loadingProfile.isStatedRelationships())) {
+				throw new ReleaseImportException("A delta factory needs a loading profile with full relationship objects for every attribute and is-a edge, "
+						+ "otherwise relationships changed in place can not be replaced.");
+			}
+			removeInactiveRelationships = !loadingProfile.isInactiveRelationships();
+			return loadingProfile.withInactiveConcepts().withInactiveRelationships();
+		}
+
+		private void shutdown() {
+			if (ownExecutorService) {
+				executorService.shutdownNow();
+			}
+			if (parserExecutorService != null) {
+				parserExecutorService.shutdownNow();
+			}
+		}
+
+		private void doLoadReleaseFiles(Path releaseDir, LoadingProfile loadingProfile, ImportType importType) throws ReleaseImportException {
 			ReleaseFiles releaseFiles;
 			try {
-				releaseFiles = findFiles(releaseDirPath, importType.getFilenamePart(), loadingProfile);
+				releaseFiles = findFiles(releaseDir, importType.getFilenamePart(), loadingProfile);
 			} catch (IOException e) {
 				throw new ReleaseImportException("Failed to find release files during release import process.", e);
 			}
@@ -129,15 +333,18 @@ public class ReleaseImporter {
 
 
 			try {
+				if (!loadingProfile.isAllRefsets()) {
+					releaseFiles.setRefsetPaths(withWantedRefsets(releaseFiles.getRefsetPaths(), loadingProfile));
+				}
+
 				componentFactory.loadingComponentsStarting();
 
 				if (importType == ImportType.FULL) {
-					final Set<String> releaseVersions = gatherVersions(releaseFiles);
-					for (String releaseVersion : releaseVersions) {
-						((HistoryAwareComponentFactory) componentFactory).loadingReleaseDeltaStarting(releaseVersion);
-						logger.info("Loading release delta {}", releaseVersion);
-						loadAll(loadingProfile, releaseFiles, releaseVersion);
-						((HistoryAwareComponentFactory) componentFactory).loadingReleaseDeltaFinished(releaseVersion);
+					final Path releaseVersionsDir = Files.createTempDirectory("snomed-boot-full");
+					try {
+						loadReleaseVersions(loadingProfile, splitByReleaseVersion(releaseFiles, releaseVersionsDir), releaseVersionsDir);
+					} finally {
+						FileSystemUtils.deleteRecursively(releaseVersionsDir.toFile());
 					}
 				} else {
 					loadAll(loadingProfile, releaseFiles, null);
@@ -146,80 +353,249 @@ public class ReleaseImporter {
 				componentFactory.loadingComponentsCompleted();
 
 				logger.info("Release files read. JVM total memory is approx {} MB.", formatAsMB(Runtime.getRuntime().totalMemory()));
-			} catch (IOException | InterruptedException e) {
+			} catch (IOException e) {
 				throw new ReleaseImportException("Failed to load release files during release import process.", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ReleaseImportException("Interrupted while loading release files.", e);
 			}
 		}
 
-		private void loadAll(LoadingProfile loadingProfile, ReleaseFiles releaseFiles, String releaseVersion) throws IOException, InterruptedException {
-			List<Callable<String>> coreComponentTasks = new ArrayList<>();
-			if (!loadingProfile.isJustRefsets()) {
-				loadConcepts(releaseFiles.getConceptPath(), loadingProfile, releaseVersion);
+		// Entries are read in archive order, the core components straight from the stream once the concepts have been read.
+		// Entries which come before their turn, and reference set entries which wait for every core component, are
+		// copied to a file of their own until then. The entries of a Full release are split by release version as read.
+		private void loadZipEntries(ZipInputStream releaseZip, LoadingProfile loadingProfile, ImportType importType) throws ReleaseImportException {
+			logger.info("Loading {} release files from a zip stream", importType);
+			try {
+				componentFactory.loadingComponentsStarting();
 
-				coreComponentTasks.add(loadRelationships(releaseFiles.getRelationshipPath(), loadingProfile, releaseVersion));
-				if (loadingProfile.isStatedRelationships()) {
-					coreComponentTasks.add(loadRelationships(releaseFiles.getStatedRelationshipPath(), loadingProfile, releaseVersion));
+				final Path entriesDir = Files.createTempDirectory(importType == ImportType.FULL ? "snomed-boot-full" : "snomed-boot-entries");
+				try {
+					if (importType == ImportType.FULL) {
+						loadReleaseVersions(loadingProfile, splitByReleaseVersion(releaseZip, loadingProfile, entriesDir), entriesDir);
+					} else {
+						loadAll(loadingProfile, releaseZip, importType.getFilenamePart(), entriesDir);
+					}
+				} finally {
+					FileSystemUtils.deleteRecursively(entriesDir.toFile());
 				}
-				
-				if (loadingProfile.isDescriptions() || loadingProfile.isFullDescriptionObjects()) {
-					coreComponentTasks.add(loadDescriptions(releaseFiles.getDescriptionPath(), loadingProfile, releaseVersion));
-					coreComponentTasks.add(loadDescriptions(releaseFiles.getTextDefinitionPath(), loadingProfile, releaseVersion));
+
+				componentFactory.loadingComponentsCompleted();
+
+				logger.info("Release files read. JVM total memory is approx {} MB.", formatAsMB(Runtime.getRuntime().totalMemory()));
+			} catch (IOException e) {
+				throw new ReleaseImportException("Failed to load release files during release import process.", e);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new ReleaseImportException("Interrupted while loading release files.", e);
+			}
+		}
+
+		private void loadAll(LoadingProfile loadingProfile, ZipInputStream releaseZip, String fileType, Path entriesDir)
+				throws IOException, InterruptedException, ReleaseImportException {
+			final ReleaseFiles foundFiles = new ReleaseFiles();
+			final ReleaseFiles laterFiles = new ReleaseFiles();
+			boolean conceptsRead = false;
+			ZipEntry entry;
+			while ((entry = releaseZip.getNextEntry()) != null) {
+				final ReleaseFiles entryFiles = new ReleaseFiles();
+				final Path fileName = Paths.get(entry.getName()).getFileName();
+				if (entry.isDirectory() || !entryFiles.addFile(fileName, fileType)) {
+					continue;
+				}
+				entryFiles.copyPath(fileName, fileName, foundFiles);
+				final FileRead fileRead = fileRead(loadingProfile, entryFiles, fileName, null);
+				if (fileRead == null) {
+					continue;
+				}
+				final boolean concepts = fileName.equals(entryFiles.getConceptPath());
+				final boolean refsets = !entryFiles.getRefsetPaths().isEmpty();
+				if (refsets ? loadingProfile.isJustRefsets() : concepts || conceptsRead) {
+					fileRead.readLines(StreamUtils.nonClosing(releaseZip), fileName);
+					conceptsRead |= concepts;
+				} else {
+					final Path entryFile = entriesDir.resolve(fileName.toString());
+					Files.copy(releaseZip, entryFile);
+					entryFiles.copyPath(fileName, entryFile, laterFiles);
 				}
 			}
+			foundFiles.assertFullSet(loadingProfile);
+			loadAll(loadingProfile, laterFiles, null);
+		}
 
-			List<Callable<String>> refsetTasks = new ArrayList<>();
-			if (loadingProfile.isAllRefsets() || !loadingProfile.getRefsetIds().isEmpty()) {
-				Set<String> includedReferenceSetFilenamePatterns = loadingProfile.getIncludedReferenceSetFilenamePatterns();
-				logger.info("includedReferenceSetPathPatterns: {}", includedReferenceSetFilenamePatterns);
-				final List<Path> refsetSnapshots = releaseFiles.getRefsetPaths();
-				for (Path refsetSnapshot : refsetSnapshots) {
-					if (includedReferenceSetFilenamePatterns.isEmpty()) {
-						refsetTasks.add(loadRefsets(refsetSnapshot, loadingProfile, releaseVersion));
-					} else {
-						for (String pattern : includedReferenceSetFilenamePatterns) {
-							String filename = refsetSnapshot.getFileName().toString();
-							if (filename.matches(pattern)) {
-								logger.info("refset '{}' matches pattern '{}'", filename, pattern);
-								refsetTasks.add(loadRefsets(refsetSnapshot, loadingProfile, releaseVersion));
-								break;
-							}
-							logger.info("refset '{}' does not match any patterns", filename);
-						}
+		private void loadReleaseVersions(LoadingProfile loadingProfile, Map<String, ReleaseFiles> releaseVersionFiles, Path releaseVersionsDir)
+				throws IOException, InterruptedException, ReleaseImportException {
+			logger.info("Release versions found: {}", releaseVersionFiles.keySet());
+			for (Map.Entry<String, ReleaseFiles> entry : releaseVersionFiles.entrySet()) {
+				final String releaseVersion = entry.getKey();
+				((HistoryAwareComponentFactory) componentFactory).loadingReleaseDeltaStarting(releaseVersion);
+				logger.info("Loading release delta {}", releaseVersion);
+				try {
+					loadAll(loadingProfile, entry.getValue(), releaseVersion);
+				} catch (ReleaseImportException e) {
+					throw inFullFile(e, releaseVersionsDir.resolve(releaseVersion));
+				}
+				((HistoryAwareComponentFactory) componentFactory).loadingReleaseDeltaFinished(releaseVersion);
+			}
+		}
+
+		private void loadAll(LoadingProfile loadingProfile, ReleaseFiles releaseFiles, String releaseVersion) throws IOException, InterruptedException, ReleaseImportException {
+			// A release version within a Full release may not have rows in every file
+			final Path conceptPath = releaseFiles.getConceptPath();
+			final FileRead conceptRead = conceptPath != null ? fileRead(loadingProfile, releaseFiles, conceptPath, releaseVersion) : null;
+			if (conceptRead != null) {
+				runTasks(conceptRead.readTasks(conceptPath));
+			}
+
+			final List<ReadTask> coreComponentTasks = new ArrayList<>();
+			final List<ReadTask> refsetTasks = new ArrayList<>();
+			for (Path path : releaseFiles.getAllPaths()) {
+				final FileRead fileRead = !path.equals(conceptPath) ? fileRead(loadingProfile, releaseFiles, path, releaseVersion) : null;
+				if (fileRead != null) {
+					(releaseFiles.getRefsetPaths().contains(path) ? refsetTasks : coreComponentTasks).addAll(fileRead.readTasks(path));
+				}
+			}
+
+			runTasks(coreComponentTasks);
+			runTasks(refsetTasks);
+		}
+
+		// Null if the loading profile does not want the file
+		private FileRead fileRead(LoadingProfile loadingProfile, ReleaseFiles releaseFiles, Path path, String releaseVersion) {
+			if (releaseFiles.getRefsetPaths().contains(path)) {
+				return isIncludedRefsetFile(path, loadingProfile) ? loadRefsets(loadingProfile, releaseVersion) : null;
+			} else if (loadingProfile.isJustRefsets()) {
+				return null;
+			} else if (path.equals(releaseFiles.getConceptPath())) {
+				return loadConcepts(loadingProfile, releaseVersion);
+			} else if (path.equals(releaseFiles.getRelationshipPath())) {
+				return loadRelationships(loadingProfile, releaseVersion);
+			} else if (path.equals(releaseFiles.getStatedRelationshipPath())) {
+				return loadingProfile.isStatedRelationships() ? loadRelationships(loadingProfile, releaseVersion) : null;
+			} else {
+				return loadingProfile.isDescriptions() || loadingProfile.isFullDescriptionObjects() ? loadDescriptions(loadingProfile, releaseVersion) : null;
+			}
+		}
+
+		private boolean isIncludedRefsetFile(Path refsetPath, LoadingProfile loadingProfile) {
+			if (!loadingProfile.isAllRefsets() && loadingProfile.getRefsetIds().isEmpty()) {
+				return false;
+			}
+			final Set<String> includedReferenceSetFilenamePatterns = loadingProfile.getIncludedReferenceSetFilenamePatterns();
+			if (includedReferenceSetFilenamePatterns.isEmpty()) {
+				return true;
+			}
+			final String filename = refsetPath.getFileName().toString();
+			for (String pattern : includedReferenceSetFilenamePatterns) {
+				if (filename.matches(pattern)) {
+					logger.info("refset '{}' matches pattern '{}'", filename, pattern);
+					return true;
+				}
+			}
+			logger.info("refset '{}' does not match any patterns", filename);
+			return false;
+		}
+
+		private List<Path> withWantedRefsets(List<Path> refsetPaths, LoadingProfile loadingProfile) throws InterruptedException, ReleaseImportException {
+			final Set<String> wantedRefsetIds = loadingProfile.getRefsetIds();
+			if (wantedRefsetIds.isEmpty()) {
+				return new ArrayList<>();
+			}
+			if (refsetIdIndex.getIndexFile() == null) {
+				// Without a persistent index a scan is an extra pass over files which are then read anyway,
+				// and the temporary copy made of a zip stream would never be seen again
+				return refsetPaths;
+			}
+			final List<Callable<Boolean>> scanTasks = new ArrayList<>();
+			for (final Path refsetPath : refsetPaths) {
+				scanTasks.add(new Callable<Boolean>() {
+					@Override
+					public Boolean call() throws IOException {
+						return !Collections.disjoint(refsetIdIndex.getRefsetIds(refsetPath), wantedRefsetIds);
+					}
+				});
+			}
+			final List<Boolean> wanted = invokeAll(scanTasks);
+			final List<Path> wantedPaths = new ArrayList<>();
+			for (int i = 0; i < refsetPaths.size(); i++) {
+				if (wanted.get(i)) {
+					wantedPaths.add(refsetPaths.get(i));
+				} else {
+					logger.info("Skipping {}, it contains none of the reference sets of the loading profile", refsetPaths.get(i).getFileName());
+				}
+			}
+			try {
+				refsetIdIndex.save();
+			} catch (IOException e) {
+				// Only later imports lose out, they scan the files again
+				logger.warn("Failed to save refsetId index to {}", refsetIdIndex.getIndexFile(), e);
+			}
+			return wantedPaths;
+		}
+
+		private void runTasks(List<ReadTask> tasks) throws InterruptedException, ReleaseImportException {
+			Collections.sort(tasks, new Comparator<ReadTask>() {
+				@Override
+				public int compare(ReadTask task, ReadTask otherTask) {
+					return Long.compare(otherTask.getSize(), task.getSize());
+				}
+			});
+			invokeAll(tasks);
+		}
+
+		private <T> List<T> invokeAll(List<? extends Callable<T>> tasks) throws InterruptedException, ReleaseImportException {
+			// Tasks are wrapped here rather than by the executor, a ForkJoinPool would wrap checked exceptions
+			// and would not interrupt a cancelled task
+			final BlockingQueue<Future<T>> completedTasks = new LinkedBlockingQueue<>();
+			final Map<Future<T>, Integer> taskIndexes = new HashMap<>();
+			for (Callable<T> task : tasks) {
+				final FutureTask<T> futureTask = new FutureTask<T>(task) {
+					@Override
+					protected void done() {
+						completedTasks.add(this);
 					}
+				};
+				taskIndexes.put(futureTask, taskIndexes.size());
+				executorService.execute(futureTask);
+			}
+			final List<T> results = new ArrayList<>(Collections.<T>nCopies(tasks.size(), null));
+			try {
+				for (int i = 0; i < tasks.size(); i++) {
+					final Future<T> future = completedTasks.take();
+					results.set(taskIndexes.get(future), future.get());
 				}
+			} catch (ExecutionException e) {
+				cancel(taskIndexes.keySet());
+				final Throwable cause = e.getCause();
+				if (cause instanceof ReleaseImportException) {
+					throw (ReleaseImportException) cause;
+				}
+				throw new ReleaseImportException("Failed to load release files during release import process.", cause);
+			} catch (InterruptedException e) {
+				cancel(taskIndexes.keySet());
+				throw e;
 			}
+			return results;
+		}
 
-			executorService.invokeAll(coreComponentTasks);
-			executorService.invokeAll(refsetTasks);
+		private void cancel(Collection<? extends Future<?>> futures) {
+			cancelled = true;
+			for (Future<?> future : futures) {
+				future.cancel(true);
+			}
 		}
 
-		private ReleaseFiles findFiles(String releaseDirPath, final String fileType, LoadingProfile loadingProfile) throws IOException {
-			final File releaseDir = new File(releaseDirPath);
-			if (!releaseDir.isDirectory()) {
+		private ReleaseFiles findFiles(Path releaseDir, final String fileType, LoadingProfile loadingProfile) throws IOException {
+			if (!Files.isDirectory(releaseDir)) {
 				throw new FileNotFoundException("Could not find release directory.");
 			}
 
 			final ReleaseFiles releaseFiles = new ReleaseFiles();
 
-			Files.walkFileTree(releaseDir.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+			Files.walkFileTree(releaseDir, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
 				@Override
 				public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
-					final String fileName = file.getFileName().toString();
-					if (fileName.endsWith(".txt")) {
-						if (fileName.startsWith("sct2_Concept_" + fileType) || fileName.startsWith("xsct2_Concept_" + fileType)) {
-							releaseFiles.setConceptPath(file);
-						} else if (fileName.startsWith("sct2_Description_" + fileType) || fileName.startsWith("xsct2_Description_" + fileType)) {
-							releaseFiles.setDescriptionPath(file);
-						} else if (fileName.startsWith("sct2_TextDefinition_" + fileType) || fileName.startsWith("xsct2_TextDefinition_" + fileType)) {
-							releaseFiles.setTextDefinitionPath(file);
-						} else if (fileName.startsWith("sct2_Relationship_" + fileType) || fileName.startsWith("xsct2_Relationship_" + fileType)) {
-							releaseFiles.setRelationshipPath(file);
-						} else if (fileName.startsWith("sct2_StatedRelationship_" + fileType) || fileName.startsWith("xsct2_StatedRelationship_" + fileType)) {
-							releaseFiles.setStatedRelationshipPath(file);
-						} else if (fileName.startsWith("der2_") && fileName.contains(fileType) || fileName.startsWith("xder2_") && fileName.contains(fileType)) {
-							releaseFiles.getRefsetPaths().add(file);
-						}
-					}
+					releaseFiles.addFile(file, fileType);
 					return FileVisitResult.CONTINUE;
 				}
 			});
@@ -229,219 +605,689 @@ public class ReleaseImporter {
 			return releaseFiles;
 		}
 
-		private void loadConcepts(Path rf2File, final LoadingProfile loadingProfile, final String releaseVersion) throws IOException {
-			readLines(rf2File, new ValuesHandler() {
+		private FileRead loadConcepts(final LoadingProfile loadingProfile, final String releaseVersion) {
+			final RF2RowFilter rowFilter = new RF2RowFilter();
+			if (!loadingProfile.isInactiveConcepts()) {
+				rowFilter.withField(ConceptFieldIndexes.active, ACTIVE);
+			}
+			return new FileRead(rowFilter, new ValuesHandler() {
 				@Override
-				public void handle(String[] values) {
-					if (loadingProfile.isInactiveConcepts() || "1".equals(values[ConceptFieldIndexes.active])) {
-						String conceptId = values[ComponentFieldIndexes.id];
-						componentFactory.newConceptState(conceptId, values[ConceptFieldIndexes.effectiveTime], values[ConceptFieldIndexes.active],
-								values[ConceptFieldIndexes.moduleId], values[ConceptFieldIndexes.definitionStatusId]);
+				public void handle(RF2Row values, ComponentFactory componentFactory) {
+					final boolean active = values.fieldEquals(ConceptFieldIndexes.active, ACTIVE);
+					if (!loadingProfile.isInactiveConcepts() && !active) {
+						return;
+					}
+					if (primitiveCallbacks) {
+						((PrimitiveComponentFactory) componentFactory).newConceptState(values.getLong(ConceptFieldIndexes.id), getEffectiveTime(values),
+								active, values.getLong(ConceptFieldIndexes.moduleId), values.getLong(ConceptFieldIndexes.definitionStatusId));
+					} else {
+						componentFactory.newConceptState(values.getString(ConceptFieldIndexes.id), values.getString(ConceptFieldIndexes.effectiveTime, identifierPool),
+								values.getString(ConceptFieldIndexes.active, identifierPool), values.getString(ConceptFieldIndexes.moduleId, identifierPool),
+								values.getString(ConceptFieldIndexes.definitionStatusId, identifierPool));
 					}
 				}
 			}, "concepts", releaseVersion);
 		}
 
-		private Callable<String> loadRelationships(Path rf2File, final LoadingProfile loadingProfile, String releaseVersion) {
-			return readLinesCallable(rf2File, new ValuesHandler() {
+		private FileRead loadRelationships(final LoadingProfile loadingProfile, String releaseVersion) {
+			final RF2RowFilter rowFilter = new RF2RowFilter();
+			if (!loadingProfile.isInactiveRelationships()) {
+				rowFilter.withField(RelationshipFieldIndexes.active, ACTIVE);
+			}
+			return new FileRead(rowFilter, new ValuesHandler() {
 				@Override
-				public void handle(String[] values) {
-					final boolean active = "1".equals(values[RelationshipFieldIndexes.active]);
+				public void handle(RF2Row values, ComponentFactory componentFactory) {
+					final boolean active = values.fieldEquals(RelationshipFieldIndexes.active, ACTIVE);
 					if (loadingProfile.isInactiveRelationships() || active) {
-						final String sourceId = values[RelationshipFieldIndexes.sourceId];
-						final String type = values[RelationshipFieldIndexes.typeId];
-						final String characteristicType = values[RelationshipFieldIndexes.characteristicTypeId];
-						final String destinationId = values[RelationshipFieldIndexes.destinationId];
-						boolean inferred = ConceptConstants.INFERRED_RELATIONSHIP.equals(characteristicType);
-						if (!inferred && loadingProfile.isStatedAttributeMapOnConcept()) {
-							componentFactory.addStatedConceptAttribute(sourceId, type, destinationId);
-						} else if (inferred && loadingProfile.isInferredAttributeMapOnConcept()) {
-							componentFactory.addInferredConceptAttribute(sourceId, type, destinationId);
+						final boolean inferred = values.fieldEquals(RelationshipFieldIndexes.characteristicTypeId, INFERRED_RELATIONSHIP);
+						if (primitiveCallbacks) {
+							handlePrimitive(values, (PrimitiveComponentFactory) componentFactory, active, inferred);
+						} else {
+							handleStrings(values, componentFactory, active, inferred);
 						}
-						if (inferred || loadingProfile.isStatedRelationships()) {
-							if (type.equals(ConceptConstants.isA)) {
-								if (active) {
-									if (inferred) {
-										componentFactory.addInferredConceptParent(sourceId, destinationId);
-										componentFactory.addInferredConceptChild(sourceId, destinationId);
-									} else {
-										componentFactory.addStatedConceptParent(sourceId, destinationId);
-										componentFactory.addStatedConceptChild(sourceId, destinationId);
-									}
+					}
+				}
+
+				private void handleStrings(RF2Row values, ComponentFactory componentFactory, boolean active, boolean inferred) {
+					final String sourceId = values.getString(RelationshipFieldIndexes.sourceId);
+					final String type = values.getString(RelationshipFieldIndexes.typeId, identifierPool);
+					final String destinationId = values.getString(RelationshipFieldIndexes.destinationId);
+					final boolean removed = !active && removeInactiveRelationships;
+					if (removed) {
+						removeRelationship(values, componentFactory, inferred);
+					} else if (!inferred && loadingProfile.isStatedAttributeMapOnConcept()) {
+						componentFactory.addStatedConceptAttribute(sourceId, type, destinationId);
+					} else if (inferred && loadingProfile.isInferredAttributeMapOnConcept()) {
+						componentFactory.addInferredConceptAttribute(sourceId, type, destinationId);
+					}
+					if (inferred || loadingProfile.isStatedRelationships()) {
+						// The state comes before the hierarchy callbacks, as it does when the callbacks of a chunk are replayed
+						if (loadingProfile.isFullRelationshipObjects() && !removed) {
+							componentFactory.newRelationshipState(
+									values.getString(RelationshipFieldIndexes.id),
+									values.getString(RelationshipFieldIndexes.effectiveTime, identifierPool),
+									values.getString(RelationshipFieldIndexes.active, identifierPool),
+									values.getString(RelationshipFieldIndexes.moduleId, identifierPool),
+									sourceId,
+									destinationId,
+									values.getString(RelationshipFieldIndexes.relationshipGroup, identifierPool),
+									type,
+									values.getString(RelationshipFieldIndexes.characteristicTypeId, identifierPool),
+									values.getString(RelationshipFieldIndexes.modifierId, identifierPool)
+							);
+						}
+						if (type.equals(ConceptConstants.isA)) {
+							if (isAEvents) {
+								isAEvent((IsAComponentFactory) componentFactory, values.getLong(RelationshipFieldIndexes.sourceId),
+										values.getLong(RelationshipFieldIndexes.destinationId), active, inferred);
+							} else if (active) {
+								if (inferred) {
+									componentFactory.addInferredConceptParent(sourceId, destinationId);
+									componentFactory.addInferredConceptChild(sourceId, destinationId);
+								} else {
+									componentFactory.addStatedConceptParent(sourceId, destinationId);
+									componentFactory.addStatedConceptChild(sourceId, destinationId);
+								}
+							} else {
+								if (inferred) {
+									componentFactory.removeInferredConceptParent(sourceId, destinationId);
+									componentFactory.removeInferredConceptChild(sourceId, destinationId);
 								} else {
-									if (inferred) {
-										componentFactory.removeInferredConceptParent(sourceId, destinationId);
-										componentFactory.removeInferredConceptChild(sourceId, destinationId);
-									} else {
-										componentFactory.removeStatedConceptParent(sourceId, destinationId);
-										componentFactory.removeStatedConceptChild(sourceId, destinationId);
-									}
+									componentFactory.removeStatedConceptParent(sourceId, destinationId);
+									componentFactory.removeStatedConceptChild(sourceId, destinationId);
 								}
 							}
-							if (loadingProfile.isFullRelationshipObjects()) {
-								componentFactory.newRelationshipState(
-										values[RelationshipFieldIndexes.id],
-										values[RelationshipFieldIndexes.effectiveTime],
-										values[RelationshipFieldIndexes.active],
-										values[RelationshipFieldIndexes.moduleId],
-										values[RelationshipFieldIndexes.sourceId],
-										values[RelationshipFieldIndexes.destinationId],
-										values[RelationshipFieldIndexes.relationshipGroup],
-										values[RelationshipFieldIndexes.typeId],
-										values[RelationshipFieldIndexes.characteristicTypeId],
-										values[RelationshipFieldIndexes.modifierId]
-								);
+						}
+					}
+				}
+
+				private void handlePrimitive(RF2Row values, PrimitiveComponentFactory componentFactory, boolean active, boolean inferred) {
+					final long sourceId = values.getLong(RelationshipFieldIndexes.sourceId);
+					final long destinationId = values.getLong(RelationshipFieldIndexes.destinationId);
+					final boolean removed = !active && removeInactiveRelationships;
+					if (removed) {
+						removeRelationship(values, componentFactory, inferred);
+					} else if (!inferred && loadingProfile.isStatedAttributeMapOnConcept()) {
+						componentFactory.addStatedConceptAttribute(sourceId, values.getLong(RelationshipFieldIndexes.typeId), destinationId);
+					} else if (inferred && loadingProfile.isInferredAttributeMapOnConcept()) {
+						componentFactory.addInferredConceptAttribute(sourceId, values.getLong(RelationshipFieldIndexes.typeId), destinationId);
+					}
+					if (inferred || loadingProfile.isStatedRelationships()) {
+						if (loadingProfile.isFullRelationshipObjects() && !removed) {
+							componentFactory.newRelationshipState(
+									values.getLong(RelationshipFieldIndexes.id),
+									getEffectiveTime(values),
+									active,
+									values.getLong(RelationshipFieldIndexes.moduleId),
+									sourceId,
+									destinationId,
+									values.getInt(RelationshipFieldIndexes.relationshipGroup),
+									values.getLong(RelationshipFieldIndexes.typeId),
+									values.getLong(RelationshipFieldIndexes.characteristicTypeId),
+									values.getLong(RelationshipFieldIndexes.modifierId)
+							);
+						}
+						if (values.fieldEquals(RelationshipFieldIndexes.typeId, IS_A)) {
+							if (isAEvents) {
+								isAEvent((IsAComponentFactory) componentFactory, sourceId, destinationId, active, inferred);
+							} else if (active) {
+								if (inferred) {
+									componentFactory.addInferredConceptParent(sourceId, destinationId);
+									componentFactory.addInferredConceptChild(sourceId, destinationId);
+								} else {
+									componentFactory.addStatedConceptParent(sourceId, destinationId);
+									componentFactory.addStatedConceptChild(sourceId, destinationId);
+								}
+							} else {
+								if (inferred) {
+									componentFactory.removeInferredConceptParent(sourceId, destinationId);
+									componentFactory.removeInferredConceptChild(sourceId, destinationId);
+								} else {
+									componentFactory.removeStatedConceptParent(sourceId, destinationId);
+									componentFactory.removeStatedConceptChild(sourceId, destinationId);
+								}
 							}
 						}
 					}
 				}
+
+				private void removeRelationship(RF2Row values, ComponentFactory componentFactory, boolean inferred) {
+					((DeltaComponentFactory) componentFactory).removeRelationship(values.getLong(RelationshipFieldIndexes.id),
+							values.getLong(RelationshipFieldIndexes.sourceId), values.getLong(RelationshipFieldIndexes.destinationId),
+							values.getLong(RelationshipFieldIndexes.typeId), inferred);
+				}
 			}, "relationships", releaseVersion);
 		}
 
-		private Callable<String> loadDescriptions(Path rf2File, final LoadingProfile loadingProfile, String releaseVersion) {
-			return readLinesCallable(rf2File, new ValuesHandler() {
+		private void isAEvent(IsAComponentFactory componentFactory, long sourceId, long destinationId, boolean active, boolean inferred) {
+			if (active) {
+				if (inferred) {
+					componentFactory.addInferredIsA(sourceId, destinationId);
+				} else {
+					componentFactory.addStatedIsA(sourceId, destinationId);
+				}
+			} else {
+				if (inferred) {
+					componentFactory.removeInferredIsA(sourceId, destinationId);
+				} else {
+					componentFactory.removeStatedIsA(sourceId, destinationId);
+				}
+			}
+		}
+
+		private FileRead loadDescriptions(final LoadingProfile loadingProfile, String releaseVersion) {
+			final RF2RowFilter rowFilter = new RF2RowFilter();
+			if (!loadingProfile.isInactiveDescriptions() && !deltaCallbacks) {
+				rowFilter.withField(DescriptionFieldIndexes.active, ACTIVE);
+			}
+			if (!loadingProfile.isFullDescriptionObjects()) {
+				// Only the FSNs are wanted
+				rowFilter.withField(DescriptionFieldIndexes.typeId, FSN);
+			}
+			return new FileRead(rowFilter, new ValuesHandler() {
 				@Override
-				public void handle(String[] values) {
-					if (loadingProfile.isInactiveDescriptions() || "1".equals(values[DescriptionFieldIndexes.active])) {
-						final String conceptId = values[DescriptionFieldIndexes.conceptId];
-						final String value = values[DescriptionFieldIndexes.typeId];
-						if (ConceptConstants.FSN.equals(value)) {
-							componentFactory.addConceptFSN(conceptId, values[DescriptionFieldIndexes.term]);
+				public void handle(RF2Row values, ComponentFactory componentFactory) {
+					final boolean active = values.fieldEquals(DescriptionFieldIndexes.active, ACTIVE);
+					final boolean fsn = values.fieldEquals(DescriptionFieldIndexes.typeId, FSN);
+					if (!active && !loadingProfile.isInactiveDescriptions()) {
+						if (deltaCallbacks) {
+							((DeltaComponentFactory) componentFactory).removeDescription(values.getLong(DescriptionFieldIndexes.id),
+									values.getLong(DescriptionFieldIndexes.conceptId), fsn, values.getString(DescriptionFieldIndexes.term));
 						}
-						if (loadingProfile.isFullDescriptionObjects()) {
-							componentFactory.newDescriptionState(
-									values[DescriptionFieldIndexes.id],
-									values[DescriptionFieldIndexes.effectiveTime],
-									values[DescriptionFieldIndexes.active],
-									values[DescriptionFieldIndexes.moduleId],
-									values[DescriptionFieldIndexes.conceptId],
-									values[DescriptionFieldIndexes.languageCode],
-									values[DescriptionFieldIndexes.typeId],
-									values[DescriptionFieldIndexes.term],
-									values[DescriptionFieldIndexes.caseSignificanceId]
-							);
+					} else if (fsn || loadingProfile.isFullDescriptionObjects()) {
+						if (primitiveCallbacks) {
+							handlePrimitive(values, (PrimitiveComponentFactory) componentFactory, active, fsn);
+						} else {
+							handleStrings(values, componentFactory, fsn);
 						}
 					}
 				}
+
+				private void handleStrings(RF2Row values, ComponentFactory componentFactory, boolean fsn) {
+					final String conceptId = values.getString(DescriptionFieldIndexes.conceptId);
+					final String term = values.getString(DescriptionFieldIndexes.term);
+					if (fsn) {
+						componentFactory.addConceptFSN(conceptId, term);
+					}
+					if (loadingProfile.isFullDescriptionObjects()) {
+						componentFactory.newDescriptionState(
+								values.getString(DescriptionFieldIndexes.id),
+								values.getString(DescriptionFieldIndexes.effectiveTime, identifierPool),
+								values.getString(DescriptionFieldIndexes.active, identifierPool),
+								values.getString(DescriptionFieldIndexes.moduleId, identifierPool),
+								conceptId,
+								values.getString(DescriptionFieldIndexes.languageCode),
+								values.getString(DescriptionFieldIndexes.typeId, identifierPool),
+								term,
+								values.getString(DescriptionFieldIndexes.caseSignificanceId, identifierPool)
+						);
+					}
+				}
+
+				private void handlePrimitive(RF2Row values, PrimitiveComponentFactory componentFactory, boolean active, boolean fsn) {
+					final long conceptId = values.getLong(DescriptionFieldIndexes.conceptId);
+					final String term = values.getString(DescriptionFieldIndexes.term);
+					if (fsn) {
+						componentFactory.addConceptFSN(conceptId, term);
+					}
+					if (loadingProfile.isFullDescriptionObjects()) {
+						componentFactory.newDescriptionState(
+								values.getLong(DescriptionFieldIndexes.id),
+								getEffectiveTime(values),
+								active,
+								values.getLong(DescriptionFieldIndexes.moduleId),
+								conceptId,
+								values.getString(DescriptionFieldIndexes.languageCode),
+								values.getLong(DescriptionFieldIndexes.typeId),
+								term,
+								values.getLong(DescriptionFieldIndexes.caseSignificanceId)
+						);
+					}
+				}
 			}, "descriptions", releaseVersion);
 		}
 
-		private Callable<String> loadRefsets(Path rf2File, final LoadingProfile loadingProfile, String releaseVersion) {
-			return readLinesCallable(rf2File, new FieldNamesAndValuesHandler() {
+		private FileRead loadRefsets(final LoadingProfile loadingProfile, String releaseVersion) {
+			final RF2RowFilter rowFilter = new RF2RowFilter();
+			if (!loadingProfile.isInactiveRefsetMembers()) {
+				rowFilter.withField(RefsetFieldIndexes.active, ACTIVE);
+			}
+			if (!loadingProfile.isAllRefsets()) {
+				final List<byte[]> refsetIds = new ArrayList<>();
+				for (String refsetId : loadingProfile.getRefsetIds()) {
+					refsetIds.add(refsetId.getBytes(UTF_8));
+				}
+				rowFilter.withField(RefsetFieldIndexes.refsetId, refsetIds);
+			}
+			return new FileRead(rowFilter, new FieldNamesAndValuesHandler() {
 				@Override
-				public void handle(String[] fieldNames, String[] values) {
-					if (loadingProfile.isInactiveRefsetMembers() || "1".equals(values[RefsetFieldIndexes.active])) {
-						final String refsetId = values[RefsetFieldIndexes.refsetId];
+				public void handle(String[] fieldNames, RF2Row values, ComponentFactory componentFactory) {
+					final boolean active = values.fieldEquals(RefsetFieldIndexes.active, ACTIVE);
+					if (loadingProfile.isInactiveRefsetMembers() || active) {
+						final String refsetId = values.getString(RefsetFieldIndexes.refsetId, identifierPool);
 						if (loadingProfile.isAllRefsets() || loadingProfile.isRefset(refsetId)) {
-							final String referencedComponentId = values[RefsetFieldIndexes.referencedComponentId];
-							if (FactoryUtils.isConceptId(referencedComponentId)) {
-								componentFactory.addConceptReferencedInRefsetId(refsetId, referencedComponentId);
-							}
-							if (loadingProfile.isFullRefsetMemberObjects()) {
-								componentFactory.newReferenceSetMemberState(
-										fieldNames,
-										values[RefsetFieldIndexes.id],
-										values[RefsetFieldIndexes.effectiveTime],
-										values[RefsetFieldIndexes.active],
-										values[RefsetFieldIndexes.moduleId],
-										values[RefsetFieldIndexes.refsetId],
-										values[RefsetFieldIndexes.referencedComponentId],
-										Arrays.copyOfRange(values, RefsetFieldIndexes.referencedComponentId + 1, values.length)
-								);
+							if (primitiveCallbacks) {
+								handlePrimitive(fieldNames, values, (PrimitiveComponentFactory) componentFactory, active);
+							} else {
+								handleStrings(fieldNames, values, componentFactory, refsetId);
 							}
 						}
 					}
 				}
+
+				private void handleStrings(String[] fieldNames, RF2Row values, ComponentFactory componentFactory, String refsetId) {
+					final String referencedComponentId = values.getString(RefsetFieldIndexes.referencedComponentId);
+					if (FactoryUtils.isConceptId(referencedComponentId)) {
+						componentFactory.addConceptReferencedInRefsetId(refsetId, referencedComponentId);
+					}
+					if (loadingProfile.isFullRefsetMemberObjects()) {
+						componentFactory.newReferenceSetMemberState(
+								fieldNames,
+								values.getString(RefsetFieldIndexes.id),
+								values.getString(RefsetFieldIndexes.effectiveTime, identifierPool),
+								values.getString(RefsetFieldIndexes.active, identifierPool),
+								values.getString(RefsetFieldIndexes.moduleId, identifierPool),
+								refsetId,
+								referencedComponentId,
+								values.getStrings(RefsetFieldIndexes.referencedComponentId + 1)
+						);
+					}
+				}
+
+				private void handlePrimitive(String[] fieldNames, RF2Row values, PrimitiveComponentFactory componentFactory, boolean active) {
+					final long refsetId = values.getLong(RefsetFieldIndexes.refsetId);
+					final long referencedComponentId = values.getLong(RefsetFieldIndexes.referencedComponentId);
+					if (FactoryUtils.isConceptId(referencedComponentId)) {
+						componentFactory.addConceptReferencedInRefsetId(refsetId, referencedComponentId);
+					}
+					if (loadingProfile.isFullRefsetMemberObjects()) {
+						componentFactory.newReferenceSetMemberState(
+								fieldNames,
+								values.getString(RefsetFieldIndexes.id),
+								getEffectiveTime(values),
+								active,
+								values.getLong(RefsetFieldIndexes.moduleId),
+								refsetId,
+								referencedComponentId,
+								values.getStrings(RefsetFieldIndexes.referencedComponentId + 1)
+						);
+					}
+				}
 			}, "reference set members", releaseVersion);
 		}
 
-		private Callable<String> readLinesCallable(final Path rf2FilePath, final FileContentHandler contentHandler, final String componentType, final String releaseVersion) {
-			return new Callable<String>() {
+		private List<ReadTask> readTasks(final Path rf2FilePath, final RF2RowFilter rowFilter, final FileContentHandler contentHandler,
+				final String componentType, final String releaseVersion) throws IOException {
+			final long size = Files.size(rf2FilePath);
+			if (chunkedReading && MappedRF2File.isMappable(rf2FilePath) && size >= minChunkSize * 2) {
+				return chunkTasks(rf2FilePath, rowFilter, contentHandler, componentType, releaseVersion);
+			}
+			return Collections.<ReadTask>singletonList(new ReadTask(size) {
 				@Override
-				public String call() throws Exception {
-					try {
-						readLines(rf2FilePath, contentHandler, componentType, releaseVersion);
-					} catch (Exception e) {
-						logger.error("Failed to read or process lines.", e);
-					}
+				public Void call() throws IOException, ReleaseImportException {
+					readLines(rf2FilePath, rowFilter, contentHandler, componentType, releaseVersion);
 					return null;
 				}
-			};
-		}
-
-		private Set<String> gatherVersions(ReleaseFiles releaseFiles) throws IOException {
-			logger.info("Gathering list of release versions...");
-			Set<String> versions = new TreeSet<>();
-			gatherVersions(releaseFiles.getConceptPath(), versions);
-			gatherVersions(releaseFiles.getDescriptionPath(), versions);
-			gatherVersions(releaseFiles.getTextDefinitionPath(), versions);
-			gatherVersions(releaseFiles.getRelationshipPath(), versions);
-			for (Path refsetPath : releaseFiles.getRefsetPaths()) {
-				gatherVersions(refsetPath, versions);
-			}
-			logger.info("Release versions found: {}", versions);
-			return versions;
-		}
-
-		private void gatherVersions(Path filePath, Set<String> versions) throws IOException {
-			if (filePath != null) {
-				try (final BufferedReader reader = Files.newBufferedReader(filePath, UTF_8)) {
-					String line;
-					reader.readLine(); // discard header line
-					Matcher matcher;
-					while ((line = reader.readLine()) != null) {
-						matcher = DATE_EXTRACT_PATTERN.matcher(line);
-						matcher.find();
-						versions.add(matcher.group(1));
+			});
+		}
+
+		private Map<String, ReleaseFiles> splitByReleaseVersion(ReleaseFiles releaseFiles, final Path releaseVersionsDir)
+				throws IOException, InterruptedException, ReleaseImportException {
+			// Each file is read once, into a file per effectiveTime
+			final List<Path> paths = largestFirst(releaseFiles.getAllPaths());
+			final List<Callable<Map<String, Path>>> splitTasks = new ArrayList<>();
+			for (final Path path : paths) {
+				splitTasks.add(new Callable<Map<String, Path>>() {
+					@Override
+					public Map<String, Path> call() throws IOException, ReleaseImportException {
+						return splitByReleaseVersion(path, releaseVersionsDir);
+					}
+				});
+			}
+			final List<Map<String, Path>> splitFiles = invokeAll(splitTasks);
+
+			final Map<String, ReleaseFiles> releaseVersionFiles = new TreeMap<>();
+			for (int i = 0; i < paths.size(); i++) {
+				addVersionPaths(releaseFiles, paths.get(i), splitFiles.get(i), releaseVersionFiles);
+			}
+			return releaseVersionFiles;
+		}
+
+		private Map<String, ReleaseFiles> splitByReleaseVersion(ZipInputStream releaseZip, LoadingProfile loadingProfile, Path releaseVersionsDir)
+				throws IOException, ReleaseImportException {
+			final ReleaseFiles foundFiles = new ReleaseFiles();
+			final Map<String, ReleaseFiles> releaseVersionFiles = new TreeMap<>();
+			ZipEntry entry;
+			while ((entry = releaseZip.getNextEntry()) != null) {
+				final ReleaseFiles entryFiles = new ReleaseFiles();
+				final Path fileName = Paths.get(entry.getName()).getFileName();
+				if (entry.isDirectory() || !entryFiles.addFile(fileName, ImportType.FULL.getFilenamePart())) {
+					continue;
+				}
+				entryFiles.copyPath(fileName, fileName, foundFiles);
+				if (fileRead(loadingProfile, entryFiles, fileName, null) != null) {
+					addVersionPaths(entryFiles, fileName, splitByReleaseVersion(StreamUtils.nonClosing(releaseZip), fileName, releaseVersionsDir),
+							releaseVersionFiles);
+				}
+			}
+			foundFiles.assertFullSet(loadingProfile);
+			return releaseVersionFiles;
+		}
+
+		private void addVersionPaths(ReleaseFiles releaseFiles, Path path, Map<String, Path> versionPaths, Map<String, ReleaseFiles> releaseVersionFiles) {
+			for (Map.Entry<String, Path> versionPath : versionPaths.entrySet()) {
+				ReleaseFiles versionFiles = releaseVersionFiles.get(versionPath.getKey());
+				if (versionFiles == null) {
+					versionFiles = new ReleaseFiles();
+					releaseVersionFiles.put(versionPath.getKey(), versionFiles);
+				}
+				releaseFiles.copyPath(path, versionPath.getValue(), versionFiles);
+			}
+		}
+
+		private List<Path> largestFirst(List<Path> paths) throws IOException {
+			final Map<Path, Long> sizes = new HashMap<>();
+			for (Path path : paths) {
+				sizes.put(path, Files.size(path));
+			}
+			final List<Path> sortedPaths = new ArrayList<>(paths);
+			Collections.sort(sortedPaths, new Comparator<Path>() {
+				@Override
+				public int compare(Path path, Path otherPath) {
+					return Long.compare(sizes.get(otherPath), sizes.get(path));
+				}
+			});
+			return sortedPaths;
+		}
+
+		private Map<String, Path> splitByReleaseVersion(Path rf2FilePath, Path releaseVersionsDir) throws IOException, ReleaseImportException {
+			return splitByReleaseVersion(Files.newInputStream(rf2FilePath), rf2FilePath, releaseVersionsDir);
+		}
+
+		private Map<String, Path> splitByReleaseVersion(InputStream inputStream, Path rf2FilePath, Path releaseVersionsDir) throws IOException, ReleaseImportException {
+			final String fileName = rf2FilePath.getFileName().toString();
+			final Map<String, Path> versionPaths = new HashMap<>();
+			final Map<String, OutputStream> versionStreams = new HashMap<>();
+			try (final RF2LineReader reader = new RF2LineReader(inputStream)) {
+				if (!reader.next()) {
+					throw new IOException("RF2 file " + fileName + " has no header line.");
+				}
+				final RF2Row values = reader.getRow();
+				final byte[] header = copyLine(values);
+				final long headerLineNumber = values.getLineNumber();
+				byte[] currentVersion = null;
+				OutputStream currentStream = null;
+				SplitLineNumbers currentLineNumbers = null;
+				while (reader.next()) {
+					if (values.getLineNumber() % CANCELLATION_CHECK_INTERVAL == 0) {
+						checkCancelled();
 					}
+					if (values.getFieldCount() <= ComponentFieldIndexes.effectiveTime) {
+						throw lineFailure(rf2FilePath, values.getLineNumber(),
+								new IllegalArgumentException("Line has " + values.getFieldCount() + " fields, no effectiveTime"));
+					}
+					if (currentVersion == null || !values.fieldEquals(ComponentFieldIndexes.effectiveTime, currentVersion)) {
+						final String releaseVersion = values.getString(ComponentFieldIndexes.effectiveTime);
+						if (!RELEASE_VERSION_PATTERN.matcher(releaseVersion).matches()) {
+							throw lineFailure(rf2FilePath, values.getLineNumber(),
+									new IllegalArgumentException("Unexpected effectiveTime '" + releaseVersion + "'"));
+						}
+						currentStream = versionStreams.get(releaseVersion);
+						if (currentStream == null) {
+							final Path versionDir = Files.createDirectories(releaseVersionsDir.resolve(releaseVersion));
+							final Path versionPath = versionDir.resolve(fileName);
+							currentStream = new BufferedOutputStream(Files.newOutputStream(versionPath));
+							currentStream.write(header);
+							versionStreams.put(releaseVersion, currentStream);
+							versionPaths.put(releaseVersion, versionPath);
+							final SplitLineNumbers lineNumbers = new SplitLineNumbers();
+							lineNumbers.addLine(headerLineNumber);
+							splitLineNumbers.put(versionPath, lineNumbers);
+						}
+						currentLineNumbers = splitLineNumbers.get(versionPaths.get(releaseVersion));
+						currentVersion = releaseVersion.getBytes(UTF_8);
+					}
+					values.writeLine(currentStream);
+					currentLineNumbers.addLine(values.getLineNumber());
+				}
+			} finally {
+				for (OutputStream outputStream : versionStreams.values()) {
+					outputStream.close();
 				}
 			}
+			logger.info("Split {} into {} release versions", fileName, versionPaths.size());
+			return versionPaths;
 		}
 
-		private void readLines(Path rf2FilePath, FileContentHandler contentHandler, String componentType, String releaseVersion) throws IOException {
+		private byte[] copyLine(RF2Row values) throws IOException {
+			final ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+			values.writeLine(outputStream);
+			return outputStream.toByteArray();
+		}
+
+		private void readLines(Path rf2FilePath, RF2RowFilter rowFilter, FileContentHandler contentHandler, String componentType, String releaseVersion)
+				throws IOException, ReleaseImportException {
+			readLines(Files.newInputStream(rf2FilePath), rf2FilePath, rowFilter, contentHandler, componentType, releaseVersion);
+		}
+
+		private void readLines(InputStream inputStream, Path rf2FilePath, RF2RowFilter rowFilter, FileContentHandler contentHandler, String componentType,
+				String releaseVersion) throws IOException, ReleaseImportException {
+			logReading(componentType, releaseVersion);
+			final long linesRead;
+			try (final RF2LineReader reader = new RF2LineReader(inputStream)) {
+				if (!reader.next()) {
+					throw new IOException("RF2 file " + rf2FilePath.getFileName() + " has no header line.");
+				}
+				final String[] fieldNames = reader.getRow().toStringArray();
+				reader.setRowFilter(rowFilter);
+				try (RF2RowReader rows = pipeline(reader)) {
+					linesRead = handleLines(rows, fieldNames, contentHandler, componentFactory, rf2FilePath);
+				}
+			}
+			logger.info("{} {} read from {}", linesRead, componentType, rf2FilePath.getFileName().toString());
+		}
+
+		private void logReading(String componentType, String releaseVersion) {
 			if (releaseVersion != null) {
 				logger.info("Reading {} for release {}", componentType, releaseVersion);
 			} else {
 				logger.info("Reading {} ", componentType);
 			}
-			long linesRead = 0L;
+		}
 
+		private List<ReadTask> chunkTasks(final Path rf2FilePath, RF2RowFilter rowFilter, final FileContentHandler contentHandler, final String componentType,
+				String releaseVersion) throws IOException {
+			logReading(componentType, releaseVersion);
+			final List<ReadTask> tasks = new ArrayList<>();
+			// Mapped regions stay valid once the file is closed
+			try (final MappedRF2File mappedFile = new MappedRF2File(rf2FilePath, minChunkSize, parallelism * 2)) {
+				final String[] fieldNames = mappedFile.getFieldNames();
+				final ChunkedRead chunkedRead = new ChunkedRead(rf2FilePath, componentType, mappedFile.getChunkCount());
+				for (int i = 0; i < mappedFile.getChunkCount(); i++) {
+					final int chunk = i;
+					final long chunkStart = mappedFile.getChunkStart(chunk);
+					final RF2LineReader reader = mappedFile.openChunk(chunk);
+					reader.setRowFilter(rowFilter);
+					tasks.add(new ReadTask(mappedFile.getChunkSize(chunk)) {
+						@Override
+						public Void call() throws IOException, ReleaseImportException {
+							// Parent and child callbacks are replayed in chunk order, no task waits for another
+							final HierarchyEventBuffer events = new HierarchyEventBuffer(componentFactory);
+							final long linesRead;
+							try (RF2RowReader rows = pipeline(reader)) {
+								linesRead = handleLines(rows, fieldNames, contentHandler, events, rf2FilePath);
+							} catch (ReleaseImportException e) {
+								// Line numbers within a chunk count from the start of the chunk
+								final long lineNumber = MappedRF2File.countLines(rf2FilePath, chunkStart) + e.getLineNumber();
+								throw lineFailure(rf2FilePath, lineNumber, e.getCause());
+							} finally {
+								reader.close();
+							}
+							chunkedRead.chunkRead(chunk, events, linesRead);
+							return null;
+						}
+					});
+				}
+			}
+			return tasks;
+		}
+
+		private long handleLines(RF2RowReader reader, String[] fieldNames, FileContentHandler contentHandler, ComponentFactory componentFactory,
+				Path rf2FilePath) throws IOException, ReleaseImportException {
+			final ComponentBatcher batcher = batchComponentFactory != null ? new ComponentBatcher(componentFactory, batchComponentFactory, componentBatchSize) : null;
+			if (batcher != null) {
+				componentFactory = batcher;
+			}
 			final ValuesHandler valuesHandler = contentHandler instanceof ValuesHandler ? ((ValuesHandler) contentHandler) : null;
 			final FieldNamesAndValuesHandler fieldNamesAndValuesHandler = contentHandler instanceof FieldNamesAndValuesHandler ? ((FieldNamesAndValuesHandler) contentHandler) : null;
-
-			try (final BufferedReader reader = Files.newBufferedReader(rf2FilePath, UTF_8)) {
-				String line;
-				final String header = reader.readLine();
-				final String[] fieldNames = header.split("\\t");
-				String[] values;
-				while ((line = reader.readLine()) != null) {
-					linesRead++;
-					values = line.split("\\t");
-					if (releaseVersion == null || releaseVersion.equals(values[ComponentFieldIndexes.effectiveTime])) {
-						if (valuesHandler != null) {
-							valuesHandler.handle(values);
-						} else if (fieldNamesAndValuesHandler != null) {
-							fieldNamesAndValuesHandler.handle(fieldNames, values);
-						}
+			final RF2Row values = reader.getRow();
+			long linesRead = 0L;
+			while (next(reader, rf2FilePath)) {
+				linesRead++;
+				if (linesRead % CANCELLATION_CHECK_INTERVAL == 0) {
+					checkCancelled();
+				}
+				try {
+					if (batcher != null) {
+						batcher.setLineNumber(values.getLineNumber());
 					}
+					if (valuesHandler != null) {
+						valuesHandler.handle(values, componentFactory);
+					} else if (fieldNamesAndValuesHandler != null) {
+						fieldNamesAndValuesHandler.handle(fieldNames, values, componentFactory);
+					}
+				} catch (ComponentBatcher.BatchFailedException e) {
+					throw lineFailure(rf2FilePath, e.getLineNumber(), e.getCause());
+				} catch (RuntimeException e) {
+					throw lineFailure(rf2FilePath, values.getLineNumber(), e);
 				}
 			}
-			logger.info("{} {} read from {}", linesRead, componentType, rf2FilePath.getFileName().toString());
+			if (batcher != null) {
+				try {
+					batcher.flush();
+				} catch (ComponentBatcher.BatchFailedException e) {
+					throw lineFailure(rf2FilePath, e.getLineNumber(), e.getCause());
+				}
+			}
+			return linesRead;
+		}
+
+		private boolean next(RF2RowReader reader, Path rf2FilePath) throws IOException, ReleaseImportException {
+			try {
+				return reader.next();
+			} catch (InterruptedIOException e) {
+				throw e;
+			} catch (IOException | RuntimeException e) {
+				throw lineFailure(rf2FilePath, reader.getLineNumber(), e);
+			}
+		}
+
+		private RF2RowReader pipeline(RF2LineReader reader) {
+			return parserExecutorService != null ? new PipelinedRF2Reader(reader, parserExecutorService, pipelineBatchSize, pipelineBatches) : reader;
+		}
+
+		private static int getEffectiveTime(RF2Row values) {
+			return values.getLength(ComponentFieldIndexes.effectiveTime) == 0 ? 0 : values.getInt(ComponentFieldIndexes.effectiveTime);
+		}
+
+		private ReleaseImportException inFullFile(ReleaseImportException e, Path versionDir) {
+			final SplitLineNumbers lineNumbers = e.getFileName() != null ? splitLineNumbers.get(versionDir.resolve(e.getFileName())) : null;
+			if (lineNumbers == null || e.getLineNumber() == 0) {
+				return e;
+			}
+			return lineFailure(versionDir.resolve(e.getFileName()), lineNumbers.getOriginalLineNumber(e.getLineNumber()), e.getCause());
+		}
+
+		private ReleaseImportException lineFailure(Path rf2FilePath, long lineNumber, Throwable cause) {
+			final String fileName = rf2FilePath.getFileName().toString();
+			return new ReleaseImportException("Failed to process line " + lineNumber + " of " + fileName + ".", cause, fileName, lineNumber);
+		}
+
+		private void checkCancelled() throws InterruptedIOException {
+			if (cancelled || Thread.currentThread().isInterrupted()) {
+				throw new InterruptedIOException("Release import cancelled.");
+			}
 		}
 
 		private String formatAsMB(long bytes) {
 			return NumberFormat.getInstance().format((bytes / 1024) / 1024);
 		}
 
+		// How the rows of one kind of RF2 file are read, from the file or from a zip entry
+		private final class FileRead {
+
+			private final RF2RowFilter rowFilter;
+			private final FileContentHandler contentHandler;
+			private final String componentType;
+			private final String releaseVersion;
+
+			private FileRead(RF2RowFilter rowFilter, FileContentHandler contentHandler, String componentType, String releaseVersion) {
+				this.rowFilter = rowFilter;
+				this.contentHandler = contentHandler;
+				this.componentType = componentType;
+				this.releaseVersion = releaseVersion;
+			}
+
+			private List<ReadTask> readTasks(Path rf2FilePath) throws IOException {
+				return ImportRun.this.readTasks(rf2FilePath, rowFilter, contentHandler, componentType, releaseVersion);
+			}
+
+			private void readLines(InputStream inputStream, Path rf2FilePath) throws IOException, ReleaseImportException {
+				ImportRun.this.readLines(inputStream, rf2FilePath, rowFilter, contentHandler, componentType, releaseVersion);
+			}
+		}
+
+		private abstract static class ReadTask implements Callable<Void> {
+
+			private final long size;
+
+			ReadTask(long size) {
+				this.size = size;
+			}
+
+			long getSize() {
+				return size;
+			}
+		}
+
+		private final class ChunkedRead {
+
+			private final Path rf2FilePath;
+			private final String componentType;
+			private final HierarchyEventBuffer[] chunkEvents;
+			private int nextChunkToReplay;
+			private int chunksRead;
+			private long linesRead;
+
+			private ChunkedRead(Path rf2FilePath, String componentType, int chunkCount) {
+				this.rf2FilePath = rf2FilePath;
+				this.componentType = componentType;
+				chunkEvents = new HierarchyEventBuffer[chunkCount];
+			}
+
+			private synchronized void chunkRead(int chunk, HierarchyEventBuffer events, long chunkLinesRead) {
+				chunkEvents[chunk] = events;
+				while (nextChunkToReplay < chunkEvents.length && chunkEvents[nextChunkToReplay] != null) {
+					chunkEvents[nextChunkToReplay].replay();
+					chunkEvents[nextChunkToReplay] = null;
+					nextChunkToReplay++;
+				}
+				linesRead += chunkLinesRead;
+				if (++chunksRead == chunkEvents.length) {
+					logger.info("{} {} read from {} in {} chunks", linesRead, componentType, rf2FilePath.getFileName().toString(), chunksRead);
+				}
+			}
+		}
+
 		private interface FileContentHandler {
 		}
 
 		private interface ValuesHandler extends FileContentHandler {
-			void handle(String[] values);
+			void handle(RF2Row values, ComponentFactory componentFactory);
 		}
 
 		private interface FieldNamesAndValuesHandler extends FileContentHandler {
-			void handle(String[] fieldNames, String[] values);
+			void handle(String[] fieldNames, RF2Row values, ComponentFactory componentFactory);
 		}
 	}
 
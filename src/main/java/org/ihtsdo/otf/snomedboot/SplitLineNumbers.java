@@ -0,0 +1,49 @@
+package org.ihtsdo.otf.snomedboot;
+
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+
+/**
+ * Maps the lines of a file split from a larger file back to their lines in that file, so that a failure reading the
+ * split file can be reported against the file the user has. Lines are held as runs of consecutive lines,
+ * a Full file grouped by effectiveTime needs few runs.
+ */
+final class SplitLineNumbers {
+
+	// Run i starts at line runStarts[i] of the split file and at line originalStarts[i] of the original file
+	private final LongArrayList runStarts = new LongArrayList();
+	private final LongArrayList originalStarts = new LongArrayList();
+	private long lineCount;
+	private long lastOriginalLineNumber = -1;
+
+	/**
+	 * Records the next line written to the split file.
+	 */
+	void addLine(long originalLineNumber) {
+		lineCount++;
+		if (originalLineNumber != lastOriginalLineNumber + 1) {
+			runStarts.add(lineCount);
+			originalStarts.add(originalLineNumber);
+		}
+		lastOriginalLineNumber = originalLineNumber;
+	}
+
+	/**
+	 * @return The line of the original file, or the given line if it is not one of the split file.
+	 */
+	long getOriginalLineNumber(long lineNumber) {
+		if (lineNumber < 1 || lineNumber > lineCount) {
+			return lineNumber;
+		}
+		int low = 0;
+		int high = runStarts.size() - 1;
+		while (low < high) {
+			final int middle = (low + high + 1) >>> 1;
+			if (runStarts.getLong(middle) <= lineNumber) {
+				low = middle;
+			} else {
+				high = middle - 1;
+			}
+		}
+		return originalStarts.getLong(low) + lineNumber - runStarts.getLong(low);
+	}
+}
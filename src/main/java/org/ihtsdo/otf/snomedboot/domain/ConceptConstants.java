@@ -11,4 +11,8 @@ public interface ConceptConstants {
 	String US_EN_LANGUAGE_REFERENCE_SET = "900000000000509007";
 	String STATED_RELATIONSHIP = "900000000000010007";
 	String INFERRED_RELATIONSHIP = "900000000000011006";
+	String ADDITIONAL_RELATIONSHIP = "900000000000227009";
+	String QUALIFYING_RELATIONSHIP = "900000000000225001";
+	String EXISTENTIAL_MODIFIER = "900000000000451002";
+	String UNIVERSAL_MODIFIER = "900000000000452009";
 }
@@ -0,0 +1,49 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+/**
+ * Base for factories which maintain the hierarchy through the is-a edge events alone.
+ * Callers other than the ReleaseImporter make a parent and a child callback for each is-a relationship,
+ * each parent callback here makes the matching edge event and the child callbacks do nothing.
+ */
+public abstract class AbstractIsAComponentFactory implements IsAComponentFactory {
+
+	@Override
+	public void addInferredConceptParent(String sourceId, String parentId) {
+		addInferredIsA(Long.parseLong(sourceId), Long.parseLong(parentId));
+	}
+
+	@Override
+	public void addStatedConceptParent(String sourceId, String parentId) {
+		addStatedIsA(Long.parseLong(sourceId), Long.parseLong(parentId));
+	}
+
+	@Override
+	public void removeInferredConceptParent(String sourceId, String destinationId) {
+		removeInferredIsA(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	@Override
+	public void removeStatedConceptParent(String sourceId, String destinationId) {
+		removeStatedIsA(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	@Override
+	public void addInferredConceptChild(String sourceId, String destinationId) {
+
+	}
+
+	@Override
+	public void addStatedConceptChild(String sourceId, String destinationId) {
+
+	}
+
+	@Override
+	public void removeInferredConceptChild(String sourceId, String destinationId) {
+
+	}
+
+	@Override
+	public void removeStatedConceptChild(String sourceId, String destinationId) {
+
+	}
+}
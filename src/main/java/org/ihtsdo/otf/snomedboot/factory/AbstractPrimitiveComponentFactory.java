@@ -0,0 +1,94 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+/**
+ * Base for factories which implement only the primitive callbacks. Each String callback, made by code other than
+ * the ReleaseImporter, parses its values and makes the matching primitive callback.
+ */
+public abstract class AbstractPrimitiveComponentFactory implements PrimitiveComponentFactory {
+
+	@Override
+	public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+		newConceptState(Long.parseLong(conceptId), FactoryUtils.parseEffectiveTime(effectiveTime), FactoryUtils.parseActive(active),
+				Long.parseLong(moduleId), Long.parseLong(definitionStatusId));
+	}
+
+	@Override
+	public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode, String typeId, String term, String caseSignificanceId) {
+		newDescriptionState(Long.parseLong(id), FactoryUtils.parseEffectiveTime(effectiveTime), FactoryUtils.parseActive(active), Long.parseLong(moduleId),
+				Long.parseLong(conceptId), languageCode, Long.parseLong(typeId), term, Long.parseLong(caseSignificanceId));
+	}
+
+	@Override
+	public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId,
+									 String destinationId, String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+		newRelationshipState(Long.parseLong(id), FactoryUtils.parseEffectiveTime(effectiveTime), FactoryUtils.parseActive(active), Long.parseLong(moduleId),
+				Long.parseLong(sourceId), Long.parseLong(destinationId), Integer.parseInt(relationshipGroup), Long.parseLong(typeId),
+				Long.parseLong(characteristicTypeId), Long.parseLong(modifierId));
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId, String refsetId, String referencedComponentId, String... otherValues) {
+		newReferenceSetMemberState(fieldNames, id, FactoryUtils.parseEffectiveTime(effectiveTime), FactoryUtils.parseActive(active), Long.parseLong(moduleId),
+				Long.parseLong(refsetId), Long.parseLong(referencedComponentId), otherValues);
+	}
+
+	@Override
+	public void addConceptFSN(String conceptId, String term) {
+		addConceptFSN(Long.parseLong(conceptId), term);
+	}
+
+	@Override
+	public void addInferredConceptParent(String sourceId, String parentId) {
+		addInferredConceptParent(Long.parseLong(sourceId), Long.parseLong(parentId));
+	}
+
+	@Override
+	public void addStatedConceptParent(String sourceId, String parentId) {
+		addStatedConceptParent(Long.parseLong(sourceId), Long.parseLong(parentId));
+	}
+
+	@Override
+	public void removeInferredConceptParent(String sourceId, String destinationId) {
+		removeInferredConceptParent(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	@Override
+	public void removeStatedConceptParent(String sourceId, String destinationId) {
+		removeStatedConceptParent(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	@Override
+	public void addInferredConceptAttribute(String sourceId, String typeId, String valueId) {
+		addInferredConceptAttribute(Long.parseLong(sourceId), Long.parseLong(typeId), Long.parseLong(valueId));
+	}
+
+	@Override
+	public void addStatedConceptAttribute(String sourceId, String typeId, String valueId) {
+		addStatedConceptAttribute(Long.parseLong(sourceId), Long.parseLong(typeId), Long.parseLong(valueId));
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(String refsetId, String conceptId) {
+		addConceptReferencedInRefsetId(Long.parseLong(refsetId), Long.parseLong(conceptId));
+	}
+
+	@Override
+	public void addInferredConceptChild(String sourceId, String destinationId) {
+		addInferredConceptChild(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	@Override
+	public void addStatedConceptChild(String sourceId, String destinationId) {
+		addStatedConceptChild(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	@Override
+	public void removeInferredConceptChild(String sourceId, String destinationId) {
+		removeInferredConceptChild(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+
+	@Override
+	public void removeStatedConceptChild(String sourceId, String destinationId) {
+		removeStatedConceptChild(Long.parseLong(sourceId), Long.parseLong(destinationId));
+	}
+}
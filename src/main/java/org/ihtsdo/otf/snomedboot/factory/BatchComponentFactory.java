@@ -0,0 +1,41 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+/**
+ * A component factory which receives component and member states in batches rather than one call per row,
+ * for factories which write to a database and want to insert a batch at a time.
+ * <p>
+ * When the factory given to the ReleaseImporter implements this interface the importer makes the batch calls
+ * in place of newConceptState, newDescriptionState, newRelationshipState and newReferenceSetMemberState.
+ * All other callbacks are still made once per row. Each batch holds rows of a single file and every batch is
+ * passed on before the import moves to the next kind of component, so concepts still arrive before relationships
+ * and descriptions, and those before reference set members.
+ * <p>
+ * Batches are reused once the call returns, copy any values which are needed later.
+ * Batch calls for different files, or different chunks of one file, may be made concurrently.
+ * If a batch call throws, the import fails reporting the first line of the batch.
+ *
+ * @see BatchComponentFactoryAdapter to pass batches on to a factory which takes one row at a time.
+ */
+public interface BatchComponentFactory extends ComponentFactory {
+
+	/**
+	 * @param concepts Rows with the fields of {@link ComponentBatch#CONCEPT_FIELD_NAMES}.
+	 */
+	void newConceptStates(ComponentBatch concepts);
+
+	/**
+	 * @param descriptions Rows with the fields of {@link ComponentBatch#DESCRIPTION_FIELD_NAMES}.
+	 */
+	void newDescriptionStates(ComponentBatch descriptions);
+
+	/**
+	 * @param relationships Rows with the fields of {@link ComponentBatch#RELATIONSHIP_FIELD_NAMES}.
+	 */
+	void newRelationshipStates(ComponentBatch relationships);
+
+	/**
+	 * @param members Rows of one reference set file, with the fields named in its header.
+	 */
+	void newReferenceSetMemberStates(ComponentBatch members);
+
+}
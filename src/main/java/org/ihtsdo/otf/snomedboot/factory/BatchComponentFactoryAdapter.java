@@ -0,0 +1,175 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+import org.ihtsdo.otf.snomedboot.domain.rf2.ConceptFieldIndexes;
+import org.ihtsdo.otf.snomedboot.domain.rf2.DescriptionFieldIndexes;
+import org.ihtsdo.otf.snomedboot.domain.rf2.RefsetFieldIndexes;
+import org.ihtsdo.otf.snomedboot.domain.rf2.RelationshipFieldIndexes;
+
+/**
+ * Presents a factory which takes one row at a time as a BatchComponentFactory, making a per row call for each row
+ * of a batch. Every other callback is passed straight on.
+ * Useful where code is written against the batch interface, for example a factory decorator, but should also work
+ * with existing factories.
+ */
+public class BatchComponentFactoryAdapter implements BatchComponentFactory {
+
+	private final ComponentFactory componentFactory;
+
+	public BatchComponentFactoryAdapter(ComponentFactory componentFactory) {
+		this.componentFactory = componentFactory;
+	}
+
+	public ComponentFactory getComponentFactory() {
+		return componentFactory;
+	}
+
+	@Override
+	public void newConceptStates(ComponentBatch concepts) {
+		for (int row = 0; row < concepts.size(); row++) {
+			componentFactory.newConceptState(
+					concepts.get(row, ConceptFieldIndexes.id),
+					concepts.get(row, ConceptFieldIndexes.effectiveTime),
+					concepts.get(row, ConceptFieldIndexes.active),
+					concepts.get(row, ConceptFieldIndexes.moduleId),
+					concepts.get(row, ConceptFieldIndexes.definitionStatusId));
+		}
+	}
+
+	@Override
+	public void newDescriptionStates(ComponentBatch descriptions) {
+		for (int row = 0; row < descriptions.size(); row++) {
+			componentFactory.newDescriptionState(
+					descriptions.get(row, DescriptionFieldIndexes.id),
+					descriptions.get(row, DescriptionFieldIndexes.effectiveTime),
+					descriptions.get(row, DescriptionFieldIndexes.active),
+					descriptions.get(row, DescriptionFieldIndexes.moduleId),
+					descriptions.get(row, DescriptionFieldIndexes.conceptId),
+					descriptions.get(row, DescriptionFieldIndexes.languageCode),
+					descriptions.get(row, DescriptionFieldIndexes.typeId),
+					descriptions.get(row, DescriptionFieldIndexes.term),
+					descriptions.get(row, DescriptionFieldIndexes.caseSignificanceId));
+		}
+	}
+
+	@Override
+	public void newRelationshipStates(ComponentBatch relationships) {
+		for (int row = 0; row < relationships.size(); row++) {
+			componentFactory.newRelationshipState(
+					relationships.get(row, RelationshipFieldIndexes.id),
+					relationships.get(row, RelationshipFieldIndexes.effectiveTime),
+					relationships.get(row, RelationshipFieldIndexes.active),
+					relationships.get(row, RelationshipFieldIndexes.moduleId),
+					relationships.get(row, RelationshipFieldIndexes.sourceId),
+					relationships.get(row, RelationshipFieldIndexes.destinationId),
+					relationships.get(row, RelationshipFieldIndexes.relationshipGroup),
+					relationships.get(row, RelationshipFieldIndexes.typeId),
+					relationships.get(row, RelationshipFieldIndexes.characteristicTypeId),
+					relationships.get(row, RelationshipFieldIndexes.modifierId));
+		}
+	}
+
+	@Override
+	public void newReferenceSetMemberStates(ComponentBatch members) {
+		for (int row = 0; row < members.size(); row++) {
+			componentFactory.newReferenceSetMemberState(
+					members.getFieldNames(),
+					members.get(row, RefsetFieldIndexes.id),
+					members.get(row, RefsetFieldIndexes.effectiveTime),
+					members.get(row, RefsetFieldIndexes.active),
+					members.get(row, RefsetFieldIndexes.moduleId),
+					members.get(row, RefsetFieldIndexes.refsetId),
+					members.get(row, RefsetFieldIndexes.referencedComponentId),
+					members.getValues(row, RefsetFieldIndexes.referencedComponentId + 1));
+		}
+	}
+
+	@Override
+	public void loadingComponentsStarting() {
+		componentFactory.loadingComponentsStarting();
+	}
+
+	@Override
+	public void loadingComponentsCompleted() {
+		componentFactory.loadingComponentsCompleted();
+	}
+
+	@Override
+	public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+		componentFactory.newConceptState(conceptId, effectiveTime, active, moduleId, definitionStatusId);
+	}
+
+	@Override
+	public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode, String typeId, String term, String caseSignificanceId) {
+		componentFactory.newDescriptionState(id, effectiveTime, active, moduleId, conceptId, languageCode, typeId, term, caseSignificanceId);
+	}
+
+	@Override
+	public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId, String destinationId, String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+		componentFactory.newRelationshipState(id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId, characteristicTypeId, modifierId);
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId, String refsetId, String referencedComponentId, String... otherValues) {
+		componentFactory.newReferenceSetMemberState(fieldNames, id, effectiveTime, active, moduleId, refsetId, referencedComponentId, otherValues);
+	}
+
+	@Override
+	public void addConceptFSN(String conceptId, String term) {
+		componentFactory.addConceptFSN(conceptId, term);
+	}
+
+	@Override
+	public void addInferredConceptParent(String sourceId, String parentId) {
+		componentFactory.addInferredConceptParent(sourceId, parentId);
+	}
+
+	@Override
+	public void addStatedConceptParent(String sourceId, String parentId) {
+		componentFactory.addStatedConceptParent(sourceId, parentId);
+	}
+
+	@Override
+	public void removeInferredConceptParent(String sourceId, String destinationId) {
+		componentFactory.removeInferredConceptParent(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptParent(String sourceId, String destinationId) {
+		componentFactory.removeStatedConceptParent(sourceId, destinationId);
+	}
+
+	@Override
+	public void addInferredConceptAttribute(String sourceId, String typeId, String valueId) {
+		componentFactory.addInferredConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addStatedConceptAttribute(String sourceId, String typeId, String valueId) {
+		componentFactory.addStatedConceptAttribute(sourceId, typeId, valueId);
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(String refsetId, String conceptId) {
+		componentFactory.addConceptReferencedInRefsetId(refsetId, conceptId);
+	}
+
+	@Override
+	public void addInferredConceptChild(String sourceId, String destinationId) {
+		componentFactory.addInferredConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void addStatedConceptChild(String sourceId, String destinationId) {
+		componentFactory.addStatedConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeInferredConceptChild(String sourceId, String destinationId) {
+		componentFactory.removeInferredConceptChild(sourceId, destinationId);
+	}
+
+	@Override
+	public void removeStatedConceptChild(String sourceId, String destinationId) {
+		componentFactory.removeStatedConceptChild(sourceId, destinationId);
+	}
+}
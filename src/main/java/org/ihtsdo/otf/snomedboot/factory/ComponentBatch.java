@@ -0,0 +1,105 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+import java.util.Arrays;
+
+/**
+ * Rows of one RF2 file held column by column, so that a factory can bind each column of a batch at once.
+ * Columns are in RF2 field order, see the field indexes in {@link org.ihtsdo.otf.snomedboot.domain.rf2}.
+ * <p>
+ * Batches are reused, the values of a batch are only valid until the call it was passed to returns.
+ */
+public final class ComponentBatch {
+
+	public static final String[] CONCEPT_FIELD_NAMES = {"id", "effectiveTime", "active", "moduleId", "definitionStatusId"};
+	public static final String[] DESCRIPTION_FIELD_NAMES = {"id", "effectiveTime", "active", "moduleId", "conceptId", "languageCode", "typeId", "term", "caseSignificanceId"};
+	public static final String[] RELATIONSHIP_FIELD_NAMES = {"id", "effectiveTime", "active", "moduleId", "sourceId", "destinationId", "relationshipGroup", "typeId", "characteristicTypeId", "modifierId"};
+
+	private final String[] fieldNames;
+	private final String[][] columns;
+	private final int capacity;
+	private int size;
+
+	public ComponentBatch(String[] fieldNames, int capacity) {
+		if (capacity < 1) {
+			throw new IllegalArgumentException("Capacity must be at least 1.");
+		}
+		this.fieldNames = fieldNames;
+		this.capacity = capacity;
+		columns = new String[fieldNames.length][capacity];
+	}
+
+	/**
+	 * Appends a row.
+	 * @param values One value per field, values beyond the last field are ignored and missing values are null.
+	 * @throws IllegalStateException if the batch is full.
+	 */
+	public void add(String... values) {
+		if (isFull()) {
+			throw new IllegalStateException("Batch is full.");
+		}
+		final int fields = Math.min(values.length, columns.length);
+		for (int field = 0; field < fields; field++) {
+			columns[field][size] = values[field];
+		}
+		for (int field = fields; field < columns.length; field++) {
+			columns[field][size] = null;
+		}
+		size++;
+	}
+
+	/**
+	 * @return The values of one field. Only the first {@link #size()} values belong to the batch.
+	 */
+	public String[] getColumn(int field) {
+		return columns[field];
+	}
+
+	public String get(int row, int field) {
+		if (row >= size) {
+			throw new IndexOutOfBoundsException("Row " + row + " of a batch of " + size + " rows.");
+		}
+		return columns[field][row];
+	}
+
+	/**
+	 * @return The values of the fields from the given field to the last, as passed to
+	 * {@link ComponentFactory#newReferenceSetMemberState} as otherValues.
+	 */
+	public String[] getValues(int row, int fromField) {
+		final String[] values = new String[Math.max(0, columns.length - fromField)];
+		for (int i = 0; i < values.length; i++) {
+			values[i] = get(row, fromField + i);
+		}
+		return values;
+	}
+
+	public String[] getFieldNames() {
+		return fieldNames;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getCapacity() {
+		return capacity;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public boolean isFull() {
+		return size == getCapacity();
+	}
+
+	/**
+	 * Empties the batch for reuse, releasing its values.
+	 */
+	public void clear() {
+		for (String[] column : columns) {
+			Arrays.fill(column, 0, size, null);
+		}
+		size = 0;
+	}
+}
@@ -0,0 +1,32 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+/**
+ * A component factory which applies a release to components loaded earlier, such as a Delta applied to the snapshot
+ * it follows. Inactivations have to reach such a factory even when the loading profile leaves inactive components out,
+ * so when the factory given to the ReleaseImporter implements this interface the importer reads inactive concepts and
+ * relationships whatever the loading profile says.
+ * <p>
+ * An inactive concept is passed as a concept state. An inactive relationship which the loading profile leaves out is
+ * passed to removeRelationship in place of its relationship state and attribute callbacks, then the is-a edge event or
+ * the parent and child callbacks to remove an is-a edge follow as usual. An inactive description which the loading
+ * profile leaves out is passed to removeDescription in place of its description state and FSN callbacks.
+ * <p>
+ * A relationship changed in place can only be replaced if the relationship it replaces is known, so the importer
+ * rejects a loading profile which keeps attributes or is-a edges without full relationship objects for them.
+ */
+public interface DeltaComponentFactory extends ComponentFactory {
+
+	/**
+	 * The relationship is now inactive and the loading profile leaves inactive relationships out,
+	 * remove the relationship and its attribute if they are held.
+	 * @param inferred true for an inferred relationship, false for a stated or additional one.
+	 */
+	void removeRelationship(long id, long sourceId, long destinationId, long typeId, boolean inferred);
+
+	/**
+	 * The description is now inactive and the loading profile leaves inactive descriptions out,
+	 * remove the description if it is held and, for an FSN, the term of the concept if it is still this one.
+	 */
+	void removeDescription(long id, long conceptId, boolean fsn, String term);
+
+}
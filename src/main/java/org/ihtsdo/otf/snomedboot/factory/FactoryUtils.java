@@ -4,10 +4,27 @@ public class FactoryUtils {
 
 	public static final String ACTIVE = "1";
 
+	public static final String INACTIVE = "0";
+
 	public static boolean parseActive(String active) {
 		return ACTIVE.equals(active);
 	}
 
+	public static String formatActive(boolean active) {
+		return active ? ACTIVE : INACTIVE;
+	}
+
+	/**
+	 * @return The effectiveTime as a number, 0 if it is empty as in unpublished content.
+	 */
+	public static int parseEffectiveTime(String effectiveTime) {
+		return effectiveTime == null || effectiveTime.isEmpty() ? 0 : Integer.parseInt(effectiveTime);
+	}
+
+	public static String formatEffectiveTime(int effectiveTime) {
+		return effectiveTime == 0 ? "" : Integer.toString(effectiveTime);
+	}
+
 	public static boolean isConceptId(String componentId) {
 		if (componentId != null) {
 			final int length = componentId.length();
@@ -16,6 +33,13 @@ public class FactoryUtils {
 		return false;
 	}
 
+	/**
+	 * @return true if the partition identifier of the SCTID is that of a concept.
+	 */
+	public static boolean isConceptId(long componentId) {
+		return componentId > 999 && componentId / 10 % 10 == 0;
+	}
+
 	public static boolean isDescriptionId(String componentId) {
 		if (componentId != null) {
 			final int length = componentId.length();
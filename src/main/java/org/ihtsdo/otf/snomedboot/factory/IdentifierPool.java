@@ -0,0 +1,86 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectOpenHashMap;
+
+/**
+ * Gives one shared String for each identifier, so that the module, type, characteristic type and other metadata
+ * identifiers repeated on millions of rows are held once rather than once per component.
+ * Suits any small set of numeric values, effectiveTimes and relationship groups included, but not component ids:
+ * once the pool holds its maximum number of values further values are returned as new Strings.
+ * <p>
+ * Safe to use from several threads. Lookups do not lock, the table is copied when a value is added,
+ * which is rare once the metadata of a release has been seen.
+ */
+public final class IdentifierPool {
+
+	public static final int DEFAULT_MAX_SIZE = 4096;
+	// Longer numbers may not fit a long
+	private static final int MAX_DIGITS = 18;
+
+	private final int maxSize;
+	private volatile Long2ObjectOpenHashMap<String> strings = new Long2ObjectOpenHashMap<>();
+
+	public IdentifierPool() {
+		this(DEFAULT_MAX_SIZE);
+	}
+
+	public IdentifierPool(int maxSize) {
+		this.maxSize = maxSize;
+	}
+
+	/**
+	 * @return The decimal String of a non-negative value, shared with every other caller asking for the same value.
+	 */
+	public String toString(long value) {
+		final String string = strings.get(value);
+		return string != null ? string : add(value, Long.toString(value));
+	}
+
+	/**
+	 * @return The pooled String equal to the given value, or the value itself if it is not a decimal number as RF2 writes them.
+	 */
+	public String intern(String value) {
+		if (!isDecimal(value)) {
+			return value;
+		}
+		final long key = Long.parseLong(value);
+		final String string = strings.get(key);
+		return string != null ? string : add(key, value);
+	}
+
+	public int size() {
+		return strings.size();
+	}
+
+	/**
+	 * @return true if the value is digits only, without leading zeros, and short enough to be held as a long.
+	 */
+	public static boolean isDecimal(String value) {
+		final int length = value.length();
+		if (length == 0 || length > MAX_DIGITS || length > 1 && value.charAt(0) == '0') {
+			return false;
+		}
+		for (int i = 0; i < length; i++) {
+			final char c = value.charAt(i);
+			if (c < '0' || c > '9') {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	private synchronized String add(long value, String string) {
+		final Long2ObjectOpenHashMap<String> current = strings;
+		final String existing = current.get(value);
+		if (existing != null) {
+			return existing;
+		}
+		if (current.size() >= maxSize) {
+			return string;
+		}
+		final Long2ObjectOpenHashMap<String> copy = current.clone();
+		copy.put(value, string);
+		strings = copy;
+		return string;
+	}
+}
@@ -0,0 +1,21 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+/**
+ * A component factory which takes each is-a relationship as a single edge event rather than a parent callback and a
+ * child callback, so that both concepts need only be looked up once. When the factory given to the ReleaseImporter
+ * implements this interface the importer makes these callbacks in place of the eight parent and child callbacks.
+ * While a file is read in chunks the edge events still arrive in file order.
+ *
+ * @see AbstractIsAComponentFactory to bridge the parent and child callbacks of other callers to these events.
+ */
+public interface IsAComponentFactory extends ComponentFactory {
+
+	void addInferredIsA(long sourceId, long destinationId);
+
+	void addStatedIsA(long sourceId, long destinationId);
+
+	void removeInferredIsA(long sourceId, long destinationId);
+
+	void removeStatedIsA(long sourceId, long destinationId);
+
+}
@@ -6,6 +6,7 @@ import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.Set;
+import java.util.TreeSet;
 
 public class LoadingProfile implements Cloneable {
 
@@ -334,4 +335,28 @@ public class LoadingProfile implements Cloneable {
 				.setJustRefsets(this.justRefsets)
 				.setRefsetIds(new HashSet<>(this.refsetIds));
 	}
+
+	/**
+	 * @return Every option of the profile, refsetIds sorted, so that equal profiles give equal Strings.
+	 */
+	@Override
+	public String toString() {
+		return "LoadingProfile{" +
+				"inferredAttributeMapOnConcept=" + inferredAttributeMapOnConcept +
+				", statedAttributeMapOnConcept=" + statedAttributeMapOnConcept +
+				", statedRelationships=" + statedRelationships +
+				", descriptions=" + descriptions +
+				", fullDescriptionObjects=" + fullDescriptionObjects +
+				", fullRelationshipObjects=" + fullRelationshipObjects +
+				", inactiveConcepts=" + inactiveConcepts +
+				", inactiveDescriptions=" + inactiveDescriptions +
+				", inactiveRelationships=" + inactiveRelationships +
+				", inactiveRefsetMembers=" + inactiveRefsetMembers +
+				", allRefsets=" + allRefsets +
+				", fullRefsetMemberObjects=" + fullRefsetMemberObjects +
+				", justRefsets=" + justRefsets +
+				", refsetIds=" + new TreeSet<>(refsetIds) +
+				", includedReferenceSetFilenamePatterns=" + new TreeSet<>(includedReferenceSetFilenamePatterns) +
+				'}';
+	}
 }
@@ -0,0 +1,49 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+/**
+ * A component factory which takes identifiers as longs, active flags as booleans and effectiveTimes and relationship
+ * groups as ints. When the factory given to the ReleaseImporter implements this interface the importer parses these
+ * values once, straight from the bytes of each row, and makes these callbacks in place of the String callbacks.
+ * An empty effectiveTime, as in unpublished content, is passed as 0.
+ * <p>
+ * Terms, language codes, member ids and the additional fields of reference set members are still Strings.
+ * A factory which also implements BatchComponentFactory receives component and member states in String batches
+ * and every other callback through this interface.
+ *
+ * @see AbstractPrimitiveComponentFactory to implement only these callbacks.
+ */
+public interface PrimitiveComponentFactory extends ComponentFactory {
+
+	void newConceptState(long conceptId, int effectiveTime, boolean active, long moduleId, long definitionStatusId);
+
+	void newDescriptionState(long id, int effectiveTime, boolean active, long moduleId, long conceptId, String languageCode, long typeId, String term, long caseSignificanceId);
+
+	void newRelationshipState(long id, int effectiveTime, boolean active, long moduleId, long sourceId,
+							  long destinationId, int relationshipGroup, long typeId, long characteristicTypeId, long modifierId);
+
+	void newReferenceSetMemberState(String[] fieldNames, String id, int effectiveTime, boolean active, long moduleId, long refsetId, long referencedComponentId, String... otherValues);
+
+	void addConceptFSN(long conceptId, String term);
+
+	void addInferredConceptParent(long sourceId, long parentId);
+
+	void addStatedConceptParent(long sourceId, long parentId);
+
+	void removeInferredConceptParent(long sourceId, long destinationId);
+
+	void removeStatedConceptParent(long sourceId, long destinationId);
+
+	void addInferredConceptAttribute(long sourceId, long typeId, long valueId);
+
+	void addStatedConceptAttribute(long sourceId, long typeId, long valueId);
+
+	void addConceptReferencedInRefsetId(long refsetId, long conceptId);
+
+	void addInferredConceptChild(long sourceId, long destinationId);
+
+	void addStatedConceptChild(long sourceId, long destinationId);
+
+	void removeInferredConceptChild(long sourceId, long destinationId);
+
+	void removeStatedConceptChild(long sourceId, long destinationId);
+}
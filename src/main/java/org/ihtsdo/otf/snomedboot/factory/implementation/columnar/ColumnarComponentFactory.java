@@ -0,0 +1,155 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.columnar;
+
+import org.ihtsdo.otf.snomedboot.factory.AbstractPrimitiveComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+import org.ihtsdo.otf.snomedboot.factory.IsAComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.CompactRelationshipImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.DescriptionImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.RelationshipImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.StoredTermDescriptionImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.TermStore;
+
+/**
+ * Loads components into a ColumnarComponentStore.
+ * The parent and child callbacks for an is-a relationship both record the same edge, children are read from the reverse of the parent table.
+ * The ReleaseImporter makes a single edge event for each is-a relationship instead.
+ */
+public class ColumnarComponentFactory extends AbstractPrimitiveComponentFactory implements IsAComponentFactory {
+
+	private final ColumnarComponentStore componentStore;
+	private final TermStore termStore;
+	private final IdentifierPool identifierPool = new IdentifierPool();
+
+	public ColumnarComponentFactory(ColumnarComponentStore componentStore) {
+		this(componentStore, null);
+	}
+
+	/**
+	 * @param termStore Where the terms of descriptions are held, off the heap, or null to hold them as Strings.
+	 */
+	public ColumnarComponentFactory(ColumnarComponentStore componentStore, TermStore termStore) {
+		this.componentStore = componentStore;
+		this.termStore = termStore;
+	}
+
+	@Override
+	public void loadingComponentsStarting() {
+
+	}
+
+	@Override
+	public void loadingComponentsCompleted() {
+		componentStore.build();
+	}
+
+	@Override
+	public void newConceptState(long conceptId, int effectiveTime, boolean active, long moduleId, long definitionStatusId) {
+		componentStore.setConceptState(conceptId, effectiveTime, active, moduleId, definitionStatusId);
+	}
+
+	@Override
+	public void newDescriptionState(long id, int effectiveTime, boolean active, long moduleId, long conceptId, String languageCode, long typeId, String term, long caseSignificanceId) {
+		componentStore.addDescription(conceptId, termStore != null ? new StoredTermDescriptionImpl(id, active, term, conceptId, termStore)
+				: new DescriptionImpl(id, active, term, conceptId));
+	}
+
+	@Override
+	public void newRelationshipState(long id, int effectiveTime, boolean active, long moduleId, long sourceId,
+									 long destinationId, int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+		if (CompactRelationshipImpl.isCompact(relationshipGroup, characteristicTypeId, modifierId)) {
+			componentStore.addRelationship(sourceId, new CompactRelationshipImpl(id, effectiveTime, active, moduleId, sourceId, destinationId,
+					relationshipGroup, typeId, characteristicTypeId, modifierId));
+			return;
+		}
+		componentStore.addRelationship(sourceId, new RelationshipImpl(Long.toString(id), effectiveTime != 0 ? identifierPool.toString(effectiveTime) : "",
+				FactoryUtils.formatActive(active), identifierPool.toString(moduleId), Long.toString(sourceId), Long.toString(destinationId),
+				identifierPool.toString(relationshipGroup), identifierPool.toString(typeId), identifierPool.toString(characteristicTypeId),
+				identifierPool.toString(modifierId)));
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, int effectiveTime, boolean active, long moduleId, long refsetId, long referencedComponentId, String... otherValues) {
+
+	}
+
+	@Override
+	public void addConceptFSN(long conceptId, String term) {
+		componentStore.setFsn(conceptId, term);
+	}
+
+	@Override
+	public void addInferredConceptParent(long sourceId, long parentId) {
+		componentStore.addEdge(sourceId, parentId, true);
+	}
+
+	@Override
+	public void addStatedConceptParent(long sourceId, long parentId) {
+		componentStore.addEdge(sourceId, parentId, false);
+	}
+
+	@Override
+	public void removeInferredConceptParent(long sourceId, long parentId) {
+		componentStore.removeEdge(sourceId, parentId, true);
+	}
+
+	@Override
+	public void removeStatedConceptParent(long sourceId, long parentId) {
+		componentStore.removeEdge(sourceId, parentId, false);
+	}
+
+	@Override
+	public void addInferredConceptChild(long sourceId, long destinationId) {
+		componentStore.addEdge(sourceId, destinationId, true);
+	}
+
+	@Override
+	public void addStatedConceptChild(long sourceId, long destinationId) {
+		componentStore.addEdge(sourceId, destinationId, false);
+	}
+
+	@Override
+	public void removeInferredConceptChild(long sourceId, long destinationId) {
+		componentStore.removeEdge(sourceId, destinationId, true);
+	}
+
+	@Override
+	public void removeStatedConceptChild(long sourceId, long destinationId) {
+		componentStore.removeEdge(sourceId, destinationId, false);
+	}
+
+	@Override
+	public void addInferredIsA(long sourceId, long destinationId) {
+		componentStore.addEdge(sourceId, destinationId, true);
+	}
+
+	@Override
+	public void addStatedIsA(long sourceId, long destinationId) {
+		componentStore.addEdge(sourceId, destinationId, false);
+	}
+
+	@Override
+	public void removeInferredIsA(long sourceId, long destinationId) {
+		componentStore.removeEdge(sourceId, destinationId, true);
+	}
+
+	@Override
+	public void removeStatedIsA(long sourceId, long destinationId) {
+		componentStore.removeEdge(sourceId, destinationId, false);
+	}
+
+	@Override
+	public void addInferredConceptAttribute(long sourceId, long typeId, long valueId) {
+		componentStore.addAttribute(sourceId, typeId, valueId, true);
+	}
+
+	@Override
+	public void addStatedConceptAttribute(long sourceId, long typeId, long valueId) {
+		componentStore.addAttribute(sourceId, typeId, valueId, false);
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(long refsetId, long conceptId) {
+		componentStore.addMemberOfRefset(conceptId, refsetId);
+	}
+}
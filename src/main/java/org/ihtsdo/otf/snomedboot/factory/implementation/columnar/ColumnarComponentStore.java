@@ -0,0 +1,525 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.columnar;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.AbstractLong2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.AbstractObjectIterator;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * A component store that gives each concept a dense ordinal when its id is first seen and keeps the concept fields
+ * in parallel primitive arrays indexed by that ordinal. Parents, children, attributes, refset membership, relationships
+ * and descriptions are held in compressed sparse row tables, so there is no object per concept and hierarchy traversals
+ * walk int arrays rather than chasing references.
+ * <p>
+ * Concepts are exposed through lightweight views so that callers of getConcepts() see the usual Concept interface.
+ * The store is written by a ColumnarComponentFactory from several threads during an import. The row tables are built
+ * when loading completes, or on the next read after a later change. Reading while an import is running is not supported.
+ */
+public class ColumnarComponentStore {
+
+	private static final int NO_ORDINAL = -1;
+
+	// Guards the concept columns; held for read while writing a single row and for write while adding rows
+	private final ReadWriteLock columnsLock = new ReentrantReadWriteLock();
+	private final Long2IntOpenHashMap ordinals;
+	private int conceptCount;
+	private long[] ids;
+	private boolean[] active;
+	private int[] effectiveTimes;
+	private long[] moduleIds;
+	private long[] definitionStatusIds;
+	private String[] fsns;
+
+	// Is-a edges changed since the last build, packed as child ordinal in the high and parent ordinal in the low 32 bits
+	private final PendingPairs inferredEdges = new PendingPairs();
+	private final PendingPairs statedEdges = new PendingPairs();
+	private final AttributeTable inferredAttributes = new AttributeTable();
+	private final AttributeTable statedAttributes = new AttributeTable();
+	// Refset membership added since the last build, packed as concept ordinal in the high and refset index in the low 32 bits
+	private final PendingPairs refsetMemberships = new PendingPairs();
+	private final Long2IntOpenHashMap refsetIndexes = new Long2IntOpenHashMap();
+	private final LongArrayList refsetIds = new LongArrayList();
+	private final EntryTable<Relationship> relationships = new EntryTable<>();
+	private final EntryTable<Description> descriptions = new EntryTable<>();
+
+	private volatile boolean dirty;
+	private CompressedRows inferredParents;
+	private CompressedRows inferredChildren;
+	private CompressedRows statedParents;
+	private CompressedRows statedChildren;
+	private CompressedRows memberOfRefsets;
+
+	private final ConceptMap conceptMap = new ConceptMap();
+
+	public ColumnarComponentStore() {
+		this(1024);
+	}
+
+	/**
+	 * @param expectedConcepts The initial capacity of the concept columns, they grow as needed.
+	 */
+	public ColumnarComponentStore(int expectedConcepts) {
+		final int capacity = Math.max(expectedConcepts, 16);
+		ordinals = new Long2IntOpenHashMap(capacity);
+		ordinals.defaultReturnValue(NO_ORDINAL);
+		refsetIndexes.defaultReturnValue(NO_ORDINAL);
+		ids = new long[capacity];
+		active = new boolean[capacity];
+		effectiveTimes = new int[capacity];
+		moduleIds = new long[capacity];
+		definitionStatusIds = new long[capacity];
+		fsns = new String[capacity];
+	}
+
+	/**
+	 * @return A read only map of concept views keyed by concept id.
+	 */
+	public Long2ObjectMap<Concept> getConcepts() {
+		return conceptMap;
+	}
+
+	public int getConceptCount() {
+		return conceptCount;
+	}
+
+	void setConceptState(long conceptId, int effectiveTime, boolean conceptActive, long moduleId, long definitionStatusId) {
+		final int ordinal = getOrAddOrdinal(conceptId);
+		final Lock lock = columnsLock.readLock();
+		lock.lock();
+		try {
+			effectiveTimes[ordinal] = effectiveTime;
+			active[ordinal] = conceptActive;
+			moduleIds[ordinal] = moduleId;
+			definitionStatusIds[ordinal] = definitionStatusId;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void setFsn(long conceptId, String fsn) {
+		final int ordinal = getOrAddOrdinal(conceptId);
+		final Lock lock = columnsLock.readLock();
+		lock.lock();
+		try {
+			fsns[ordinal] = fsn;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	void addEdge(long childId, long parentId, boolean inferred) {
+		(inferred ? inferredEdges : statedEdges).add(pack(getOrAddOrdinal(childId), getOrAddOrdinal(parentId)));
+		dirty = true;
+	}
+
+	void removeEdge(long childId, long parentId, boolean inferred) {
+		(inferred ? inferredEdges : statedEdges).remove(pack(getOrAddOrdinal(childId), getOrAddOrdinal(parentId)));
+		dirty = true;
+	}
+
+	void addAttribute(long sourceId, long typeId, long valueId, boolean inferred) {
+		(inferred ? inferredAttributes : statedAttributes).add(getOrAddOrdinal(sourceId), typeId, valueId);
+		dirty = true;
+	}
+
+	void addMemberOfRefset(long conceptId, long refsetId) {
+		final int ordinal = getOrAddOrdinal(conceptId);
+		synchronized (refsetMemberships) {
+			int refsetIndex = refsetIndexes.get(refsetId);
+			if (refsetIndex == NO_ORDINAL) {
+				refsetIndex = refsetIds.size();
+				refsetIds.add(refsetId);
+				refsetIndexes.put(refsetId, refsetIndex);
+			}
+			refsetMemberships.add(pack(ordinal, refsetIndex));
+		}
+		dirty = true;
+	}
+
+	void addRelationship(long sourceId, Relationship relationship) {
+		relationships.add(getOrAddOrdinal(sourceId), relationship);
+		dirty = true;
+	}
+
+	void addDescription(long conceptId, Description description) {
+		descriptions.add(getOrAddOrdinal(conceptId), description);
+		dirty = true;
+	}
+
+	/**
+	 * Builds the row tables from the tables of the last build and the changes made since.
+	 */
+	synchronized void build() {
+		if (!dirty) {
+			return;
+		}
+		final Lock lock = columnsLock.writeLock();
+		lock.lock();
+		try {
+			final long[] inferred = inferredEdges.applyTo(inferredParents);
+			inferredParents = CompressedRows.fromPairs(conceptCount, inferred, false);
+			inferredChildren = CompressedRows.fromPairs(conceptCount, inferred, true);
+			final long[] stated = statedEdges.applyTo(statedParents);
+			statedParents = CompressedRows.fromPairs(conceptCount, stated, false);
+			statedChildren = CompressedRows.fromPairs(conceptCount, stated, true);
+			memberOfRefsets = CompressedRows.fromPairs(conceptCount, refsetMemberships.applyTo(memberOfRefsets), false);
+			inferredAttributes.build(conceptCount);
+			statedAttributes.build(conceptCount);
+			relationships.build(conceptCount);
+			descriptions.build(conceptCount);
+			dirty = false;
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private void ensureBuilt() {
+		if (dirty) {
+			build();
+		}
+	}
+
+	private int getOrAddOrdinal(long conceptId) {
+		final Lock readLock = columnsLock.readLock();
+		readLock.lock();
+		try {
+			final int ordinal = ordinals.get(conceptId);
+			if (ordinal != NO_ORDINAL) {
+				return ordinal;
+			}
+		} finally {
+			readLock.unlock();
+		}
+		final Lock writeLock = columnsLock.writeLock();
+		writeLock.lock();
+		try {
+			int ordinal = ordinals.get(conceptId);
+			if (ordinal == NO_ORDINAL) {
+				ordinal = conceptCount++;
+				if (ordinal == ids.length) {
+					grow(ids.length * 2);
+				}
+				ids[ordinal] = conceptId;
+				ordinals.put(conceptId, ordinal);
+				// Concepts referenced before their own row is loaded have no rows in the tables built so far
+				dirty = true;
+			}
+			return ordinal;
+		} finally {
+			writeLock.unlock();
+		}
+	}
+
+	private void grow(int capacity) {
+		ids = Arrays.copyOf(ids, capacity);
+		active = Arrays.copyOf(active, capacity);
+		effectiveTimes = Arrays.copyOf(effectiveTimes, capacity);
+		moduleIds = Arrays.copyOf(moduleIds, capacity);
+		definitionStatusIds = Arrays.copyOf(definitionStatusIds, capacity);
+		fsns = Arrays.copyOf(fsns, capacity);
+	}
+
+	int getOrdinal(long conceptId) {
+		return ordinals.get(conceptId);
+	}
+
+	long getId(int ordinal) {
+		return ids[ordinal];
+	}
+
+	boolean isActive(int ordinal) {
+		return active[ordinal];
+	}
+
+	String getEffectiveTime(int ordinal) {
+		// A concept which is only referenced so far has no state, its effectiveTime is null as with ConceptImpl
+		return moduleIds[ordinal] != 0 ? FactoryUtils.formatEffectiveTime(effectiveTimes[ordinal]) : null;
+	}
+
+	String getModuleId(int ordinal) {
+		return idToString(moduleIds[ordinal]);
+	}
+
+	String getDefinitionStatusId(int ordinal) {
+		return idToString(definitionStatusIds[ordinal]);
+	}
+
+	String getFsn(int ordinal) {
+		return fsns[ordinal];
+	}
+
+	Set<Long> getAncestorIds(int ordinal, boolean inferred) {
+		ensureBuilt();
+		return collectReachableIds(ordinal, inferred ? inferredParents : statedParents, true);
+	}
+
+	Set<Long> getDescendantIds(int ordinal, boolean inferred) {
+		ensureBuilt();
+		return collectReachableIds(ordinal, inferred ? inferredChildren : statedChildren, false);
+	}
+
+	Set<Long> getMemberOfRefsetIds(int ordinal) {
+		ensureBuilt();
+		final LongOpenHashSet memberOfRefsetIds = new LongOpenHashSet(memberOfRefsets.size(ordinal));
+		for (int i = memberOfRefsets.start(ordinal); i < memberOfRefsets.end(ordinal); i++) {
+			memberOfRefsetIds.add(refsetIds.getLong(memberOfRefsets.value(i)));
+		}
+		return memberOfRefsetIds;
+	}
+
+	MultiValueMap<String, String> getAttributes(int ordinal, boolean inferred) {
+		ensureBuilt();
+		return (inferred ? inferredAttributes : statedAttributes).get(ordinal);
+	}
+
+	List<Relationship> getRelationships(int ordinal) {
+		ensureBuilt();
+		return relationships.get(ordinal);
+	}
+
+	List<Description> getDescriptions(int ordinal) {
+		ensureBuilt();
+		return descriptions.get(ordinal);
+	}
+
+	/**
+	 * Walks the hierarchy depth first from the given concept, without recursion.
+	 * @throws IllegalStateException if an edge points to an inactive concept or if an ancestor loop is found.
+	 */
+	private Set<Long> collectReachableIds(int ordinal, CompressedRows edges, boolean ancestors) {
+		// Also the concepts visited, so the memory used grows with the result rather than the store
+		final LongOpenHashSet reachableIds = new LongOpenHashSet();
+		final IntOpenHashSet onPath = ancestors ? new IntOpenHashSet() : null;
+		int[] path = new int[16];
+		int[] nextEdge = new int[16];
+		path[0] = ordinal;
+		nextEdge[0] = edges.start(ordinal);
+		if (onPath != null) {
+			onPath.add(ordinal);
+		}
+		int depth = 1;
+		while (depth > 0) {
+			final int concept = path[depth - 1];
+			final int edge = nextEdge[depth - 1];
+			if (edge == edges.end(concept)) {
+				if (onPath != null) {
+					onPath.remove(concept);
+				}
+				depth--;
+				continue;
+			}
+			nextEdge[depth - 1]++;
+			final int next = edges.value(edge);
+			if (!active[next]) {
+				throw new IllegalStateException("Is-a relationship points to inactive " + (ancestors ? "parent" : "child") + " concept: "
+						+ ids[concept] + " -> " + ids[next]);
+			}
+			if (onPath != null && onPath.contains(next)) {
+				throw new IllegalStateException("Ancestor loop detected: " + pathToString(path, depth, next));
+			}
+			if (reachableIds.add(ids[next])) {
+				if (depth == path.length) {
+					path = Arrays.copyOf(path, depth * 2);
+					nextEdge = Arrays.copyOf(nextEdge, depth * 2);
+				}
+				path[depth] = next;
+				nextEdge[depth] = edges.start(next);
+				if (onPath != null) {
+					onPath.add(next);
+				}
+				depth++;
+			}
+		}
+		return reachableIds;
+	}
+
+	private String pathToString(int[] path, int depth, int next) {
+		final List<Long> pathIds = new ArrayList<>();
+		for (int i = 0; i < depth; i++) {
+			pathIds.add(ids[path[i]]);
+		}
+		pathIds.add(ids[next]);
+		return pathIds.toString();
+	}
+
+	private static long pack(int high, int low) {
+		return ((long) high << 32) | low;
+	}
+
+	private static String idToString(long id) {
+		return id != 0 ? Long.toString(id) : null;
+	}
+
+	/**
+	 * Pairs added and removed since the last build, so that the pairs themselves are only held in the row tables.
+	 */
+	private static final class PendingPairs {
+
+		private LongOpenHashSet added = new LongOpenHashSet();
+		private LongOpenHashSet removed = new LongOpenHashSet();
+
+		synchronized void add(long pair) {
+			removed.remove(pair);
+			added.add(pair);
+		}
+
+		synchronized void remove(long pair) {
+			added.remove(pair);
+			removed.add(pair);
+		}
+
+		/**
+		 * @param rows The table of the last build, or null.
+		 * @return The sorted pairs of the table with the changes applied, which are then forgotten.
+		 */
+		synchronized long[] applyTo(CompressedRows rows) {
+			final long[] current = rows != null ? rows.toPairs() : new long[0];
+			if (added.isEmpty() && removed.isEmpty()) {
+				return current;
+			}
+			final LongOpenHashSet pairs = new LongOpenHashSet(current.length + added.size());
+			for (long pair : current) {
+				if (!removed.contains(pair)) {
+					pairs.add(pair);
+				}
+			}
+			pairs.addAll(added);
+			added = new LongOpenHashSet();
+			removed = new LongOpenHashSet();
+			final long[] values = pairs.toLongArray();
+			Arrays.sort(values);
+			return values;
+		}
+	}
+
+	private static final class AttributeTable {
+
+		private final IntArrayList rows = new IntArrayList();
+		private final LongArrayList typeIds = new LongArrayList();
+		private final LongArrayList valueIds = new LongArrayList();
+		private CompressedRows index;
+
+		synchronized void add(int row, long typeId, long valueId) {
+			rows.add(row);
+			typeIds.add(typeId);
+			valueIds.add(valueId);
+		}
+
+		synchronized void build(int rowCount) {
+			index = CompressedRows.groupEntries(rowCount, rows);
+		}
+
+		MultiValueMap<String, String> get(int row) {
+			final MultiValueMap<String, String> attributes = new LinkedMultiValueMap<>(index.size(row));
+			for (int i = index.start(row); i < index.end(row); i++) {
+				final int entry = index.value(i);
+				attributes.add(Long.toString(typeIds.getLong(entry)), Long.toString(valueIds.getLong(entry)));
+			}
+			return attributes;
+		}
+	}
+
+	private static final class EntryTable<T> {
+
+		private final IntArrayList rows = new IntArrayList();
+		private final List<T> entries = new ArrayList<>();
+		private CompressedRows index;
+
+		synchronized void add(int row, T entry) {
+			rows.add(row);
+			entries.add(entry);
+		}
+
+		synchronized void build(int rowCount) {
+			index = CompressedRows.groupEntries(rowCount, rows);
+		}
+
+		List<T> get(int row) {
+			final int size = index.size(row);
+			if (size == 0) {
+				return Collections.emptyList();
+			}
+			final List<T> rowEntries = new ArrayList<>(size);
+			for (int i = index.start(row); i < index.end(row); i++) {
+				rowEntries.add(entries.get(index.value(i)));
+			}
+			return Collections.unmodifiableList(rowEntries);
+		}
+	}
+
+	private final class ConceptMap extends AbstractLong2ObjectMap<Concept> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Concept get(long conceptId) {
+			final int ordinal = ordinals.get(conceptId);
+			return ordinal != NO_ORDINAL ? new ColumnarConcept(ColumnarComponentStore.this, ordinal) : null;
+		}
+
+		@Override
+		public Concept get(Object key) {
+			return key == null ? null : get(((Long) key).longValue());
+		}
+
+		@Override
+		public boolean containsKey(long conceptId) {
+			return ordinals.get(conceptId) != NO_ORDINAL;
+		}
+
+		@Override
+		public int size() {
+			return conceptCount;
+		}
+
+		@Override
+		public ObjectSet<Long2ObjectMap.Entry<Concept>> long2ObjectEntrySet() {
+			return new AbstractObjectSet<Long2ObjectMap.Entry<Concept>>() {
+				@Override
+				public ObjectIterator<Long2ObjectMap.Entry<Concept>> iterator() {
+					return new AbstractObjectIterator<Long2ObjectMap.Entry<Concept>>() {
+						private int ordinal;
+
+						@Override
+						public boolean hasNext() {
+							return ordinal < conceptCount;
+						}
+
+						@Override
+						public Long2ObjectMap.Entry<Concept> next() {
+							final ColumnarConcept concept = new ColumnarConcept(ColumnarComponentStore.this, ordinal++);
+							return new BasicEntry<Concept>(concept.getId(), concept);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return conceptCount;
+				}
+			};
+		}
+	}
+}
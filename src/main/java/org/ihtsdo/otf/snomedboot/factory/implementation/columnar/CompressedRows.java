@@ -0,0 +1,95 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.columnar;
+
+import it.unimi.dsi.fastutil.ints.IntArrayList;
+
+/**
+ * An immutable compressed sparse row table; the values of row i are held in values[offsets[i]] to values[offsets[i + 1] - 1].
+ */
+final class CompressedRows {
+
+	private final int[] offsets;
+	private final int[] values;
+
+	private CompressedRows(int[] offsets, int[] values) {
+		this.offsets = offsets;
+		this.values = values;
+	}
+
+	/**
+	 * @param pairs Sorted pairs, each packed as row in the high and value in the low 32 bits.
+	 * @param transpose Use the low half of each pair as the row and the high half as the value.
+	 */
+	static CompressedRows fromPairs(int rows, long[] pairs, boolean transpose) {
+		final int[] offsets = new int[rows + 1];
+		for (long pair : pairs) {
+			offsets[row(pair, transpose) + 1]++;
+		}
+		for (int i = 0; i < rows; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		final int[] next = new int[rows];
+		final int[] values = new int[pairs.length];
+		for (long pair : pairs) {
+			final int row = row(pair, transpose);
+			values[offsets[row] + next[row]++] = transpose ? (int) (pair >>> 32) : (int) pair;
+		}
+		return new CompressedRows(offsets, values);
+	}
+
+	/**
+	 * @return Every value with its row, packed as row in the high and value in the low 32 bits,
+	 * sorted when the values of each row are.
+	 */
+	long[] toPairs() {
+		final long[] pairs = new long[values.length];
+		for (int row = 0; row < offsets.length - 1; row++) {
+			for (int i = offsets[row]; i < offsets[row + 1]; i++) {
+				pairs[i] = ((long) row << 32) | values[i];
+			}
+		}
+		return pairs;
+	}
+
+	/**
+	 * Groups entries by row, keeping the order in which the entries were added.
+	 * @param entryRows The row of each entry.
+	 * @return Rows holding entry indexes.
+	 */
+	static CompressedRows groupEntries(int rows, IntArrayList entryRows) {
+		final int entries = entryRows.size();
+		final int[] offsets = new int[rows + 1];
+		for (int i = 0; i < entries; i++) {
+			offsets[entryRows.getInt(i) + 1]++;
+		}
+		for (int i = 0; i < rows; i++) {
+			offsets[i + 1] += offsets[i];
+		}
+		final int[] next = new int[rows];
+		final int[] values = new int[entries];
+		for (int i = 0; i < entries; i++) {
+			final int row = entryRows.getInt(i);
+			values[offsets[row] + next[row]++] = i;
+		}
+		return new CompressedRows(offsets, values);
+	}
+
+	private static int row(long pair, boolean transpose) {
+		return transpose ? (int) pair : (int) (pair >>> 32);
+	}
+
+	int start(int row) {
+		return offsets[row];
+	}
+
+	int end(int row) {
+		return offsets[row + 1];
+	}
+
+	int value(int index) {
+		return values[index];
+	}
+
+	int size(int row) {
+		return offsets[row + 1] - offsets[row];
+	}
+}
@@ -0,0 +1,192 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+
+/**
+ * A relationship held as primitive values, 64 bytes with compressed references, where a RelationshipImpl holds ten
+ * Strings besides its own 56 bytes. The characteristic type and modifier are held as the ordinal of one of the known values.
+ * The String of each value is made when it is asked for, metadata identifiers are shared between relationships.
+ * <p>
+ * Use isCompact to check that a relationship state can be held, RelationshipImpl holds any other state.
+ */
+public final class CompactRelationshipImpl implements Relationship {
+
+	private enum CharacteristicType {
+		STATED(ConceptConstants.STATED_RELATIONSHIP),
+		INFERRED(ConceptConstants.INFERRED_RELATIONSHIP),
+		ADDITIONAL(ConceptConstants.ADDITIONAL_RELATIONSHIP),
+		QUALIFYING(ConceptConstants.QUALIFYING_RELATIONSHIP);
+
+		private final String id;
+		private final long longId;
+
+		CharacteristicType(String id) {
+			this.id = id;
+			this.longId = Long.parseLong(id);
+		}
+	}
+
+	private enum Modifier {
+		EXISTENTIAL(ConceptConstants.EXISTENTIAL_MODIFIER),
+		UNIVERSAL(ConceptConstants.UNIVERSAL_MODIFIER);
+
+		private final String id;
+		private final long longId;
+
+		Modifier(String id) {
+			this.id = id;
+			this.longId = Long.parseLong(id);
+		}
+	}
+
+	private static final CharacteristicType[] CHARACTERISTIC_TYPES = CharacteristicType.values();
+	private static final Modifier[] MODIFIERS = Modifier.values();
+	private static final IdentifierPool METADATA_IDS = new IdentifierPool();
+
+	private final long id;
+	private final long moduleId;
+	private final long sourceId;
+	private final long destinationId;
+	private final long typeId;
+	private final int effectiveTime;
+	private final short relationshipGroup;
+	private final boolean active;
+	private final byte characteristicType;
+	private final byte modifier;
+
+	public CompactRelationshipImpl(long id, int effectiveTime, boolean active, long moduleId, long sourceId, long destinationId,
+			int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+		if (!isCompact(relationshipGroup, characteristicTypeId, modifierId)) {
+			throw new IllegalArgumentException("Relationship " + id + " has a group, characteristic type or modifier which can not be held compactly.");
+		}
+		this.id = id;
+		this.effectiveTime = effectiveTime;
+		this.active = active;
+		this.moduleId = moduleId;
+		this.sourceId = sourceId;
+		this.destinationId = destinationId;
+		this.relationshipGroup = (short) relationshipGroup;
+		this.typeId = typeId;
+		this.characteristicType = (byte) characteristicTypeOrdinal(characteristicTypeId);
+		this.modifier = (byte) modifierOrdinal(modifierId);
+	}
+
+	/**
+	 * @return true if the group fits a short and the characteristic type and modifier are among the known values.
+	 */
+	public static boolean isCompact(int relationshipGroup, long characteristicTypeId, long modifierId) {
+		return relationshipGroup >= 0 && relationshipGroup <= Short.MAX_VALUE
+				&& characteristicTypeOrdinal(characteristicTypeId) != -1 && modifierOrdinal(modifierId) != -1;
+	}
+
+	private static int characteristicTypeOrdinal(long characteristicTypeId) {
+		for (CharacteristicType characteristicType : CHARACTERISTIC_TYPES) {
+			if (characteristicType.longId == characteristicTypeId) {
+				return characteristicType.ordinal();
+			}
+		}
+		return -1;
+	}
+
+	private static int modifierOrdinal(long modifierId) {
+		for (Modifier modifier : MODIFIERS) {
+			if (modifier.longId == modifierId) {
+				return modifier.ordinal();
+			}
+		}
+		return -1;
+	}
+
+	@Override
+	public String getId() {
+		return Long.toString(id);
+	}
+
+	@Override
+	public String getEffectiveTime() {
+		return effectiveTime != 0 ? METADATA_IDS.toString(effectiveTime) : FactoryUtils.formatEffectiveTime(effectiveTime);
+	}
+
+	@Override
+	public String getActive() {
+		return FactoryUtils.formatActive(active);
+	}
+
+	@Override
+	public String getModuleId() {
+		return METADATA_IDS.toString(moduleId);
+	}
+
+	@Override
+	public String getSourceId() {
+		return Long.toString(sourceId);
+	}
+
+	@Override
+	public String getDestinationId() {
+		return Long.toString(destinationId);
+	}
+
+	@Override
+	public String getRelationshipGroup() {
+		return METADATA_IDS.toString(relationshipGroup);
+	}
+
+	@Override
+	public String getTypeId() {
+		return METADATA_IDS.toString(typeId);
+	}
+
+	@Override
+	public String getCharacteristicTypeId() {
+		return CHARACTERISTIC_TYPES[characteristicType].id;
+	}
+
+	@Override
+	public String getModifierId() {
+		return MODIFIERS[modifier].id;
+	}
+
+	public long getIdAsLong() {
+		return id;
+	}
+
+	public int getEffectiveTimeAsInt() {
+		return effectiveTime;
+	}
+
+	public boolean isActive() {
+		return active;
+	}
+
+	public long getModuleIdAsLong() {
+		return moduleId;
+	}
+
+	public long getSourceIdAsLong() {
+		return sourceId;
+	}
+
+	public long getDestinationIdAsLong() {
+		return destinationId;
+	}
+
+	public int getRelationshipGroupAsInt() {
+		return relationshipGroup;
+	}
+
+	public long getTypeIdAsLong() {
+		return typeId;
+	}
+
+	public long getCharacteristicTypeIdAsLong() {
+		return CHARACTERISTIC_TYPES[characteristicType].longId;
+	}
+
+	public long getModifierIdAsLong() {
+		return MODIFIERS[modifier].longId;
+	}
+}
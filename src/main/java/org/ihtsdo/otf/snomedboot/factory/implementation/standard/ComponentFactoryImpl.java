@@ -1,15 +1,37 @@
 package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
 
 import org.ihtsdo.otf.snomedboot.ComponentStore;
-import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
 import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+import org.ihtsdo.otf.snomedboot.factory.IsAComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.PrimitiveComponentFactory;
 
-public class ComponentFactoryImpl implements ComponentFactory {
+/**
+ * Loads components into a ComponentStore. The ReleaseImporter makes the primitive callbacks and is-a edge events,
+ * which look each concept up once without parsing its id. The String callbacks remain for other callers and hold
+ * their values as given.
+ * Relationships from the primitive callbacks are held as CompactRelationshipImpl where their state allows.
+ * Given a TermStore, description terms are held there rather than on the heap.
+ * Each state is added as a new component, use {@link DeltaComponentFactoryImpl} to apply a delta to a loaded store.
+ */
+public class ComponentFactoryImpl implements PrimitiveComponentFactory, IsAComponentFactory {
 
 	private final ComponentStore componentStore;
+	private final TermStore termStore;
+	private final IdentifierPool identifierPool = new IdentifierPool();
 
 	public ComponentFactoryImpl(ComponentStore componentStore) {
+		this(componentStore, null);
+	}
+
+	/**
+	 * @param termStore Where the terms of descriptions are held, off the heap, or null to hold them as Strings.
+	 */
+	public ComponentFactoryImpl(ComponentStore componentStore, TermStore termStore) {
 		this.componentStore = componentStore;
+		this.termStore = termStore;
 	}
 
 	@Override
@@ -19,7 +41,7 @@ public class ComponentFactoryImpl implements ComponentFactory {
 
 	@Override
 	public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode, String typeId, String term, String caseSignificanceId) {
-		getConceptForReference(conceptId).addDescription(new DescriptionImpl(id, FactoryUtils.parseActive(active), term, conceptId));
+		getConceptForReference(conceptId).addDescription(newDescription(Long.parseLong(id), FactoryUtils.parseActive(active), term, Long.parseLong(conceptId)));
 	}
 
 	@Override
@@ -94,6 +116,120 @@ public class ComponentFactoryImpl implements ComponentFactory {
 		getConceptForReference(conceptId).addMemberOfRefsetId(Long.parseLong(refsetId));
 	}
 
+	@Override
+	public void newConceptState(long conceptId, int effectiveTime, boolean active, long moduleId, long definitionStatusId) {
+		componentStore.addConcept(new ConceptImpl(conceptId, formatEffectiveTime(effectiveTime), active, formatMetadataId(moduleId), formatMetadataId(definitionStatusId)));
+	}
+
+	@Override
+	public void newDescriptionState(long id, int effectiveTime, boolean active, long moduleId, long conceptId, String languageCode, long typeId, String term, long caseSignificanceId) {
+		getConceptForReference(conceptId).addDescription(newDescription(id, active, term, conceptId));
+	}
+
+	@Override
+	public void newRelationshipState(long id, int effectiveTime, boolean active, long moduleId, long sourceId,
+									 long destinationId, int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+		getConceptForReference(sourceId).addRelationship(newRelationship(id, effectiveTime, active, moduleId, sourceId, destinationId,
+				relationshipGroup, typeId, characteristicTypeId, modifierId));
+	}
+
+	@Override
+	public void newReferenceSetMemberState(String[] fieldNames, String id, int effectiveTime, boolean active, long moduleId, long refsetId, long referencedComponentId, String... otherValues) {
+
+	}
+
+	@Override
+	public void addConceptFSN(long conceptId, String term) {
+		getConceptForReference(conceptId).setFsn(term);
+	}
+
+	@Override
+	public void addInferredConceptParent(long sourceId, long parentId) {
+		getConceptForReference(sourceId).addInferredParent(getConceptForReference(parentId));
+	}
+
+	@Override
+	public void addStatedConceptParent(long sourceId, long parentId) {
+		getConceptForReference(sourceId).addStatedParent(getConceptForReference(parentId));
+	}
+
+	@Override
+	public void removeInferredConceptParent(long sourceId, long parentId) {
+		getConceptForReference(sourceId).removeInferredParent(getConceptForReference(parentId));
+	}
+
+	@Override
+	public void removeStatedConceptParent(long sourceId, long parentId) {
+		getConceptForReference(sourceId).removeStatedParent(getConceptForReference(parentId));
+	}
+
+	@Override
+	public void addInferredConceptChild(long sourceId, long destinationId) {
+		getConceptForReference(destinationId).addInferredChild(getConceptForReference(sourceId));
+	}
+
+	@Override
+	public void addStatedConceptChild(long sourceId, long destinationId) {
+		getConceptForReference(destinationId).addStatedChild(getConceptForReference(sourceId));
+	}
+
+	@Override
+	public void removeInferredConceptChild(long sourceId, long destinationId) {
+		getConceptForReference(destinationId).removeInferredChild(getConceptForReference(sourceId));
+	}
+
+	@Override
+	public void removeStatedConceptChild(long sourceId, long destinationId) {
+		getConceptForReference(destinationId).removeStatedChild(getConceptForReference(sourceId));
+	}
+
+	@Override
+	public void addInferredIsA(long sourceId, long destinationId) {
+		final ConceptImpl source = getConceptForReference(sourceId);
+		final ConceptImpl destination = getConceptForReference(destinationId);
+		source.addInferredParent(destination);
+		destination.addInferredChild(source);
+	}
+
+	@Override
+	public void addStatedIsA(long sourceId, long destinationId) {
+		final ConceptImpl source = getConceptForReference(sourceId);
+		final ConceptImpl destination = getConceptForReference(destinationId);
+		source.addStatedParent(destination);
+		destination.addStatedChild(source);
+	}
+
+	@Override
+	public void removeInferredIsA(long sourceId, long destinationId) {
+		final ConceptImpl source = getConceptForReference(sourceId);
+		final ConceptImpl destination = getConceptForReference(destinationId);
+		source.removeInferredParent(destination);
+		destination.removeInferredChild(source);
+	}
+
+	@Override
+	public void removeStatedIsA(long sourceId, long destinationId) {
+		final ConceptImpl source = getConceptForReference(sourceId);
+		final ConceptImpl destination = getConceptForReference(destinationId);
+		source.removeStatedParent(destination);
+		destination.removeStatedChild(source);
+	}
+
+	@Override
+	public void addInferredConceptAttribute(long sourceId, long typeId, long valueId) {
+		getConceptForReference(sourceId).addInferredAttribute(formatMetadataId(typeId), Long.toString(valueId));
+	}
+
+	@Override
+	public void addStatedConceptAttribute(long sourceId, long typeId, long valueId) {
+		getConceptForReference(sourceId).addStatedAttribute(formatMetadataId(typeId), Long.toString(valueId));
+	}
+
+	@Override
+	public void addConceptReferencedInRefsetId(long refsetId, long conceptId) {
+		getConceptForReference(conceptId).addMemberOfRefsetId(refsetId);
+	}
+
 	@Override
 	public void loadingComponentsStarting() {
 
@@ -104,14 +240,41 @@ public class ComponentFactoryImpl implements ComponentFactory {
 
 	}
 
-	private ConceptImpl getConceptForReference(String id) {
-		ConceptImpl concept = componentStore.getConcepts().get(Long.parseLong(id));
-		if (concept == null) {
-			// Could throw exception here depending on implementation
-			concept = new ConceptImpl(id);
-			componentStore.addConcept(concept);
+	protected Description newDescription(long id, boolean active, String term, long conceptId) {
+		return termStore != null ? new StoredTermDescriptionImpl(id, active, term, conceptId, termStore) : new DescriptionImpl(id, active, term, conceptId);
+	}
+
+	/**
+	 * @return A CompactRelationshipImpl, or a RelationshipImpl if the state can not be held compactly.
+	 */
+	protected Relationship newRelationship(long id, int effectiveTime, boolean active, long moduleId, long sourceId,
+			long destinationId, int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+		if (CompactRelationshipImpl.isCompact(relationshipGroup, characteristicTypeId, modifierId)) {
+			return new CompactRelationshipImpl(id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId,
+					characteristicTypeId, modifierId);
 		}
-		return concept;
+		return new RelationshipImpl(Long.toString(id), formatEffectiveTime(effectiveTime), FactoryUtils.formatActive(active), formatMetadataId(moduleId),
+				Long.toString(sourceId), Long.toString(destinationId), identifierPool.toString(relationshipGroup), formatMetadataId(typeId),
+				formatMetadataId(characteristicTypeId), formatMetadataId(modifierId));
+	}
+
+	/**
+	 * @return The String of a module, type or other metadata identifier, shared by every component with the same value.
+	 */
+	protected String formatMetadataId(long id) {
+		return identifierPool.toString(id);
+	}
+
+	protected String formatEffectiveTime(int effectiveTime) {
+		return effectiveTime != 0 ? identifierPool.toString(effectiveTime) : FactoryUtils.formatEffectiveTime(effectiveTime);
+	}
+
+	private ConceptImpl getConceptForReference(String id) {
+		return getConceptForReference(Long.parseLong(id));
+	}
 
+	protected ConceptImpl getConceptForReference(long id) {
+		// Could throw exception here if the concept is missing, depending on implementation
+		return componentStore.getOrAddConcept(id);
 	}
 }
@@ -0,0 +1,634 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.ReleaseImportException;
+import org.ihtsdo.otf.snomedboot.ReleaseImporter;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.MultiValueMap;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.ihtsdo.otf.snomedboot.factory.implementation.standard.ImageFile.*;
+
+/**
+ * Writes a loaded ComponentStore to a binary image file and reads it back, so that a process can start from the image
+ * rather than importing the release again. The image holds the state of each concept, the inferred and stated
+ * hierarchy, reference set memberships, attribute maps and any relationship and description objects.
+ * Transitive closures are not held, build them again once the store is read.
+ * <p>
+ * An image records the release and loading profile it was written for, it is only read for the same release and profile.
+ * The release is identified by the names, sizes, modification times and first and last blocks of its RF2 files,
+ * see releaseFingerprint.
+ * Sections of the image are memory mapped while it is read.
+ */
+public final class ComponentStoreImage {
+
+	private static final Logger logger = LoggerFactory.getLogger(ComponentStoreImage.class);
+	private static final int WRITE_BUFFER_SIZE = 1024 * 1024;
+	// The bytes at each end of an RF2 file included in the release fingerprint
+	private static final int FINGERPRINT_BLOCK_SIZE = 64 * 1024;
+
+	private ComponentStoreImage() {
+	}
+
+	/**
+	 * Reads the image if it was written for this release and loading profile, otherwise loads the Snapshot of the
+	 * release into a new store and writes the image for the next start. An image which can not be read or written is
+	 * logged and otherwise ignored.
+	 */
+	public static ComponentStore loadSnapshotReleaseFiles(ReleaseImporter releaseImporter, String releasePath, LoadingProfile loadingProfile,
+			Path imageFile) throws ReleaseImportException {
+		final String releaseFingerprint;
+		try {
+			releaseFingerprint = releaseFingerprint(releasePath);
+		} catch (IOException e) {
+			throw new ReleaseImportException("Failed to read the release files.", e);
+		}
+		if (Files.isRegularFile(imageFile)) {
+			try {
+				final ImageFile image = ImageFile.open(imageFile);
+				if (matches(image, releaseFingerprint, loadingProfile)) {
+					logger.info("Reading component store image {}", imageFile);
+					return read(image);
+				}
+				logger.info("Component store image {} was written for another release or loading profile.", imageFile);
+			} catch (IOException e) {
+				logger.warn("Failed to read component store image {}.", imageFile, e);
+			}
+		}
+		final ComponentStore componentStore = new ComponentStore();
+		releaseImporter.loadSnapshotReleaseFiles(releasePath, loadingProfile, new ComponentFactoryImpl(componentStore));
+		try {
+			writeImage(componentStore, imageFile, releaseFingerprint, loadingProfile);
+		} catch (IOException e) {
+			logger.warn("Failed to write component store image {}.", imageFile, e);
+		}
+		return componentStore;
+	}
+
+	/**
+	 * Writes the store, which must have finished loading, to the image file.
+	 * The file is replaced in one step so that a concurrent reader never sees part of an image.
+	 * @param releasePath The release the store was loaded from.
+	 * @param loadingProfile The profile the store was loaded with.
+	 */
+	public static void write(ComponentStore componentStore, Path imageFile, String releasePath, LoadingProfile loadingProfile) throws IOException {
+		writeImage(componentStore, imageFile, releaseFingerprint(releasePath), loadingProfile);
+	}
+
+	/**
+	 * @return true if the image was written for this release and loading profile.
+	 * @throws IOException if the image can not be read.
+	 */
+	public static boolean matches(Path imageFile, String releasePath, LoadingProfile loadingProfile) throws IOException {
+		return matches(ImageFile.open(imageFile), releaseFingerprint(releasePath), loadingProfile);
+	}
+
+	/**
+	 * @return A new store holding the content of the image.
+	 * @throws IOException if the image can not be read or was written for another release or loading profile.
+	 */
+	public static ComponentStore read(Path imageFile, String releasePath, LoadingProfile loadingProfile) throws IOException {
+		return read(open(imageFile, releasePath, loadingProfile));
+	}
+
+	/**
+	 * @throws IOException if the image can not be read or was written for another release or loading profile.
+	 */
+	static ImageFile open(Path imageFile, String releasePath, LoadingProfile loadingProfile) throws IOException {
+		final ImageFile image = ImageFile.open(imageFile);
+		if (!image.getReleaseFingerprint().equals(releaseFingerprint(releasePath))) {
+			throw new IOException("Component store image " + imageFile + " was written for another release: " + image.getReleaseFingerprint());
+		}
+		if (!image.getLoadingProfile().equals(loadingProfile.toString())) {
+			throw new IOException("Component store image " + imageFile + " was written for another loading profile: " + image.getLoadingProfile());
+		}
+		return image;
+	}
+
+	/**
+	 * @param releasePath A directory containing an extracted release, or a release zip file.
+	 * @return The name of the release followed by a digest of the relative path, size, modification time and first and
+	 * last blocks of each RF2 file it holds, or of the zip file. Other files in a release directory, such as an image,
+	 * are not included. Rewriting a file in place with the same size changes its modification time, so the whole file
+	 * is not read.
+	 */
+	public static String releaseFingerprint(String releasePath) throws IOException {
+		final Path releaseDir = Paths.get(releasePath).toAbsolutePath().normalize();
+		final Map<String, Path> files = new TreeMap<>();
+		if (Files.isRegularFile(releaseDir)) {
+			files.put(releaseDir.getFileName().toString(), releaseDir);
+		} else {
+			Files.walkFileTree(releaseDir, new SimpleFileVisitor<Path>() {
+				@Override
+				public FileVisitResult visitFile(Path file, BasicFileAttributes attributes) throws IOException {
+					if (file.getFileName().toString().endsWith(".txt")) {
+						files.put(releaseDir.relativize(file).toString().replace('\\', '/'), file);
+					}
+					return FileVisitResult.CONTINUE;
+				}
+			});
+		}
+		try {
+			final MessageDigest digest = MessageDigest.getInstance("SHA-1");
+			for (Map.Entry<String, Path> file : files.entrySet()) {
+				final BasicFileAttributes attributes = Files.readAttributes(file.getValue(), BasicFileAttributes.class);
+				digest.update((file.getKey() + "\t" + attributes.size() + "\t" + attributes.lastModifiedTime().toMillis() + "\n").getBytes(UTF_8));
+				digestEnds(digest, file.getValue(), attributes.size());
+			}
+			final StringBuilder fingerprint = new StringBuilder(releaseDir.getFileName().toString()).append(' ');
+			for (byte b : digest.digest()) {
+				fingerprint.append(String.format("%02x", b));
+			}
+			return fingerprint.toString();
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void digestEnds(MessageDigest digest, Path file, long size) throws IOException {
+		final ByteBuffer buffer = ByteBuffer.allocate(FINGERPRINT_BLOCK_SIZE);
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			digestBlock(digest, channel, 0, buffer);
+			if (size > FINGERPRINT_BLOCK_SIZE) {
+				digestBlock(digest, channel, Math.max(FINGERPRINT_BLOCK_SIZE, size - FINGERPRINT_BLOCK_SIZE), buffer);
+			}
+		}
+	}
+
+	private static void digestBlock(MessageDigest digest, FileChannel channel, long position, ByteBuffer buffer) throws IOException {
+		buffer.clear();
+		int read = 0;
+		while (buffer.hasRemaining() && read != -1) {
+			read = channel.read(buffer, position + buffer.position());
+		}
+		buffer.flip();
+		digest.update(buffer);
+	}
+
+	private static boolean matches(ImageFile image, String releaseFingerprint, LoadingProfile loadingProfile) {
+		return image.getReleaseFingerprint().equals(releaseFingerprint) && image.getLoadingProfile().equals(loadingProfile.toString());
+	}
+
+	private static void writeImage(ComponentStore componentStore, Path imageFile, String releaseFingerprint, LoadingProfile loadingProfile) throws IOException {
+		final Path directory = imageFile.toAbsolutePath().getParent();
+		Files.createDirectories(directory);
+		final Path tempFile = Files.createTempFile(directory, imageFile.getFileName().toString(), ".tmp");
+		try {
+			try (ImageWriter writer = new ImageWriter(tempFile, componentStore)) {
+				writer.write(releaseFingerprint, loadingProfile.toString());
+			}
+			Files.move(tempFile, imageFile, StandardCopyOption.REPLACE_EXISTING);
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+		logger.info("Component store image written to {}", imageFile);
+	}
+
+	private static ComponentStore read(ImageFile image) {
+		return new ImageReader(image).read();
+	}
+
+	private static final class ImageWriter implements Closeable {
+
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocate(WRITE_BUFFER_SIZE);
+		private final long[] sectionOffsets = new long[SECTION_COUNT];
+		private final long[] sectionLengths = new long[SECTION_COUNT];
+		private long position;
+
+		private final long[] ids;
+		private final ConceptImpl[] concepts;
+		private final Object2IntOpenHashMap<String> stringIndexes = new Object2IntOpenHashMap<>();
+		private final List<String> strings = new ArrayList<>();
+
+		ImageWriter(Path file, ComponentStore componentStore) throws IOException {
+			channel = FileChannel.open(file, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+			final List<ConceptImpl> conceptList = new ArrayList<>(componentStore.getConcepts().values());
+			ids = new long[conceptList.size()];
+			for (int i = 0; i < ids.length; i++) {
+				ids[i] = conceptList.get(i).id();
+			}
+			Arrays.sort(ids);
+			concepts = new ConceptImpl[ids.length];
+			for (ConceptImpl concept : conceptList) {
+				concepts[Arrays.binarySearch(ids, concept.id())] = concept;
+			}
+			stringIndexes.defaultReturnValue(-1);
+		}
+
+		void write(String releaseFingerprint, String loadingProfile) throws IOException {
+			putLong(MAGIC);
+			putInt(VERSION);
+			putInt(SECTION_COUNT);
+			putString(releaseFingerprint);
+			putString(loadingProfile);
+			pad();
+			final long sectionTableOffset = position;
+			for (int i = 0; i < SECTION_COUNT * 2; i++) {
+				putLong(0);
+			}
+
+			startSection(CONCEPT_IDS);
+			for (long id : ids) {
+				putLong(id);
+			}
+			endSection(CONCEPT_IDS);
+
+			startSection(CONCEPT_STATES);
+			for (ConceptImpl concept : concepts) {
+				putLong(value(concept.getEffectiveTime()));
+				putLong(concept.isActive() ? 1 : 0);
+				putLong(value(concept.getModuleId()));
+				putLong(value(concept.getDefinitionStatusId()));
+				putLong(value(concept.getFsn()));
+			}
+			endSection(CONCEPT_STATES);
+
+			writeEdges(INFERRED_PARENT_OFFSETS, INFERRED_PARENTS, true, true);
+			writeEdges(STATED_PARENT_OFFSETS, STATED_PARENTS, true, false);
+			writeEdges(INFERRED_CHILD_OFFSETS, INFERRED_CHILDREN, false, true);
+			writeEdges(STATED_CHILD_OFFSETS, STATED_CHILDREN, false, false);
+
+			startSection(REFSET_OFFSETS);
+			int offset = 0;
+			putInt(offset);
+			for (ConceptImpl concept : concepts) {
+				offset += concept.getMemberOfRefsetIds().size();
+				putInt(offset);
+			}
+			endSection(REFSET_OFFSETS);
+			startSection(REFSET_IDS);
+			for (ConceptImpl concept : concepts) {
+				for (Long refsetId : concept.getMemberOfRefsetIds()) {
+					putLong(refsetId);
+				}
+			}
+			endSection(REFSET_IDS);
+
+			writeAttributes(INFERRED_ATTRIBUTE_OFFSETS, INFERRED_ATTRIBUTES, true);
+			writeAttributes(STATED_ATTRIBUTE_OFFSETS, STATED_ATTRIBUTES, false);
+
+			startSection(RELATIONSHIP_OFFSETS);
+			offset = 0;
+			putInt(offset);
+			for (ConceptImpl concept : concepts) {
+				offset += concept.getRelationships().size();
+				putInt(offset);
+			}
+			endSection(RELATIONSHIP_OFFSETS);
+			startSection(RELATIONSHIPS);
+			for (ConceptImpl concept : concepts) {
+				for (Relationship relationship : concept.getRelationships()) {
+					putRelationship(relationship);
+				}
+			}
+			endSection(RELATIONSHIPS);
+
+			startSection(DESCRIPTION_OFFSETS);
+			offset = 0;
+			putInt(offset);
+			for (ConceptImpl concept : concepts) {
+				offset += concept.getDescriptions().size();
+				putInt(offset);
+			}
+			endSection(DESCRIPTION_OFFSETS);
+			startSection(DESCRIPTIONS);
+			for (ConceptImpl concept : concepts) {
+				for (Description description : concept.getDescriptions()) {
+					putLong(description.getId() != null ? description.getId() : NULL_VALUE);
+					putLong(description.isActive() ? 1 : 0);
+					putLong(value(description.getTerm()));
+					putLong(description.getConceptId() != null ? description.getConceptId() : NULL_VALUE);
+				}
+			}
+			endSection(DESCRIPTIONS);
+
+			// The string table is complete once every other section is written
+			startSection(STRING_OFFSETS);
+			long stringOffset = 0;
+			putInt(0);
+			for (String string : strings) {
+				stringOffset += string.getBytes(UTF_8).length;
+				if (stringOffset > Integer.MAX_VALUE) {
+					throw new IOException("The strings of the component store are too large for an image.");
+				}
+				putInt((int) stringOffset);
+			}
+			endSection(STRING_OFFSETS);
+			startSection(STRING_BYTES);
+			for (String string : strings) {
+				for (byte b : string.getBytes(UTF_8)) {
+					putByte(b);
+				}
+			}
+			endSection(STRING_BYTES);
+			flush();
+
+			final ByteBuffer sectionTable = ByteBuffer.allocate(SECTION_COUNT * 16);
+			for (int i = 0; i < SECTION_COUNT; i++) {
+				sectionTable.putLong(sectionOffsets[i]).putLong(sectionLengths[i]);
+			}
+			sectionTable.flip();
+			long tablePosition = sectionTableOffset;
+			while (sectionTable.hasRemaining()) {
+				tablePosition += channel.write(sectionTable, tablePosition);
+			}
+			channel.force(false);
+		}
+
+		private void writeEdges(int offsetsSection, int edgesSection, boolean parents, boolean inferred) throws IOException {
+			startSection(offsetsSection);
+			int offset = 0;
+			putInt(offset);
+			for (ConceptImpl concept : concepts) {
+				final SortedConceptArraySet edges = parents ? concept.parents(inferred) : concept.children(inferred);
+				offset += edges != null ? edges.size() : 0;
+				putInt(offset);
+			}
+			endSection(offsetsSection);
+			startSection(edgesSection);
+			for (ConceptImpl concept : concepts) {
+				final SortedConceptArraySet edges = parents ? concept.parents(inferred) : concept.children(inferred);
+				for (int i = 0; edges != null && i < edges.size(); i++) {
+					putInt(ordinal(edges.get(i).id()));
+				}
+			}
+			endSection(edgesSection);
+		}
+
+		private void writeAttributes(int offsetsSection, int attributesSection, boolean inferred) throws IOException {
+			startSection(offsetsSection);
+			int offset = 0;
+			putInt(offset);
+			for (ConceptImpl concept : concepts) {
+				for (List<String> values : attributes(concept, inferred).values()) {
+					offset += values.size();
+				}
+				putInt(offset);
+			}
+			endSection(offsetsSection);
+			startSection(attributesSection);
+			for (ConceptImpl concept : concepts) {
+				for (Map.Entry<String, List<String>> attribute : attributes(concept, inferred).entrySet()) {
+					final long type = value(attribute.getKey());
+					for (String value : attribute.getValue()) {
+						putLong(type);
+						putLong(value(value));
+					}
+				}
+			}
+			endSection(attributesSection);
+		}
+
+		private MultiValueMap<String, String> attributes(ConceptImpl concept, boolean inferred) {
+			return concept.getAttributesIfAny(inferred);
+		}
+
+		private void putRelationship(Relationship relationship) throws IOException {
+			if (relationship instanceof CompactRelationshipImpl) {
+				final CompactRelationshipImpl compact = (CompactRelationshipImpl) relationship;
+				putLong(compact.getIdAsLong());
+				putLong(compact.getEffectiveTimeAsInt() != 0 ? compact.getEffectiveTimeAsInt() : value(compact.getEffectiveTime()));
+				putLong(compact.isActive() ? 1 : 0);
+				putLong(compact.getModuleIdAsLong());
+				putLong(compact.getSourceIdAsLong());
+				putLong(compact.getDestinationIdAsLong());
+				putLong(compact.getRelationshipGroupAsInt());
+				putLong(compact.getTypeIdAsLong());
+				putLong(compact.getCharacteristicTypeIdAsLong());
+				putLong(compact.getModifierIdAsLong());
+			} else {
+				putLong(value(relationship.getId()));
+				putLong(value(relationship.getEffectiveTime()));
+				putLong(value(relationship.getActive()));
+				putLong(value(relationship.getModuleId()));
+				putLong(value(relationship.getSourceId()));
+				putLong(value(relationship.getDestinationId()));
+				putLong(value(relationship.getRelationshipGroup()));
+				putLong(value(relationship.getTypeId()));
+				putLong(value(relationship.getCharacteristicTypeId()));
+				putLong(value(relationship.getModifierId()));
+			}
+		}
+
+		private int ordinal(long id) throws IOException {
+			final int ordinal = Arrays.binarySearch(ids, id);
+			if (ordinal < 0) {
+				throw new IOException("Concept " + id + " is in the hierarchy but not in the component store.");
+			}
+			return ordinal;
+		}
+
+		private long value(String string) {
+			if (string == null) {
+				return NULL_VALUE;
+			}
+			if (IdentifierPool.isDecimal(string)) {
+				return Long.parseLong(string);
+			}
+			int index = stringIndexes.getInt(string);
+			if (index == -1) {
+				index = strings.size();
+				strings.add(string);
+				stringIndexes.put(string, index);
+			}
+			return -(index + 1L);
+		}
+
+		private void startSection(int section) throws IOException {
+			pad();
+			sectionOffsets[section] = position;
+		}
+
+		private void endSection(int section) throws IOException {
+			sectionLengths[section] = position - sectionOffsets[section];
+			if (sectionLengths[section] > Integer.MAX_VALUE) {
+				throw new IOException("Section " + section + " of the image is too large to map.");
+			}
+		}
+
+		private void putString(String string) throws IOException {
+			final byte[] bytes = string.getBytes(UTF_8);
+			putInt(bytes.length);
+			for (byte b : bytes) {
+				putByte(b);
+			}
+		}
+
+		private void pad() throws IOException {
+			for (int i = padding(position); i > 0; i--) {
+				putByte((byte) 0);
+			}
+		}
+
+		private void putLong(long value) throws IOException {
+			ensureRemaining(8);
+			buffer.putLong(value);
+			position += 8;
+		}
+
+		private void putInt(int value) throws IOException {
+			ensureRemaining(4);
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		private void putByte(byte value) throws IOException {
+			ensureRemaining(1);
+			buffer.put(value);
+			position++;
+		}
+
+		private void ensureRemaining(int length) throws IOException {
+			if (buffer.remaining() < length) {
+				flush();
+			}
+		}
+
+		private void flush() throws IOException {
+			buffer.flip();
+			while (buffer.hasRemaining()) {
+				channel.write(buffer);
+			}
+			buffer.clear();
+		}
+
+		@Override
+		public void close() throws IOException {
+			channel.close();
+		}
+	}
+
+	private static final class ImageReader {
+
+		private final ImageFile image;
+		private final ValueDecoder values;
+		private ConceptImpl[] concepts;
+
+		ImageReader(ImageFile image) {
+			this.image = image;
+			this.values = new ValueDecoder(image, true);
+		}
+
+		ComponentStore read() {
+			final ComponentStore componentStore = new ComponentStore();
+			final ByteBuffer ids = image.section(CONCEPT_IDS);
+			final ByteBuffer states = image.section(CONCEPT_STATES);
+			concepts = new ConceptImpl[image.getConceptCount()];
+			for (int i = 0; i < concepts.length; i++) {
+				final long state = (long) i * CONCEPT_STATE_FIELDS;
+				final ConceptImpl concept = new ConceptImpl(longAt(ids, i), values.metadata(longAt(states, state)), longAt(states, state + 1) == 1,
+						values.metadata(longAt(states, state + 2)), values.metadata(longAt(states, state + 3)));
+				concept.setFsn(values.text(longAt(states, state + 4)));
+				concepts[i] = concept;
+				componentStore.addConcept(concept);
+			}
+
+			readEdges(INFERRED_PARENT_OFFSETS, INFERRED_PARENTS, true, true);
+			readEdges(STATED_PARENT_OFFSETS, STATED_PARENTS, true, false);
+			readEdges(INFERRED_CHILD_OFFSETS, INFERRED_CHILDREN, false, true);
+			readEdges(STATED_CHILD_OFFSETS, STATED_CHILDREN, false, false);
+
+			ByteBuffer offsets = image.section(REFSET_OFFSETS);
+			final ByteBuffer refsetIds = image.section(REFSET_IDS);
+			for (int i = 0; i < concepts.length; i++) {
+				for (int entry = intAt(offsets, i); entry < intAt(offsets, i + 1); entry++) {
+					concepts[i].addMemberOfRefsetId(longAt(refsetIds, entry));
+				}
+			}
+
+			readAttributes(INFERRED_ATTRIBUTE_OFFSETS, INFERRED_ATTRIBUTES, true);
+			readAttributes(STATED_ATTRIBUTE_OFFSETS, STATED_ATTRIBUTES, false);
+
+			offsets = image.section(RELATIONSHIP_OFFSETS);
+			final ByteBuffer relationships = image.section(RELATIONSHIPS);
+			final long[] fields = new long[RELATIONSHIP_FIELDS];
+			for (int i = 0; i < concepts.length; i++) {
+				for (int entry = intAt(offsets, i); entry < intAt(offsets, i + 1); entry++) {
+					for (int field = 0; field < RELATIONSHIP_FIELDS; field++) {
+						fields[field] = longAt(relationships, (long) entry * RELATIONSHIP_FIELDS + field);
+					}
+					concepts[i].addRelationship(values.relationship(fields));
+				}
+			}
+
+			offsets = image.section(DESCRIPTION_OFFSETS);
+			final ByteBuffer descriptions = image.section(DESCRIPTIONS);
+			for (int i = 0; i < concepts.length; i++) {
+				for (int entry = intAt(offsets, i); entry < intAt(offsets, i + 1); entry++) {
+					final long description = (long) entry * DESCRIPTION_FIELDS;
+					final long id = longAt(descriptions, description);
+					final boolean active = longAt(descriptions, description + 1) == 1;
+					final String term = values.text(longAt(descriptions, description + 2));
+					final long conceptId = longAt(descriptions, description + 3);
+					concepts[i].addDescription(id != NULL_VALUE ? new DescriptionImpl(id, active, term, conceptId)
+							: new DescriptionImpl(term, active, conceptId != NULL_VALUE ? conceptId : null));
+				}
+			}
+			return componentStore;
+		}
+
+		private void readEdges(int offsetsSection, int edgesSection, boolean parents, boolean inferred) {
+			final ByteBuffer offsets = image.section(offsetsSection);
+			final ByteBuffer edges = image.section(edgesSection);
+			for (int i = 0; i < concepts.length; i++) {
+				final ConceptImpl concept = concepts[i];
+				for (int entry = intAt(offsets, i); entry < intAt(offsets, i + 1); entry++) {
+					final ConceptImpl other = concepts[intAt(edges, entry)];
+					if (parents) {
+						if (inferred) {
+							concept.addInferredParent(other);
+						} else {
+							concept.addStatedParent(other);
+						}
+					} else if (inferred) {
+						concept.addInferredChild(other);
+					} else {
+						concept.addStatedChild(other);
+					}
+				}
+			}
+		}
+
+		private void readAttributes(int offsetsSection, int attributesSection, boolean inferred) {
+			final ByteBuffer offsets = image.section(offsetsSection);
+			final ByteBuffer attributes = image.section(attributesSection);
+			for (int i = 0; i < concepts.length; i++) {
+				for (int entry = intAt(offsets, i); entry < intAt(offsets, i + 1); entry++) {
+					final String type = values.metadata(longAt(attributes, 2L * entry));
+					final String value = values.text(longAt(attributes, 2L * entry + 1));
+					if (inferred) {
+						concepts[i].addInferredAttribute(type, value);
+					} else {
+						concepts[i].addStatedAttribute(type, value);
+					}
+				}
+			}
+		}
+	}
+}
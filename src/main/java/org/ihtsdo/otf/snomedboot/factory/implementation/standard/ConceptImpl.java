@@ -1,45 +1,55 @@
 package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
 
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
 import org.ihtsdo.otf.snomedboot.domain.Concept;
 import org.ihtsdo.otf.snomedboot.domain.Description;
 import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.springframework.util.CollectionUtils;
 import org.springframework.util.LinkedMultiValueMap;
 import org.springframework.util.MultiValueMap;
 
 import java.util.*;
 
+/**
+ * Mutators are synchronized, components of one concept may be loaded from several threads.
+ * Collections are created when first added to, until then the getters return empty read only collections,
+ * except the attribute maps which are created when first asked for.
+ */
 public class ConceptImpl implements Concept {
 
-	private final Long id;
+	private static final MultiValueMap<String, String> NO_ATTRIBUTES = CollectionUtils.unmodifiableMultiValueMap(new LinkedMultiValueMap<String, String>());
+
+	private final long id;
 	private String effectiveTime;
 	private boolean active;
 	private String moduleId;
 	private String definitionStatusId;
 	private String fsn;
-	private final MultiValueMap<String, String> inferredAttributes;
-	private final MultiValueMap<String, String> statedAttributes;
-	private final Set<Concept> inferredParents;
-	private final Set<Concept> statedParents;
-	private final Set<Concept> inferredChildren;
-	private final Set<Concept> statedChildren;
-	private final Set<Long> memberOfRefsetIds;
-	private final List<Relationship> relationships;
-	private final List<Description> descriptions;
+	private MultiValueMap<String, String> inferredAttributes;
+	private MultiValueMap<String, String> statedAttributes;
+	private SortedConceptArraySet inferredParents;
+	private SortedConceptArraySet statedParents;
+	private SortedConceptArraySet inferredChildren;
+	private SortedConceptArraySet statedChildren;
+	private SortedLongArraySet memberOfRefsetIds;
+	private List<Relationship> relationships;
+	private List<Description> descriptions;
+	private HierarchyCache hierarchyCache;
 
 	public ConceptImpl(String id) {
-		this.id = Long.parseLong(id);
-		inferredAttributes = new LinkedMultiValueMap<>();
-		statedAttributes = new LinkedMultiValueMap<>();
-		inferredParents = new HashSet<>();
-		statedParents = new HashSet<>();
-		inferredChildren = new HashSet<>();
-		statedChildren = new HashSet<>();
-		memberOfRefsetIds = new HashSet<>();
-		relationships = new ArrayList<>();
-		descriptions = new ArrayList<>();
+		this(Long.parseLong(id));
+	}
+
+	public ConceptImpl(Long id) {
+		this.id = id;
 	}
 
 	public ConceptImpl(String conceptId, String effectiveTime, boolean active, String moduleId, String definitionStatusId) {
+		this(Long.parseLong(conceptId), effectiveTime, active, moduleId, definitionStatusId);
+	}
+
+	public ConceptImpl(long conceptId, String effectiveTime, boolean active, String moduleId, String definitionStatusId) {
 		this(conceptId);
 		this.effectiveTime = effectiveTime;
 		this.active = active;
@@ -47,85 +57,141 @@ public class ConceptImpl implements Concept {
 		this.definitionStatusId = definitionStatusId;
 	}
 
-	public void addMemberOfRefsetId(Long refsetId) {
-		memberOfRefsetIds.add(refsetId);
+	/**
+	 * Replaces the state in place, keeping the components and hierarchy of the concept.
+	 */
+	public synchronized void setState(String effectiveTime, boolean active, String moduleId, String definitionStatusId) {
+		this.effectiveTime = effectiveTime;
+		this.active = active;
+		this.moduleId = moduleId;
+		this.definitionStatusId = definitionStatusId;
+		// Walks of the hierarchy check that each concept reached is active
+		invalidateHierarchyCache();
+	}
+
+	public synchronized void addMemberOfRefsetId(Long refsetId) {
+		if (memberOfRefsetIds == null) {
+			memberOfRefsetIds = new SortedLongArraySet();
+		}
+		memberOfRefsetIds.add(refsetId.longValue());
 	}
 
 	@Override
 	public Set<Long> getMemberOfRefsetIds() {
-		return memberOfRefsetIds;
+		return memberOfRefsetIds != null ? memberOfRefsetIds : Collections.<Long>emptySet();
 	}
 
 	/**
-	 * @return A set of all inferred ancestors
+	 * @return A set of all inferred ancestors, unmodifiable if the hierarchy cache is enabled
 	 * @throws IllegalStateException if an active relationship is found pointing to an inactive parent concept
 	 * or if an ancestor loop is found.
 	 */
 	@Override
 	public Set<Long> getInferredAncestorIds() throws IllegalStateException {
-		final Stack<Long> stack = new Stack<>();
-		stack.push(id);
-		return collectParentIds(this, new HashSet<Long>(), stack, true);
+		return collectIds(true, true);
 	}
 
 	/**
-	 * @return A set of all stated ancestors
+	 * @return A set of all stated ancestors, unmodifiable if the hierarchy cache is enabled
 	 * @throws IllegalStateException if an active relationship is found pointing to an inactive parent concept
 	 * or if an ancestor loop is found.
 	 */
 	@Override
 	public Set<Long> getStatedAncestorIds() throws IllegalStateException {
-		final Stack<Long> stack = new Stack<>();
-		stack.push(id);
-		return collectParentIds(this, new HashSet<Long>(), stack, false);
+		return collectIds(true, false);
 	}
 
-	private Set<Long> collectParentIds(ConceptImpl concept, Set<Long> ancestors, Stack<Long> stack, boolean inferred) {
-		for (Concept parentInt : inferred ? concept.inferredParents : concept.statedParents) {
-			ConceptImpl parent = (ConceptImpl) parentInt;
-			if (!parent.isActive()) {
-				throw new IllegalStateException("Is-a relationship points to inactive parent concept: " + concept.getId() + " -> " + parent.getId());
-			}
-			final Long parentId = parent.id;
-			if (stack.contains(parentId)) {
-				stack.push(parentId);
-				throw new IllegalStateException("Ancestor loop detected: " + stack.toString());
-			}
-			ancestors.add(parentId);
-			stack.push(parentId);
-			collectParentIds(parent, ancestors, stack, inferred);
-			stack.pop();
-		}
-		return ancestors;
-	}
-	
 	/**
-	 * @return A set of all inferred descendants
+	 * @return A set of all inferred descendants, unmodifiable if the hierarchy cache is enabled
 	 */
 	@Override
 	public Set<Long> getInferredDescendantIds() throws IllegalStateException {
-		return collectChildIds(this, new HashSet<Long>(),true);
+		return collectIds(false, true);
 	}
 
 	/**
-	 * @return A set of all stated ancestors
+	 * @return A set of all stated descendants, unmodifiable if the hierarchy cache is enabled
 	 */
 	@Override
 	public Set<Long> getStatedDescendantIds() throws IllegalStateException {
-		return collectChildIds(this, new HashSet<Long>(),  false);
-	}
-	
-	private Set<Long> collectChildIds(ConceptImpl concept, Set<Long> descendants, boolean inferred) {
-		for (Concept childInt : inferred ? concept.inferredChildren : concept.statedChildren) {
-			ConceptImpl child = (ConceptImpl) childInt;
-			if (!child.isActive()) {
-				throw new IllegalStateException("Is-a relationship points to inactive child concept: " + concept.getId() + " -> " + child.getId());
+		return collectIds(false, false);
+	}
+
+	private Set<Long> collectIds(boolean ancestors, boolean inferred) {
+		final HierarchyCache.Entries cacheEntries = hierarchyCache != null ? hierarchyCache.getEntries() : null;
+		final Map<Long, Set<Long>> cache = cacheEntries == null ? null
+				: ancestors ? cacheEntries.getAncestorIds(inferred) : cacheEntries.getDescendantIds(inferred);
+		if (cache != null) {
+			final Set<Long> cached = cache.get(id);
+			if (cached != null) {
+				return cached;
+			}
+		}
+
+		// Depth first without recursion, a concept with a cached set adds that set rather than being expanded
+		final Set<Long> ids = new HashSet<>();
+		// Ids of the concepts on the current path, to find an ancestor loop without scanning the path
+		final LongOpenHashSet onPath = ancestors ? new LongOpenHashSet() : null;
+		ConceptImpl[] path = new ConceptImpl[16];
+		int[] nextEdge = new int[16];
+		path[0] = this;
+		if (onPath != null) {
+			onPath.add(id);
+		}
+		int depth = 1;
+		while (depth > 0) {
+			final ConceptImpl concept = path[depth - 1];
+			final SortedConceptArraySet edges = ancestors ? concept.parents(inferred) : concept.children(inferred);
+			final int edge = nextEdge[depth - 1];
+			if (edges == null || edge == edges.size()) {
+				if (onPath != null) {
+					onPath.remove(concept.id);
+				}
+				depth--;
+				continue;
+			}
+			nextEdge[depth - 1]++;
+			final ConceptImpl next = edges.get(edge);
+			if (!next.isActive()) {
+				throw new IllegalStateException("Is-a relationship points to inactive " + (ancestors ? "parent" : "child") + " concept: "
+						+ concept.getId() + " -> " + next.getId());
+			}
+			if (onPath != null && onPath.contains(next.id)) {
+				throw new IllegalStateException("Ancestor loop detected: " + pathToString(path, depth, next));
+			}
+			if (ids.add(next.id)) {
+				final Set<Long> cached = cache != null ? cache.get(next.id) : null;
+				if (cached != null) {
+					ids.addAll(cached);
+				} else {
+					if (depth == path.length) {
+						path = Arrays.copyOf(path, depth * 2);
+						nextEdge = Arrays.copyOf(nextEdge, depth * 2);
+					}
+					path[depth] = next;
+					nextEdge[depth] = 0;
+					if (onPath != null) {
+						onPath.add(next.id);
+					}
+					depth++;
+				}
 			}
-			final Long childId = child.id;
-			descendants.add(childId);
-			collectChildIds(child, descendants, inferred);
 		}
-		return descendants;
+		if (cache != null) {
+			final Set<Long> unmodifiableIds = Collections.unmodifiableSet(ids);
+			cache.put(id, unmodifiableIds);
+			return unmodifiableIds;
+		}
+		return ids;
+	}
+
+	private static String pathToString(ConceptImpl[] path, int depth, ConceptImpl next) {
+		final List<Long> pathIds = new ArrayList<>();
+		for (int i = 0; i < depth; i++) {
+			pathIds.add(path[i].id);
+		}
+		pathIds.add(next.id);
+		return pathIds.toString();
 	}
 
 	@Override
@@ -133,36 +199,89 @@ public class ConceptImpl implements Concept {
 		return active;
 	}
 
-	public void addInferredParent(Concept parentConcept) {
-		inferredParents.add(parentConcept);
+	public synchronized void addInferredParent(Concept parentConcept) {
+		if (inferredParents == null) {
+			inferredParents = new SortedConceptArraySet();
+		}
+		inferredParents.add((ConceptImpl) parentConcept);
+		invalidateHierarchyCache();
+	}
+
+	public synchronized void removeInferredParent(Concept parentConcept) {
+		if (inferredParents != null) {
+			inferredParents.remove((ConceptImpl) parentConcept);
+		}
+		invalidateHierarchyCache();
+	}
+
+	public synchronized void addStatedParent(Concept parentConcept) {
+		if (statedParents == null) {
+			statedParents = new SortedConceptArraySet();
+		}
+		statedParents.add((ConceptImpl) parentConcept);
+		invalidateHierarchyCache();
+	}
+
+	public synchronized void removeStatedParent(Concept parentConcept) {
+		if (statedParents != null) {
+			statedParents.remove((ConceptImpl) parentConcept);
+		}
+		invalidateHierarchyCache();
 	}
 
-	public void removeInferredParent(Concept parentConcept) {
-		inferredParents.remove(parentConcept);
+	public synchronized void addInferredChild(Concept childConcept) {
+		if (inferredChildren == null) {
+			inferredChildren = new SortedConceptArraySet();
+		}
+		inferredChildren.add((ConceptImpl) childConcept);
+		invalidateHierarchyCache();
 	}
 
-	public void addStatedParent(Concept parentConcept) {
-		statedParents.add(parentConcept);
+	public synchronized void removeInferredChild(Concept childConcept) {
+		if (inferredChildren != null) {
+			inferredChildren.remove((ConceptImpl) childConcept);
+		}
+		invalidateHierarchyCache();
 	}
 
-	public void removeStatedParent(Concept parentConcept) {
-		statedParents.remove(parentConcept);
+	public synchronized void addStatedChild(Concept childConcept) {
+		if (statedChildren == null) {
+			statedChildren = new SortedConceptArraySet();
+		}
+		statedChildren.add((ConceptImpl) childConcept);
+		invalidateHierarchyCache();
 	}
-	
-	public void addInferredChild(Concept childConcept) {
-		inferredChildren.add(childConcept);
+
+	public synchronized void removeStatedChild(Concept childConcept) {
+		if (statedChildren != null) {
+			statedChildren.remove((ConceptImpl) childConcept);
+		}
+		invalidateHierarchyCache();
 	}
 
-	public void removeInferredChild(Concept childConcept) {
-		inferredChildren.remove(childConcept);
+	long id() {
+		return id;
 	}
 
-	public void addStatedChild(Concept childConcept) {
-		statedChildren.add(childConcept);
+	SortedConceptArraySet parents(boolean inferred) {
+		return inferred ? inferredParents : statedParents;
 	}
 
-	public void removeStatedChild(Concept childConcept) {
-		statedChildren.remove(childConcept);
+	SortedConceptArraySet children(boolean inferred) {
+		return inferred ? inferredChildren : statedChildren;
+	}
+
+	/**
+	 * @param hierarchyCache The cache shared by the concepts of a store, or null to compute every set afresh.
+	 */
+	public synchronized void setHierarchyCache(HierarchyCache hierarchyCache) {
+		this.hierarchyCache = hierarchyCache;
+	}
+
+	private void invalidateHierarchyCache() {
+		if (hierarchyCache != null) {
+			hierarchyCache.invalidate();
+		}
 	}
 
 	@Override
@@ -185,7 +304,7 @@ public class ConceptImpl implements Concept {
 		return definitionStatusId;
 	}
 
-	public void setFsn(String fsn) {
+	public synchronized void setFsn(String fsn) {
 		this.fsn = fsn;
 	}
 
@@ -195,39 +314,164 @@ public class ConceptImpl implements Concept {
 	}
 
 	@Override
-	public MultiValueMap<String, String> getInferredAttributes() {
+	public synchronized MultiValueMap<String, String> getInferredAttributes() {
+		if (inferredAttributes == null) {
+			inferredAttributes = new LinkedMultiValueMap<>(4);
+		}
 		return inferredAttributes;
 	}
 
-	public void addInferredAttribute(String type, String value) {
+	public synchronized void addInferredAttribute(String type, String value) {
+		if (inferredAttributes == null) {
+			inferredAttributes = new LinkedMultiValueMap<>(4);
+		}
 		inferredAttributes.add(type, value);
 	}
 
+	public synchronized void removeInferredAttribute(String type, String value) {
+		removeAttribute(inferredAttributes, type, value);
+	}
+
 	@Override
-	public MultiValueMap<String, String> getStatedAttributes() {
+	public synchronized MultiValueMap<String, String> getStatedAttributes() {
+		if (statedAttributes == null) {
+			statedAttributes = new LinkedMultiValueMap<>(4);
+		}
 		return statedAttributes;
 	}
 
-	public void addStatedAttribute(String type, String value) {
+	synchronized MultiValueMap<String, String> getAttributesIfAny(boolean inferred) {
+		final MultiValueMap<String, String> attributes = inferred ? inferredAttributes : statedAttributes;
+		return attributes != null ? attributes : NO_ATTRIBUTES;
+	}
+
+	public synchronized void addStatedAttribute(String type, String value) {
+		if (statedAttributes == null) {
+			statedAttributes = new LinkedMultiValueMap<>(4);
+		}
 		statedAttributes.add(type, value);
 	}
 
-	public void addRelationship(Relationship relationship) {
+	public synchronized void removeStatedAttribute(String type, String value) {
+		removeAttribute(statedAttributes, type, value);
+	}
+
+	private static void removeAttribute(MultiValueMap<String, String> attributes, String type, String value) {
+		// One occurrence, a value may be held once for each relationship group
+		if (attributes != null) {
+			final List<String> values = attributes.get(type);
+			if (values != null && values.remove(value) && values.isEmpty()) {
+				attributes.remove(type);
+			}
+		}
+	}
+
+	public synchronized void addRelationship(Relationship relationship) {
+		if (relationships == null) {
+			relationships = new ArrayList<>(4);
+		}
 		relationships.add(relationship);
 	}
 
+	/**
+	 * Adds the relationship, replacing the relationship with the same id if there is one.
+	 * @return The relationship replaced, or null.
+	 */
+	public synchronized Relationship putRelationship(Relationship relationship) {
+		if (relationships != null) {
+			for (int i = 0; i < relationships.size(); i++) {
+				if (relationships.get(i).getId().equals(relationship.getId())) {
+					return relationships.set(i, relationship);
+				}
+			}
+		}
+		addRelationship(relationship);
+		return null;
+	}
+
+	/**
+	 * @return The relationship removed, or null if none has the id.
+	 */
+	public synchronized Relationship removeRelationship(String id) {
+		if (relationships != null) {
+			for (int i = 0; i < relationships.size(); i++) {
+				if (relationships.get(i).getId().equals(id)) {
+					return relationships.remove(i);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * @return true if an active relationship of the given type and characteristic type points to the destination.
+	 */
+	public synchronized boolean hasActiveRelationship(String typeId, String destinationId, String characteristicTypeId) {
+		if (relationships != null) {
+			for (Relationship relationship : relationships) {
+				if (FactoryUtils.ACTIVE.equals(relationship.getActive()) && typeId.equals(relationship.getTypeId())
+						&& destinationId.equals(relationship.getDestinationId()) && characteristicTypeId.equals(relationship.getCharacteristicTypeId())) {
+					return true;
+				}
+			}
+		}
+		return false;
+	}
+
 	@Override
 	public List<Relationship> getRelationships() {
-		return relationships;
+		return relationships != null ? relationships : Collections.<Relationship>emptyList();
 	}
 
-	public void addDescription(Description description) {
+	public synchronized void addDescription(Description description) {
+		if (descriptions == null) {
+			descriptions = new ArrayList<>(4);
+		}
 		descriptions.add(description);
 	}
 
+	/**
+	 * Adds the description, replacing the description with the same id if there is one.
+	 * @return The description replaced, or null.
+	 */
+	public synchronized Description putDescription(Description description) {
+		if (descriptions != null && description.getId() != null) {
+			for (int i = 0; i < descriptions.size(); i++) {
+				if (description.getId().equals(descriptions.get(i).getId())) {
+					return descriptions.set(i, description);
+				}
+			}
+		}
+		addDescription(description);
+		return null;
+	}
+
+	/**
+	 * @return The description removed, or null if none has the id.
+	 */
+	public synchronized Description removeDescription(Long id) {
+		if (descriptions != null) {
+			for (int i = 0; i < descriptions.size(); i++) {
+				if (id.equals(descriptions.get(i).getId())) {
+					return descriptions.remove(i);
+				}
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Clears the FSN if it is the given term.
+	 */
+	public synchronized void removeFsn(String term) {
+		if (term.equals(fsn)) {
+			fsn = null;
+		}
+	}
+
 	@Override
 	public List<Description> getDescriptions() {
-		return descriptions;
+		return descriptions != null ? descriptions : Collections.<Description>emptyList();
 	}
 
 	@Override
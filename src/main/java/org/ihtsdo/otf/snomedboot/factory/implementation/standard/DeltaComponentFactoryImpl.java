@@ -0,0 +1,172 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.DeltaComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Applies a Delta release to a ComponentStore which already holds the previous release, for use with
+ * ReleaseImporter.loadDeltaReleaseFiles. Components are updated by id: a concept keeps its descriptions, relationships
+ * and place in the hierarchy when its state changes, and a description or relationship replaces the earlier state
+ * with the same id rather than being added alongside it. Each row of the delta is a lookup in the store,
+ * so applying a delta takes time in proportion to the delta, not the store.
+ * <p>
+ * The attribute of a replaced relationship is removed, and an is-a edge is kept while another active is-a relationship
+ * to the same parent remains, so the store and the delta must be loaded with full relationship objects, the
+ * ReleaseImporter rejects other loading profiles. Reference set memberships are only ever added.
+ * <p>
+ * The ReleaseImporter passes inactive concepts, relationships and descriptions to this factory whatever the loading
+ * profile, so a concept inactivated by the delta becomes inactive in the store. When the profile leaves inactive
+ * relationships out, as the light profile does, an inactivated relationship is removed from the store along with its
+ * attribute and, for an is-a relationship, its edge. When it leaves inactive descriptions out an inactivated
+ * description is removed, and the FSN of its concept cleared unless the delta gives the concept a new one.
+ * <p>
+ * Transitive closures of the store must be built again once the delta is applied.
+ */
+public class DeltaComponentFactoryImpl extends ComponentFactoryImpl implements DeltaComponentFactory {
+
+	private final Set<Long> changedConceptIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+	private final Set<Long> newFsnConceptIds = Collections.newSetFromMap(new ConcurrentHashMap<Long, Boolean>());
+
+	public DeltaComponentFactoryImpl(ComponentStore componentStore) {
+		super(componentStore);
+	}
+
+	/**
+	 * @param termStore Where the terms of new descriptions are held, usually the store the release was loaded with.
+	 */
+	public DeltaComponentFactoryImpl(ComponentStore componentStore, TermStore termStore) {
+		super(componentStore, termStore);
+	}
+
+	/**
+	 * @return The ids of the concepts the delta touched: concepts with a new state, concepts whose descriptions,
+	 * relationships, attributes or reference set memberships changed, and both ends of each is-a edge added or removed.
+	 */
+	public Set<Long> getChangedConceptIds() {
+		return changedConceptIds;
+	}
+
+	@Override
+	public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+		getConceptForReference(Long.parseLong(conceptId)).setState(effectiveTime, FactoryUtils.parseActive(active), moduleId, definitionStatusId);
+	}
+
+	@Override
+	public void newConceptState(long conceptId, int effectiveTime, boolean active, long moduleId, long definitionStatusId) {
+		getConceptForReference(conceptId).setState(formatEffectiveTime(effectiveTime), active, formatMetadataId(moduleId), formatMetadataId(definitionStatusId));
+	}
+
+	@Override
+	public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode, String typeId, String term, String caseSignificanceId) {
+		getConceptForReference(Long.parseLong(conceptId)).putDescription(newDescription(Long.parseLong(id), FactoryUtils.parseActive(active), term, Long.parseLong(conceptId)));
+	}
+
+	@Override
+	public void newDescriptionState(long id, int effectiveTime, boolean active, long moduleId, long conceptId, String languageCode, long typeId, String term, long caseSignificanceId) {
+		getConceptForReference(conceptId).putDescription(newDescription(id, active, term, conceptId));
+	}
+
+	@Override
+	public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId,
+									 String destinationId, String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+		putRelationship(getConceptForReference(Long.parseLong(sourceId)), new RelationshipImpl(id, effectiveTime, active, moduleId, sourceId,
+				destinationId, relationshipGroup, typeId, characteristicTypeId, modifierId));
+	}
+
+	@Override
+	public void newRelationshipState(long id, int effectiveTime, boolean active, long moduleId, long sourceId,
+									 long destinationId, int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+		putRelationship(getConceptForReference(sourceId), newRelationship(id, effectiveTime, active, moduleId, sourceId, destinationId,
+				relationshipGroup, typeId, characteristicTypeId, modifierId));
+	}
+
+	private void putRelationship(ConceptImpl source, Relationship relationship) {
+		final Relationship replaced = source.putRelationship(relationship);
+		if (replaced != null) {
+			// The importer adds an attribute for each relationship state it loads, so the attribute of the new state
+			// has been, or is about to be, added
+			final boolean inferred = ConceptConstants.INFERRED_RELATIONSHIP.equals(replaced.getCharacteristicTypeId());
+			if (inferred) {
+				source.removeInferredAttribute(replaced.getTypeId(), replaced.getDestinationId());
+			} else {
+				source.removeStatedAttribute(replaced.getTypeId(), replaced.getDestinationId());
+			}
+			// The edge of an is-a changed in place goes unless the new state still gives it
+			if (ConceptConstants.isA.equals(replaced.getTypeId()) && FactoryUtils.parseActive(replaced.getActive())) {
+				final long destinationId = Long.parseLong(replaced.getDestinationId());
+				if (inferred) {
+					removeInferredIsA(source.getId(), destinationId);
+				} else {
+					removeStatedIsA(source.getId(), destinationId);
+				}
+			}
+		}
+	}
+
+	@Override
+	public void removeRelationship(long id, long sourceId, long destinationId, long typeId, boolean inferred) {
+		final ConceptImpl source = getConceptForReference(sourceId);
+		final Relationship removed = source.removeRelationship(Long.toString(id));
+		// Relationship objects are held for every attribute, so a relationship not held has no attribute either
+		if (removed != null && FactoryUtils.parseActive(removed.getActive())) {
+			if (inferred) {
+				source.removeInferredAttribute(formatMetadataId(typeId), Long.toString(destinationId));
+			} else {
+				source.removeStatedAttribute(formatMetadataId(typeId), Long.toString(destinationId));
+			}
+		}
+	}
+
+	@Override
+	public void addConceptFSN(String conceptId, String term) {
+		addConceptFSN(Long.parseLong(conceptId), term);
+	}
+
+	@Override
+	public void addConceptFSN(long conceptId, String term) {
+		final ConceptImpl concept = getConceptForReference(conceptId);
+		synchronized (concept) {
+			newFsnConceptIds.add(conceptId);
+			concept.setFsn(term);
+		}
+	}
+
+	@Override
+	public void removeDescription(long id, long conceptId, boolean fsn, String term) {
+		final ConceptImpl concept = getConceptForReference(conceptId);
+		concept.removeDescription(id);
+		// Rows of a file may be read in any order, a new FSN given by the delta is kept
+		synchronized (concept) {
+			if (fsn && !newFsnConceptIds.contains(conceptId)) {
+				concept.removeFsn(term);
+			}
+		}
+	}
+
+	@Override
+	public void removeInferredIsA(long sourceId, long destinationId) {
+		if (!getConceptForReference(sourceId).hasActiveRelationship(ConceptConstants.isA, Long.toString(destinationId), ConceptConstants.INFERRED_RELATIONSHIP)) {
+			super.removeInferredIsA(sourceId, destinationId);
+		}
+	}
+
+	@Override
+	public void removeStatedIsA(long sourceId, long destinationId) {
+		if (!getConceptForReference(sourceId).hasActiveRelationship(ConceptConstants.isA, Long.toString(destinationId), ConceptConstants.STATED_RELATIONSHIP)) {
+			super.removeStatedIsA(sourceId, destinationId);
+		}
+	}
+
+	@Override
+	protected ConceptImpl getConceptForReference(long id) {
+		changedConceptIds.add(id);
+		return super.getConceptForReference(id);
+	}
+}
@@ -16,6 +16,13 @@ public class DescriptionImpl implements Description {
 		this.conceptId =  Long.parseLong(conceptId);
 	}
 
+	public DescriptionImpl(long id, boolean active, String term, long conceptId) {
+		this.id = id;
+		this.active = active;
+		this.term = term;
+		this.conceptId = conceptId;
+	}
+
 	public DescriptionImpl(String term, boolean active, Long conceptId) {
 		this.id = null;
 		this.active = active;
@@ -0,0 +1,43 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * An opt-in memo of the ancestor and descendant id sets of the concepts of one ComponentStore.
+ * Any change to a parent or child edge discards every entry because it can change the sets of many concepts.
+ */
+public class HierarchyCache {
+
+	private volatile Entries entries = new Entries();
+
+	/**
+	 * @return The current entries. A traversal should use the same entries throughout, so that results computed
+	 * while the hierarchy changes are stored in entries that have already been discarded.
+	 */
+	Entries getEntries() {
+		return entries;
+	}
+
+	public void invalidate() {
+		// Replaced even when empty, a traversal which started before the change may still store its result
+		entries = new Entries();
+	}
+
+	static final class Entries {
+
+		private final ConcurrentMap<Long, Set<Long>> inferredAncestorIds = new ConcurrentHashMap<>();
+		private final ConcurrentMap<Long, Set<Long>> statedAncestorIds = new ConcurrentHashMap<>();
+		private final ConcurrentMap<Long, Set<Long>> inferredDescendantIds = new ConcurrentHashMap<>();
+		private final ConcurrentMap<Long, Set<Long>> statedDescendantIds = new ConcurrentHashMap<>();
+
+		ConcurrentMap<Long, Set<Long>> getAncestorIds(boolean inferred) {
+			return inferred ? inferredAncestorIds : statedAncestorIds;
+		}
+
+		ConcurrentMap<Long, Set<Long>> getDescendantIds(boolean inferred) {
+			return inferred ? inferredDescendantIds : statedDescendantIds;
+		}
+	}
+}
@@ -0,0 +1,282 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The layout of a component store image and the memory mapped sections of an image file.
+ * <p>
+ * An image starts with a header: the magic number, the format version, the number of sections, the release
+ * fingerprint and loading profile the image was written for, then the offset and length of each section.
+ * Each section is an array of big endian values starting on an 8 byte boundary.
+ * Concepts are numbered by their position in the CONCEPT_IDS section, which is sorted by id.
+ * Each table of per concept entries is held as an offsets section of concept count + 1 ints, where the entries of
+ * concept i run from offsets[i] to offsets[i + 1], and a section of the entries themselves.
+ * <p>
+ * Fields which RF2 holds as text are held as a long value: the number itself for a decimal identifier, effectiveTime
+ * or flag, NULL_VALUE for null, and otherwise -(index + 1) of an entry in the string table.
+ */
+final class ImageFile {
+
+	static final long MAGIC = 0x534E4F4D4544494DL;
+	static final int VERSION = 1;
+	static final long NULL_VALUE = Long.MIN_VALUE;
+	static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	// int offsets into STRING_BYTES, string count + 1
+	static final int STRING_OFFSETS = 0;
+	static final int STRING_BYTES = 1;
+	// long ids, sorted
+	static final int CONCEPT_IDS = 2;
+	// CONCEPT_STATE_FIELDS long values per concept
+	static final int CONCEPT_STATES = 3;
+	// int ordinals of the concepts at the other end of each edge, sorted by id
+	static final int INFERRED_PARENT_OFFSETS = 4;
+	static final int INFERRED_PARENTS = 5;
+	static final int STATED_PARENT_OFFSETS = 6;
+	static final int STATED_PARENTS = 7;
+	static final int INFERRED_CHILD_OFFSETS = 8;
+	static final int INFERRED_CHILDREN = 9;
+	static final int STATED_CHILD_OFFSETS = 10;
+	static final int STATED_CHILDREN = 11;
+	// long refsetIds, sorted
+	static final int REFSET_OFFSETS = 12;
+	static final int REFSET_IDS = 13;
+	// Pairs of long values, type then value, in the order of the attribute map
+	static final int INFERRED_ATTRIBUTE_OFFSETS = 14;
+	static final int INFERRED_ATTRIBUTES = 15;
+	static final int STATED_ATTRIBUTE_OFFSETS = 16;
+	static final int STATED_ATTRIBUTES = 17;
+	// RELATIONSHIP_FIELDS long values per relationship, in the order of the Relationship getters
+	static final int RELATIONSHIP_OFFSETS = 18;
+	static final int RELATIONSHIPS = 19;
+	// DESCRIPTION_FIELDS long values per description: id, active, term, conceptId
+	static final int DESCRIPTION_OFFSETS = 20;
+	static final int DESCRIPTIONS = 21;
+	static final int SECTION_COUNT = 22;
+
+	// effectiveTime, active, moduleId, definitionStatusId, fsn
+	static final int CONCEPT_STATE_FIELDS = 5;
+	static final int RELATIONSHIP_FIELDS = 10;
+	static final int DESCRIPTION_FIELDS = 4;
+
+	private final String releaseFingerprint;
+	private final String loadingProfile;
+	private final ByteBuffer[] sections;
+
+	private ImageFile(String releaseFingerprint, String loadingProfile, ByteBuffer[] sections) {
+		this.releaseFingerprint = releaseFingerprint;
+		this.loadingProfile = loadingProfile;
+		this.sections = sections;
+	}
+
+	/**
+	 * Reads the header of the image and maps each section. The mappings remain valid once this returns.
+	 * @throws IOException if the file is not an image of this format version.
+	 */
+	static ImageFile open(Path imageFile) throws IOException {
+		try (FileChannel channel = FileChannel.open(imageFile, StandardOpenOption.READ)) {
+			final DataInputStream header = new DataInputStream(Channels.newInputStream(channel));
+			if (header.readLong() != MAGIC) {
+				throw new IOException(imageFile + " is not a component store image.");
+			}
+			final int version = header.readInt();
+			if (version != VERSION) {
+				throw new IOException(imageFile + " is an image of format version " + version + ", version " + VERSION + " is expected.");
+			}
+			final int sectionCount = header.readInt();
+			if (sectionCount != SECTION_COUNT) {
+				throw new IOException(imageFile + " has " + sectionCount + " sections, " + SECTION_COUNT + " are expected.");
+			}
+			final String releaseFingerprint = readString(header);
+			final String loadingProfile = readString(header);
+			header.skipBytes(padding(headerLength(releaseFingerprint, loadingProfile)));
+			final long[] offsets = new long[sectionCount];
+			final long[] lengths = new long[sectionCount];
+			for (int i = 0; i < sectionCount; i++) {
+				offsets[i] = header.readLong();
+				lengths[i] = header.readLong();
+			}
+			final long size = channel.size();
+			final ByteBuffer[] sections = new ByteBuffer[sectionCount];
+			for (int i = 0; i < sectionCount; i++) {
+				if (offsets[i] < 0 || lengths[i] < 0 || offsets[i] + lengths[i] > size) {
+					throw new IOException(imageFile + " is truncated, section " + i + " runs past the end of the file.");
+				}
+				if (lengths[i] > Integer.MAX_VALUE) {
+					throw new IOException(imageFile + " section " + i + " is too large to map.");
+				}
+				sections[i] = channel.map(FileChannel.MapMode.READ_ONLY, offsets[i], lengths[i]);
+			}
+			return new ImageFile(releaseFingerprint, loadingProfile, sections);
+		}
+	}
+
+	/**
+	 * @return The number of bytes of the header before the section table.
+	 */
+	static long headerLength(String releaseFingerprint, String loadingProfile) {
+		return 8 + 4 + 4 + 4 + releaseFingerprint.getBytes(UTF_8).length + 4 + loadingProfile.getBytes(UTF_8).length;
+	}
+
+	static int padding(long position) {
+		return (int) ((8 - position % 8) % 8);
+	}
+
+	private static String readString(DataInputStream input) throws IOException {
+		final byte[] bytes = new byte[input.readInt()];
+		input.readFully(bytes);
+		return new String(bytes, UTF_8);
+	}
+
+	String getReleaseFingerprint() {
+		return releaseFingerprint;
+	}
+
+	String getLoadingProfile() {
+		return loadingProfile;
+	}
+
+	ByteBuffer section(int index) {
+		return sections[index].duplicate();
+	}
+
+	int getConceptCount() {
+		return sections[CONCEPT_IDS].capacity() / 8;
+	}
+
+	/**
+	 * @return The value at the given index of a section of longs.
+	 */
+	static long longAt(ByteBuffer section, long index) {
+		return section.getLong(byteOffset(section, index, 8));
+	}
+
+	/**
+	 * @return The value at the given index of a section of ints.
+	 */
+	static int intAt(ByteBuffer section, long index) {
+		return section.getInt(byteOffset(section, index, 4));
+	}
+
+	/**
+	 * Computed as a long, so that an index beyond the section fails rather than wrapping to another value.
+	 */
+	private static int byteOffset(ByteBuffer section, long index, int valueLength) {
+		final long offset = index * valueLength;
+		if (index < 0 || offset > section.capacity() - valueLength) {
+			throw new IndexOutOfBoundsException("Index " + index + " of a section of " + section.capacity() / valueLength + " values.");
+		}
+		return (int) offset;
+	}
+
+	/**
+	 * Decodes the long values of an image back to the Strings the store holds.
+	 * Numbers which are repeated across components, such as module and type ids, are shared through an identifier pool.
+	 * Safe to use from several threads.
+	 */
+	static final class ValueDecoder {
+
+		private final ByteBuffer offsets;
+		private final ByteBuffer bytes;
+		// Each String of the string table decoded once, or null to decode on every use
+		private final String[] strings;
+		// Strings of the string table read as metadata, which repeat across components, each decoded once
+		private final ConcurrentHashMap<Integer, String> metadataStrings = new ConcurrentHashMap<>();
+		private final IdentifierPool identifierPool = new IdentifierPool();
+
+		/**
+		 * @param cacheStrings Keep each String of the string table once decoded, rather than decoding it on every use.
+		 */
+		ValueDecoder(ImageFile imageFile, boolean cacheStrings) {
+			offsets = imageFile.section(STRING_OFFSETS);
+			bytes = imageFile.section(STRING_BYTES);
+			strings = cacheStrings ? new String[Math.max(0, offsets.capacity() / 4 - 1)] : null;
+		}
+
+		/**
+		 * @return The String of an identifier or text value.
+		 */
+		String text(long value) {
+			if (value == NULL_VALUE) {
+				return null;
+			}
+			return value >= 0 ? Long.toString(value) : string(stringIndex(value));
+		}
+
+		/**
+		 * @return The String of a value repeated across components. Strings of the string table read through this
+		 * method are kept once decoded, whether or not the decoder caches strings.
+		 */
+		String metadata(long value) {
+			if (value >= 0) {
+				return identifierPool.toString(value);
+			}
+			if (value == NULL_VALUE || strings != null) {
+				return text(value);
+			}
+			final Integer index = stringIndex(value);
+			String string = metadataStrings.get(index);
+			if (string == null) {
+				string = decode(index);
+				metadataStrings.put(index, string);
+			}
+			return string;
+		}
+
+		/**
+		 * @param fields The RELATIONSHIP_FIELDS values of one relationship.
+		 * @return A CompactRelationshipImpl if the relationship fits one, otherwise a RelationshipImpl.
+		 */
+		Relationship relationship(long[] fields) {
+			// id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId, characteristicTypeId, modifierId
+			final long effectiveTime = fields[1] >= 0 || fields[1] == NULL_VALUE || !metadata(fields[1]).isEmpty() ? fields[1] : 0;
+			if (fields[0] >= 0 && effectiveTime >= 0 && effectiveTime <= Integer.MAX_VALUE && (fields[2] == 0 || fields[2] == 1)
+					&& fields[3] >= 0 && fields[4] >= 0 && fields[5] >= 0 && fields[6] >= 0 && fields[6] <= Integer.MAX_VALUE && fields[7] >= 0
+					&& CompactRelationshipImpl.isCompact((int) fields[6], fields[8], fields[9])) {
+				return new CompactRelationshipImpl(fields[0], (int) effectiveTime, fields[2] == 1, fields[3], fields[4], fields[5], (int) fields[6],
+						fields[7], fields[8], fields[9]);
+			}
+			return new RelationshipImpl(text(fields[0]), metadata(fields[1]), metadata(fields[2]), metadata(fields[3]), text(fields[4]),
+					text(fields[5]), metadata(fields[6]), metadata(fields[7]), metadata(fields[8]), metadata(fields[9]));
+		}
+
+		private String string(int index) {
+			if (strings == null) {
+				return decode(index);
+			}
+			String string = strings[index];
+			if (string == null) {
+				string = decode(index);
+				strings[index] = string;
+			}
+			return string;
+		}
+
+		private String decode(int index) {
+			final int start = intAt(offsets, index);
+			final byte[] stringBytes = new byte[intAt(offsets, index + 1) - start];
+			for (int i = 0; i < stringBytes.length; i++) {
+				stringBytes[i] = bytes.get(start + i);
+			}
+			return new String(stringBytes, UTF_8);
+		}
+	}
+
+	/**
+	 * @return The index in the string table of a value which is neither null nor a number.
+	 */
+	static int stringIndex(long value) {
+		return (int) -(value + 1);
+	}
+}
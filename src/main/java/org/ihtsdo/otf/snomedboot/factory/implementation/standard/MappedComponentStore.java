@@ -0,0 +1,346 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.longs.AbstractLong2ObjectMap;
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import it.unimi.dsi.fastutil.objects.AbstractObjectIterator;
+import it.unimi.dsi.fastutil.objects.AbstractObjectSet;
+import it.unimi.dsi.fastutil.objects.ObjectIterator;
+import it.unimi.dsi.fastutil.objects.ObjectSet;
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MultiValueMap;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+import static org.ihtsdo.otf.snomedboot.factory.implementation.standard.ImageFile.*;
+
+/**
+ * A read only component store which answers queries from a memory mapped ComponentStoreImage, without building a
+ * ConceptImpl per concept. Concept rows, the hierarchy and attribute tables stay in the mapped file, so the heap used
+ * does not grow with the release and processes which map the same image share one copy in the page cache.
+ * <p>
+ * Concepts are exposed through lightweight views so that callers of getConcepts() see the usual Concept interface.
+ * Each call decodes what it returns from the image, so keep hold of a result rather than asking for it again.
+ * Identifiers and other metadata strings are decoded once and shared, terms are decoded on every call.
+ * Safe to read from several threads. The mappings are released when the store is no longer reachable, replace the
+ * image file with a new one rather than writing to it while it is mapped.
+ */
+public final class MappedComponentStore {
+
+	private final int conceptCount;
+	private final ByteBuffer ids;
+	private final ByteBuffer states;
+	private final ByteBuffer inferredParentOffsets;
+	private final ByteBuffer inferredParents;
+	private final ByteBuffer statedParentOffsets;
+	private final ByteBuffer statedParents;
+	private final ByteBuffer inferredChildOffsets;
+	private final ByteBuffer inferredChildren;
+	private final ByteBuffer statedChildOffsets;
+	private final ByteBuffer statedChildren;
+	private final ByteBuffer refsetOffsets;
+	private final ByteBuffer refsetIds;
+	private final ByteBuffer inferredAttributeOffsets;
+	private final ByteBuffer inferredAttributes;
+	private final ByteBuffer statedAttributeOffsets;
+	private final ByteBuffer statedAttributes;
+	private final ByteBuffer relationshipOffsets;
+	private final ByteBuffer relationships;
+	private final ByteBuffer descriptionOffsets;
+	private final ByteBuffer descriptions;
+	private final ValueDecoder values;
+
+	private final ConceptMap conceptMap = new ConceptMap();
+
+	private MappedComponentStore(ImageFile image) {
+		conceptCount = image.getConceptCount();
+		// Only absolute gets are used on these buffers so one duplicate of each section is shared by all threads
+		ids = image.section(CONCEPT_IDS);
+		states = image.section(CONCEPT_STATES);
+		inferredParentOffsets = image.section(INFERRED_PARENT_OFFSETS);
+		inferredParents = image.section(INFERRED_PARENTS);
+		statedParentOffsets = image.section(STATED_PARENT_OFFSETS);
+		statedParents = image.section(STATED_PARENTS);
+		inferredChildOffsets = image.section(INFERRED_CHILD_OFFSETS);
+		inferredChildren = image.section(INFERRED_CHILDREN);
+		statedChildOffsets = image.section(STATED_CHILD_OFFSETS);
+		statedChildren = image.section(STATED_CHILDREN);
+		refsetOffsets = image.section(REFSET_OFFSETS);
+		refsetIds = image.section(REFSET_IDS);
+		inferredAttributeOffsets = image.section(INFERRED_ATTRIBUTE_OFFSETS);
+		inferredAttributes = image.section(INFERRED_ATTRIBUTES);
+		statedAttributeOffsets = image.section(STATED_ATTRIBUTE_OFFSETS);
+		statedAttributes = image.section(STATED_ATTRIBUTES);
+		relationshipOffsets = image.section(RELATIONSHIP_OFFSETS);
+		relationships = image.section(RELATIONSHIPS);
+		descriptionOffsets = image.section(DESCRIPTION_OFFSETS);
+		descriptions = image.section(DESCRIPTIONS);
+		values = new ValueDecoder(image, false);
+	}
+
+	/**
+	 * Maps an image written by ComponentStoreImage.
+	 * @throws IOException if the image can not be read or was written for another release or loading profile.
+	 */
+	public static MappedComponentStore open(Path imageFile, String releasePath, LoadingProfile loadingProfile) throws IOException {
+		return new MappedComponentStore(ComponentStoreImage.open(imageFile, releasePath, loadingProfile));
+	}
+
+	/**
+	 * Maps an image written by ComponentStoreImage without checking which release it was written for.
+	 * @throws IOException if the image can not be read.
+	 */
+	public static MappedComponentStore open(Path imageFile) throws IOException {
+		return new MappedComponentStore(ImageFile.open(imageFile));
+	}
+
+	/**
+	 * @return A read only map of concept views keyed by concept id.
+	 */
+	public Long2ObjectMap<Concept> getConcepts() {
+		return conceptMap;
+	}
+
+	public int getConceptCount() {
+		return conceptCount;
+	}
+
+	private int getOrdinal(long conceptId) {
+		int low = 0;
+		int high = conceptCount - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final long midId = longAt(ids, mid);
+			if (midId < conceptId) {
+				low = mid + 1;
+			} else if (midId > conceptId) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -1;
+	}
+
+	long getId(int ordinal) {
+		return longAt(ids, ordinal);
+	}
+
+	boolean isActive(int ordinal) {
+		return state(ordinal, 1) == 1;
+	}
+
+	String getEffectiveTime(int ordinal) {
+		return values.metadata(state(ordinal, 0));
+	}
+
+	String getModuleId(int ordinal) {
+		return values.metadata(state(ordinal, 2));
+	}
+
+	String getDefinitionStatusId(int ordinal) {
+		return values.metadata(state(ordinal, 3));
+	}
+
+	String getFsn(int ordinal) {
+		return values.text(state(ordinal, 4));
+	}
+
+	private long state(int ordinal, int field) {
+		return longAt(states, (long) ordinal * CONCEPT_STATE_FIELDS + field);
+	}
+
+	Set<Long> getAncestorIds(int ordinal, boolean inferred) {
+		return inferred ? collectReachableIds(ordinal, inferredParentOffsets, inferredParents, true)
+				: collectReachableIds(ordinal, statedParentOffsets, statedParents, true);
+	}
+
+	Set<Long> getDescendantIds(int ordinal, boolean inferred) {
+		return inferred ? collectReachableIds(ordinal, inferredChildOffsets, inferredChildren, false)
+				: collectReachableIds(ordinal, statedChildOffsets, statedChildren, false);
+	}
+
+	Set<Long> getMemberOfRefsetIds(int ordinal) {
+		final int start = intAt(refsetOffsets, ordinal);
+		final int end = intAt(refsetOffsets, ordinal + 1);
+		final LongOpenHashSet memberOfRefsetIds = new LongOpenHashSet(end - start);
+		for (int entry = start; entry < end; entry++) {
+			memberOfRefsetIds.add(longAt(refsetIds, entry));
+		}
+		return memberOfRefsetIds;
+	}
+
+	MultiValueMap<String, String> getAttributes(int ordinal, boolean inferred) {
+		final ByteBuffer offsets = inferred ? inferredAttributeOffsets : statedAttributeOffsets;
+		final ByteBuffer attributes = inferred ? inferredAttributes : statedAttributes;
+		final int start = intAt(offsets, ordinal);
+		final int end = intAt(offsets, ordinal + 1);
+		final MultiValueMap<String, String> attributeMap = new LinkedMultiValueMap<>(end - start);
+		for (int entry = start; entry < end; entry++) {
+			attributeMap.add(values.metadata(longAt(attributes, 2L * entry)), values.text(longAt(attributes, 2L * entry + 1)));
+		}
+		return attributeMap;
+	}
+
+	List<Relationship> getRelationships(int ordinal) {
+		final int start = intAt(relationshipOffsets, ordinal);
+		final int end = intAt(relationshipOffsets, ordinal + 1);
+		if (start == end) {
+			return Collections.emptyList();
+		}
+		final List<Relationship> conceptRelationships = new ArrayList<>(end - start);
+		final long[] fields = new long[RELATIONSHIP_FIELDS];
+		for (int entry = start; entry < end; entry++) {
+			for (int field = 0; field < RELATIONSHIP_FIELDS; field++) {
+				fields[field] = longAt(relationships, (long) entry * RELATIONSHIP_FIELDS + field);
+			}
+			conceptRelationships.add(values.relationship(fields));
+		}
+		return Collections.unmodifiableList(conceptRelationships);
+	}
+
+	List<Description> getDescriptions(int ordinal) {
+		final int start = intAt(descriptionOffsets, ordinal);
+		final int end = intAt(descriptionOffsets, ordinal + 1);
+		if (start == end) {
+			return Collections.emptyList();
+		}
+		final List<Description> conceptDescriptions = new ArrayList<>(end - start);
+		for (int entry = start; entry < end; entry++) {
+			final long description = (long) entry * DESCRIPTION_FIELDS;
+			final long id = longAt(descriptions, description);
+			final boolean active = longAt(descriptions, description + 1) == 1;
+			final String term = values.text(longAt(descriptions, description + 2));
+			final long conceptId = longAt(descriptions, description + 3);
+			conceptDescriptions.add(id != NULL_VALUE ? new DescriptionImpl(id, active, term, conceptId)
+					: new DescriptionImpl(term, active, conceptId != NULL_VALUE ? conceptId : null));
+		}
+		return Collections.unmodifiableList(conceptDescriptions);
+	}
+
+	/**
+	 * Walks the hierarchy depth first from the given concept, without recursion.
+	 * @throws IllegalStateException if an edge points to an inactive concept or if an ancestor loop is found.
+	 */
+	private Set<Long> collectReachableIds(int ordinal, ByteBuffer offsets, ByteBuffer edges, boolean ancestors) {
+		// Also the concepts visited, so the memory used grows with the result rather than the store
+		final LongOpenHashSet reachableIds = new LongOpenHashSet();
+		final IntOpenHashSet onPath = ancestors ? new IntOpenHashSet() : null;
+		int[] path = new int[16];
+		int[] nextEdge = new int[16];
+		path[0] = ordinal;
+		nextEdge[0] = intAt(offsets, ordinal);
+		if (onPath != null) {
+			onPath.add(ordinal);
+		}
+		int depth = 1;
+		while (depth > 0) {
+			final int concept = path[depth - 1];
+			final int edge = nextEdge[depth - 1];
+			if (edge == intAt(offsets, concept + 1)) {
+				if (onPath != null) {
+					onPath.remove(concept);
+				}
+				depth--;
+				continue;
+			}
+			nextEdge[depth - 1]++;
+			final int next = intAt(edges, edge);
+			if (!isActive(next)) {
+				throw new IllegalStateException("Is-a relationship points to inactive " + (ancestors ? "parent" : "child") + " concept: "
+						+ getId(concept) + " -> " + getId(next));
+			}
+			if (onPath != null && onPath.contains(next)) {
+				throw new IllegalStateException("Ancestor loop detected: " + pathToString(path, depth, next));
+			}
+			if (reachableIds.add(getId(next))) {
+				if (depth == path.length) {
+					path = Arrays.copyOf(path, depth * 2);
+					nextEdge = Arrays.copyOf(nextEdge, depth * 2);
+				}
+				path[depth] = next;
+				nextEdge[depth] = intAt(offsets, next);
+				if (onPath != null) {
+					onPath.add(next);
+				}
+				depth++;
+			}
+		}
+		return reachableIds;
+	}
+
+	private String pathToString(int[] path, int depth, int next) {
+		final List<Long> pathIds = new ArrayList<>();
+		for (int i = 0; i < depth; i++) {
+			pathIds.add(getId(path[i]));
+		}
+		pathIds.add(getId(next));
+		return pathIds.toString();
+	}
+
+	private final class ConceptMap extends AbstractLong2ObjectMap<Concept> {
+
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public Concept get(long conceptId) {
+			final int ordinal = getOrdinal(conceptId);
+			return ordinal != -1 ? new MappedConcept(MappedComponentStore.this, ordinal) : null;
+		}
+
+		@Override
+		public Concept get(Object key) {
+			return key == null ? null : get(((Long) key).longValue());
+		}
+
+		@Override
+		public boolean containsKey(long conceptId) {
+			return getOrdinal(conceptId) != -1;
+		}
+
+		@Override
+		public int size() {
+			return conceptCount;
+		}
+
+		@Override
+		public ObjectSet<Long2ObjectMap.Entry<Concept>> long2ObjectEntrySet() {
+			return new AbstractObjectSet<Long2ObjectMap.Entry<Concept>>() {
+				@Override
+				public ObjectIterator<Long2ObjectMap.Entry<Concept>> iterator() {
+					return new AbstractObjectIterator<Long2ObjectMap.Entry<Concept>>() {
+						private int ordinal;
+
+						@Override
+						public boolean hasNext() {
+							return ordinal < conceptCount;
+						}
+
+						@Override
+						public Long2ObjectMap.Entry<Concept> next() {
+							final MappedConcept concept = new MappedConcept(MappedComponentStore.this, ordinal++);
+							return new BasicEntry<Concept>(concept.getId(), concept);
+						}
+					};
+				}
+
+				@Override
+				public int size() {
+					return conceptCount;
+				}
+			};
+		}
+	}
+}
@@ -0,0 +1,126 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.springframework.util.MultiValueMap;
+
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A flyweight view of one concept of a MappedComponentStore.
+ */
+final class MappedConcept implements Concept {
+
+	private final MappedComponentStore store;
+	private final int ordinal;
+
+	MappedConcept(MappedComponentStore store, int ordinal) {
+		this.store = store;
+		this.ordinal = ordinal;
+	}
+
+	@Override
+	public Long getId() {
+		return store.getId(ordinal);
+	}
+
+	@Override
+	public Set<Long> getMemberOfRefsetIds() {
+		return store.getMemberOfRefsetIds(ordinal);
+	}
+
+	/**
+	 * @return A set of all inferred ancestors
+	 * @throws IllegalStateException if an active relationship is found pointing to an inactive parent concept
+	 * or if an ancestor loop is found.
+	 */
+	@Override
+	public Set<Long> getInferredAncestorIds() throws IllegalStateException {
+		return store.getAncestorIds(ordinal, true);
+	}
+
+	/**
+	 * @return A set of all stated ancestors
+	 * @throws IllegalStateException if an active relationship is found pointing to an inactive parent concept
+	 * or if an ancestor loop is found.
+	 */
+	@Override
+	public Set<Long> getStatedAncestorIds() throws IllegalStateException {
+		return store.getAncestorIds(ordinal, false);
+	}
+
+	@Override
+	public Set<Long> getInferredDescendantIds() throws IllegalStateException {
+		return store.getDescendantIds(ordinal, true);
+	}
+
+	@Override
+	public Set<Long> getStatedDescendantIds() throws IllegalStateException {
+		return store.getDescendantIds(ordinal, false);
+	}
+
+	@Override
+	public boolean isActive() {
+		return store.isActive(ordinal);
+	}
+
+	@Override
+	public String getEffectiveTime() {
+		return store.getEffectiveTime(ordinal);
+	}
+
+	@Override
+	public String getModuleId() {
+		return store.getModuleId(ordinal);
+	}
+
+	@Override
+	public String getDefinitionStatusId() {
+		return store.getDefinitionStatusId(ordinal);
+	}
+
+	@Override
+	public String getFsn() {
+		return store.getFsn(ordinal);
+	}
+
+	@Override
+	public MultiValueMap<String, String> getInferredAttributes() {
+		return store.getAttributes(ordinal, true);
+	}
+
+	@Override
+	public MultiValueMap<String, String> getStatedAttributes() {
+		return store.getAttributes(ordinal, false);
+	}
+
+	@Override
+	public List<Relationship> getRelationships() {
+		return store.getRelationships(ordinal);
+	}
+
+	@Override
+	public List<Description> getDescriptions() {
+		return store.getDescriptions(ordinal);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o) return true;
+		if (o == null || getClass() != o.getClass()) return false;
+		final MappedConcept that = (MappedConcept) o;
+		return store == that.store && ordinal == that.ordinal;
+	}
+
+	@Override
+	public int hashCode() {
+		return ordinal;
+	}
+
+	@Override
+	public String toString() {
+		return getId() + " | " + getFsn() + " | ";
+	}
+}
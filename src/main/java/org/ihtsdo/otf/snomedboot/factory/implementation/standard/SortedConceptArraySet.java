@@ -0,0 +1,63 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import java.util.Arrays;
+
+/**
+ * A set of concepts held in an array sorted by concept id, which grows on demand.
+ * Most concepts have one or two parents and few children so this is far smaller than a HashSet.
+ */
+final class SortedConceptArraySet {
+
+	private ConceptImpl[] concepts = new ConceptImpl[1];
+	private int size;
+
+	boolean add(ConceptImpl concept) {
+		int index = indexOf(concept.id());
+		if (index >= 0) {
+			return false;
+		}
+		index = -(index + 1);
+		if (size == concepts.length) {
+			concepts = Arrays.copyOf(concepts, size * 2);
+		}
+		System.arraycopy(concepts, index, concepts, index + 1, size - index);
+		concepts[index] = concept;
+		size++;
+		return true;
+	}
+
+	boolean remove(ConceptImpl concept) {
+		final int index = indexOf(concept.id());
+		if (index < 0) {
+			return false;
+		}
+		System.arraycopy(concepts, index + 1, concepts, index, size - index - 1);
+		concepts[--size] = null;
+		return true;
+	}
+
+	int size() {
+		return size;
+	}
+
+	ConceptImpl get(int index) {
+		return concepts[index];
+	}
+
+	private int indexOf(long id) {
+		int low = 0;
+		int high = size - 1;
+		while (low <= high) {
+			final int mid = (low + high) >>> 1;
+			final long midId = concepts[mid].id();
+			if (midId < id) {
+				low = mid + 1;
+			} else if (midId > id) {
+				high = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+		return -(low + 1);
+	}
+}
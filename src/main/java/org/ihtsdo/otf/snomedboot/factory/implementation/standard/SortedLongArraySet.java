@@ -0,0 +1,88 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import java.util.AbstractSet;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * A set of longs held in a sorted array which grows on demand.
+ */
+final class SortedLongArraySet extends AbstractSet<Long> {
+
+	private long[] values = new long[1];
+	private int size;
+
+	boolean add(long value) {
+		int index = Arrays.binarySearch(values, 0, size, value);
+		if (index >= 0) {
+			return false;
+		}
+		index = -(index + 1);
+		if (size == values.length) {
+			values = Arrays.copyOf(values, size * 2);
+		}
+		System.arraycopy(values, index, values, index + 1, size - index);
+		values[index] = value;
+		size++;
+		return true;
+	}
+
+	boolean contains(long value) {
+		return Arrays.binarySearch(values, 0, size, value) >= 0;
+	}
+
+	@Override
+	public boolean add(Long value) {
+		return add(value.longValue());
+	}
+
+	@Override
+	public boolean contains(Object value) {
+		return value instanceof Long && contains(((Long) value).longValue());
+	}
+
+	@Override
+	public boolean remove(Object value) {
+		if (!(value instanceof Long)) {
+			return false;
+		}
+		final int index = Arrays.binarySearch(values, 0, size, (Long) value);
+		if (index < 0) {
+			return false;
+		}
+		System.arraycopy(values, index + 1, values, index, size - index - 1);
+		size--;
+		return true;
+	}
+
+	@Override
+	public int size() {
+		return size;
+	}
+
+	@Override
+	public Iterator<Long> iterator() {
+		return new Iterator<Long>() {
+			private int next;
+
+			@Override
+			public boolean hasNext() {
+				return next < size;
+			}
+
+			@Override
+			public Long next() {
+				if (next >= size) {
+					throw new NoSuchElementException();
+				}
+				return values[next++];
+			}
+
+			@Override
+			public void remove() {
+				SortedLongArraySet.this.remove(values[--next]);
+			}
+		};
+	}
+}
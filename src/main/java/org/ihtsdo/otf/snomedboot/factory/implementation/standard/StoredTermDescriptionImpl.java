@@ -0,0 +1,43 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.domain.Description;
+
+/**
+ * A description whose term is held in a TermStore rather than on the heap, the term is decoded each time it is asked for.
+ */
+public final class StoredTermDescriptionImpl implements Description {
+
+	private final long id;
+	private final long conceptId;
+	private final long termAddress;
+	private final TermStore termStore;
+	private final boolean active;
+
+	public StoredTermDescriptionImpl(long id, boolean active, String term, long conceptId, TermStore termStore) {
+		this.id = id;
+		this.active = active;
+		this.conceptId = conceptId;
+		this.termStore = termStore;
+		this.termAddress = termStore.append(term);
+	}
+
+	@Override
+	public Long getId() {
+		return id;
+	}
+
+	@Override
+	public boolean isActive() {
+		return active;
+	}
+
+	@Override
+	public String getTerm() {
+		return termStore.getTerm(termAddress);
+	}
+
+	@Override
+	public Long getConceptId() {
+		return conceptId;
+	}
+}
@@ -0,0 +1,73 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+/**
+ * Holds description terms as UTF-8 bytes in direct buffers, outside the garbage collected heap.
+ * Each term is appended once and read back by the address append returns, the String is made each time it is read.
+ * Terms are never removed, those of descriptions replaced by a delta remain in the store.
+ * The buffers are freed when the store, and every description which refers to it, is no longer reachable.
+ * <p>
+ * Safe to append from several threads. Terms may be read while others are appended.
+ */
+public final class TermStore {
+
+	public static final int DEFAULT_CHUNK_SIZE = 16 * 1024 * 1024;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	// Each term is written after its length
+	private static final int LENGTH_BYTES = 4;
+
+	private final int chunkSize;
+	private volatile ByteBuffer[] chunks = new ByteBuffer[0];
+	private ByteBuffer chunk;
+	private long size;
+
+	public TermStore() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+	public TermStore(int chunkSize) {
+		this.chunkSize = chunkSize;
+	}
+
+	/**
+	 * @return The address of the term, to read it back with getTerm.
+	 */
+	public long append(String term) {
+		final byte[] bytes = term.getBytes(UTF_8);
+		final int length = bytes.length + LENGTH_BYTES;
+		synchronized (this) {
+			if (chunk == null || chunk.remaining() < length) {
+				// A term longer than a chunk has a chunk of its own
+				chunk = ByteBuffer.allocateDirect(Math.max(chunkSize, length));
+				final ByteBuffer[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+				grown[chunks.length] = chunk;
+				chunks = grown;
+			}
+			final long address = (long) (chunks.length - 1) << 32 | chunk.position();
+			chunk.putInt(bytes.length);
+			chunk.put(bytes);
+			size += length;
+			return address;
+		}
+	}
+
+	public String getTerm(long address) {
+		final ByteBuffer buffer = chunks[(int) (address >>> 32)];
+		final int offset = (int) address;
+		final byte[] bytes = new byte[buffer.getInt(offset)];
+		for (int i = 0; i < bytes.length; i++) {
+			bytes[i] = buffer.get(offset + LENGTH_BYTES + i);
+		}
+		return new String(bytes, UTF_8);
+	}
+
+	/**
+	 * @return The number of bytes appended, lengths included.
+	 */
+	public synchronized long size() {
+		return size;
+	}
+}
@@ -0,0 +1,144 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Set;
+
+/**
+ * The transitive closure of the inferred or stated hierarchy, held as a sorted array of ancestor ordinals per concept.
+ * A subsumption test is a hash lookup and a binary search rather than a walk of the hierarchy.
+ * The closure reflects the concepts at the time it was built.
+ */
+public final class TransitiveClosure {
+
+	private static final int NO_ORDINAL = -1;
+	private static final int[] NO_ANCESTORS = new int[0];
+
+	private final Long2IntOpenHashMap ordinals;
+	private final long[] ids;
+	private final int[][] ancestors;
+
+	private TransitiveClosure(Long2IntOpenHashMap ordinals, long[] ids, int[][] ancestors) {
+		this.ordinals = ordinals;
+		this.ids = ids;
+		this.ancestors = ancestors;
+	}
+
+	/**
+	 * @throws IllegalStateException if an active relationship is found pointing to an inactive parent concept
+	 * or if an ancestor loop is found.
+	 */
+	public static TransitiveClosure build(Collection<ConceptImpl> concepts, boolean inferred) throws IllegalStateException {
+		final int conceptCount = concepts.size();
+		final Long2IntOpenHashMap ordinals = new Long2IntOpenHashMap(conceptCount);
+		ordinals.defaultReturnValue(NO_ORDINAL);
+		final ConceptImpl[] conceptsByOrdinal = concepts.toArray(new ConceptImpl[conceptCount]);
+		final long[] ids = new long[conceptCount];
+		for (int i = 0; i < conceptCount; i++) {
+			ids[i] = conceptsByOrdinal[i].id();
+			ordinals.put(ids[i], i);
+		}
+
+		// Depth first, without recursion, so the ancestors of every parent are known before those of its children
+		final int[][] ancestors = new int[conceptCount][];
+		final boolean[] onPath = new boolean[conceptCount];
+		int[] path = new int[16];
+		int[] nextParent = new int[16];
+		for (int root = 0; root < conceptCount; root++) {
+			if (ancestors[root] != null) {
+				continue;
+			}
+			path[0] = root;
+			nextParent[0] = 0;
+			onPath[root] = true;
+			int depth = 1;
+			while (depth > 0) {
+				final int ordinal = path[depth - 1];
+				final ConceptImpl concept = conceptsByOrdinal[ordinal];
+				final SortedConceptArraySet parents = concept.parents(inferred);
+				final int parentIndex = nextParent[depth - 1];
+				if (parents == null || parentIndex == parents.size()) {
+					ancestors[ordinal] = union(parents, ordinals, ancestors);
+					onPath[ordinal] = false;
+					depth--;
+					continue;
+				}
+				nextParent[depth - 1]++;
+				final ConceptImpl parent = parents.get(parentIndex);
+				if (!parent.isActive()) {
+					throw new IllegalStateException("Is-a relationship points to inactive parent concept: " + concept.getId() + " -> " + parent.getId());
+				}
+				final int parentOrdinal = ordinals.get(parent.id());
+				if (parentOrdinal == NO_ORDINAL) {
+					throw new IllegalStateException("Parent concept " + parent.getId() + " of " + concept.getId() + " is not in the given concepts.");
+				}
+				if (onPath[parentOrdinal]) {
+					throw new IllegalStateException("Ancestor loop detected: " + concept.getId() + " -> " + parent.getId());
+				}
+				if (ancestors[parentOrdinal] == null) {
+					if (depth == path.length) {
+						path = Arrays.copyOf(path, depth * 2);
+						nextParent = Arrays.copyOf(nextParent, depth * 2);
+					}
+					path[depth] = parentOrdinal;
+					nextParent[depth] = 0;
+					onPath[parentOrdinal] = true;
+					depth++;
+				}
+			}
+		}
+		return new TransitiveClosure(ordinals, ids, ancestors);
+	}
+
+	private static int[] union(SortedConceptArraySet parents, Long2IntOpenHashMap ordinals, int[][] ancestors) {
+		if (parents == null || parents.size() == 0) {
+			return NO_ANCESTORS;
+		}
+		int length = 0;
+		for (int i = 0; i < parents.size(); i++) {
+			length += ancestors[ordinals.get(parents.get(i).id())].length + 1;
+		}
+		final int[] union = new int[length];
+		int offset = 0;
+		for (int i = 0; i < parents.size(); i++) {
+			final int parentOrdinal = ordinals.get(parents.get(i).id());
+			final int[] parentAncestors = ancestors[parentOrdinal];
+			System.arraycopy(parentAncestors, 0, union, offset, parentAncestors.length);
+			offset += parentAncestors.length;
+			union[offset++] = parentOrdinal;
+		}
+		Arrays.sort(union);
+		int size = 0;
+		for (int i = 0; i < union.length; i++) {
+			if (size == 0 || union[size - 1] != union[i]) {
+				union[size++] = union[i];
+			}
+		}
+		return size == union.length ? union : Arrays.copyOf(union, size);
+	}
+
+	/**
+	 * @return true if ancestorId is a proper ancestor of conceptId, false otherwise or if either concept is unknown.
+	 */
+	public boolean isDescendantOf(long conceptId, long ancestorId) {
+		final int ordinal = ordinals.get(conceptId);
+		final int ancestorOrdinal = ordinals.get(ancestorId);
+		return ordinal != NO_ORDINAL && ancestorOrdinal != NO_ORDINAL && Arrays.binarySearch(ancestors[ordinal], ancestorOrdinal) >= 0;
+	}
+
+	/**
+	 * @return The ancestor ids of the concept, empty if the concept is unknown.
+	 */
+	public Set<Long> getAncestorIds(long conceptId) {
+		final int ordinal = ordinals.get(conceptId);
+		final int[] ancestorOrdinals = ordinal != NO_ORDINAL ? ancestors[ordinal] : NO_ANCESTORS;
+		final LongOpenHashSet ancestorIds = new LongOpenHashSet(ancestorOrdinals.length);
+		for (int ancestorOrdinal : ancestorOrdinals) {
+			ancestorIds.add(ids[ancestorOrdinal]);
+		}
+		return ancestorIds;
+	}
+}
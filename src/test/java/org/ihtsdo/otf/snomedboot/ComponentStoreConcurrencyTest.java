@@ -0,0 +1,123 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Drives the callbacks of the parallel load phase from many threads at once against a small set of shared parent concepts.
+ */
+public class ComponentStoreConcurrencyTest {
+
+	private static final int THREADS = 8;
+	private static final int CHILDREN_PER_THREAD = 20_000;
+	private static final int PARENTS = 10;
+
+	@Test
+	public void testParallelLoadPhase() throws Exception {
+		final ComponentStore componentStore = new ComponentStore();
+		final ComponentFactory componentFactory = new ComponentFactoryImpl(componentStore);
+		final CountDownLatch startGate = new CountDownLatch(1);
+
+		// Concepts are loaded before the parallel phase, as in an import
+		for (int p = 0; p < PARENTS; p++) {
+			newConceptState(componentFactory, parentId(p));
+		}
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < CHILDREN_PER_THREAD; i++) {
+				newConceptState(componentFactory, childId(t, i));
+			}
+		}
+
+		final List<Callable<Void>> tasks = new ArrayList<>();
+		for (int t = 0; t < THREADS; t++) {
+			final int thread = t;
+			tasks.add(new Callable<Void>() {
+				@Override
+				public Void call() throws Exception {
+					startGate.await();
+					final String refsetId = Long.toString(refsetId(thread));
+					for (int i = 0; i < CHILDREN_PER_THREAD; i++) {
+						final String childId = Long.toString(childId(thread, i));
+						final String parentId = Long.toString(parentId(i));
+						componentFactory.addInferredConceptParent(childId, parentId);
+						componentFactory.addInferredConceptChild(childId, parentId);
+						componentFactory.addInferredConceptAttribute(parentId, "363698007", childId);
+						componentFactory.newRelationshipState(Long.toString(childId(thread, i) * 10 + 2), "20170131", "1", "900000000000207008", parentId, childId,
+								"0", "246075003", "900000000000011006", "900000000000451002");
+						componentFactory.newDescriptionState(Long.toString(childId(thread, i) * 10 + 1), "20170131", "1", "900000000000207008",
+								parentId, "en", "900000000000013009", "Synonym " + i, "900000000000448009");
+						componentFactory.addConceptReferencedInRefsetId(refsetId, parentId);
+						// Concepts missing from the concept file are added to the store by whichever thread references them first
+						componentFactory.addConceptReferencedInRefsetId(refsetId, Long.toString(unloadedConceptId(i)));
+					}
+					return null;
+				}
+			});
+		}
+
+		final ExecutorService executorService = Executors.newFixedThreadPool(THREADS);
+		try {
+			final List<Future<Void>> futures = new ArrayList<>();
+			for (Callable<Void> task : tasks) {
+				futures.add(executorService.submit(task));
+			}
+			startGate.countDown();
+			for (Future<Void> future : futures) {
+				future.get();
+			}
+		} finally {
+			executorService.shutdown();
+		}
+
+		Assert.assertEquals(THREADS * CHILDREN_PER_THREAD + PARENTS + CHILDREN_PER_THREAD, componentStore.getConcepts().size());
+
+		final int childrenPerParent = THREADS * CHILDREN_PER_THREAD / PARENTS;
+		for (int p = 0; p < PARENTS; p++) {
+			final Concept parent = componentStore.getConcepts().get(parentId(p));
+			Assert.assertEquals(childrenPerParent, parent.getInferredDescendantIds().size());
+			Assert.assertEquals(childrenPerParent, parent.getInferredAttributes().get("363698007").size());
+			Assert.assertEquals(childrenPerParent, parent.getRelationships().size());
+			Assert.assertEquals(childrenPerParent, parent.getDescriptions().size());
+			Assert.assertEquals(THREADS, parent.getMemberOfRefsetIds().size());
+		}
+		for (int t = 0; t < THREADS; t++) {
+			for (int i = 0; i < CHILDREN_PER_THREAD; i++) {
+				Assert.assertEquals(1, componentStore.getConcepts().get(childId(t, i)).getInferredAncestorIds().size());
+			}
+		}
+		for (int i = 0; i < CHILDREN_PER_THREAD; i++) {
+			Assert.assertEquals(THREADS, componentStore.getConcepts().get(unloadedConceptId(i)).getMemberOfRefsetIds().size());
+		}
+	}
+
+	private static void newConceptState(ComponentFactory componentFactory, long conceptId) {
+		componentFactory.newConceptState(Long.toString(conceptId), "20170131", "1", "900000000000207008", "900000000000074008");
+	}
+
+	private static long parentId(int i) {
+		return 1000000000L + (i % PARENTS) * 1000 + 4;
+	}
+
+	private static long childId(int thread, int i) {
+		return 2000000000L + (thread * (long) CHILDREN_PER_THREAD + i) * 1000 + 5;
+	}
+
+	private static long unloadedConceptId(int i) {
+		return 4000000000L + i * 1000L + 4;
+	}
+
+	private static long refsetId(int thread) {
+		return 3000000000L + thread * 1000 + 6;
+	}
+}
@@ -0,0 +1,157 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ConceptImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ComponentStoreTest {
+
+	@Test
+	public void testTransitiveClosureMatchesHierarchyWalk() throws Exception {
+		final ComponentStore componentStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(ReleaseImporterTest.RELEASE_PATH, LoadingProfile.complete, new ComponentFactoryImpl(componentStore));
+		componentStore.buildTransitiveClosure();
+
+		Assert.assertTrue(componentStore.isInferredDescendantOf(46635009L, 138875005L));
+		Assert.assertTrue(componentStore.isStatedDescendantOf(46635009L, 73211009L));
+		Assert.assertFalse(componentStore.isInferredDescendantOf(138875005L, 46635009L));
+		Assert.assertFalse(componentStore.isInferredDescendantOf(46635009L, 46635009L));
+		Assert.assertFalse(componentStore.isInferredDescendantOf(46635009L, 123L));
+		Assert.assertEquals(new HashSet<>(Arrays.asList(73211009L, 64572001L, 404684003L, 138875005L)),
+				componentStore.getInferredTransitiveClosure().getAncestorIds(46635009L));
+
+		for (ConceptImpl concept : componentStore.getConcepts().values()) {
+			Assert.assertEquals(concept.getInferredAncestorIds(), componentStore.getInferredTransitiveClosure().getAncestorIds(concept.getId()));
+			Assert.assertEquals(concept.getStatedAncestorIds(), componentStore.getStatedTransitiveClosure().getAncestorIds(concept.getId()));
+			for (Concept other : componentStore.getConcepts().values()) {
+				Assert.assertEquals(concept.getInferredAncestorIds().contains(other.getId()), componentStore.isInferredDescendantOf(concept.getId(), other.getId()));
+			}
+		}
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void testSubsumptionBeforeTransitiveClosureBuilt() {
+		new ComponentStore().isInferredDescendantOf(46635009L, 138875005L);
+	}
+
+	@Test
+	public void testTransitiveClosureAncestorLoop() {
+		final ComponentStore componentStore = new ComponentStore();
+		final ComponentFactoryImpl componentFactory = new ComponentFactoryImpl(componentStore);
+		for (String conceptId : Arrays.asList("138875005", "404684003", "64572001")) {
+			componentFactory.newConceptState(conceptId, "20170131", "1", "900000000000207008", "900000000000074008");
+		}
+		componentFactory.addInferredConceptParent("404684003", "138875005");
+		componentFactory.addInferredConceptParent("64572001", "404684003");
+		componentFactory.addInferredConceptParent("404684003", "64572001");
+		try {
+			componentStore.buildTransitiveClosure();
+			Assert.fail("Expected loop to be detected");
+		} catch (IllegalStateException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().startsWith("Ancestor loop detected"));
+		}
+	}
+
+	@Test
+	public void testStringCallbacksHoldValuesAsGiven() {
+		final ComponentStore componentStore = new ComponentStore();
+		final ComponentFactoryImpl componentFactory = new ComponentFactoryImpl(componentStore);
+		componentFactory.newConceptState("404684003", "", "1", "0900000000000207008", "primitive");
+		componentFactory.newRelationshipState("100022", "", "1", "0900000000000207008", "404684003", "138875005", "", "0116680003",
+				"900000000000011006", "900000000000451002");
+		componentFactory.addInferredConceptAttribute("404684003", "0363698007", "site");
+
+		final ConceptImpl concept = componentStore.getConcepts().get(404684003L);
+		Assert.assertEquals(" 0900000000000207008 primitive", concept.getEffectiveTime() + " " + concept.getModuleId() + " " + concept.getDefinitionStatusId());
+		Assert.assertEquals("0116680003", concept.getRelationships().get(0).getTypeId());
+		Assert.assertEquals("", concept.getRelationships().get(0).getRelationshipGroup());
+		Assert.assertEquals(Arrays.asList("site"), concept.getInferredAttributes().get("0363698007"));
+	}
+
+	@Test
+	public void testHierarchyWalkOfDeepPolyhierarchy() {
+		final ComponentStore componentStore = new ComponentStore();
+		final ComponentFactoryImpl componentFactory = new ComponentFactoryImpl(componentStore);
+		// Two concepts per level, each a child of both concepts of the level above, gives 2^60 paths to the root
+		final int levels = 60;
+		newConceptState(componentFactory, 0);
+		for (int level = 1; level <= levels; level++) {
+			for (int i = 0; i < 2; i++) {
+				newConceptState(componentFactory, ladderIndex(level, i));
+				for (int parent = 0; parent < (level == 1 ? 1 : 2); parent++) {
+					addInferredParent(componentFactory, ladderIndex(level, i), level == 1 ? 0 : ladderIndex(level - 1, parent));
+				}
+			}
+		}
+		// And a single chain deeper than a recursive walk could go
+		final int chainLength = 50_000;
+		for (int i = 1; i <= chainLength; i++) {
+			newConceptState(componentFactory, 1000 + i);
+			addInferredParent(componentFactory, 1000 + i, i == 1 ? 0 : 1000 + i - 1);
+		}
+
+		Assert.assertEquals(levels * 2 - 1, componentStore.getConcepts().get(conceptId(ladderIndex(levels, 0))).getInferredAncestorIds().size());
+		Assert.assertEquals(chainLength, componentStore.getConcepts().get(conceptId(1000 + chainLength)).getInferredAncestorIds().size());
+		Assert.assertEquals(levels * 2 + chainLength, componentStore.getConcepts().get(conceptId(0)).getInferredDescendantIds().size());
+	}
+
+	@Test
+	public void testHierarchyCache() {
+		final ComponentStore componentStore = new ComponentStore();
+		final ComponentFactoryImpl componentFactory = new ComponentFactoryImpl(componentStore);
+		for (int i = 0; i < 4; i++) {
+			newConceptState(componentFactory, i);
+		}
+		addInferredParent(componentFactory, 1, 0);
+		addInferredParent(componentFactory, 2, 1);
+		addInferredParent(componentFactory, 3, 2);
+		componentStore.setHierarchyCacheEnabled(true);
+
+		final Concept concept = componentStore.getConcepts().get(conceptId(3));
+		final Set<Long> ancestorIds = concept.getInferredAncestorIds();
+		Assert.assertEquals(new HashSet<>(Arrays.asList(conceptId(0), conceptId(1), conceptId(2))), ancestorIds);
+		Assert.assertSame(ancestorIds, concept.getInferredAncestorIds());
+		Assert.assertEquals(3, componentStore.getConcepts().get(conceptId(0)).getInferredDescendantIds().size());
+		try {
+			ancestorIds.add(1L);
+			Assert.fail("Cached sets should be unmodifiable");
+		} catch (UnsupportedOperationException e) {
+			// Expected
+		}
+
+		// Delta loads change the hierarchy after sets have been cached
+		componentFactory.removeInferredConceptParent(Long.toString(conceptId(2)), Long.toString(conceptId(1)));
+		componentFactory.removeInferredConceptChild(Long.toString(conceptId(2)), Long.toString(conceptId(1)));
+		addInferredParent(componentFactory, 2, 0);
+		Assert.assertEquals(new HashSet<>(Arrays.asList(conceptId(0), conceptId(2))), concept.getInferredAncestorIds());
+		Assert.assertEquals(new HashSet<>(Arrays.asList(conceptId(1), conceptId(2), conceptId(3))),
+				componentStore.getConcepts().get(conceptId(0)).getInferredDescendantIds());
+
+		componentStore.setHierarchyCacheEnabled(false);
+		Assert.assertNotSame(concept.getInferredAncestorIds(), concept.getInferredAncestorIds());
+	}
+
+	private static void newConceptState(ComponentFactoryImpl componentFactory, int index) {
+		componentFactory.newConceptState(Long.toString(conceptId(index)), "20170131", "1", "900000000000207008", "900000000000074008");
+	}
+
+	private static void addInferredParent(ComponentFactoryImpl componentFactory, int index, int parentIndex) {
+		componentFactory.addInferredConceptParent(Long.toString(conceptId(index)), Long.toString(conceptId(parentIndex)));
+		componentFactory.addInferredConceptChild(Long.toString(conceptId(index)), Long.toString(conceptId(parentIndex)));
+	}
+
+	private static int ladderIndex(int level, int i) {
+		return level * 2 + i - 1;
+	}
+
+	private static long conceptId(int index) {
+		return 100000000L + index * 1000L + 5;
+	}
+}
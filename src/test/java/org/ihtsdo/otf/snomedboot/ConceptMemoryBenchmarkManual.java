@@ -0,0 +1,218 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
+import org.ihtsdo.otf.snomedboot.factory.ComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.PrimitiveComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.implementation.columnar.ColumnarComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.implementation.columnar.ColumnarComponentStore;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentStoreImage;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.MappedComponentStore;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.TermStore;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import javax.management.ObjectName;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Reports the retained heap of a ComponentStore, and of a ColumnarComponentStore, filled with the callbacks that the light and complete
+ * loading profiles make for an International Edition shaped hierarchy.
+ * Metadata values are made as a new String per row, as reading them from a file does, and either held as they are
+ * or shared through an IdentifierPool as the ReleaseImporter does. Relationship states are made either as Strings or,
+ * as the ReleaseImporter makes them for both factories, as primitive callbacks. A class histogram of the heap is
+ * printed for each complete load of the standard store. Description terms are held either as Strings or in a TermStore.
+ * The last row is the heap of a MappedComponentStore over an image of the complete load.
+ * Run with a fixed heap, e.g. -Xmx4g, for comparable numbers.
+ */
+public class ConceptMemoryBenchmarkManual {
+
+	private static final int CONCEPTS = 420_000;
+	private static final String MODULE = ConceptConstants.CORE_MODULE;
+	private static final String EFFECTIVE_TIME = "20170131";
+
+	private enum Callbacks {
+		STRINGS, POOLED_STRINGS, PRIMITIVE
+	}
+
+	@Test
+	public void benchmark() throws IOException {
+		report("light", load(false, false, Callbacks.PRIMITIVE, false));
+		report("complete strings", load(true, false, Callbacks.STRINGS, false));
+		report("complete pooled", load(true, false, Callbacks.POOLED_STRINGS, false));
+		report("complete", load(true, false, Callbacks.PRIMITIVE, false));
+		report("complete term store", load(true, false, Callbacks.PRIMITIVE, true));
+		report("light columnar", load(false, true, Callbacks.PRIMITIVE, false));
+		report("complete columnar", load(true, true, Callbacks.PRIMITIVE, false));
+		report("complete mapped", mapped());
+	}
+
+	private long load(boolean complete, boolean columnar, Callbacks callbacks, boolean offHeapTerms) {
+		final long before = usedMemory();
+		final ComponentStore componentStore = new ComponentStore();
+		final ColumnarComponentStore columnarStore = new ColumnarComponentStore();
+		final TermStore termStore = offHeapTerms ? new TermStore() : null;
+		final ComponentFactory factory = columnar ? new ColumnarComponentFactory(columnarStore, termStore) : new ComponentFactoryImpl(componentStore, termStore);
+		fill(factory, complete, callbacks);
+
+		final long retained = usedMemory() - before;
+		if (complete && !columnar) {
+			printClassHistogram(callbacks.name().toLowerCase() + (offHeapTerms ? ", term store" : ""));
+		}
+		if (termStore != null) {
+			System.out.println(String.format("Term store holds %,d MB off the heap", termStore.size() / 1024 / 1024));
+		}
+		if ((columnar ? columnarStore.getConcepts() : componentStore.getConcepts()).size() != CONCEPTS) {
+			throw new IllegalStateException();
+		}
+		return retained;
+	}
+
+	/**
+	 * Makes the callbacks of a load of the synthetic hierarchy.
+	 */
+	private void fill(ComponentFactory factory, boolean complete, Callbacks callbacks) {
+		final Random random = new Random(1);
+		final IdentifierPool identifierPool = callbacks != Callbacks.STRINGS ? new IdentifierPool() : null;
+
+		for (int i = 0; i < CONCEPTS; i++) {
+			factory.newConceptState(conceptId(i), read(EFFECTIVE_TIME, identifierPool), "1", read(MODULE, identifierPool),
+					read("900000000000074008", identifierPool));
+		}
+		long relationshipId = 1;
+		long descriptionId = 1;
+		for (int i = 1; i < CONCEPTS; i++) {
+			final String conceptId = conceptId(i);
+			// Most concepts have one or two parents, all parents come earlier so the hierarchy is a DAG
+			final int parents = random.nextInt(10) < 7 ? 1 : 2;
+			for (int p = 0; p < parents; p++) {
+				final String parentId = conceptId(random.nextInt(i));
+				factory.addInferredConceptParent(conceptId, parentId);
+				factory.addInferredConceptChild(conceptId, parentId);
+				if (complete) {
+					factory.addStatedConceptParent(conceptId, parentId);
+					factory.addStatedConceptChild(conceptId, parentId);
+					newRelationshipState(factory, callbacks, identifierPool, relationshipId++, conceptId, parentId, "0", ConceptConstants.isA);
+				}
+			}
+			for (int a = 0; a < 2; a++) {
+				final String valueId = conceptId(random.nextInt(CONCEPTS));
+				factory.addInferredConceptAttribute(conceptId, read("363698007", identifierPool), valueId);
+				if (complete) {
+					newRelationshipState(factory, callbacks, identifierPool, relationshipId++, conceptId, valueId, "1", "363698007");
+				}
+			}
+			final String fsn = "Concept number " + i + " (disorder)";
+			factory.addConceptFSN(conceptId, fsn);
+			if (complete) {
+				for (int d = 0; d < 3; d++) {
+					factory.newDescriptionState(Long.toString(descriptionId++) + "011", EFFECTIVE_TIME, "1", MODULE, conceptId, "en",
+							d == 0 ? ConceptConstants.FSN : "900000000000013009", d == 0 ? fsn : "Synonym " + d + " of " + i, "900000000000448009");
+				}
+				if (random.nextInt(3) == 0) {
+					factory.addConceptReferencedInRefsetId("734138000", conceptId);
+				}
+			}
+		}
+
+		factory.loadingComponentsCompleted();
+	}
+
+	/**
+	 * @return The heap retained by a MappedComponentStore of a complete load once every concept has been read.
+	 */
+	private long mapped() throws IOException {
+		final Path tempDir = Files.createTempDirectory("concept-memory-benchmark");
+		try {
+			final Path imageFile = tempDir.resolve("store.image");
+			writeImage(imageFile);
+			System.out.println(String.format("Image file %,d MB", Files.size(imageFile) / 1024 / 1024));
+
+			final long before = usedMemory();
+			final MappedComponentStore mappedStore = MappedComponentStore.open(imageFile);
+			int descriptions = 0;
+			for (Concept concept : mappedStore.getConcepts().values()) {
+				descriptions += concept.getDescriptions().size();
+			}
+			final long retained = usedMemory() - before;
+			if (mappedStore.getConcepts().size() != CONCEPTS || descriptions == 0) {
+				throw new IllegalStateException();
+			}
+			return retained;
+		} finally {
+			FileSystemUtils.deleteRecursively(tempDir.toFile());
+		}
+	}
+
+	private void writeImage(Path imageFile) throws IOException {
+		final ComponentStore componentStore = new ComponentStore();
+		fill(new ComponentFactoryImpl(componentStore), true, Callbacks.PRIMITIVE);
+		ComponentStoreImage.write(componentStore, imageFile, imageFile.getParent().toString(), LoadingProfile.complete);
+	}
+
+	private void newRelationshipState(ComponentFactory factory, Callbacks callbacks, IdentifierPool identifierPool, long relationshipId,
+			String sourceId, String destinationId, String relationshipGroup, String typeId) {
+		final String id = relationshipId + "020";
+		if (callbacks == Callbacks.PRIMITIVE) {
+			((PrimitiveComponentFactory) factory).newRelationshipState(Long.parseLong(id), Integer.parseInt(EFFECTIVE_TIME), true,
+					Long.parseLong(MODULE), Long.parseLong(sourceId), Long.parseLong(destinationId), Integer.parseInt(relationshipGroup),
+					Long.parseLong(typeId), Long.parseLong(ConceptConstants.INFERRED_RELATIONSHIP), Long.parseLong(ConceptConstants.EXISTENTIAL_MODIFIER));
+		} else {
+			factory.newRelationshipState(id, read(EFFECTIVE_TIME, identifierPool), "1", read(MODULE, identifierPool), sourceId, destinationId,
+					read(relationshipGroup, identifierPool), read(typeId, identifierPool), read(ConceptConstants.INFERRED_RELATIONSHIP, identifierPool),
+					read(ConceptConstants.EXISTENTIAL_MODIFIER, identifierPool));
+		}
+	}
+
+	/**
+	 * @return A new String equal to the value, as reading it from a row makes, taken from the pool if one is given.
+	 */
+	private String read(String value, IdentifierPool identifierPool) {
+		final String string = new String(value.toCharArray());
+		return identifierPool != null ? identifierPool.intern(string) : string;
+	}
+
+	private String conceptId(int i) {
+		return Long.toString(100000000L + i * 1000L + 5);
+	}
+
+	private long usedMemory() {
+		final Runtime runtime = Runtime.getRuntime();
+		for (int i = 0; i < 5; i++) {
+			System.gc();
+		}
+		return runtime.totalMemory() - runtime.freeMemory();
+	}
+
+	/**
+	 * Prints the heap histogram lines for Strings, their backing arrays and the component classes.
+	 */
+	private void printClassHistogram(String title) {
+		try {
+			final String histogram = (String) ManagementFactory.getPlatformMBeanServer().invoke(new ObjectName("com.sun.management:type=DiagnosticCommand"),
+					"gcClassHistogram", new Object[]{null}, new String[]{String[].class.getName()});
+			System.out.println("Class histogram, " + title + ":");
+			for (String line : histogram.split("\n")) {
+				// Newer JVMs follow the class name with its module
+				final String className = line.replaceAll(" \\(.*\\)$", "");
+				if (className.endsWith(" java.lang.String") || className.endsWith(" [B") || className.endsWith(" [C") || className.contains(" org.ihtsdo.")
+						|| line.startsWith(" num")) {
+					System.out.println(line);
+				}
+			}
+		} catch (Exception e) {
+			System.out.println("Class histogram not available: " + e);
+		}
+	}
+
+	private void report(String profile, long bytes) {
+		System.out.println(String.format("%-18s %,6d MB retained, %,5d bytes per concept", profile, bytes / 1024 / 1024, bytes / CONCEPTS));
+	}
+}
@@ -0,0 +1,69 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+public class MappedRF2FileTest {
+
+	private Path file;
+
+	@Before
+	public void setup() throws IOException {
+		file = Files.createTempFile("mapped-rf2-file", ".txt");
+	}
+
+	@After
+	public void tearDown() throws IOException {
+		Files.delete(file);
+	}
+
+	@Test
+	public void testEachLineReadOnce() throws Exception {
+		final StringBuilder content = new StringBuilder("id\tterm\r\n");
+		final List<String> expectedIds = new ArrayList<>();
+		for (int i = 0; i < 1000; i++) {
+			expectedIds.add(Integer.toString(i));
+			content.append(i).append("\tterm ").append(i % 7 == 0 ? "with a longer value " + i : "").append("\r\n");
+		}
+		content.setLength(content.length() - 2);
+		Files.write(file, content.toString().getBytes(Charset.forName("UTF-8")));
+
+		for (int chunks = 1; chunks <= 40; chunks++) {
+			final List<String> ids = new ArrayList<>();
+			try (MappedRF2File mappedFile = new MappedRF2File(file, 100, chunks)) {
+				Assert.assertEquals(Arrays.asList("id", "term"), Arrays.asList(mappedFile.getFieldNames()));
+				Assert.assertEquals(chunks, mappedFile.getChunkCount());
+				for (int i = 0; i < mappedFile.getChunkCount(); i++) {
+					try (RF2LineReader reader = mappedFile.openChunk(i)) {
+						while (reader.next()) {
+							Assert.assertEquals(2, reader.getRow().getFieldCount());
+							ids.add(reader.getRow().getString(0));
+						}
+					}
+				}
+			}
+			Assert.assertEquals("Lines read with " + chunks + " chunks", expectedIds, ids);
+		}
+	}
+
+	@Test
+	public void testHeaderOnly() throws Exception {
+		Files.write(file, "id\tterm".getBytes(Charset.forName("UTF-8")));
+		try (MappedRF2File mappedFile = new MappedRF2File(file, 100, 4)) {
+			Assert.assertEquals(Arrays.asList("id", "term"), Arrays.asList(mappedFile.getFieldNames()));
+			try (RF2LineReader reader = mappedFile.openChunk(0)) {
+				Assert.assertFalse(reader.next());
+			}
+		}
+	}
+}
@@ -0,0 +1,183 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.factory.IdentifierPool;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+public class RF2LineReaderTest {
+
+	@Test
+	public void testReadLines() throws Exception {
+		final RF2LineReader reader = reader("id\teffectiveTime\tactive\r\n100005\t20020131\t1\r\n\r\n100006\t20020131\t0", 64);
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("id", reader.getRow().getString(0));
+		Assert.assertEquals(3, reader.getRow().getFieldCount());
+
+		Assert.assertTrue(reader.next());
+		final RF2Row row = reader.getRow();
+		Assert.assertEquals("100005", row.getString(0));
+		Assert.assertEquals(100005L, row.getLong(0));
+		Assert.assertEquals(20020131, row.getInt(1));
+		Assert.assertEquals("1", row.getString(2));
+		Assert.assertTrue(row.fieldEquals(2, new byte[]{'1'}));
+		Assert.assertEquals(2, row.getLineNumber());
+
+		Assert.assertTrue("Blank line should be skipped", reader.next());
+		Assert.assertEquals("100006", row.getString(0));
+		Assert.assertEquals("Last line without line terminator", "0", row.getString(2));
+		Assert.assertFalse(reader.next());
+	}
+
+	@Test
+	public void testEmptyTrailingFieldsAndUnicode() throws Exception {
+		final RF2LineReader reader = reader("1\tSjögren's syndrome\t\t\n", 4);
+
+		Assert.assertTrue(reader.next());
+		final RF2Row row = reader.getRow();
+		Assert.assertEquals(4, row.getFieldCount());
+		Assert.assertEquals("Sjögren's syndrome", row.getString(1));
+		Assert.assertEquals("", row.getString(3));
+		Assert.assertEquals(2, row.getStrings(2).length);
+		Assert.assertFalse(reader.next());
+	}
+
+	@Test
+	public void testRowFilterSkipsLinesBeforeTokenizing() throws Exception {
+		final RF2LineReader reader = reader("1\t1\t447562003\ta\n2\t0\t447562003\tb\n3\t1\t900000000000509007\tc\n4\t1\n5\t1\t900000000000508004\n", 8);
+		reader.setRowFilter(new RF2RowFilter()
+				.withField(1, "1".getBytes(ReleaseImporter.UTF_8))
+				.withField(2, Arrays.asList("900000000000509007".getBytes(ReleaseImporter.UTF_8), "900000000000508004".getBytes(ReleaseImporter.UTF_8))));
+
+		Assert.assertTrue(reader.next());
+		Assert.assertEquals("c", reader.getRow().getString(3));
+		Assert.assertEquals("Skipped lines are counted", 3, reader.getRow().getLineNumber());
+
+		Assert.assertTrue("Line too short for the filter is passed on", reader.next());
+		Assert.assertEquals("4", reader.getRow().getString(0));
+		Assert.assertEquals(2, reader.getRow().getFieldCount());
+
+		Assert.assertTrue("Condition on the last field", reader.next());
+		Assert.assertEquals("5", reader.getRow().getString(0));
+		Assert.assertFalse(reader.next());
+	}
+
+	@Test(expected = NumberFormatException.class)
+	public void testNonNumericLong() throws Exception {
+		final RF2LineReader reader = reader("12a4\n", 16);
+		reader.next();
+		reader.getRow().getLong(0);
+	}
+
+	@Test
+	public void testOverflowingNumbers() throws Exception {
+		final RF2LineReader reader = reader("9223372036854775807\t9223372036854775808\t2147483648\n", 64);
+		reader.next();
+		final RF2Row row = reader.getRow();
+		Assert.assertEquals(Long.MAX_VALUE, row.getLong(0));
+		try {
+			row.getLong(1);
+			Assert.fail("Expected NumberFormatException");
+		} catch (NumberFormatException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("9223372036854775808"));
+		}
+		Assert.assertEquals(2147483648L, row.getLong(2));
+		try {
+			row.getInt(2);
+			Assert.fail("Expected NumberFormatException");
+		} catch (NumberFormatException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testShortLineAfterLongerLine() throws Exception {
+		final RF2LineReader reader = reader("1\t2\t3\t4\n5\t6\n", 64);
+		reader.next();
+		Assert.assertEquals("3", reader.getRow().getString(2));
+		reader.next();
+		final RF2Row row = reader.getRow();
+		Assert.assertEquals(2, row.getFieldCount());
+		Assert.assertEquals("6", row.getString(1));
+		try {
+			row.getString(2);
+			Assert.fail("Field beyond the end of the line should not be read");
+		} catch (IndexOutOfBoundsException e) {
+			Assert.assertTrue(e.getMessage(), e.getMessage().contains("line 2"));
+		}
+		try {
+			row.getString(2, new IdentifierPool());
+			Assert.fail("Field beyond the end of the line should not be read");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		try {
+			row.getLong(3);
+			Assert.fail("Field beyond the end of the line should not be read");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		try {
+			row.fieldEquals(2, new byte[]{'3'});
+			Assert.fail("Field beyond the end of the line should not be read");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+		try {
+			row.getLength(2);
+			Assert.fail("Field beyond the end of the line should not be read");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testReadFailureReportsLine() throws Exception {
+		final ExecutorService parserExecutor = Executors.newSingleThreadExecutor();
+		try {
+			for (boolean pipelined : new boolean[] {false, true}) {
+				// Fails part way through line 3
+				final ByteArrayInputStream bytes = new ByteArrayInputStream("1\ta\n2\tb\n3\tc\n".getBytes(ReleaseImporter.UTF_8), 0, 9);
+				final RF2LineReader lineReader = new RF2LineReader(new InputStream() {
+					@Override
+					public int read() throws IOException {
+						throw new UnsupportedOperationException();
+					}
+
+					@Override
+					public int read(byte[] b, int off, int len) throws IOException {
+						final int read = bytes.read(b, off, Math.min(len, 2));
+						if (read == -1) {
+							throw new IOException("Test failure");
+						}
+						return read;
+					}
+				}, 4);
+				final RF2RowReader reader = pipelined ? new PipelinedRF2Reader(lineReader, parserExecutor, 1, 2) : lineReader;
+				Assert.assertTrue(reader.next());
+				Assert.assertTrue(reader.next());
+				Assert.assertEquals(2, reader.getLineNumber());
+				try {
+					reader.next();
+					Assert.fail("Expected a read failure");
+				} catch (IOException e) {
+					Assert.assertEquals(3, reader.getLineNumber());
+				}
+				reader.close();
+			}
+		} finally {
+			parserExecutor.shutdown();
+		}
+	}
+
+	private RF2LineReader reader(String content, int bufferSize) throws IOException {
+		return new RF2LineReader(new ByteArrayInputStream(content.getBytes(ReleaseImporter.UTF_8)), bufferSize);
+	}
+}
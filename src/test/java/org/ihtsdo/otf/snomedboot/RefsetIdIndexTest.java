@@ -0,0 +1,92 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+public class RefsetIdIndexTest {
+
+	private static final String HEADER = "id\teffectiveTime\tactive\tmoduleId\trefsetId\treferencedComponentId\r\n";
+
+	private Path tempDir;
+	private Path file;
+
+	@Before
+	public void setup() throws IOException {
+		tempDir = Files.createTempDirectory("refset-id-index");
+		file = tempDir.resolve("der2_Refset_SimpleSnapshot_INT_20170731.txt");
+	}
+
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Test
+	public void testScanFindsEachRefsetId() throws Exception {
+		write(HEADER
+				+ "a\t20170731\t1\t900000000000207008\t723264001\t100005\r\n"
+				+ "b\t20170731\t0\t900000000000207008\t723264001\t100005\r\n"
+				+ "c\t20170731\t1\t900000000000207008\t447562003\t100005\r\n"
+				+ "short line\r\n"
+				+ "d\t20170731\t1\t900000000000207008\t734138000");
+
+		Assert.assertEquals(new HashSet<>(Arrays.asList("723264001", "447562003", "734138000")), RefsetIdIndex.scan(file));
+	}
+
+	@Test
+	public void testScanOfHeaderOnly() throws Exception {
+		write(HEADER);
+
+		Assert.assertEquals(Collections.<String>emptySet(), RefsetIdIndex.scan(file));
+	}
+
+	@Test
+	public void testFileScannedAgainOnlyOnceChanged() throws Exception {
+		write(HEADER + "a\t20170731\t1\t900000000000207008\t723264001\t100005\r\n");
+		final FileTime lastModified = Files.getLastModifiedTime(file);
+		final RefsetIdIndex index = new RefsetIdIndex();
+		Assert.assertEquals(Collections.singleton("723264001"), index.getRefsetIds(file));
+
+		// Same size and last modified time, taken to be the same file
+		write(HEADER + "a\t20170731\t1\t900000000000207008\t447562003\t100005\r\n");
+		Files.setLastModifiedTime(file, lastModified);
+		Assert.assertEquals(Collections.singleton("723264001"), index.getRefsetIds(file));
+
+		Files.setLastModifiedTime(file, FileTime.fromMillis(lastModified.toMillis() + 60000));
+		Assert.assertEquals(Collections.singleton("447562003"), index.getRefsetIds(file));
+	}
+
+	@Test
+	public void testIndexFileCarriesIndexToAnotherIndex() throws Exception {
+		write(HEADER + "a\t20170731\t1\t900000000000207008\t723264001\t100005\r\n");
+		final FileTime lastModified = Files.getLastModifiedTime(file);
+		final Path indexFile = tempDir.resolve("index/refset-ids.txt");
+		final RefsetIdIndex index = new RefsetIdIndex();
+		index.setIndexFile(indexFile);
+		index.getRefsetIds(file);
+		index.save();
+		Assert.assertTrue(Files.isRegularFile(indexFile));
+
+		write(HEADER + "a\t20170731\t1\t900000000000207008\t447562003\t100005\r\n");
+		Files.setLastModifiedTime(file, lastModified);
+		final RefsetIdIndex loadedIndex = new RefsetIdIndex();
+		loadedIndex.setIndexFile(indexFile);
+		Assert.assertEquals("Read from the index file, not the changed content", Collections.singleton("723264001"), loadedIndex.getRefsetIds(file));
+	}
+
+	private void write(String content) throws IOException {
+		Files.write(file, content.getBytes(Charset.forName("UTF-8")));
+	}
+}
@@ -0,0 +1,802 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.BatchComponentFactoryAdapter;
+import org.ihtsdo.otf.snomedboot.factory.AbstractPrimitiveComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.ComponentBatch;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.ihtsdo.otf.snomedboot.factory.ImpotentComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.ImpotentHistoryAwareComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.IsAComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+public class ReleaseImporterTest {
+
+	static final String RELEASE_PATH = "src/test/resources/dummy-snomed-content/SnomedCT_MiniRF2_INT_20170731";
+
+	private final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(3000);
+	private Path tempDir;
+
+	@Before
+	public void setup() throws IOException {
+		tempDir = Files.createTempDirectory("release-importer");
+	}
+
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Test
+	public void testLoadSnapshot() throws Exception {
+		final ComponentStore componentStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, LoadingProfile.light, new ComponentFactoryImpl(componentStore));
+
+		final Concept concept = componentStore.getConcepts().get(46635009L);
+		Assert.assertEquals("Diabetes mellitus type 1 (disorder)", concept.getFsn());
+		Assert.assertEquals("20170731", concept.getEffectiveTime());
+		Assert.assertEquals(new HashSet<>(Arrays.asList(73211009L, 64572001L, 404684003L, 138875005L)), concept.getInferredAncestorIds());
+		Assert.assertEquals(Collections.singletonList("113331007"), concept.getInferredAttributes().get("363698007"));
+		Assert.assertNull("Inactive concept state not loaded by light profile", componentStore.getConcepts().get(10000006L).getEffectiveTime());
+	}
+
+	@Test
+	public void testLoadSnapshotFromZip() throws Exception {
+		final File releaseZip = zipRelease(false);
+		try {
+			final ComponentStore pathStore = new ComponentStore();
+			new ReleaseImporter().loadSnapshotReleaseFiles(releaseZip.getAbsolutePath(), LoadingProfile.light, new ComponentFactoryImpl(pathStore));
+			Assert.assertEquals(new HashSet<>(Arrays.asList(73211009L, 64572001L, 404684003L, 138875005L)),
+					pathStore.getConcepts().get(46635009L).getInferredAncestorIds());
+
+			final ComponentStore streamStore = new ComponentStore();
+			new ReleaseImporter().loadSnapshotReleaseFiles(new FileInputStream(releaseZip), LoadingProfile.light, new ComponentFactoryImpl(streamStore));
+			Assert.assertEquals(pathStore.getConcepts().size(), streamStore.getConcepts().size());
+			Assert.assertEquals("Diabetes mellitus type 1 (disorder)", streamStore.getConcepts().get(46635009L).getFsn());
+		} finally {
+			releaseZip.delete();
+		}
+	}
+
+	@Test
+	public void testLoadSnapshotFromZipStreamInEitherEntryOrder() throws Exception {
+		final ComponentStore expectedStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, LoadingProfile.complete, new ComponentFactoryImpl(expectedStore));
+		for (boolean reverseOrder : new boolean[] {false, true}) {
+			// In reverse order the other core component files come before the concepts
+			final File releaseZip = zipRelease(reverseOrder);
+			try {
+				final ComponentStore streamStore = new ComponentStore();
+				new ReleaseImporter().loadSnapshotReleaseFiles(new FileInputStream(releaseZip), LoadingProfile.complete, new ComponentFactoryImpl(streamStore));
+				Assert.assertEquals(expectedStore.getConcepts().keySet(), streamStore.getConcepts().keySet());
+				for (Concept expected : expectedStore.getConcepts().values()) {
+					final Concept concept = streamStore.getConcepts().get(expected.getId().longValue());
+					Assert.assertEquals(expected.getEffectiveTime(), concept.getEffectiveTime());
+					Assert.assertEquals(expected.getFsn(), concept.getFsn());
+					Assert.assertEquals(expected.getDescriptions().size(), concept.getDescriptions().size());
+					Assert.assertEquals(expected.getRelationships().size(), concept.getRelationships().size());
+					Assert.assertEquals(expected.getMemberOfRefsetIds(), concept.getMemberOfRefsetIds());
+				}
+				Assert.assertFalse(streamStore.getConcepts().get(73211009L).getMemberOfRefsetIds().isEmpty());
+			} finally {
+				releaseZip.delete();
+			}
+		}
+	}
+
+	@Test
+	public void testLoadFullFromZipStream() throws Exception {
+		final List<String> expectedEvents = new ArrayList<>();
+		new ReleaseImporter().loadFullReleaseFiles(RELEASE_PATH, LoadingProfile.complete, releaseVersionRecorder(expectedEvents));
+		final File releaseZip = zipRelease(false);
+		try {
+			final List<String> events = new ArrayList<>();
+			new ReleaseImporter().loadFullReleaseFiles(new FileInputStream(releaseZip), LoadingProfile.complete, releaseVersionRecorder(events));
+			Assert.assertEquals(expectedEvents, events);
+		} finally {
+			releaseZip.delete();
+		}
+	}
+
+	@Test
+	public void testLoadFromFileWhichIsNotAZip() throws Exception {
+		final Path notAZip = tempDir.resolve("release.txt");
+		Files.write(notAZip, "not a zip".getBytes(Charset.forName("UTF-8")));
+		try {
+			new ReleaseImporter().loadSnapshotReleaseFiles(notAZip.toString(), LoadingProfile.light, new ImpotentComponentFactory());
+			Assert.fail("Expected ReleaseImportException");
+		} catch (ReleaseImportException e) {
+			Assert.assertEquals("Failed to open snomed release zip file.", e.getMessage());
+		}
+	}
+
+	@Test
+	public void testLoadFullReplaysEachReleaseVersionInOrder() throws Exception {
+		final List<String> events = new ArrayList<>();
+		new ReleaseImporter().loadFullReleaseFiles(RELEASE_PATH, LoadingProfile.complete, releaseVersionRecorder(events));
+
+		Assert.assertEquals(Arrays.asList(
+				"start 20170131",
+				"20170131 concept 138875005 1",
+				"20170131 concept 116680003 1",
+				"20170131 concept 404684003 1",
+				"20170131 concept 64572001 1",
+				"20170131 concept 73211009 1",
+				"20170131 concept 363698007 1",
+				"20170131 concept 113331007 1",
+				"20170131 concept 10000006 1",
+				"finish 20170131",
+				"start 20170731",
+				"20170731 concept 46635009 1",
+				"20170731 concept 73211009 1",
+				"20170731 concept 10000006 0",
+				"remove inferred parent 10000006 404684003",
+				"finish 20170731"), events);
+	}
+
+	@Test
+	public void testLoadWithSuppliedSingleThreadExecutor() throws Exception {
+		final ExecutorService executorService = Executors.newSingleThreadExecutor();
+		try {
+			final ReleaseImporter releaseImporter = new ReleaseImporter();
+			releaseImporter.setExecutorService(executorService);
+			// Chunk tasks must not wait on each other or a single thread would deadlock
+			releaseImporter.setChunkedReading(true);
+			releaseImporter.setMinChunkSize(64);
+			final ComponentStore componentStore = new ComponentStore();
+			releaseImporter.loadSnapshotReleaseFiles(RELEASE_PATH, LoadingProfile.complete, new ComponentFactoryImpl(componentStore));
+
+			Assert.assertEquals(new HashSet<>(Arrays.asList(73211009L, 64572001L, 404684003L, 138875005L)),
+					componentStore.getConcepts().get(46635009L).getInferredAncestorIds());
+			Assert.assertFalse("Supplied executor is left running", executorService.isShutdown());
+		} finally {
+			executorService.shutdown();
+		}
+	}
+
+	@Test
+	public void testChunkedAndPipelinedReadingMatchSequentialReading() throws Exception {
+		final Path releaseDir = generateRelease();
+		// Remove an is-a before the row adding it and another after, the outcome depends on file order
+		final Path relationshipFile = releaseDir.resolve("Snapshot/Terminology/sct2_Relationship_Snapshot_INT_" + generator.getReleaseVersion() + ".txt");
+		final List<String> lines = new ArrayList<>(Files.readAllLines(relationshipFile, Charset.forName("UTF-8")));
+		final int removedThenAdded = singleParentConcept(generator, 100);
+		final int addedThenRemoved = singleParentConcept(generator, 2900);
+		lines.add(1, inactiveIsA(generator, removedThenAdded, 1));
+		lines.add(inactiveIsA(generator, addedThenRemoved, 2));
+		Files.write(relationshipFile, lines, Charset.forName("UTF-8"));
+
+		final ComponentStore sequentialStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ComponentFactoryImpl(sequentialStore));
+
+		Assert.assertFalse(sequentialStore.getConcepts().get(Long.parseLong(generator.conceptId(removedThenAdded))).getInferredAncestorIds().isEmpty());
+		Assert.assertTrue(sequentialStore.getConcepts().get(Long.parseLong(generator.conceptId(addedThenRemoved))).getInferredAncestorIds().isEmpty());
+
+		for (String mode : new String[] {"chunked", "pipelined", "chunked and pipelined"}) {
+			final ReleaseImporter releaseImporter = newReleaseImporter(mode);
+			final ComponentStore componentStore = new ComponentStore();
+			releaseImporter.loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ComponentFactoryImpl(componentStore));
+			assertSameConcepts(mode, sequentialStore, componentStore);
+		}
+	}
+
+	@Test
+	public void testBatchComponentFactoryReceivesComponentsInBatches() throws Exception {
+		final Path releaseDir = generateRelease();
+		final ComponentStore sequentialStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ComponentFactoryImpl(sequentialStore));
+
+		for (String mode : new String[] {"sequential", "chunked", "pipelined"}) {
+			final ReleaseImporter releaseImporter = newReleaseImporter(mode);
+			releaseImporter.setComponentBatchSize(100);
+			final ComponentStore componentStore = new ComponentStore();
+			final List<Integer> batchSizes = Collections.synchronizedList(new ArrayList<Integer>());
+			releaseImporter.loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new BatchComponentFactoryAdapter(new ComponentFactoryImpl(componentStore)) {
+				@Override
+				public void newConceptStates(ComponentBatch concepts) {
+					batchSizes.add(concepts.size());
+					super.newConceptStates(concepts);
+				}
+
+				@Override
+				public void newRelationshipStates(ComponentBatch relationships) {
+					batchSizes.add(relationships.size());
+					super.newRelationshipStates(relationships);
+				}
+
+				@Override
+				public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+					throw new AssertionError("Per row call made to a batch factory");
+				}
+			});
+			assertSameConcepts(mode, sequentialStore, componentStore);
+			Assert.assertTrue(mode, batchSizes.contains(100));
+			Assert.assertTrue(mode, Collections.max(batchSizes) <= 100);
+		}
+	}
+
+	@Test
+	public void testPrimitiveCallbacksMatchStringCallbacks() throws Exception {
+		final Path releaseDir = generateRelease();
+		final StringCallbackRecorder stringCallbacks = new StringCallbackRecorder();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete.withStatedAttributeMapOnConcept(), stringCallbacks);
+		Assert.assertFalse(stringCallbacks.getCallbacks().isEmpty());
+		for (String mode : new String[] {"sequential", "chunked"}) {
+			final PrimitiveCallbackRecorder primitiveCallbacks = new PrimitiveCallbackRecorder();
+			newReleaseImporter(mode).loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete.withStatedAttributeMapOnConcept(), primitiveCallbacks);
+			Assert.assertEquals(mode, stringCallbacks.getCallbacks(), primitiveCallbacks.getCallbacks());
+		}
+	}
+
+	@Test
+	public void testIsAEventsReplaceParentAndChildCallbacks() throws Exception {
+		final Path releaseDir = generateRelease();
+		final Set<String> expectedEdges = Collections.synchronizedSet(new HashSet<String>());
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ImpotentComponentFactory() {
+			@Override
+			public void addStatedConceptParent(String sourceId, String parentId) {
+				expectedEdges.add(sourceId + " stated " + parentId);
+			}
+
+			@Override
+			public void addInferredConceptParent(String sourceId, String parentId) {
+				expectedEdges.add(sourceId + " inferred " + parentId);
+			}
+		});
+		Assert.assertFalse(expectedEdges.isEmpty());
+
+		for (String mode : new String[] {"sequential", "chunked"}) {
+			final IsAEventRecorder isAEvents = new IsAEventRecorder();
+			newReleaseImporter(mode).loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, isAEvents);
+			Assert.assertEquals(mode, expectedEdges, isAEvents.edges);
+		}
+	}
+
+	@Test
+	public void testRefsetFilesWithoutWantedRefsetsAreSkipped() throws Exception {
+		final Path releaseDir = generateRelease();
+		// A line which fails the import if the file is read
+		final String simpleRefsetFileName = "der2_Refset_SimpleSnapshot_INT_" + generator.getReleaseVersion() + ".txt";
+		Files.write(releaseDir.resolve("Snapshot/Refset/Content/" + simpleRefsetFileName),
+				"broken line\r\n".getBytes(Charset.forName("UTF-8")), StandardOpenOption.APPEND);
+
+		final ReleaseImporter releaseImporter = new ReleaseImporter();
+		final Path indexFile = tempDir.resolve("refset-id-index.txt");
+		releaseImporter.setRefsetIdIndexFile(indexFile);
+		final LoadingProfile profile = LoadingProfile.light.withFullRefsetMemberObjects();
+		for (int load = 0; load < 2; load++) {
+			final Set<String> refsetIds = Collections.synchronizedSet(new HashSet<String>());
+			releaseImporter.loadSnapshotReleaseFiles(releaseDir.toString(), profile, new ImpotentComponentFactory() {
+				@Override
+				public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId,
+						String refsetId, String referencedComponentId, String... otherValues) {
+					refsetIds.add(refsetId);
+				}
+			});
+			Assert.assertEquals(new HashSet<>(profile.getRefsetIds()), refsetIds);
+			Assert.assertTrue(Files.isRegularFile(indexFile));
+		}
+
+		try {
+			releaseImporter.loadSnapshotReleaseFiles(releaseDir.toString(), profile.withRefset("723264001"), new ImpotentComponentFactory());
+			Assert.fail("Expected ReleaseImportException");
+		} catch (ReleaseImportException e) {
+			Assert.assertEquals(simpleRefsetFileName, e.getFileName());
+		}
+	}
+
+	@Test
+	public void testFailureReportsFileAndLine() throws Exception {
+		final Path releaseDir = generateRelease();
+		final String failingConceptId = generator.conceptId(2500);
+		final String descriptionFileName = "sct2_Description_Snapshot-en_INT_" + generator.getReleaseVersion() + ".txt";
+		final List<String> descriptionLines = Files.readAllLines(releaseDir.resolve("Snapshot/Terminology/" + descriptionFileName), Charset.forName("UTF-8"));
+		long expectedLineNumber = 0;
+		for (int i = 0; i < descriptionLines.size() && expectedLineNumber == 0; i++) {
+			if (descriptionLines.get(i).contains("\t" + failingConceptId + "\ten\t900000000000003001\t")) {
+				expectedLineNumber = i + 1;
+			}
+		}
+
+		for (String mode : new String[] {"sequential", "chunked", "pipelined"}) {
+			final ReleaseImporter releaseImporter = newReleaseImporter(mode);
+			final boolean[] completed = new boolean[1];
+			try {
+				releaseImporter.loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.light, new ImpotentComponentFactory() {
+					@Override
+					public void addConceptFSN(String conceptId, String term) {
+						if (conceptId.equals(failingConceptId)) {
+							throw new IllegalStateException("Test failure");
+						}
+					}
+
+					@Override
+					public void loadingComponentsCompleted() {
+						completed[0] = true;
+					}
+				});
+				Assert.fail("Expected ReleaseImportException");
+			} catch (ReleaseImportException e) {
+				Assert.assertEquals(descriptionFileName, e.getFileName());
+				Assert.assertEquals("Line number with " + mode + " reading", expectedLineNumber, e.getLineNumber());
+				Assert.assertEquals("Test failure", e.getCause().getMessage());
+			}
+			Assert.assertFalse(completed[0]);
+		}
+	}
+
+	@Test
+	public void testMalformedIdentifierReportsFileAndLine() throws Exception {
+		final Path releaseDir = copyRelease(tempDir);
+		final String conceptFileName = "sct2_Concept_Snapshot_INT_20170731.txt";
+		final Path conceptFile = releaseDir.resolve("Snapshot/Terminology/" + conceptFileName);
+		final List<String> lines = Files.readAllLines(conceptFile, Charset.forName("UTF-8"));
+		lines.set(2, lines.get(2).replaceFirst("^[0-9]+", "99999999999999999999"));
+		Files.write(conceptFile, lines, Charset.forName("UTF-8"));
+		try {
+			new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.light, new ComponentFactoryImpl(new ComponentStore()));
+			Assert.fail("Expected ReleaseImportException");
+		} catch (ReleaseImportException e) {
+			Assert.assertEquals(conceptFileName, e.getFileName());
+			Assert.assertEquals(3, e.getLineNumber());
+			Assert.assertTrue(e.getCause() instanceof NumberFormatException);
+		}
+	}
+
+	@Test
+	public void testTruncatedRowReportsFileAndLine() throws Exception {
+		final Path releaseDir = copyRelease(tempDir);
+		final String conceptFileName = "sct2_Concept_Snapshot_INT_20170731.txt";
+		final String refsetFileName = "der2_Refset_SimpleSnapshot_INT_20170731.txt";
+		// Too short for the active condition of the concept filter and the refsetId condition of the member filter
+		truncateLine(releaseDir.resolve("Snapshot/Terminology/" + conceptFileName), 3, 2);
+		truncateLine(releaseDir.resolve("Snapshot/Refset/Content/" + refsetFileName), 2, 4);
+
+		for (String mode : new String[] {"sequential", "chunked", "pipelined"}) {
+			try {
+				newReleaseImporter(mode).loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.light, new ComponentFactoryImpl(new ComponentStore()));
+				Assert.fail("Expected ReleaseImportException");
+			} catch (ReleaseImportException e) {
+				Assert.assertEquals(conceptFileName, e.getFileName());
+				Assert.assertEquals("Line number with " + mode + " reading", 3, e.getLineNumber());
+				Assert.assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+			}
+		}
+
+		Files.copy(Paths.get(RELEASE_PATH, "Snapshot/Terminology/" + conceptFileName), releaseDir.resolve("Snapshot/Terminology/" + conceptFileName),
+				StandardCopyOption.REPLACE_EXISTING);
+		try {
+			new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.light.withRefset("723264001"),
+					new ComponentFactoryImpl(new ComponentStore()));
+			Assert.fail("Expected ReleaseImportException");
+		} catch (ReleaseImportException e) {
+			Assert.assertEquals(refsetFileName, e.getFileName());
+			Assert.assertEquals(2, e.getLineNumber());
+			Assert.assertTrue(e.getCause() instanceof IndexOutOfBoundsException);
+		}
+	}
+
+	@Test
+	public void testFullImportFailureReportsLineOfFullFile() throws Exception {
+		for (String mode : new String[] {"sequential", "chunked", "pipelined"}) {
+			try {
+				newReleaseImporter(mode).loadFullReleaseFiles(RELEASE_PATH, LoadingProfile.complete, new ImpotentHistoryAwareComponentFactory() {
+					@Override
+					public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+						if (conceptId.equals("73211009") && effectiveTime.equals("20170731")) {
+							throw new IllegalStateException("Test failure");
+						}
+					}
+				});
+				Assert.fail("Expected ReleaseImportException");
+			} catch (ReleaseImportException e) {
+				Assert.assertEquals("sct2_Concept_Full_INT_20170731.txt", e.getFileName());
+				Assert.assertEquals("Line of the Full file with " + mode + " reading", 11, e.getLineNumber());
+				Assert.assertEquals("Test failure", e.getCause().getMessage());
+			}
+		}
+	}
+
+	@Test
+	public void testBatchFailureReportsFirstLineOfBatch() throws Exception {
+		// Batches of six concepts hold lines 2 to 7 and 8 to 10, the second passed on once the file is read
+		assertBatchFailureLine("404684003", 2);
+		assertBatchFailureLine("113331007", 8);
+	}
+
+	private void assertBatchFailureLine(final String failingConceptId, long expectedLineNumber) throws Exception {
+		final ReleaseImporter releaseImporter = new ReleaseImporter();
+		releaseImporter.setComponentBatchSize(6);
+		try {
+			releaseImporter.loadSnapshotReleaseFiles(RELEASE_PATH, LoadingProfile.complete, new BatchComponentFactoryAdapter(new ImpotentComponentFactory()) {
+				@Override
+				public void newConceptStates(ComponentBatch concepts) {
+					for (int row = 0; row < concepts.size(); row++) {
+						if (concepts.get(row, 0).equals(failingConceptId)) {
+							throw new IllegalStateException("Test failure");
+						}
+					}
+				}
+			});
+			Assert.fail("Expected ReleaseImportException");
+		} catch (ReleaseImportException e) {
+			Assert.assertEquals("sct2_Concept_Snapshot_INT_20170731.txt", e.getFileName());
+			Assert.assertEquals(expectedLineNumber, e.getLineNumber());
+			Assert.assertEquals("Test failure", e.getCause().getMessage());
+		}
+	}
+
+	private ReleaseImporter newReleaseImporter(String mode) {
+		final ReleaseImporter releaseImporter = new ReleaseImporter();
+		if (mode.contains("chunked")) {
+			releaseImporter.setChunkedReading(true);
+			releaseImporter.setMinChunkSize(4096);
+		}
+		if (mode.contains("pipelined")) {
+			releaseImporter.setPipelinedReading(true);
+			// Small batches so that the parser thread often waits for the factory
+			releaseImporter.setPipelineBatches(7, 2);
+		}
+		return releaseImporter;
+	}
+
+	private void assertSameConcepts(String mode, ComponentStore expectedStore, ComponentStore componentStore) {
+		Assert.assertEquals(mode, expectedStore.getConcepts().keySet(), componentStore.getConcepts().keySet());
+		for (Concept expected : expectedStore.getConcepts().values()) {
+			final Concept concept = componentStore.getConcepts().get(expected.getId());
+			Assert.assertEquals(mode, expected.getFsn(), concept.getFsn());
+			Assert.assertEquals(mode, expected.getInferredAncestorIds(), concept.getInferredAncestorIds());
+			Assert.assertEquals(mode, expected.getStatedAncestorIds(), concept.getStatedAncestorIds());
+			Assert.assertEquals(mode, expected.getInferredDescendantIds(), concept.getInferredDescendantIds());
+			Assert.assertEquals(mode, expected.getMemberOfRefsetIds(), concept.getMemberOfRefsetIds());
+			Assert.assertEquals(mode, relationshipIds(expected), relationshipIds(concept));
+			Assert.assertEquals(mode, descriptionIds(expected), descriptionIds(concept));
+		}
+	}
+
+	private int singleParentConcept(SyntheticReleaseGenerator generator, int ordinal) {
+		while (generator.parents(ordinal).length != 1) {
+			ordinal++;
+		}
+		return ordinal;
+	}
+
+	private String inactiveIsA(SyntheticReleaseGenerator generator, int ordinal, int relationship) {
+		return SyntheticReleaseGenerator.sctid(9000000 + relationship, "02") + "\t" + generator.getReleaseVersion() + "\t0\t900000000000207008\t"
+				+ generator.conceptId(ordinal) + "\t" + generator.conceptId(generator.parents(ordinal)[0])
+				+ "\t0\t116680003\t900000000000011006\t900000000000451002";
+	}
+
+	private Set<String> relationshipIds(Concept concept) {
+		final Set<String> ids = new HashSet<>();
+		for (Relationship relationship : concept.getRelationships()) {
+			ids.add(relationship.getId());
+		}
+		return ids;
+	}
+
+	private Set<Long> descriptionIds(Concept concept) {
+		final Set<Long> ids = new HashSet<>();
+		for (Description description : concept.getDescriptions()) {
+			ids.add(description.getId());
+		}
+		return ids;
+	}
+
+	private static String callback(Object... values) {
+		final StringBuilder callback = new StringBuilder();
+		for (Object value : values) {
+			callback.append(value instanceof String[] ? Arrays.toString((String[]) value) : value).append('|');
+		}
+		return callback.toString();
+	}
+
+	private static final class StringCallbackRecorder extends ImpotentComponentFactory {
+
+		private final List<String> callbacks = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+			callbacks.add(callback("concept", conceptId, effectiveTime, FactoryUtils.parseActive(active), moduleId, definitionStatusId));
+		}
+
+		@Override
+		public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode, String typeId, String term, String caseSignificanceId) {
+			callbacks.add(callback("description", id, effectiveTime, FactoryUtils.parseActive(active), moduleId, conceptId, languageCode, typeId, term, caseSignificanceId));
+		}
+
+		@Override
+		public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId, String destinationId, String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+			callbacks.add(callback("relationship", id, effectiveTime, FactoryUtils.parseActive(active), moduleId, sourceId, destinationId, relationshipGroup, typeId, characteristicTypeId, modifierId));
+		}
+
+		@Override
+		public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId, String refsetId, String referencedComponentId, String... otherValues) {
+			callbacks.add(callback("member", fieldNames, id, effectiveTime, FactoryUtils.parseActive(active), moduleId, refsetId, referencedComponentId, otherValues));
+		}
+
+		@Override
+		public void addConceptFSN(String conceptId, String term) {
+			callbacks.add(callback("fsn", conceptId, term));
+		}
+
+		@Override
+		public void addInferredConceptParent(String sourceId, String parentId) {
+			callbacks.add(callback("inferredParent", sourceId, parentId));
+		}
+
+		@Override
+		public void addStatedConceptChild(String sourceId, String destinationId) {
+			callbacks.add(callback("statedChild", sourceId, destinationId));
+		}
+
+		@Override
+		public void addInferredConceptAttribute(String sourceId, String typeId, String valueId) {
+			callbacks.add(callback("inferredAttribute", sourceId, typeId, valueId));
+		}
+
+		@Override
+		public void addStatedConceptAttribute(String sourceId, String typeId, String valueId) {
+			callbacks.add(callback("statedAttribute", sourceId, typeId, valueId));
+		}
+
+		@Override
+		public void addConceptReferencedInRefsetId(String refsetId, String conceptId) {
+			callbacks.add(callback("refset", refsetId, conceptId));
+		}
+
+		List<String> getCallbacks() {
+			final List<String> sorted = new ArrayList<>(callbacks);
+			Collections.sort(sorted);
+			return sorted;
+		}
+	}
+
+	private static final class PrimitiveCallbackRecorder extends AbstractPrimitiveComponentFactory {
+
+		private final List<String> callbacks = Collections.synchronizedList(new ArrayList<String>());
+
+		@Override
+		public void newConceptState(long conceptId, int effectiveTime, boolean active, long moduleId, long definitionStatusId) {
+			callbacks.add(callback("concept", conceptId, effectiveTime, active, moduleId, definitionStatusId));
+		}
+
+		@Override
+		public void newDescriptionState(long id, int effectiveTime, boolean active, long moduleId, long conceptId, String languageCode, long typeId, String term, long caseSignificanceId) {
+			callbacks.add(callback("description", id, effectiveTime, active, moduleId, conceptId, languageCode, typeId, term, caseSignificanceId));
+		}
+
+		@Override
+		public void newRelationshipState(long id, int effectiveTime, boolean active, long moduleId, long sourceId, long destinationId, int relationshipGroup, long typeId, long characteristicTypeId, long modifierId) {
+			callbacks.add(callback("relationship", id, effectiveTime, active, moduleId, sourceId, destinationId, relationshipGroup, typeId, characteristicTypeId, modifierId));
+		}
+
+		@Override
+		public void newReferenceSetMemberState(String[] fieldNames, String id, int effectiveTime, boolean active, long moduleId, long refsetId, long referencedComponentId, String... otherValues) {
+			callbacks.add(callback("member", fieldNames, id, effectiveTime, active, moduleId, refsetId, referencedComponentId, otherValues));
+		}
+
+		@Override
+		public void addConceptFSN(long conceptId, String term) {
+			callbacks.add(callback("fsn", conceptId, term));
+		}
+
+		@Override
+		public void addInferredConceptParent(long sourceId, long parentId) {
+			callbacks.add(callback("inferredParent", sourceId, parentId));
+		}
+
+		@Override
+		public void addStatedConceptChild(long sourceId, long destinationId) {
+			callbacks.add(callback("statedChild", sourceId, destinationId));
+		}
+
+		@Override
+		public void addInferredConceptAttribute(long sourceId, long typeId, long valueId) {
+			callbacks.add(callback("inferredAttribute", sourceId, typeId, valueId));
+		}
+
+		@Override
+		public void addStatedConceptAttribute(long sourceId, long typeId, long valueId) {
+			callbacks.add(callback("statedAttribute", sourceId, typeId, valueId));
+		}
+
+		@Override
+		public void addConceptReferencedInRefsetId(long refsetId, long conceptId) {
+			callbacks.add(callback("refset", refsetId, conceptId));
+		}
+
+		@Override
+		public void addStatedConceptParent(long sourceId, long parentId) {
+		}
+
+		@Override
+		public void removeInferredConceptParent(long sourceId, long destinationId) {
+		}
+
+		@Override
+		public void removeStatedConceptParent(long sourceId, long destinationId) {
+		}
+
+		@Override
+		public void addInferredConceptChild(long sourceId, long destinationId) {
+		}
+
+		@Override
+		public void removeInferredConceptChild(long sourceId, long destinationId) {
+		}
+
+		@Override
+		public void removeStatedConceptChild(long sourceId, long destinationId) {
+		}
+
+		@Override
+		public void loadingComponentsStarting() {
+		}
+
+		@Override
+		public void loadingComponentsCompleted() {
+		}
+
+		List<String> getCallbacks() {
+			final List<String> sorted = new ArrayList<>(callbacks);
+			Collections.sort(sorted);
+			return sorted;
+		}
+	}
+
+	private static final class IsAEventRecorder extends ImpotentComponentFactory implements IsAComponentFactory {
+
+		private final Set<String> edges = Collections.synchronizedSet(new HashSet<String>());
+
+		@Override
+		public void addInferredIsA(long sourceId, long destinationId) {
+			edges.add(sourceId + " inferred " + destinationId);
+		}
+
+		@Override
+		public void addStatedIsA(long sourceId, long destinationId) {
+			edges.add(sourceId + " stated " + destinationId);
+		}
+
+		@Override
+		public void removeInferredIsA(long sourceId, long destinationId) {
+			edges.remove(sourceId + " inferred " + destinationId);
+		}
+
+		@Override
+		public void removeStatedIsA(long sourceId, long destinationId) {
+			edges.remove(sourceId + " stated " + destinationId);
+		}
+
+		@Override
+		public void addInferredConceptParent(String sourceId, String parentId) {
+			throw new AssertionError("Parent callback made to an is-a factory");
+		}
+
+		@Override
+		public void addInferredConceptChild(String sourceId, String destinationId) {
+			throw new AssertionError("Child callback made to an is-a factory");
+		}
+	}
+
+	/**
+	 * Keeps only the given number of fields of a line.
+	 */
+	private void truncateLine(Path rf2File, int lineNumber, int fields) throws IOException {
+		final List<String> lines = Files.readAllLines(rf2File, Charset.forName("UTF-8"));
+		final String[] values = lines.get(lineNumber - 1).split("\t", -1);
+		final StringBuilder line = new StringBuilder();
+		for (int i = 0; i < fields; i++) {
+			line.append(i > 0 ? "\t" : "").append(values[i]);
+		}
+		lines.set(lineNumber - 1, line.toString());
+		Files.write(rf2File, lines, Charset.forName("UTF-8"));
+	}
+
+	/**
+	 * @return A synthetic release written to the temporary directory of the test, which the test may change.
+	 */
+	private Path generateRelease() throws IOException {
+		return generator.generate(tempDir);
+	}
+
+	private Path copyRelease(Path targetDir) throws IOException {
+		final Path releaseDir = Paths.get(RELEASE_PATH);
+		final Path copyDir = targetDir.resolve(releaseDir.getFileName().toString());
+		Files.walkFileTree(releaseDir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+				final Path copy = copyDir.resolve(releaseDir.relativize(file).toString());
+				Files.createDirectories(copy.getParent());
+				Files.copy(file, copy);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		return copyDir;
+	}
+
+	private ImpotentHistoryAwareComponentFactory releaseVersionRecorder(final List<String> events) {
+		return new ImpotentHistoryAwareComponentFactory() {
+			@Override
+			public void loadingReleaseDeltaStarting(String releaseVersion) {
+				events.add("start " + releaseVersion);
+			}
+
+			@Override
+			public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+				events.add(effectiveTime + " concept " + conceptId + " " + active);
+			}
+
+			@Override
+			public synchronized void removeInferredConceptParent(String sourceId, String destinationId) {
+				events.add("remove inferred parent " + sourceId + " " + destinationId);
+			}
+
+			@Override
+			public void loadingReleaseDeltaFinished(String releaseVersion) {
+				events.add("finish " + releaseVersion);
+			}
+		};
+	}
+
+	/**
+	 * Zips the release with its entries in path order, as in a published release, or in reverse order.
+	 */
+	private File zipRelease(boolean reverseOrder) throws IOException {
+		final File releaseZip = File.createTempFile("SnomedCT_MiniRF2_INT_20170731", ".zip");
+		final Path releaseDir = Paths.get(RELEASE_PATH);
+		final List<Path> files = new ArrayList<>();
+		Files.walkFileTree(releaseDir, new SimpleFileVisitor<Path>() {
+			@Override
+			public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+				files.add(file);
+				return FileVisitResult.CONTINUE;
+			}
+		});
+		Collections.sort(files);
+		if (reverseOrder) {
+			Collections.reverse(files);
+		}
+		try (final ZipOutputStream zipOutputStream = new ZipOutputStream(new FileOutputStream(releaseZip))) {
+			for (Path file : files) {
+				zipOutputStream.putNextEntry(new ZipEntry("SnomedCT_MiniRF2_INT_20170731/" + releaseDir.relativize(file).toString()));
+				Files.copy(file, zipOutputStream);
+				zipOutputStream.closeEntry();
+			}
+		}
+		return releaseZip;
+	}
+}
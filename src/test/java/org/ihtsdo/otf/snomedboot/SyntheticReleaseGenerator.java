@@ -0,0 +1,528 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Writes a synthetic RF2 release shaped like the International Edition, for tests and benchmarks that cannot use a
+ * licensed release. The release has concepts, descriptions, text definitions, inferred and stated relationships,
+ * language, simple and association refsets. With more than one release version, concepts are added over the versions
+ * and later versions inactivate concepts, descriptions and relationships and change definition status and attributes,
+ * so Full and Delta files have a realistic history.
+ * <p>
+ * Every value is derived from the concept ordinal and the seed, so the output is the same on every run and nothing
+ * is held in memory while writing, which allows releases of several million concepts.
+ * Run main to write a release from the command line.
+ */
+public class SyntheticReleaseGenerator {
+
+	public static final String RELEASE_VERSION = "20170731";
+
+	private static final String MODULE = ConceptConstants.CORE_MODULE;
+	private static final String PRIMITIVE = "900000000000074008";
+	private static final String FULLY_DEFINED = "900000000000073002";
+	private static final String SYNONYM = "900000000000013009";
+	private static final String DEFINITION = "900000000000550004";
+	private static final String CASE_INSENSITIVE = "900000000000448009";
+	private static final String CASE_SENSITIVE = "900000000000017005";
+	private static final String EXISTENTIAL = "900000000000451002";
+	private static final String PREFERRED = "900000000000548007";
+	private static final String ACCEPTABLE = "900000000000549004";
+	private static final String REPLACED_BY_REFSET = "900000000000526001";
+	private static final String[] SIMPLE_REFSETS = {"723264001", "734138000", "447562003"};
+	private static final String[] ATTRIBUTE_TYPES = {"363698007", "116676008", "246075003", "47429007", "255234002"};
+	private static final String[] SEMANTIC_TAGS = {"disorder", "finding", "procedure", "body structure", "substance", "organism"};
+
+	private static final String CONCEPT_PARTITION = "00";
+	private static final String DESCRIPTION_PARTITION = "01";
+	private static final String RELATIONSHIP_PARTITION = "02";
+	private static final long FIRST_ITEM_ID = 1000000;
+	// One in this many concepts is never a parent or attribute value, these are the concepts that may be inactivated
+	private static final int LEAF_ONLY_INTERVAL = 50;
+	private static final int NEVER = Integer.MAX_VALUE;
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String LINE_END = "\r\n";
+
+	private enum FileType {
+		SNAPSHOT("Snapshot"), DELTA("Delta"), FULL("Full");
+
+		private final String name;
+
+		FileType(String name) {
+			this.name = name;
+		}
+	}
+
+	private final int concepts;
+	private long seed = 1;
+	private String[] releaseVersions = {RELEASE_VERSION};
+	private boolean full;
+	private boolean delta;
+
+	public SyntheticReleaseGenerator(int concepts) {
+		if (concepts < 1) {
+			throw new IllegalArgumentException("At least one concept is needed.");
+		}
+		this.concepts = concepts;
+	}
+
+	public SyntheticReleaseGenerator(int concepts, long seed) {
+		this(concepts);
+		this.seed = seed;
+	}
+
+	public SyntheticReleaseGenerator withSeed(long seed) {
+		this.seed = seed;
+		return this;
+	}
+
+	/**
+	 * @param releaseVersions Effective times in ascending order, the last is the version of the release.
+	 */
+	public SyntheticReleaseGenerator withReleaseVersions(String... releaseVersions) {
+		if (releaseVersions.length == 0) {
+			throw new IllegalArgumentException("At least one release version is needed.");
+		}
+		this.releaseVersions = releaseVersions.clone();
+		return this;
+	}
+
+	/**
+	 * Also write Full files, holding every version of every component.
+	 */
+	public SyntheticReleaseGenerator withFull() {
+		full = true;
+		return this;
+	}
+
+	/**
+	 * Also write Delta files, holding the components changed in the last release version.
+	 */
+	public SyntheticReleaseGenerator withDelta() {
+		delta = true;
+		return this;
+	}
+
+	/**
+	 * Writes the release into a new directory within the given directory.
+	 * @return The release directory.
+	 */
+	public Path generate(Path directory) throws IOException {
+		final Path releaseDir = directory.resolve("SnomedCT_SyntheticRF2_INT_" + getReleaseVersion());
+		final List<FileType> fileTypes = new ArrayList<>(Arrays.asList(FileType.SNAPSHOT));
+		if (delta) {
+			fileTypes.add(FileType.DELTA);
+		}
+		if (full) {
+			fileTypes.add(FileType.FULL);
+		}
+		for (FileType fileType : fileTypes) {
+			final Path terminology = Files.createDirectories(releaseDir.resolve(fileType.name + "/Terminology"));
+			final Path language = Files.createDirectories(releaseDir.resolve(fileType.name + "/Refset/Language"));
+			final Path content = Files.createDirectories(releaseDir.resolve(fileType.name + "/Refset/Content"));
+			writeConcepts(terminology.resolve(fileName("sct2_Concept_", fileType, "")), fileType);
+			writeDescriptions(terminology.resolve(fileName("sct2_Description_", fileType, "-en")), fileType, false);
+			writeDescriptions(terminology.resolve(fileName("sct2_TextDefinition_", fileType, "-en")), fileType, true);
+			writeRelationships(terminology.resolve(fileName("sct2_Relationship_", fileType, "")), fileType, false);
+			writeRelationships(terminology.resolve(fileName("sct2_StatedRelationship_", fileType, "")), fileType, true);
+			writeLanguageRefset(language.resolve(fileName("der2_cRefset_Language", fileType, "-en")), fileType);
+			writeSimpleRefsets(content.resolve(fileName("der2_Refset_Simple", fileType, "")), fileType);
+			writeAssociationRefset(content.resolve(fileName("der2_cRefset_Association", fileType, "")), fileType);
+		}
+		return releaseDir;
+	}
+
+	public int getConcepts() {
+		return concepts;
+	}
+
+	public String getReleaseVersion() {
+		return releaseVersions[releaseVersions.length - 1];
+	}
+
+	public String conceptId(int ordinal) {
+		return ordinal == 0 ? ConceptConstants.ROOT_CONCEPT : sctid(FIRST_ITEM_ID + ordinal, CONCEPT_PARTITION);
+	}
+
+	/**
+	 * @return The ordinals of the parents of the concept. Parents always come earlier so the hierarchy has no loops,
+	 * and the depth of a concept grows with the log of the release size, as it does in the International Edition.
+	 */
+	public int[] parents(int ordinal) {
+		if (ordinal == 0) {
+			return new int[0];
+		}
+		final Random random = random(ordinal, 1);
+		final int parent = pickEarlierConcept(random, ordinal);
+		if (ordinal > 2 && random.nextInt(10) < 4) {
+			final int secondParent = pickEarlierConcept(random, ordinal);
+			if (secondParent != parent) {
+				return new int[] {parent, secondParent};
+			}
+		}
+		return new int[] {parent};
+	}
+
+	/**
+	 * @return true if the concept is active in the last release version.
+	 */
+	public boolean isActive(int ordinal) {
+		return history(ordinal).inactivated == NEVER;
+	}
+
+	private String fileName(String prefix, FileType fileType, String languageSuffix) {
+		return prefix + fileType.name + languageSuffix + "_INT_" + getReleaseVersion() + ".txt";
+	}
+
+	private void writeConcepts(Path path, FileType fileType) throws IOException {
+		try (Writer writer = newWriter(path)) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\tdefinitionStatusId" + LINE_END);
+			for (int i = 0; i < concepts; i++) {
+				final ConceptHistory history = history(i);
+				final String conceptId = conceptId(i);
+				final List<String[]> rows = new ArrayList<>();
+				rows.add(row(conceptId, history.introduced, "1", MODULE, PRIMITIVE));
+				if (history.fullyDefined < history.inactivated) {
+					rows.add(row(conceptId, history.fullyDefined, "1", MODULE, FULLY_DEFINED));
+				}
+				if (history.inactivated != NEVER) {
+					rows.add(row(conceptId, history.inactivated, "0", MODULE, history.fullyDefined < history.inactivated ? FULLY_DEFINED : PRIMITIVE));
+				}
+				writeRows(writer, fileType, rows);
+			}
+		}
+	}
+
+	private void writeDescriptions(Path path, FileType fileType, boolean textDefinitions) throws IOException {
+		try (Writer writer = newWriter(path)) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\tconceptId\tlanguageCode\ttypeId\tterm\tcaseSignificanceId" + LINE_END);
+			for (int i = 0; i < concepts; i++) {
+				final ConceptHistory history = history(i);
+				final String conceptId = conceptId(i);
+				final String term = "Synthetic concept " + i;
+				if (textDefinitions) {
+					if (history.textDefinition) {
+						writeRows(writer, fileType, row(descriptionId(i, 3), history.introduced, "1", MODULE, conceptId, "en", DEFINITION,
+								"A synthetic concept numbered " + i + ", generated for load testing.", CASE_SENSITIVE));
+					}
+					continue;
+				}
+				writeRows(writer, fileType, row(descriptionId(i, 0), history.introduced, "1", MODULE, conceptId, "en", ConceptConstants.FSN,
+						term + " (" + SEMANTIC_TAGS[i % SEMANTIC_TAGS.length] + ")", CASE_INSENSITIVE));
+				for (int s = 1; s <= history.synonyms; s++) {
+					final String descriptionId = descriptionId(i, s);
+					final String synonym = s == 1 ? term : term + " synonym " + s;
+					final List<String[]> rows = new ArrayList<>();
+					rows.add(row(descriptionId, history.introduced, "1", MODULE, conceptId, "en", SYNONYM, synonym, CASE_INSENSITIVE));
+					if (s == 2 && history.synonymInactivated != NEVER) {
+						rows.add(row(descriptionId, history.synonymInactivated, "0", MODULE, conceptId, "en", SYNONYM, synonym, CASE_INSENSITIVE));
+					}
+					writeRows(writer, fileType, rows);
+				}
+			}
+		}
+	}
+
+	private void writeRelationships(Path path, FileType fileType, boolean stated) throws IOException {
+		final String characteristicType = stated ? ConceptConstants.STATED_RELATIONSHIP : ConceptConstants.INFERRED_RELATIONSHIP;
+		try (Writer writer = newWriter(path)) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\tsourceId\tdestinationId\trelationshipGroup\ttypeId\tcharacteristicTypeId\tmodifierId" + LINE_END);
+			for (int i = 1; i < concepts; i++) {
+				final ConceptHistory history = history(i);
+				final String conceptId = conceptId(i);
+				int relationship = 0;
+				for (int parent : parents(i)) {
+					writeRelationship(writer, fileType, relationshipId(i, relationship++, stated), history.introduced, history.inactivated,
+							conceptId, conceptId(parent), "0", ConceptConstants.isA, characteristicType);
+				}
+				for (int a = 0; a < history.attributeTypes.length; a++) {
+					final String typeId = ATTRIBUTE_TYPES[history.attributeTypes[a]];
+					final boolean changed = a == 0 && history.attributeChanged != NEVER;
+					writeRelationship(writer, fileType, relationshipId(i, relationship++, stated), history.introduced,
+							changed ? history.attributeChanged : history.inactivated, conceptId, conceptId(history.attributeValues[a]), "1", typeId, characteristicType);
+					if (changed) {
+						writeRelationship(writer, fileType, relationshipId(i, relationship++, stated), history.attributeChanged, history.inactivated,
+								conceptId, conceptId(history.changedAttributeValue), "1", typeId, characteristicType);
+					}
+				}
+			}
+		}
+	}
+
+	private void writeRelationship(Writer writer, FileType fileType, String id, int introduced, int inactivated, String sourceId, String destinationId,
+			String group, String typeId, String characteristicType) throws IOException {
+		final List<String[]> rows = new ArrayList<>();
+		rows.add(row(id, introduced, "1", MODULE, sourceId, destinationId, group, typeId, characteristicType, EXISTENTIAL));
+		if (inactivated != NEVER) {
+			rows.add(row(id, inactivated, "0", MODULE, sourceId, destinationId, group, typeId, characteristicType, EXISTENTIAL));
+		}
+		writeRows(writer, fileType, rows);
+	}
+
+	private void writeLanguageRefset(Path path, FileType fileType) throws IOException {
+		try (Writer writer = newWriter(path)) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\trefsetId\treferencedComponentId\tacceptabilityId" + LINE_END);
+			for (int i = 0; i < concepts; i++) {
+				final ConceptHistory history = history(i);
+				for (int s = 0; s <= history.synonyms; s++) {
+					final int inactivated = s == 2 ? history.synonymInactivated : NEVER;
+					final String acceptability = s <= 1 ? PREFERRED : ACCEPTABLE;
+					writeMember(writer, fileType, 1, descriptionItemId(i, s), history.introduced, inactivated, ConceptConstants.US_EN_LANGUAGE_REFERENCE_SET, descriptionId(i, s), acceptability);
+					writeMember(writer, fileType, 2, descriptionItemId(i, s), history.introduced, inactivated, ConceptConstants.GB_EN_LANGUAGE_REFERENCE_SET, descriptionId(i, s), acceptability);
+				}
+			}
+		}
+	}
+
+	private void writeSimpleRefsets(Path path, FileType fileType) throws IOException {
+		try (Writer writer = newWriter(path)) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\trefsetId\treferencedComponentId" + LINE_END);
+			for (int i = 0; i < concepts; i++) {
+				final ConceptHistory history = history(i);
+				for (int r = 0; r < SIMPLE_REFSETS.length; r++) {
+					if (history.simpleRefsets[r]) {
+						writeMember(writer, fileType, 10 + r, i, history.introduced, history.inactivated, SIMPLE_REFSETS[r], conceptId(i));
+					}
+				}
+			}
+		}
+	}
+
+	private void writeAssociationRefset(Path path, FileType fileType) throws IOException {
+		try (Writer writer = newWriter(path)) {
+			writer.write("id\teffectiveTime\tactive\tmoduleId\trefsetId\treferencedComponentId\ttargetComponentId" + LINE_END);
+			for (int i = 0; i < concepts; i++) {
+				final ConceptHistory history = history(i);
+				if (history.inactivated != NEVER) {
+					writeMember(writer, fileType, 20, i, history.inactivated, NEVER, REPLACED_BY_REFSET, conceptId(i), conceptId(parents(i)[0]));
+				}
+			}
+		}
+	}
+
+	private void writeMember(Writer writer, FileType fileType, int refset, long member, int introduced, int inactivated, String refsetId,
+			String referencedComponentId, String... otherValues) throws IOException {
+		final String id = String.format("%08x-0000-4000-8000-%012x", refset, member);
+		final List<String[]> rows = new ArrayList<>();
+		rows.add(memberRow(id, introduced, "1", refsetId, referencedComponentId, otherValues));
+		if (inactivated != NEVER) {
+			rows.add(memberRow(id, inactivated, "0", refsetId, referencedComponentId, otherValues));
+		}
+		writeRows(writer, fileType, rows);
+	}
+
+	private String[] memberRow(String id, int version, String active, String refsetId, String referencedComponentId, String[] otherValues) {
+		final String[] values = new String[6 + otherValues.length];
+		values[0] = id;
+		values[1] = releaseVersions[version];
+		values[2] = active;
+		values[3] = MODULE;
+		values[4] = refsetId;
+		values[5] = referencedComponentId;
+		System.arraycopy(otherValues, 0, values, 6, otherValues.length);
+		return values;
+	}
+
+	private String[] row(String id, int version, String active, String... otherValues) {
+		final String[] values = new String[3 + otherValues.length];
+		values[0] = id;
+		values[1] = releaseVersions[version];
+		values[2] = active;
+		System.arraycopy(otherValues, 0, values, 3, otherValues.length);
+		return values;
+	}
+
+	/**
+	 * Writes the rows of one component, given in version order, as the file type needs them.
+	 */
+	private void writeRows(Writer writer, FileType fileType, List<String[]> rows) throws IOException {
+		switch (fileType) {
+			case FULL:
+				for (String[] row : rows) {
+					writeRow(writer, row);
+				}
+				break;
+			case SNAPSHOT:
+				writeRow(writer, rows.get(rows.size() - 1));
+				break;
+			case DELTA:
+				final String[] last = rows.get(rows.size() - 1);
+				if (last[1].equals(getReleaseVersion())) {
+					writeRow(writer, last);
+				}
+				break;
+		}
+	}
+
+	private void writeRows(Writer writer, FileType fileType, String[] row) throws IOException {
+		writeRows(writer, fileType, Arrays.<String[]>asList(row));
+	}
+
+	private static void writeRow(Writer writer, String[] values) throws IOException {
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0) {
+				writer.write('\t');
+			}
+			writer.write(values[i]);
+		}
+		writer.write(LINE_END);
+	}
+
+	/**
+	 * Everything about a concept that varies, as version indexes.
+	 */
+	private static final class ConceptHistory {
+		private int introduced;
+		private int inactivated = NEVER;
+		private int fullyDefined = NEVER;
+		private int synonyms;
+		private int synonymInactivated = NEVER;
+		private boolean textDefinition;
+		private int[] attributeTypes;
+		private int[] attributeValues;
+		private int attributeChanged = NEVER;
+		private int changedAttributeValue;
+		private boolean[] simpleRefsets = new boolean[SIMPLE_REFSETS.length];
+	}
+
+	private ConceptHistory history(int ordinal) {
+		final ConceptHistory history = new ConceptHistory();
+		final int versions = releaseVersions.length;
+		final int last = versions - 1;
+		// Most concepts are in the first version and the rest are added over the later versions.
+		// A parent or attribute value always comes earlier so it is never added later.
+		final int firstVersionConcepts = concepts - concepts / 5;
+		history.introduced = versions == 1 || ordinal < firstVersionConcepts ? 0
+				: 1 + (int) ((long) (ordinal - firstVersionConcepts) * (versions - 1) / (concepts - firstVersionConcepts));
+		final Random random = random(ordinal, 2);
+		final boolean changes = history.introduced < last;
+		if (changes && isLeafOnly(ordinal) && random.nextInt(2) == 0) {
+			history.inactivated = laterVersion(random, history.introduced);
+		}
+		if (changes && random.nextInt(20) == 0) {
+			history.fullyDefined = laterVersion(random, history.introduced);
+		}
+		history.synonyms = 1 + ordinal % 2;
+		if (changes && history.synonyms == 2 && random.nextInt(10) == 0) {
+			history.synonymInactivated = laterVersion(random, history.introduced);
+		}
+		history.textDefinition = random.nextInt(10) == 0;
+		final int attributes = ordinal == 0 ? 0 : random.nextInt(4);
+		history.attributeTypes = new int[attributes];
+		history.attributeValues = new int[attributes];
+		for (int a = 0; a < attributes; a++) {
+			history.attributeTypes[a] = random.nextInt(ATTRIBUTE_TYPES.length);
+			history.attributeValues[a] = pickEarlierConcept(random, ordinal);
+		}
+		if (changes && attributes > 0 && random.nextInt(10) == 0) {
+			history.attributeChanged = laterVersion(random, history.introduced);
+			history.changedAttributeValue = pickEarlierConcept(random, ordinal);
+		}
+		for (int r = 0; r < SIMPLE_REFSETS.length; r++) {
+			history.simpleRefsets[r] = random.nextInt(20) == 0;
+		}
+		// Changes after inactivation are not made
+		if (history.fullyDefined > history.inactivated) {
+			history.fullyDefined = NEVER;
+		}
+		if (history.synonymInactivated > history.inactivated) {
+			history.synonymInactivated = NEVER;
+		}
+		if (history.attributeChanged >= history.inactivated) {
+			history.attributeChanged = NEVER;
+		}
+		return history;
+	}
+
+	private int laterVersion(Random random, int version) {
+		return version + 1 + random.nextInt(releaseVersions.length - 1 - version);
+	}
+
+	private static int pickEarlierConcept(Random random, int ordinal) {
+		final int earlier = random.nextInt(ordinal);
+		return isLeafOnly(earlier) ? earlier - 1 : earlier;
+	}
+
+	private static boolean isLeafOnly(int ordinal) {
+		return ordinal % LEAF_ONLY_INTERVAL == LEAF_ONLY_INTERVAL - 1;
+	}
+
+	private String descriptionId(int ordinal, int description) {
+		return sctid(descriptionItemId(ordinal, description), DESCRIPTION_PARTITION);
+	}
+
+	private long descriptionItemId(int ordinal, int description) {
+		return FIRST_ITEM_ID + ordinal * 4L + description;
+	}
+
+	private String relationshipId(int ordinal, int relationship, boolean stated) {
+		return sctid(FIRST_ITEM_ID + ordinal * 16L + (stated ? 8 : 0) + relationship, RELATIONSHIP_PARTITION);
+	}
+
+	private Random random(int ordinal, int purpose) {
+		return new Random(seed * 1000003L + ordinal * 31L + purpose);
+	}
+
+	private static Writer newWriter(Path path) throws IOException {
+		return new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(path), UTF_8), 1024 * 64);
+	}
+
+	static String sctid(long itemId, String partition) {
+		final String withoutCheckDigit = itemId + partition;
+		return withoutCheckDigit + verhoeffCheckDigit(withoutCheckDigit);
+	}
+
+	private static final int[][] VERHOEFF_D = {
+			{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, {1, 2, 3, 4, 0, 6, 7, 8, 9, 5}, {2, 3, 4, 0, 1, 7, 8, 9, 5, 6},
+			{3, 4, 0, 1, 2, 8, 9, 5, 6, 7}, {4, 0, 1, 2, 3, 9, 5, 6, 7, 8}, {5, 9, 8, 7, 6, 0, 4, 3, 2, 1},
+			{6, 5, 9, 8, 7, 1, 0, 4, 3, 2}, {7, 6, 5, 9, 8, 2, 1, 0, 4, 3}, {8, 7, 6, 5, 9, 3, 2, 1, 0, 4},
+			{9, 8, 7, 6, 5, 4, 3, 2, 1, 0}};
+	private static final int[][] VERHOEFF_P = {
+			{0, 1, 2, 3, 4, 5, 6, 7, 8, 9}, {1, 5, 7, 6, 2, 8, 3, 0, 9, 4}, {5, 8, 0, 3, 7, 9, 6, 1, 4, 2},
+			{8, 9, 1, 6, 0, 4, 3, 5, 2, 7}, {9, 4, 5, 3, 1, 2, 6, 8, 7, 0}, {4, 2, 8, 6, 5, 7, 3, 9, 0, 1},
+			{2, 7, 9, 3, 8, 0, 6, 4, 1, 5}, {7, 0, 4, 6, 9, 1, 3, 2, 5, 8}};
+	private static final int[] VERHOEFF_INV = {0, 4, 3, 2, 1, 5, 6, 7, 8, 9};
+
+	private static int verhoeffCheckDigit(String number) {
+		int check = 0;
+		for (int i = 0; i < number.length(); i++) {
+			final int digit = number.charAt(number.length() - 1 - i) - '0';
+			check = VERHOEFF_D[check][VERHOEFF_P[(i + 1) % 8][digit]];
+		}
+		return VERHOEFF_INV[check];
+	}
+
+	/**
+	 * Usage: SyntheticReleaseGenerator outputDirectory concepts [releaseVersion...]
+	 * With more than one release version Full and Delta files are written too.
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.err.println("Usage: SyntheticReleaseGenerator outputDirectory concepts [releaseVersion...]");
+			System.exit(1);
+		}
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(Integer.parseInt(args[1]));
+		if (args.length > 2) {
+			generator.withReleaseVersions(Arrays.copyOfRange(args, 2, args.length));
+			if (args.length > 3) {
+				generator.withFull().withDelta();
+			}
+		}
+		final long start = System.currentTimeMillis();
+		final Path releaseDir = generator.generate(Files.createDirectories(Paths.get(args[0])));
+		System.out.println("Wrote " + releaseDir + " in " + (System.currentTimeMillis() - start) / 1000 + " seconds.");
+	}
+}
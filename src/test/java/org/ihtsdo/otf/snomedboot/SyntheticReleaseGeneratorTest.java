@@ -0,0 +1,179 @@
+package org.ihtsdo.otf.snomedboot;
+
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.factory.FactoryUtils;
+import org.ihtsdo.otf.snomedboot.factory.ImpotentHistoryAwareComponentFactory;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class SyntheticReleaseGeneratorTest {
+
+	private Path tempDir;
+
+	@Before
+	public void setup() throws Exception {
+		tempDir = Files.createTempDirectory("synthetic-release");
+	}
+
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Test
+	public void testSctidCheckDigit() {
+		Assert.assertEquals("138875005", SyntheticReleaseGenerator.sctid(138875, "00"));
+		Assert.assertEquals("900000000000207008", SyntheticReleaseGenerator.sctid(900000000000207L, "00"));
+	}
+
+	@Test
+	public void testGeneratedReleaseLoads() throws Exception {
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(2000);
+		final Path releaseDir = generator.generate(tempDir);
+
+		final ComponentStore componentStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ComponentFactoryImpl(componentStore));
+
+		Assert.assertEquals(2000, componentStore.getConcepts().size());
+		for (int i = 0; i < generator.getConcepts(); i++) {
+			final String conceptId = generator.conceptId(i);
+			Assert.assertTrue(conceptId, FactoryUtils.isConceptId(conceptId));
+			final Concept concept = componentStore.getConcepts().get(Long.parseLong(conceptId));
+			Assert.assertTrue(concept.getFsn(), concept.getFsn().startsWith("Synthetic concept " + i + " ("));
+			Assert.assertEquals(ancestorIds(generator, i, new HashSet<Long>()), concept.getInferredAncestorIds());
+		}
+		Assert.assertEquals(1999, componentStore.getConcepts().get(138875005L).getInferredDescendantIds().size());
+	}
+
+	@Test
+	public void testFullSnapshotAndDeltaAgree() throws Exception {
+		final String[] versions = {"20160131", "20160731", "20170131", "20170731"};
+		final Path releaseDir = new SyntheticReleaseGenerator(3000).withReleaseVersions(versions).withFull().withDelta().generate(tempDir);
+
+		int fullFiles = 0;
+		final Set<String> effectiveTimes = new HashSet<>();
+		for (Path fullFile : listFiles(releaseDir.resolve("Full"))) {
+			fullFiles++;
+			final Map<String, String> lastRows = new LinkedHashMap<>();
+			final List<String> deltaRows = new ArrayList<>();
+			for (String row : readRows(fullFile)) {
+				final String[] values = row.split("\t");
+				final String previous = lastRows.put(values[0], row);
+				if (previous != null) {
+					Assert.assertTrue(row, previous.split("\t")[1].compareTo(values[1]) < 0);
+				}
+				if (values[1].equals("20170731")) {
+					deltaRows.add(row);
+				}
+				effectiveTimes.add(values[1]);
+			}
+			Assert.assertEquals(fullFile.toString(), new ArrayList<>(lastRows.values()), readRows(matchingFile(releaseDir, fullFile, "Snapshot")));
+			Assert.assertEquals(fullFile.toString(), deltaRows, readRows(matchingFile(releaseDir, fullFile, "Delta")));
+		}
+		Assert.assertEquals(8, fullFiles);
+		Assert.assertEquals(new HashSet<>(Arrays.asList(versions)), effectiveTimes);
+	}
+
+	@Test
+	public void testGeneratedFullReleaseLoads() throws Exception {
+		final String[] versions = {"20160731", "20170131", "20170731"};
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(3000).withReleaseVersions(versions).withFull();
+		final Path releaseDir = generator.generate(tempDir);
+
+		final List<String> releaseVersions = new ArrayList<>();
+		final Map<String, String> conceptActive = new ConcurrentHashMap<>();
+		final Set<String> inferredEdges = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+		new ReleaseImporter().loadFullReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ImpotentHistoryAwareComponentFactory() {
+			@Override
+			public void loadingReleaseDeltaStarting(String releaseVersion) {
+				releaseVersions.add(releaseVersion);
+			}
+
+			@Override
+			public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+				conceptActive.put(conceptId, active);
+			}
+
+			@Override
+			public void addInferredConceptParent(String sourceId, String parentId) {
+				inferredEdges.add(sourceId + " " + parentId);
+			}
+
+			@Override
+			public void removeInferredConceptParent(String sourceId, String destinationId) {
+				inferredEdges.remove(sourceId + " " + destinationId);
+			}
+		});
+
+		Assert.assertEquals(Arrays.asList(versions), releaseVersions);
+		Assert.assertEquals(3000, conceptActive.size());
+		final Set<String> expectedEdges = new HashSet<>();
+		int inactive = 0;
+		for (int i = 0; i < generator.getConcepts(); i++) {
+			final boolean active = generator.isActive(i);
+			Assert.assertEquals(active ? "1" : "0", conceptActive.get(generator.conceptId(i)));
+			if (active) {
+				for (int parent : generator.parents(i)) {
+					Assert.assertTrue(generator.isActive(parent));
+					expectedEdges.add(generator.conceptId(i) + " " + generator.conceptId(parent));
+				}
+			} else {
+				inactive++;
+			}
+		}
+		Assert.assertTrue(inactive > 0);
+		Assert.assertEquals(expectedEdges, inferredEdges);
+	}
+
+	private List<Path> listFiles(Path directory) throws IOException {
+		final List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				if (Files.isDirectory(path)) {
+					files.addAll(listFiles(path));
+				} else {
+					files.add(path);
+				}
+			}
+		}
+		return files;
+	}
+
+	private Path matchingFile(Path releaseDir, Path fullFile, String fileType) {
+		final String relativePath = releaseDir.relativize(fullFile).toString().replace("Full", fileType);
+		return releaseDir.resolve(relativePath);
+	}
+
+	private List<String> readRows(Path file) throws IOException {
+		final List<String> lines = Files.readAllLines(file, Charset.forName("UTF-8"));
+		return lines.subList(1, lines.size());
+	}
+
+	private Set<Long> ancestorIds(SyntheticReleaseGenerator generator, int ordinal, Set<Long> ancestorIds) {
+		for (int parent : generator.parents(ordinal)) {
+			ancestorIds.add(Long.parseLong(generator.conceptId(parent)));
+			ancestorIds(generator, parent, ancestorIds);
+		}
+		return ancestorIds;
+	}
+}
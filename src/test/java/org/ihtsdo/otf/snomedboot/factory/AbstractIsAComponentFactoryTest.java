@@ -0,0 +1,146 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+import org.ihtsdo.otf.snomedboot.ReleaseImporter;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class AbstractIsAComponentFactoryTest {
+
+	private static final String RELEASE_PATH = "src/test/resources/dummy-snomed-content/SnomedCT_MiniRF2_INT_20170731";
+
+	@Test
+	public void testParentAndChildCallbacksBridgedToEdgeEvents() throws Exception {
+		// Edge events made by the importer itself
+		final EdgeRecordingFactory expected = new EdgeRecordingFactory();
+		new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, LoadingProfile.complete, expected);
+
+		// Parent and child callbacks made to a factory which is not an IsAComponentFactory, passed on to the bridge
+		final EdgeRecordingFactory bridged = new EdgeRecordingFactory();
+		new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, LoadingProfile.complete, new ImpotentComponentFactory() {
+			@Override
+			public void addInferredConceptParent(String sourceId, String parentId) {
+				bridged.addInferredConceptParent(sourceId, parentId);
+			}
+
+			@Override
+			public void addStatedConceptParent(String sourceId, String parentId) {
+				bridged.addStatedConceptParent(sourceId, parentId);
+			}
+
+			@Override
+			public void removeInferredConceptParent(String sourceId, String destinationId) {
+				bridged.removeInferredConceptParent(sourceId, destinationId);
+			}
+
+			@Override
+			public void removeStatedConceptParent(String sourceId, String destinationId) {
+				bridged.removeStatedConceptParent(sourceId, destinationId);
+			}
+
+			@Override
+			public void addInferredConceptChild(String sourceId, String destinationId) {
+				bridged.addInferredConceptChild(sourceId, destinationId);
+			}
+
+			@Override
+			public void addStatedConceptChild(String sourceId, String destinationId) {
+				bridged.addStatedConceptChild(sourceId, destinationId);
+			}
+
+			@Override
+			public void removeInferredConceptChild(String sourceId, String destinationId) {
+				bridged.removeInferredConceptChild(sourceId, destinationId);
+			}
+
+			@Override
+			public void removeStatedConceptChild(String sourceId, String destinationId) {
+				bridged.removeStatedConceptChild(sourceId, destinationId);
+			}
+		});
+
+		Assert.assertTrue(expected.getEdges().contains("addInferredIsA 46635009 73211009"));
+		Assert.assertTrue(expected.getEdges().contains("addStatedIsA 46635009 73211009"));
+		Assert.assertEquals("One edge event for each parent and child callback pair", expected.getEdges(), bridged.getEdges());
+	}
+
+	private static final class EdgeRecordingFactory extends AbstractIsAComponentFactory {
+
+		private final List<String> edges = Collections.synchronizedList(new ArrayList<String>());
+
+		/**
+		 * @return The edge events received, sorted as relationship files are read in parallel.
+		 */
+		List<String> getEdges() {
+			final List<String> sortedEdges = new ArrayList<>(edges);
+			Collections.sort(sortedEdges);
+			return sortedEdges;
+		}
+
+		@Override
+		public void addInferredIsA(long sourceId, long destinationId) {
+			edges.add("addInferredIsA " + sourceId + " " + destinationId);
+		}
+
+		@Override
+		public void addStatedIsA(long sourceId, long destinationId) {
+			edges.add("addStatedIsA " + sourceId + " " + destinationId);
+		}
+
+		@Override
+		public void removeInferredIsA(long sourceId, long destinationId) {
+			edges.add("removeInferredIsA " + sourceId + " " + destinationId);
+		}
+
+		@Override
+		public void removeStatedIsA(long sourceId, long destinationId) {
+			edges.add("removeStatedIsA " + sourceId + " " + destinationId);
+		}
+
+		@Override
+		public void loadingComponentsStarting() {
+		}
+
+		@Override
+		public void loadingComponentsCompleted() {
+		}
+
+		@Override
+		public void newConceptState(String conceptId, String effectiveTime, String active, String moduleId, String definitionStatusId) {
+		}
+
+		@Override
+		public void newDescriptionState(String id, String effectiveTime, String active, String moduleId, String conceptId, String languageCode,
+				String typeId, String term, String caseSignificanceId) {
+		}
+
+		@Override
+		public void newRelationshipState(String id, String effectiveTime, String active, String moduleId, String sourceId, String destinationId,
+				String relationshipGroup, String typeId, String characteristicTypeId, String modifierId) {
+		}
+
+		@Override
+		public void newReferenceSetMemberState(String[] fieldNames, String id, String effectiveTime, String active, String moduleId, String refsetId,
+				String referencedComponentId, String... otherValues) {
+		}
+
+		@Override
+		public void addConceptFSN(String conceptId, String term) {
+		}
+
+		@Override
+		public void addInferredConceptAttribute(String sourceId, String typeId, String valueId) {
+		}
+
+		@Override
+		public void addStatedConceptAttribute(String sourceId, String typeId, String valueId) {
+		}
+
+		@Override
+		public void addConceptReferencedInRefsetId(String refsetId, String conceptId) {
+		}
+	}
+}
@@ -0,0 +1,39 @@
+package org.ihtsdo.otf.snomedboot.factory;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class IdentifierPoolTest {
+
+	@Test
+	public void testSameStringForSameValue() {
+		final IdentifierPool identifierPool = new IdentifierPool();
+		final String moduleId = identifierPool.toString(900000000000207008L);
+		Assert.assertEquals("900000000000207008", moduleId);
+		Assert.assertSame(moduleId, identifierPool.toString(900000000000207008L));
+		Assert.assertSame(moduleId, identifierPool.intern(new String("900000000000207008")));
+		Assert.assertEquals(1, identifierPool.size());
+	}
+
+	@Test
+	public void testValuesWhichAreNotPooled() {
+		final IdentifierPool identifierPool = new IdentifierPool();
+		for (String value : new String[]{"", "0123", "12a", "-1", "1234567890123456789", "en"}) {
+			Assert.assertSame(value, identifierPool.intern(value));
+		}
+		Assert.assertEquals(0, identifierPool.size());
+		Assert.assertSame(identifierPool.intern("0"), identifierPool.toString(0));
+	}
+
+	@Test
+	public void testNewStringsOncePoolFull() {
+		final IdentifierPool identifierPool = new IdentifierPool(2);
+		final String first = identifierPool.toString(1);
+		identifierPool.toString(2);
+		final String third = identifierPool.toString(3);
+		Assert.assertEquals("3", third);
+		Assert.assertNotSame(third, identifierPool.toString(3));
+		Assert.assertSame(first, identifierPool.toString(1));
+		Assert.assertEquals(2, identifierPool.size());
+	}
+}
@@ -0,0 +1,169 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.columnar;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.ReleaseImporter;
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ComponentFactoryImpl;
+import org.ihtsdo.otf.snomedboot.factory.implementation.standard.ConceptImpl;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+public class ColumnarComponentStoreTest {
+
+	private static final String RELEASE_PATH = "src/test/resources/dummy-snomed-content/SnomedCT_MiniRF2_INT_20170731";
+
+	@Test
+	public void testMatchesStandardStore() throws Exception {
+		for (LoadingProfile loadingProfile : Arrays.asList(LoadingProfile.light, LoadingProfile.complete)) {
+			final ComponentStore standardStore = new ComponentStore();
+			new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, loadingProfile, new ComponentFactoryImpl(standardStore));
+			final ColumnarComponentStore columnarStore = new ColumnarComponentStore();
+			new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, loadingProfile, new ColumnarComponentFactory(columnarStore));
+
+			final Long2ObjectMap<ConceptImpl> expectedConcepts = standardStore.getConcepts();
+			final Long2ObjectMap<Concept> concepts = columnarStore.getConcepts();
+			Assert.assertEquals(expectedConcepts.size(), concepts.size());
+			Assert.assertEquals(expectedConcepts.keySet(), concepts.keySet());
+			for (final ConceptImpl expected : expectedConcepts.values()) {
+				final Concept concept = concepts.get(expected.getId().longValue());
+				Assert.assertEquals(expected.getId(), concept.getId());
+				Assert.assertEquals(expected.isActive(), concept.isActive());
+				Assert.assertEquals(expected.getEffectiveTime(), concept.getEffectiveTime());
+				Assert.assertEquals(expected.getModuleId(), concept.getModuleId());
+				Assert.assertEquals(expected.getDefinitionStatusId(), concept.getDefinitionStatusId());
+				Assert.assertEquals(expected.getFsn(), concept.getFsn());
+				Assert.assertEquals(expected.getMemberOfRefsetIds(), concept.getMemberOfRefsetIds());
+				Assert.assertEquals(expected.getInferredAttributes(), concept.getInferredAttributes());
+				Assert.assertEquals(expected.getStatedAttributes(), concept.getStatedAttributes());
+				Assert.assertEquals(relationshipIds(expected.getRelationships()), relationshipIds(concept.getRelationships()));
+				Assert.assertEquals(descriptionIds(expected.getDescriptions()), descriptionIds(concept.getDescriptions()));
+				assertSameOutcome(new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return expected.getInferredAncestorIds();
+					}
+				}, new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return concept.getInferredAncestorIds();
+					}
+				});
+				assertSameOutcome(new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return expected.getInferredDescendantIds();
+					}
+				}, new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return concept.getInferredDescendantIds();
+					}
+				});
+				assertSameOutcome(new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return expected.getStatedAncestorIds();
+					}
+				}, new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return concept.getStatedAncestorIds();
+					}
+				});
+			}
+		}
+	}
+
+	@Test
+	public void testChangesAfterLoadingAreVisible() {
+		final ColumnarComponentStore store = new ColumnarComponentStore(1);
+		final ColumnarComponentFactory factory = new ColumnarComponentFactory(store);
+		for (String conceptId : Arrays.asList("138875005", "404684003", "64572001", "73211009")) {
+			factory.newConceptState(conceptId, "20170131", "1", "900000000000207008", "900000000000074008");
+		}
+		factory.addInferredConceptParent("404684003", "138875005");
+		factory.addInferredConceptParent("64572001", "404684003");
+		factory.addInferredConceptParent("73211009", "64572001");
+		factory.loadingComponentsCompleted();
+		Assert.assertEquals(new HashSet<>(Arrays.asList(64572001L, 404684003L, 138875005L)), store.getConcepts().get(73211009L).getInferredAncestorIds());
+
+		factory.removeInferredConceptParent("73211009", "64572001");
+		factory.addInferredConceptParent("73211009", "404684003");
+		Assert.assertEquals(new HashSet<>(Arrays.asList(404684003L, 138875005L)), store.getConcepts().get(73211009L).getInferredAncestorIds());
+		Assert.assertEquals(new HashSet<>(Arrays.asList(64572001L, 73211009L)), store.getConcepts().get(404684003L).getInferredDescendantIds());
+	}
+
+	@Test
+	public void testAncestorLoopDetected() {
+		final ColumnarComponentStore store = new ColumnarComponentStore();
+		final ColumnarComponentFactory factory = new ColumnarComponentFactory(store);
+		for (String conceptId : Arrays.asList("138875005", "404684003", "64572001")) {
+			factory.newConceptState(conceptId, "20170131", "1", "900000000000207008", "900000000000074008");
+		}
+		factory.addInferredConceptParent("404684003", "138875005");
+		factory.addInferredConceptParent("64572001", "404684003");
+		factory.addInferredConceptParent("404684003", "64572001");
+		factory.loadingComponentsCompleted();
+		try {
+			store.getConcepts().get(64572001L).getInferredAncestorIds();
+			Assert.fail("Expected loop to be detected");
+		} catch (IllegalStateException e) {
+			Assert.assertEquals("Ancestor loop detected: [64572001, 404684003, 64572001]", e.getMessage());
+		}
+		// As with ConceptImpl a descendant walk visits each concept of a loop once
+		Assert.assertEquals(new HashSet<>(Arrays.asList(404684003L, 64572001L)), store.getConcepts().get(138875005L).getInferredDescendantIds());
+	}
+
+	@Test
+	public void testEmptyEffectiveTime() {
+		final ColumnarComponentStore store = new ColumnarComponentStore();
+		final ColumnarComponentFactory factory = new ColumnarComponentFactory(store);
+		factory.newConceptState("138875005", "", "1", "900000000000207008", "900000000000074008");
+		factory.addInferredConceptParent("404684003", "138875005");
+		factory.loadingComponentsCompleted();
+		Assert.assertEquals("", store.getConcepts().get(138875005L).getEffectiveTime());
+		Assert.assertNull("Concept without a state", store.getConcepts().get(404684003L).getEffectiveTime());
+	}
+
+	private Set<String> relationshipIds(List<Relationship> relationships) {
+		final Set<String> ids = new HashSet<>();
+		for (Relationship relationship : relationships) {
+			ids.add(relationship.getId());
+		}
+		return ids;
+	}
+
+	private Set<Long> descriptionIds(List<Description> descriptions) {
+		final Set<Long> ids = new HashSet<>();
+		for (Description description : descriptions) {
+			ids.add(description.getId());
+		}
+		return ids;
+	}
+
+	private void assertSameOutcome(Callable<Set<Long>> expected, Callable<Set<Long>> actual) throws Exception {
+		Set<Long> expectedIds;
+		try {
+			expectedIds = expected.call();
+		} catch (IllegalStateException e) {
+			try {
+				actual.call();
+				Assert.fail("Expected " + e.getMessage());
+			} catch (IllegalStateException actualException) {
+				Assert.assertEquals(e.getMessage(), actualException.getMessage());
+			}
+			return;
+		}
+		Assert.assertEquals(expectedIds, actual.call());
+	}
+}
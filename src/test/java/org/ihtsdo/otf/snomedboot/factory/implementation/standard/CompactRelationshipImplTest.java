@@ -0,0 +1,58 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.List;
+
+public class CompactRelationshipImplTest {
+
+	private static final long STATED = Long.parseLong(ConceptConstants.STATED_RELATIONSHIP);
+	private static final long INFERRED = Long.parseLong(ConceptConstants.INFERRED_RELATIONSHIP);
+	private static final long EXISTENTIAL = Long.parseLong(ConceptConstants.EXISTENTIAL_MODIFIER);
+	private static final long UNIVERSAL = Long.parseLong(ConceptConstants.UNIVERSAL_MODIFIER);
+
+	@Test
+	public void testValuesReadAsStrings() {
+		final Relationship relationship = new CompactRelationshipImpl(100022L, 20170131, true, 900000000000207008L, 100005L,
+				138875005L, 2, 116680003L, INFERRED, UNIVERSAL);
+		Assert.assertEquals("100022", relationship.getId());
+		Assert.assertEquals("20170131", relationship.getEffectiveTime());
+		Assert.assertEquals("1", relationship.getActive());
+		Assert.assertEquals("900000000000207008", relationship.getModuleId());
+		Assert.assertEquals("100005", relationship.getSourceId());
+		Assert.assertEquals("138875005", relationship.getDestinationId());
+		Assert.assertEquals("2", relationship.getRelationshipGroup());
+		Assert.assertEquals(ConceptConstants.isA, relationship.getTypeId());
+		Assert.assertEquals(ConceptConstants.INFERRED_RELATIONSHIP, relationship.getCharacteristicTypeId());
+		Assert.assertEquals(ConceptConstants.UNIVERSAL_MODIFIER, relationship.getModifierId());
+		Assert.assertSame(relationship.getModuleId(), relationship.getModuleId());
+
+		final Relationship unpublished = new CompactRelationshipImpl(100022L, 0, false, 900000000000207008L, 100005L,
+				138875005L, 0, 116680003L, STATED, EXISTENTIAL);
+		Assert.assertEquals("", unpublished.getEffectiveTime());
+		Assert.assertEquals("0", unpublished.getActive());
+		Assert.assertEquals(ConceptConstants.STATED_RELATIONSHIP, unpublished.getCharacteristicTypeId());
+	}
+
+	@Test
+	public void testOtherStatesHeldAsRelationshipImpl() {
+		Assert.assertFalse(CompactRelationshipImpl.isCompact(0, 123L, EXISTENTIAL));
+		Assert.assertFalse(CompactRelationshipImpl.isCompact(0, INFERRED, 123L));
+		Assert.assertFalse(CompactRelationshipImpl.isCompact(Short.MAX_VALUE + 1, INFERRED, EXISTENTIAL));
+		Assert.assertTrue(CompactRelationshipImpl.isCompact(Short.MAX_VALUE, INFERRED, EXISTENTIAL));
+
+		final ComponentStore componentStore = new ComponentStore();
+		final ComponentFactoryImpl factory = new ComponentFactoryImpl(componentStore);
+		factory.newConceptState(100005L, 20170131, true, 900000000000207008L, 900000000000074008L);
+		factory.newRelationshipState(100022L, 20170131, true, 900000000000207008L, 100005L, 138875005L, 0, 116680003L, INFERRED, EXISTENTIAL);
+		factory.newRelationshipState(100122L, 20170131, true, 900000000000207008L, 100005L, 138875005L, 0, 116680003L, 123L, EXISTENTIAL);
+		final List<Relationship> relationships = componentStore.getConcepts().get(100005L).getRelationships();
+		Assert.assertTrue(relationships.get(0) instanceof CompactRelationshipImpl);
+		Assert.assertTrue(relationships.get(1) instanceof RelationshipImpl);
+		Assert.assertEquals("123", relationships.get(1).getCharacteristicTypeId());
+	}
+}
@@ -0,0 +1,194 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.ReleaseImporter;
+import org.ihtsdo.otf.snomedboot.SyntheticReleaseGenerator;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class ComponentStoreImageTest {
+
+	private Path tempDir;
+	private Path releaseDir;
+	private Path imageFile;
+
+	@Before
+	public void setup() throws IOException {
+		tempDir = Files.createTempDirectory("component-store-image");
+		releaseDir = new SyntheticReleaseGenerator(2000).generate(tempDir.resolve("release"));
+		imageFile = tempDir.resolve("store.image");
+	}
+
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Test
+	public void testImageReadBackMatchesLoadedStore() throws Exception {
+		final ComponentStore expectedStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ComponentFactoryImpl(expectedStore));
+		ComponentStoreImage.write(expectedStore, imageFile, releaseDir.toString(), LoadingProfile.complete);
+
+		final ComponentStore componentStore = ComponentStoreImage.read(imageFile, releaseDir.toString(), LoadingProfile.complete);
+		assertStoresEqual(expectedStore, componentStore);
+	}
+
+	@Test
+	public void testImageRejectedForAnotherProfileOrRelease() throws Exception {
+		final ComponentStore componentStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.light, new ComponentFactoryImpl(componentStore));
+		ComponentStoreImage.write(componentStore, imageFile, releaseDir.toString(), LoadingProfile.light);
+
+		Assert.assertTrue(ComponentStoreImage.matches(imageFile, releaseDir.toString(), LoadingProfile.light));
+		Assert.assertFalse(ComponentStoreImage.matches(imageFile, releaseDir.toString(), LoadingProfile.complete));
+		Assert.assertFalse(ComponentStoreImage.matches(imageFile, releaseDir.toString(), LoadingProfile.light.withInactiveConcepts()));
+
+		// Any change to the size of a release file makes it another release
+		final Path conceptFile = findFile(releaseDir, "sct2_Concept_Snapshot");
+		Files.write(conceptFile, "\n".getBytes(), StandardOpenOption.APPEND);
+		Assert.assertFalse(ComponentStoreImage.matches(imageFile, releaseDir.toString(), LoadingProfile.light));
+		try {
+			ComponentStoreImage.read(imageFile, releaseDir.toString(), LoadingProfile.light);
+			Assert.fail("An image of another release should not be read.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testReleaseFingerprintChangesWithFileOfSameSize() throws Exception {
+		final String fingerprint = ComponentStoreImage.releaseFingerprint(releaseDir.toString());
+		final Path conceptFile = findFile(releaseDir, "sct2_Concept_Snapshot");
+		final FileTime modifiedTime = Files.getLastModifiedTime(conceptFile);
+		final byte[] bytes = Files.readAllBytes(conceptFile);
+
+		// Last row flipped between active and inactive, the size and modification time kept
+		int active = bytes.length - 2;
+		while (bytes[active - 1] != '\n') {
+			active--;
+		}
+		for (int tabs = 0; tabs < 2; active++) {
+			if (bytes[active] == '\t') {
+				tabs++;
+			}
+		}
+		bytes[active] = (byte) (bytes[active] == '1' ? '0' : '1');
+		Files.write(conceptFile, bytes);
+		Files.setLastModifiedTime(conceptFile, modifiedTime);
+		final String changedFingerprint = ComponentStoreImage.releaseFingerprint(releaseDir.toString());
+		Assert.assertFalse(fingerprint.equals(changedFingerprint));
+
+		Files.setLastModifiedTime(conceptFile, FileTime.fromMillis(modifiedTime.toMillis() + 60000));
+		Assert.assertFalse(changedFingerprint.equals(ComponentStoreImage.releaseFingerprint(releaseDir.toString())));
+	}
+
+	@Test
+	public void testNotAnImage() throws Exception {
+		Files.write(imageFile, "Not an image".getBytes());
+		try {
+			ComponentStoreImage.read(imageFile, releaseDir.toString(), LoadingProfile.light);
+			Assert.fail("A file which is not an image should not be read.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	@Test
+	public void testLoadSnapshotReleaseFilesWritesThenReadsImage() throws Exception {
+		final ComponentStore loadedStore = ComponentStoreImage.loadSnapshotReleaseFiles(new ReleaseImporter(), releaseDir.toString(),
+				LoadingProfile.complete, imageFile);
+		Assert.assertTrue(Files.isRegularFile(imageFile));
+		final long written = Files.getLastModifiedTime(imageFile).toMillis();
+
+		final ComponentStore readStore = ComponentStoreImage.loadSnapshotReleaseFiles(new ReleaseImporter(), releaseDir.toString(),
+				LoadingProfile.complete, imageFile);
+		Assert.assertEquals(written, Files.getLastModifiedTime(imageFile).toMillis());
+		assertStoresEqual(loadedStore, readStore);
+	}
+
+	private void assertStoresEqual(ComponentStore expectedStore, ComponentStore componentStore) {
+		Assert.assertEquals(expectedStore.getConcepts().size(), componentStore.getConcepts().size());
+		for (ConceptImpl expected : expectedStore.getConcepts().values()) {
+			final ConceptImpl concept = componentStore.getConcepts().get(expected.id());
+			Assert.assertNotNull(concept);
+			final String id = expected.getId().toString();
+			Assert.assertEquals(id, expected.getEffectiveTime(), concept.getEffectiveTime());
+			Assert.assertEquals(id, expected.isActive(), concept.isActive());
+			Assert.assertEquals(id, expected.getModuleId(), concept.getModuleId());
+			Assert.assertEquals(id, expected.getDefinitionStatusId(), concept.getDefinitionStatusId());
+			Assert.assertEquals(id, expected.getFsn(), concept.getFsn());
+			Assert.assertEquals(id, expected.getMemberOfRefsetIds(), concept.getMemberOfRefsetIds());
+			Assert.assertEquals(id, expected.getInferredAttributes(), concept.getInferredAttributes());
+			Assert.assertEquals(id, expected.getStatedAttributes(), concept.getStatedAttributes());
+			Assert.assertEquals(id, edgeIds(expected.parents(true)), edgeIds(concept.parents(true)));
+			Assert.assertEquals(id, edgeIds(expected.parents(false)), edgeIds(concept.parents(false)));
+			Assert.assertEquals(id, edgeIds(expected.children(true)), edgeIds(concept.children(true)));
+			Assert.assertEquals(id, edgeIds(expected.children(false)), edgeIds(concept.children(false)));
+			Assert.assertEquals(id, relationships(expected), relationships(concept));
+			Assert.assertEquals(id, descriptions(expected), descriptions(concept));
+			if (expected.isActive()) {
+				Assert.assertEquals(id, expected.getInferredAncestorIds(), concept.getInferredAncestorIds());
+			}
+		}
+	}
+
+	private List<Long> edgeIds(SortedConceptArraySet edges) {
+		final List<Long> ids = new ArrayList<>();
+		for (int i = 0; edges != null && i < edges.size(); i++) {
+			ids.add(edges.get(i).id());
+		}
+		return ids;
+	}
+
+	private List<String> relationships(ConceptImpl concept) {
+		final List<String> relationships = new ArrayList<>();
+		for (Relationship r : concept.getRelationships()) {
+			relationships.add(r.getId() + " " + r.getEffectiveTime() + " " + r.getActive() + " " + r.getModuleId() + " " + r.getSourceId()
+					+ " " + r.getDestinationId() + " " + r.getRelationshipGroup() + " " + r.getTypeId() + " " + r.getCharacteristicTypeId()
+					+ " " + r.getModifierId());
+		}
+		return relationships;
+	}
+
+	private Map<Long, String> descriptions(ConceptImpl concept) {
+		final Map<Long, String> terms = new TreeMap<>();
+		for (Description description : concept.getDescriptions()) {
+			terms.put(description.getId(), description.isActive() + " " + description.getConceptId() + " " + description.getTerm());
+		}
+		return terms;
+	}
+
+	private Path findFile(Path directory, String prefix) throws IOException {
+		try (DirectoryStream<Path> files = Files.newDirectoryStream(directory)) {
+			for (Path file : files) {
+				if (Files.isDirectory(file)) {
+					final Path found = findFile(file, prefix);
+					if (found != null) {
+						return found;
+					}
+				} else if (file.getFileName().toString().startsWith(prefix)) {
+					return file;
+				}
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,340 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.ReleaseImportException;
+import org.ihtsdo.otf.snomedboot.ReleaseImporter;
+import org.ihtsdo.otf.snomedboot.SyntheticReleaseGenerator;
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.ConceptConstants;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class DeltaComponentFactoryImplTest {
+
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+	private static final String[] VERSIONS = {"20160731", "20170131", "20170731"};
+
+	private Path tempDir;
+
+	@Before
+	public void setup() throws IOException {
+		tempDir = Files.createTempDirectory("delta-factory");
+	}
+
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Test
+	public void testDeltaAppliedToPreviousSnapshotMatchesSnapshot() throws Exception {
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(3000).withReleaseVersions(VERSIONS).withFull().withDelta();
+		final Path releaseDir = generator.generate(tempDir.resolve("release"));
+		final Path previousReleaseDir = writePreviousSnapshot(releaseDir, tempDir.resolve("previous"));
+
+		// An is-a relationship made again with a new id ahead of inactivating the old one, the edge must remain
+		final int concept = 1500;
+		final String isA = isARow(relationshipFile(releaseDir, "Snapshot"), generator.conceptId(concept));
+		final String[] values = isA.split("\t");
+		values[0] = "99" + values[0];
+		values[1] = VERSIONS[2];
+		final String recreatedIsA = join(values);
+		values[0] = isA.split("\t")[0];
+		values[2] = "0";
+		final String inactivatedIsA = join(values);
+		final List<String> snapshotRows = new ArrayList<>(Files.readAllLines(relationshipFile(releaseDir, "Snapshot"), UTF_8));
+		snapshotRows.set(snapshotRows.indexOf(isA), inactivatedIsA);
+		snapshotRows.add(recreatedIsA);
+		Files.write(relationshipFile(releaseDir, "Snapshot"), snapshotRows, UTF_8);
+		final List<String> deltaRows = new ArrayList<>(Files.readAllLines(relationshipFile(releaseDir, "Delta"), UTF_8));
+		deltaRows.add(recreatedIsA);
+		deltaRows.add(inactivatedIsA);
+		Files.write(relationshipFile(releaseDir, "Delta"), deltaRows, UTF_8);
+
+		final LoadingProfile profile = LoadingProfile.complete.withStatedAttributeMapOnConcept();
+		final ComponentStore expectedStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), profile, new ComponentFactoryImpl(expectedStore));
+
+		final ComponentStore componentStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(previousReleaseDir.toString(), profile, new ComponentFactoryImpl(componentStore));
+		final Map<Long, String> previousStates = conceptStates(componentStore);
+		final int previousSize = componentStore.getConcepts().size();
+
+		final DeltaComponentFactoryImpl deltaFactory = new DeltaComponentFactoryImpl(componentStore);
+		new ReleaseImporter().loadDeltaReleaseFiles(releaseDir.toString(), profile, deltaFactory);
+
+		Assert.assertTrue(componentStore.getConcepts().size() > previousSize);
+		Assert.assertEquals(expectedStore.getConcepts().keySet(), componentStore.getConcepts().keySet());
+		for (ConceptImpl expected : expectedStore.getConcepts().values()) {
+			final ConceptImpl applied = componentStore.getConcepts().get(expected.getId().longValue());
+			Assert.assertEquals(state(expected), state(applied));
+			Assert.assertEquals(expected.getFsn(), applied.getFsn());
+			Assert.assertEquals(sorted(expected.getInferredAttributes()), sorted(applied.getInferredAttributes()));
+			Assert.assertEquals(sorted(expected.getStatedAttributes()), sorted(applied.getStatedAttributes()));
+			Assert.assertEquals(relationshipStates(expected), relationshipStates(applied));
+			Assert.assertEquals(descriptionStates(expected), descriptionStates(applied));
+			if (expected.isActive()) {
+				Assert.assertEquals(expected.getInferredAncestorIds(), applied.getInferredAncestorIds());
+				Assert.assertEquals(expected.getStatedAncestorIds(), applied.getStatedAncestorIds());
+				Assert.assertEquals(expected.getInferredDescendantIds(), applied.getInferredDescendantIds());
+			}
+		}
+		Assert.assertFalse(componentStore.getConcepts().get(Long.parseLong(generator.conceptId(concept))).getInferredAncestorIds().isEmpty());
+
+		final Map<Long, String> states = conceptStates(componentStore);
+		for (Map.Entry<Long, String> state : states.entrySet()) {
+			if (!state.getValue().equals(previousStates.get(state.getKey()))) {
+				Assert.assertTrue("Changed concept " + state.getKey() + " reported", deltaFactory.getChangedConceptIds().contains(state.getKey()));
+			}
+		}
+		Assert.assertTrue(deltaFactory.getChangedConceptIds().size() < componentStore.getConcepts().size());
+	}
+
+	@Test
+	public void testLightProfileDeltaAppliesInactivations() throws Exception {
+		final SyntheticReleaseGenerator generator = new SyntheticReleaseGenerator(3000).withReleaseVersions(VERSIONS).withFull().withDelta();
+		final Path releaseDir = generator.generate(tempDir.resolve("release"));
+		final Path previousReleaseDir = writePreviousSnapshot(releaseDir, tempDir.resolve("previous"));
+
+		// An is-a relationship inactivated and one to the root made in its place
+		final int concept = 1500;
+		final String conceptId = generator.conceptId(concept);
+		final String isA = isARow(relationshipFile(releaseDir, "Snapshot"), conceptId);
+		final String[] values = isA.split("\t");
+		final String oldParentId = values[5];
+		values[1] = VERSIONS[2];
+		values[2] = "0";
+		final String inactivatedIsA = join(values);
+		values[0] = "99" + values[0];
+		values[2] = "1";
+		values[5] = generator.conceptId(0);
+		changeRows(relationshipFile(releaseDir, "Snapshot"), relationshipFile(releaseDir, "Delta"), isA, inactivatedIsA, join(values));
+
+		// An is-a relationship moved to the root in place
+		final String movedConceptId = generator.conceptId(1600);
+		final String movedIsA = isARow(relationshipFile(releaseDir, "Snapshot"), movedConceptId);
+		final String[] movedValues = movedIsA.split("\t");
+		final String movedParentId = movedValues[5];
+		movedValues[1] = VERSIONS[2];
+		movedValues[5] = generator.conceptId(0);
+		changeRows(relationshipFile(releaseDir, "Snapshot"), relationshipFile(releaseDir, "Delta"), movedIsA, join(movedValues));
+
+		// An FSN inactivated without a new one
+		final String fsnConceptId = generator.conceptId(1700);
+		final String fsn = fsnRow(descriptionFile(releaseDir, "Snapshot"), fsnConceptId);
+		final String[] fsnValues = fsn.split("\t");
+		fsnValues[1] = VERSIONS[2];
+		fsnValues[2] = "0";
+		changeRows(descriptionFile(releaseDir, "Snapshot"), descriptionFile(releaseDir, "Delta"), fsn, join(fsnValues));
+
+		final LoadingProfile profile = LoadingProfile.light.withFullRelationshipObjects();
+		final ComponentStore expectedStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), profile, new ComponentFactoryImpl(expectedStore));
+		final ComponentStore componentStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(previousReleaseDir.toString(), profile, new ComponentFactoryImpl(componentStore));
+		final List<ConceptImpl> previouslyActive = new ArrayList<>();
+		for (ConceptImpl previous : componentStore.getConcepts().values()) {
+			if (previous.isActive()) {
+				previouslyActive.add(previous);
+			}
+		}
+		Assert.assertNotNull(componentStore.getConcepts().get(Long.parseLong(fsnConceptId)).getFsn());
+
+		new ReleaseImporter().loadDeltaReleaseFiles(releaseDir.toString(), profile, new DeltaComponentFactoryImpl(componentStore));
+
+		for (ConceptImpl expected : expectedStore.getConcepts().values()) {
+			if (expected.isActive()) {
+				final ConceptImpl applied = componentStore.getConcepts().get(expected.getId().longValue());
+				Assert.assertEquals(state(expected), state(applied));
+				Assert.assertEquals(expected.getFsn(), applied.getFsn());
+				Assert.assertEquals(sorted(expected.getInferredAttributes()), sorted(applied.getInferredAttributes()));
+				Assert.assertEquals(relationshipStates(expected), relationshipStates(applied));
+				Assert.assertEquals(descriptionStates(expected), descriptionStates(applied));
+				Assert.assertEquals(edgeIds(expected.parents(true)), edgeIds(applied.parents(true)));
+				Assert.assertEquals(expected.getInferredAncestorIds(), applied.getInferredAncestorIds());
+				Assert.assertEquals(expected.getInferredDescendantIds(), applied.getInferredDescendantIds());
+			}
+		}
+		final List<Long> parentIds = edgeIds(componentStore.getConcepts().get(Long.parseLong(conceptId)).parents(true));
+		Assert.assertFalse(parentIds.contains(Long.parseLong(oldParentId)));
+		Assert.assertTrue(parentIds.contains(Long.parseLong(generator.conceptId(0))));
+		final List<Long> movedParentIds = edgeIds(componentStore.getConcepts().get(Long.parseLong(movedConceptId)).parents(true));
+		Assert.assertFalse(movedParentIds.contains(Long.parseLong(movedParentId)));
+		Assert.assertTrue(movedParentIds.contains(Long.parseLong(generator.conceptId(0))));
+		Assert.assertNull(componentStore.getConcepts().get(Long.parseLong(fsnConceptId)).getFsn());
+
+		int inactivated = 0;
+		for (ConceptImpl previous : previouslyActive) {
+			final ConceptImpl expected = expectedStore.getConcepts().get(previous.getId().longValue());
+			if (expected == null || !expected.isActive()) {
+				Assert.assertFalse(previous.isActive());
+				Assert.assertEquals(0, previous.parents(true) == null ? 0 : previous.parents(true).size());
+				Assert.assertTrue(previous.getInferredAttributes().isEmpty());
+				inactivated++;
+			}
+		}
+		Assert.assertTrue("The delta inactivates concepts", inactivated > 0);
+	}
+
+	@Test(expected = ReleaseImportException.class)
+	public void testDeltaWithoutRelationshipObjectsRejected() throws Exception {
+		final Path releaseDir = new SyntheticReleaseGenerator(100).withReleaseVersions(VERSIONS).withDelta().generate(tempDir.resolve("release"));
+		new ReleaseImporter().loadDeltaReleaseFiles(releaseDir.toString(), LoadingProfile.light, new DeltaComponentFactoryImpl(new ComponentStore()));
+	}
+
+	/**
+	 * Writes the snapshot of the release before the last version from the Full files.
+	 */
+	private Path writePreviousSnapshot(Path releaseDir, Path previousReleaseDir) throws IOException {
+		for (Path fullFile : listFiles(releaseDir.resolve("Full"))) {
+			final List<String> lines = Files.readAllLines(fullFile, UTF_8);
+			final Map<String, String> lastRows = new LinkedHashMap<>();
+			for (String row : lines.subList(1, lines.size())) {
+				if (row.split("\t")[1].compareTo(VERSIONS[VERSIONS.length - 1]) < 0) {
+					lastRows.put(row.split("\t")[0], row);
+				}
+			}
+			final List<String> snapshotLines = new ArrayList<>();
+			snapshotLines.add(lines.get(0));
+			snapshotLines.addAll(lastRows.values());
+			final Path snapshotFile = previousReleaseDir.resolve(releaseDir.relativize(fullFile).toString().replace("Full", "Snapshot"));
+			Files.createDirectories(snapshotFile.getParent());
+			Files.write(snapshotFile, snapshotLines, UTF_8);
+		}
+		return previousReleaseDir;
+	}
+
+	private String isARow(Path relationshipFile, String sourceId) throws IOException {
+		for (String row : Files.readAllLines(relationshipFile, UTF_8)) {
+			final String[] values = row.split("\t");
+			if (values[2].equals("1") && !values[1].equals(VERSIONS[VERSIONS.length - 1]) && values[4].equals(sourceId) && values[7].equals(ConceptConstants.isA)) {
+				return row;
+			}
+		}
+		throw new IllegalStateException("No active is-a relationship for " + sourceId);
+	}
+
+	private String fsnRow(Path descriptionFile, String conceptId) throws IOException {
+		for (String row : Files.readAllLines(descriptionFile, UTF_8)) {
+			final String[] values = row.split("\t");
+			if (values[2].equals("1") && !values[1].equals(VERSIONS[VERSIONS.length - 1]) && values[4].equals(conceptId) && values[6].equals(ConceptConstants.FSN)) {
+				return row;
+			}
+		}
+		throw new IllegalStateException("No active FSN for " + conceptId);
+	}
+
+	/**
+	 * Replaces a row of the snapshot with the first of the new rows, adds the rest, and adds them all to the delta.
+	 */
+	private void changeRows(Path snapshotFile, Path deltaFile, String row, String... newRows) throws IOException {
+		final List<String> snapshotRows = new ArrayList<>(Files.readAllLines(snapshotFile, UTF_8));
+		snapshotRows.set(snapshotRows.indexOf(row), newRows[0]);
+		snapshotRows.addAll(Arrays.asList(newRows).subList(1, newRows.length));
+		Files.write(snapshotFile, snapshotRows, UTF_8);
+		final List<String> deltaRows = new ArrayList<>(Files.readAllLines(deltaFile, UTF_8));
+		deltaRows.addAll(Arrays.asList(newRows));
+		Files.write(deltaFile, deltaRows, UTF_8);
+	}
+
+	private Path relationshipFile(Path releaseDir, String fileType) {
+		return releaseDir.resolve(fileType + "/Terminology/sct2_Relationship_" + fileType + "_INT_" + VERSIONS[2] + ".txt");
+	}
+
+	private Path descriptionFile(Path releaseDir, String fileType) {
+		return releaseDir.resolve(fileType + "/Terminology/sct2_Description_" + fileType + "-en_INT_" + VERSIONS[2] + ".txt");
+	}
+
+	private Map<Long, String> conceptStates(ComponentStore componentStore) {
+		final Map<Long, String> states = new HashMap<>();
+		for (ConceptImpl concept : componentStore.getConcepts().values()) {
+			states.put(concept.getId(), state(concept) + relationshipStates(concept) + descriptionStates(concept)
+					+ edgeIds(concept.parents(true)) + edgeIds(concept.children(true)));
+		}
+		return states;
+	}
+
+	private List<Long> edgeIds(SortedConceptArraySet edges) {
+		final List<Long> ids = new ArrayList<>();
+		for (int i = 0; edges != null && i < edges.size(); i++) {
+			ids.add(edges.get(i).getId());
+		}
+		return ids;
+	}
+
+	private String state(Concept concept) {
+		return concept.getEffectiveTime() + " " + concept.isActive() + " " + concept.getModuleId() + " " + concept.getDefinitionStatusId();
+	}
+
+	private Map<String, String> relationshipStates(Concept concept) {
+		final Map<String, String> states = new TreeMap<>();
+		for (Relationship relationship : concept.getRelationships()) {
+			Assert.assertNull("Relationship " + relationship.getId() + " held once", states.put(relationship.getId(),
+					relationship.getEffectiveTime() + " " + relationship.getActive() + " " + relationship.getRelationshipGroup()));
+		}
+		return states;
+	}
+
+	private Map<Long, Boolean> descriptionStates(Concept concept) {
+		final Map<Long, Boolean> states = new TreeMap<>();
+		for (Description description : concept.getDescriptions()) {
+			Assert.assertNull("Description " + description.getId() + " held once", states.put(description.getId(), description.isActive()));
+		}
+		return states;
+	}
+
+	private Map<String, List<String>> sorted(Map<String, List<String>> attributes) {
+		final Map<String, List<String>> sorted = new TreeMap<>();
+		for (Map.Entry<String, List<String>> attribute : attributes.entrySet()) {
+			final List<String> values = new ArrayList<>(attribute.getValue());
+			Collections.sort(values);
+			sorted.put(attribute.getKey(), values);
+		}
+		return sorted;
+	}
+
+	private List<Path> listFiles(Path directory) throws IOException {
+		final List<Path> files = new ArrayList<>();
+		try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+			for (Path path : stream) {
+				if (Files.isDirectory(path)) {
+					files.addAll(listFiles(path));
+				} else {
+					files.add(path);
+				}
+			}
+		}
+		return files;
+	}
+
+	private static String join(String[] values) {
+		final StringBuilder joined = new StringBuilder();
+		for (String value : values) {
+			if (joined.length() > 0) {
+				joined.append('\t');
+			}
+			joined.append(value);
+		}
+		return joined.toString();
+	}
+}
@@ -0,0 +1,21 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import java.util.Collections;
+
+public class HierarchyCacheTest {
+
+	@Test
+	public void testEmptyEntriesDiscardedOnChange() {
+		final HierarchyCache hierarchyCache = new HierarchyCache();
+		// A traversal takes the entries while they are empty, then an edge changes before it stores its result
+		final HierarchyCache.Entries entries = hierarchyCache.getEntries();
+		hierarchyCache.invalidate();
+		entries.getAncestorIds(true).put(1L, Collections.singleton(2L));
+
+		Assert.assertNotSame(entries, hierarchyCache.getEntries());
+		Assert.assertNull(hierarchyCache.getEntries().getAncestorIds(true).get(1L));
+	}
+}
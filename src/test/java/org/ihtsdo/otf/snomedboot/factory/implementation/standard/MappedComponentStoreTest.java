@@ -0,0 +1,156 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import it.unimi.dsi.fastutil.longs.Long2ObjectMap;
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.ReleaseImporter;
+import org.ihtsdo.otf.snomedboot.domain.Concept;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.domain.Relationship;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+
+public class MappedComponentStoreTest {
+
+	private static final String RELEASE_PATH = "src/test/resources/dummy-snomed-content/SnomedCT_MiniRF2_INT_20170731";
+
+	private Path tempDir;
+
+	@Before
+	public void setup() throws IOException {
+		tempDir = Files.createTempDirectory("mapped-component-store");
+	}
+
+	@After
+	public void tearDown() {
+		FileSystemUtils.deleteRecursively(tempDir.toFile());
+	}
+
+	@Test
+	public void testMatchesStandardStore() throws Exception {
+		for (LoadingProfile loadingProfile : Arrays.asList(LoadingProfile.light, LoadingProfile.complete)) {
+			final ComponentStore standardStore = new ComponentStore();
+			new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, loadingProfile, new ComponentFactoryImpl(standardStore));
+			final Path imageFile = tempDir.resolve("store.image");
+			ComponentStoreImage.write(standardStore, imageFile, RELEASE_PATH, loadingProfile);
+			final MappedComponentStore mappedStore = MappedComponentStore.open(imageFile, RELEASE_PATH, loadingProfile);
+
+			final Long2ObjectMap<ConceptImpl> expectedConcepts = standardStore.getConcepts();
+			final Long2ObjectMap<Concept> concepts = mappedStore.getConcepts();
+			Assert.assertEquals(expectedConcepts.size(), concepts.size());
+			Assert.assertEquals(expectedConcepts.keySet(), concepts.keySet());
+			Assert.assertNull(concepts.get(1L));
+			for (final ConceptImpl expected : expectedConcepts.values()) {
+				final Concept concept = concepts.get(expected.getId().longValue());
+				Assert.assertEquals(expected.getId(), concept.getId());
+				Assert.assertEquals(expected.isActive(), concept.isActive());
+				Assert.assertEquals(expected.getEffectiveTime(), concept.getEffectiveTime());
+				Assert.assertEquals(expected.getModuleId(), concept.getModuleId());
+				Assert.assertEquals(expected.getDefinitionStatusId(), concept.getDefinitionStatusId());
+				Assert.assertEquals(expected.getFsn(), concept.getFsn());
+				Assert.assertEquals(expected.getMemberOfRefsetIds(), concept.getMemberOfRefsetIds());
+				Assert.assertEquals(expected.getInferredAttributes(), concept.getInferredAttributes());
+				Assert.assertEquals(expected.getStatedAttributes(), concept.getStatedAttributes());
+				Assert.assertEquals(relationships(expected), relationships(concept));
+				Assert.assertEquals(descriptions(expected), descriptions(concept));
+				assertSameOutcome(new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return expected.getInferredAncestorIds();
+					}
+				}, new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return concept.getInferredAncestorIds();
+					}
+				});
+				assertSameOutcome(new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return expected.getInferredDescendantIds();
+					}
+				}, new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return concept.getInferredDescendantIds();
+					}
+				});
+				assertSameOutcome(new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return expected.getStatedAncestorIds();
+					}
+				}, new Callable<Set<Long>>() {
+					@Override
+					public Set<Long> call() throws Exception {
+						return concept.getStatedAncestorIds();
+					}
+				});
+			}
+		}
+	}
+
+	@Test
+	public void testImageOfAnotherProfileRejected() throws Exception {
+		final ComponentStore standardStore = new ComponentStore();
+		new ReleaseImporter().loadSnapshotReleaseFiles(RELEASE_PATH, LoadingProfile.light, new ComponentFactoryImpl(standardStore));
+		final Path imageFile = tempDir.resolve("store.image");
+		ComponentStoreImage.write(standardStore, imageFile, RELEASE_PATH, LoadingProfile.light);
+
+		Assert.assertEquals(standardStore.getConcepts().size(), MappedComponentStore.open(imageFile).getConceptCount());
+		try {
+			MappedComponentStore.open(imageFile, RELEASE_PATH, LoadingProfile.complete);
+			Assert.fail("An image of another loading profile should not be mapped.");
+		} catch (IOException e) {
+			// expected
+		}
+	}
+
+	private List<String> relationships(Concept concept) {
+		final List<String> relationships = new ArrayList<>();
+		for (Relationship r : concept.getRelationships()) {
+			relationships.add(r.getId() + " " + r.getEffectiveTime() + " " + r.getActive() + " " + r.getModuleId() + " " + r.getSourceId()
+					+ " " + r.getDestinationId() + " " + r.getRelationshipGroup() + " " + r.getTypeId() + " " + r.getCharacteristicTypeId()
+					+ " " + r.getModifierId());
+		}
+		return relationships;
+	}
+
+	private Map<Long, String> descriptions(Concept concept) {
+		final Map<Long, String> terms = new TreeMap<>();
+		for (Description description : concept.getDescriptions()) {
+			terms.put(description.getId(), description.isActive() + " " + description.getConceptId() + " " + description.getTerm());
+		}
+		return terms;
+	}
+
+	private void assertSameOutcome(Callable<Set<Long>> expected, Callable<Set<Long>> actual) throws Exception {
+		Set<Long> expectedIds;
+		try {
+			expectedIds = expected.call();
+		} catch (IllegalStateException e) {
+			try {
+				actual.call();
+				Assert.fail("Expected " + e.getMessage());
+			} catch (IllegalStateException actualException) {
+				Assert.assertEquals(e.getMessage(), actualException.getMessage());
+			}
+			return;
+		}
+		Assert.assertEquals(expectedIds, actual.call());
+	}
+}
@@ -0,0 +1,67 @@
+package org.ihtsdo.otf.snomedboot.factory.implementation.standard;
+
+import org.ihtsdo.otf.snomedboot.ComponentStore;
+import org.ihtsdo.otf.snomedboot.ReleaseImporter;
+import org.ihtsdo.otf.snomedboot.SyntheticReleaseGenerator;
+import org.ihtsdo.otf.snomedboot.domain.Description;
+import org.ihtsdo.otf.snomedboot.factory.LoadingProfile;
+import org.junit.Assert;
+import org.junit.Test;
+import org.springframework.util.FileSystemUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.TreeMap;
+
+public class TermStoreTest {
+
+	@Test
+	public void testTermsReadBack() {
+		final TermStore termStore = new TermStore(32);
+		final long first = termStore.append("Clinical finding (finding)");
+		final long empty = termStore.append("");
+		final long accented = termStore.append("Maladie de Ménière");
+		final long longerThanChunk = termStore.append("Structure of skin and/or subcutaneous tissue of lower limb (body structure)");
+		final long last = termStore.append("Body structure");
+
+		Assert.assertEquals("Clinical finding (finding)", termStore.getTerm(first));
+		Assert.assertEquals("", termStore.getTerm(empty));
+		Assert.assertEquals("Maladie de Ménière", termStore.getTerm(accented));
+		Assert.assertEquals("Structure of skin and/or subcutaneous tissue of lower limb (body structure)", termStore.getTerm(longerThanChunk));
+		Assert.assertEquals("Body structure", termStore.getTerm(last));
+		Assert.assertEquals(26 + 0 + 20 + 75 + 14 + 5 * 4, termStore.size());
+	}
+
+	@Test
+	public void testLoadWithTermStoreMatchesLoadWithoutIt() throws Exception {
+		final Path tempDir = Files.createTempDirectory("term-store");
+		try {
+			final Path releaseDir = new SyntheticReleaseGenerator(2000).generate(tempDir);
+			final ComponentStore expectedStore = new ComponentStore();
+			new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ComponentFactoryImpl(expectedStore));
+			final ComponentStore componentStore = new ComponentStore();
+			final TermStore termStore = new TermStore();
+			new ReleaseImporter().loadSnapshotReleaseFiles(releaseDir.toString(), LoadingProfile.complete, new ComponentFactoryImpl(componentStore, termStore));
+
+			Assert.assertTrue(termStore.size() > 0);
+			for (ConceptImpl expected : expectedStore.getConcepts().values()) {
+				final ConceptImpl concept = componentStore.getConcepts().get(expected.getId().longValue());
+				Assert.assertEquals(terms(expected), terms(concept));
+				for (Description description : concept.getDescriptions()) {
+					Assert.assertTrue(description instanceof StoredTermDescriptionImpl);
+				}
+			}
+		} finally {
+			FileSystemUtils.deleteRecursively(tempDir.toFile());
+		}
+	}
+
+	private Map<Long, String> terms(ConceptImpl concept) {
+		final Map<Long, String> terms = new TreeMap<>();
+		for (Description description : concept.getDescriptions()) {
+			terms.put(description.getId(), description.isActive() + " " + description.getConceptId() + " " + description.getTerm());
+		}
+		return terms;
+	}
+}